@@ -0,0 +1,136 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.drawable.AdaptiveIconDrawable;
+import android.graphics.drawable.Drawable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the layers of adaptive icons separately, so that Flutter can shift them against each
+ * other on focus without another platform call. For an icon of size {@code size}, the layers
+ * are {@link #layerSize(int)} square, the icon being their centre, the rest leaving room for the
+ * shift as in {@link AdaptiveIconDrawable}; the mask is {@code size} square.
+ */
+public class AdaptiveIconRenderer
+{
+    // Icons are rendered at a multiple of SIZE_STEP up to MAX_SIZE, so that the masks, and the
+    // layers cached by size, are kept for a few sizes only whatever the sizes requested
+    static final int SIZE_STEP = 32;
+    static final int MAX_SIZE = 512;
+
+    private final Map<Integer, byte[]> _masks = new ConcurrentHashMap<>();
+    private final String _maskPathData;
+
+    public AdaptiveIconRenderer()
+    {
+        Resources resources = Resources.getSystem();
+        int id = resources.getIdentifier("config_icon_mask", "string", "android");
+        _maskPathData = id != 0 ? resources.getString(id) : null;
+    }
+
+    /**
+     * @return the size the icons of the requested size are rendered at, the nearest allowed one
+     *         not smaller, within the allowed range
+     */
+    public static int renderedSize(int size)
+    {
+        int steps = (Math.max(size, 1) + SIZE_STEP - 1) / SIZE_STEP;
+        return Math.min(steps * SIZE_STEP, MAX_SIZE);
+    }
+
+    public static int layerSize(int size)
+    {
+        return Math.round(size * (1 + 2 * AdaptiveIconDrawable.getExtraInsetFraction()));
+    }
+
+    /**
+     * @return the PNG encoded foreground and background layers, null if the icon is not adaptive
+     */
+    public byte[][] renderLayers(Drawable icon, int size)
+    {
+        if (!(icon instanceof AdaptiveIconDrawable adaptiveIcon)) {
+            return null;
+        }
+
+        int layerSize = layerSize(size);
+        return new byte[][] {
+                renderLayer(adaptiveIcon.getForeground(), layerSize),
+                renderLayer(adaptiveIcon.getBackground(), layerSize)
+        };
+    }
+
+    /**
+     * @return the PNG encoded mask of the icons of the given size, opaque inside the system shape
+     */
+    public byte[] getMask(int size)
+    {
+        return _masks.computeIfAbsent(size, this::renderMask);
+    }
+
+    /**
+     * @return the SVG path data of the system icon shape, in a 100 by 100 viewport, null if the
+     *         platform does not expose it
+     */
+    public String getMaskPathData()
+    {
+        return _maskPathData;
+    }
+
+    private byte[] renderMask(int size)
+    {
+        // The mask of a drawable without layers is the system shape scaled to its bounds
+        AdaptiveIconDrawable shape = new AdaptiveIconDrawable(null, null);
+        shape.setBounds(0, 0, size, size);
+        Path mask = shape.getIconMask();
+
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        new Canvas(bitmap).drawPath(mask, paint);
+        return encode(bitmap);
+    }
+
+    private static byte[] renderLayer(Drawable layer, int layerSize)
+    {
+        if (layer == null) {
+            return new byte[0];
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(layerSize, layerSize, Bitmap.Config.ARGB_8888);
+        layer.setBounds(0, 0, layerSize, layerSize);
+        layer.draw(new Canvas(bitmap));
+        return encode(bitmap);
+    }
+
+    private static byte[] encode(Bitmap bitmap)
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        bitmap.recycle();
+        return stream.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.util.LruCache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of the encoded application banners, icons and icon layers, bounded
+ * in bytes.
+ * Images of low priority packages, the hidden ones, are served without being cached so that
+ * they never evict the images of the visible applications.
+ */
+public class AppImageCache
+{
+    public static final String BANNER = "banner";
+    public static final String ICON = "icon";
+    public static final String ICON_FOREGROUND = "iconForeground";
+    public static final String ICON_BACKGROUND = "iconBackground";
+
+    private final LruCache<String, byte[]> _cache;
+    private final Set<String> _lowPriorityPackageNames = ConcurrentHashMap.newKeySet();
+    private final Set<String> _sizedTypes = ConcurrentHashMap.newKeySet();
+
+    public AppImageCache(int maxBytes)
+    {
+        _cache = new LruCache<>(maxBytes)
+        {
+            @Override
+            protected int sizeOf(String key, byte[] value)
+            {
+                // Empty images, for applications without banner, still take an entry
+                return Math.max(value.length, 1);
+            }
+        };
+    }
+
+    public byte[] get(String type, String packageName, Supplier<byte[]> loader)
+    {
+        String key = key(type, packageName);
+        byte[] image = _cache.get(key);
+
+        if (image == null) {
+            image = loader.get();
+
+            if (!_lowPriorityPackageNames.contains(packageName)) {
+                _cache.put(key, image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @return the cached image, null if it has to be loaded
+     */
+    public byte[] peek(String type, String packageName)
+    {
+        return _cache.get(key(type, packageName));
+    }
+
+    /**
+     * @return the type of the images of the given type rendered at the given size, invalidated
+     *         along with the other images of their package
+     */
+    public String sized(String type, int size)
+    {
+        String sizedType = type + '@' + size;
+        _sizedTypes.add(sizedType);
+        return sizedType;
+    }
+
+    public void setLowPriorityPackages(Set<String> packageNames)
+    {
+        _lowPriorityPackageNames.retainAll(packageNames);
+        _lowPriorityPackageNames.addAll(packageNames);
+
+        for (String packageName : packageNames) {
+            invalidate(packageName);
+        }
+    }
+
+    public void invalidate(String packageName)
+    {
+        _cache.remove(key(BANNER, packageName));
+        _cache.remove(key(ICON, packageName));
+
+        for (String sizedType : _sizedTypes) {
+            _cache.remove(key(sizedType, packageName));
+        }
+    }
+
+    public void invalidateAll()
+    {
+        _cache.evictAll();
+    }
+
+    private static String key(String type, String packageName)
+    {
+        return type + ':' + packageName;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.app.usage.StorageStats;
+import android.app.usage.StorageStatsManager;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Process;
+
+import com.geert.flauncher.core.StorageStatsCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Storage footprint of the applications, from {@link StorageStatsManager}. Its queries take tens
+ * of milliseconds per package, they run on a background pool and are cached until the package
+ * is updated, stale entries being served while they are refreshed.
+ * Without the PACKAGE_USAGE_STATS access, only the stats of FLauncher itself are available.
+ */
+public class ApplicationStats
+{
+    private static final long REFRESH_MILLIS = 10 * 60 * 1000L;
+
+    private final PackageManager _packageManager;
+    private final StorageStatsManager _storageStatsManager;
+    private final StorageStatsCache _cache = new StorageStatsCache(REFRESH_MILLIS);
+    private final ExecutorService _executor = Executors.newFixedThreadPool(2);
+
+    public ApplicationStats(Context context)
+    {
+        _packageManager = context.getPackageManager();
+        _storageStatsManager = (StorageStatsManager) context.getSystemService(Context.STORAGE_STATS_SERVICE);
+    }
+
+    /**
+     * Computes the stats of the packages in the background.
+     *
+     * @param callback called from a background thread with the stats of the packages, in
+     *                 order, as maps of {@link StorageStatsCache.Stats#toMap()}; packages not
+     *                 installed or whose stats are not accessible are omitted, none when
+     *                 packageNames is null or after {@link #close()}
+     */
+    public void getStats(List<String> packageNames, Consumer<List<Map<String, Object>>> callback)
+    {
+        if (packageNames == null || packageNames.isEmpty()) {
+            callback.accept(List.of());
+            return;
+        }
+
+        List<CompletableFuture<StorageStatsCache.Stats>> futures = new ArrayList<>(packageNames.size());
+
+        try {
+            for (String packageName : packageNames) {
+                futures.add(CompletableFuture.supplyAsync(() -> getStats(packageName), _executor));
+            }
+        }
+        catch (RejectedExecutionException e) {
+            callback.accept(List.of());
+            return;
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((ignored, throwable) -> {
+            List<Map<String, Object>> stats = new ArrayList<>(futures.size());
+
+            for (CompletableFuture<StorageStatsCache.Stats> future : futures) {
+                StorageStatsCache.Stats packageStats = future.getNow(null);
+
+                if (packageStats != null) {
+                    stats.add(packageStats.toMap());
+                }
+            }
+            callback.accept(stats);
+        });
+    }
+
+    private StorageStatsCache.Stats getStats(String packageName)
+    {
+        PackageInfo packageInfo;
+
+        try {
+            packageInfo = _packageManager.getPackageInfo(packageName, 0);
+        }
+        catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+
+        long lastUpdateTime = packageInfo.lastUpdateTime;
+        // Applications moved to adopted storage are only found on their volume
+        UUID storageUuid = packageInfo.applicationInfo.storageUuid;
+        StorageStatsCache.Stats stats = _cache.get(packageName, lastUpdateTime);
+
+        if (stats == null) {
+            return query(packageName, storageUuid, lastUpdateTime);
+        }
+
+        if (_cache.isStale(stats, System.currentTimeMillis()) && _cache.beginRefresh(packageName)) {
+            try {
+                _executor.execute(() -> query(packageName, storageUuid, lastUpdateTime));
+            }
+            catch (RejectedExecutionException e) {
+                _cache.endRefresh(packageName);
+            }
+        }
+        return stats;
+    }
+
+    private StorageStatsCache.Stats query(String packageName, UUID storageUuid, long lastUpdateTime)
+    {
+        try {
+            StorageStats storageStats = _storageStatsManager.queryStatsForPackage(
+                    storageUuid, packageName, Process.myUserHandle());
+            StorageStatsCache.Stats stats = new StorageStatsCache.Stats(packageName, lastUpdateTime,
+                    storageStats.getAppBytes(), storageStats.getDataBytes(), storageStats.getCacheBytes(),
+                    System.currentTimeMillis());
+            _cache.put(stats);
+            return stats;
+        }
+        catch (PackageManager.NameNotFoundException | IOException | SecurityException e) {
+            _cache.endRefresh(packageName);
+            return null;
+        }
+    }
+
+    /**
+     * Stops the background pool, the queries running are abandoned.
+     */
+    public void close()
+    {
+        _executor.shutdownNow();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.geert.flauncher.core.ChannelMetrics;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
+
+/**
+ * Records latency, payload size and error metrics of platform channel method calls and event
+ * emissions, exposed to Dart through the getPlatformMetrics method.
+ * Method latency runs from the handler being called to the reply being encoded and sent, event
+ * latency covers encoding and sending the event.
+ */
+public class ChannelInstrumentation
+{
+    private final ChannelMetrics _methods = new ChannelMetrics();
+    private final ChannelMetrics _events = new ChannelMetrics();
+    private final MethodCodec _codec;
+
+    // Envelopes are encoded synchronously, on the thread replying or emitting, so the size of
+    // the last one is handed over per thread
+    private final ThreadLocal<int[]> _lastEnvelopeSize = ThreadLocal.withInitial(() -> new int[1]);
+    // Handlers are called on the main thread
+    private volatile String _lastCall;
+
+    public ChannelInstrumentation(MethodCodec codec)
+    {
+        _codec = new InstrumentedMethodCodec(codec);
+    }
+
+    /**
+     * Codec to create the instrumented channels with.
+     */
+    public MethodCodec getCodec()
+    {
+        return _codec;
+    }
+
+    public MethodChannel.MethodCallHandler instrument(MethodChannel.MethodCallHandler handler)
+    {
+        return (call, result) -> {
+            long start = System.nanoTime();
+            int requestSize = takeLastEnvelopeSize();
+            _lastCall = call.method;
+
+            try {
+                handler.onMethodCall(call, new InstrumentedResult(call.method, start, requestSize, result));
+            }
+            catch (RuntimeException e) {
+                _methods.record(call.method, System.nanoTime() - start, requestSize, true);
+                throw e;
+            }
+        };
+    }
+
+    public EventChannel.StreamHandler instrument(String name, EventChannel.StreamHandler handler)
+    {
+        return new EventChannel.StreamHandler()
+        {
+            @Override
+            public void onListen(Object arguments, EventChannel.EventSink events)
+            {
+                _lastCall = name + ".onListen";
+                handler.onListen(arguments, new InstrumentedEventSink(name, events));
+            }
+
+            @Override
+            public void onCancel(Object arguments)
+            {
+                _lastCall = name + ".onCancel";
+                handler.onCancel(arguments);
+            }
+        };
+    }
+
+    public Map<String, Object> getMetrics(boolean reset)
+    {
+        return Map.of(
+                "methods", _methods.snapshot(reset),
+                "events", _events.snapshot(reset));
+    }
+
+    /**
+     * @return the method or stream handler callback called last, e.g. "getApplicationBanner" or
+     * "com.geert.flauncher/event_apps.onListen", or null if none was
+     */
+    public String getLastCall()
+    {
+        return _lastCall;
+    }
+
+    private int takeLastEnvelopeSize()
+    {
+        int[] lastEnvelopeSize = _lastEnvelopeSize.get();
+        int size = lastEnvelopeSize[0];
+        lastEnvelopeSize[0] = 0;
+        return size;
+    }
+
+    private ByteBuffer encoded(ByteBuffer envelope)
+    {
+        // Encoded envelopes are allocated to their exact size, and handed over with their
+        // position at the end
+        _lastEnvelopeSize.get()[0] = envelope == null ? 0 : envelope.capacity();
+        return envelope;
+    }
+
+    private class InstrumentedMethodCodec implements MethodCodec
+    {
+        private final MethodCodec _delegate;
+
+        InstrumentedMethodCodec(MethodCodec delegate)
+        {
+            _delegate = delegate;
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer encodeMethodCall(@NonNull MethodCall methodCall)
+        {
+            return _delegate.encodeMethodCall(methodCall);
+        }
+
+        @NonNull
+        @Override
+        public MethodCall decodeMethodCall(@NonNull ByteBuffer methodCall)
+        {
+            _lastEnvelopeSize.get()[0] = methodCall.remaining();
+            return _delegate.decodeMethodCall(methodCall);
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer encodeSuccessEnvelope(@Nullable Object result)
+        {
+            return encoded(_delegate.encodeSuccessEnvelope(result));
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer encodeErrorEnvelope(@NonNull String errorCode, @Nullable String errorMessage,
+                                              @Nullable Object errorDetails)
+        {
+            return encoded(_delegate.encodeErrorEnvelope(errorCode, errorMessage, errorDetails));
+        }
+
+        @NonNull
+        @Override
+        public ByteBuffer encodeErrorEnvelopeWithStacktrace(@NonNull String errorCode, @Nullable String errorMessage,
+                                                            @Nullable Object errorDetails, @Nullable String errorStacktrace)
+        {
+            return encoded(_delegate.encodeErrorEnvelopeWithStacktrace(
+                    errorCode, errorMessage, errorDetails, errorStacktrace));
+        }
+
+        @NonNull
+        @Override
+        public Object decodeEnvelope(@NonNull ByteBuffer envelope)
+        {
+            return _delegate.decodeEnvelope(envelope);
+        }
+    }
+
+    private class InstrumentedResult implements MethodChannel.Result
+    {
+        private final String _method;
+        private final long _start;
+        private final int _requestSize;
+        private final MethodChannel.Result _delegate;
+
+        InstrumentedResult(String method, long start, int requestSize, MethodChannel.Result delegate)
+        {
+            _method = method;
+            _start = start;
+            _requestSize = requestSize;
+            _delegate = delegate;
+        }
+
+        @Override
+        public void success(@Nullable Object result)
+        {
+            _delegate.success(result);
+            record(false);
+        }
+
+        @Override
+        public void error(@NonNull String errorCode, @Nullable String errorMessage, @Nullable Object errorDetails)
+        {
+            _delegate.error(errorCode, errorMessage, errorDetails);
+            record(true);
+        }
+
+        @Override
+        public void notImplemented()
+        {
+            _delegate.notImplemented();
+            record(true);
+        }
+
+        private void record(boolean error)
+        {
+            _methods.record(_method, System.nanoTime() - _start, _requestSize + takeLastEnvelopeSize(), error);
+        }
+    }
+
+    private class InstrumentedEventSink implements EventChannel.EventSink
+    {
+        private final String _name;
+        private final EventChannel.EventSink _delegate;
+
+        InstrumentedEventSink(String name, EventChannel.EventSink delegate)
+        {
+            _name = name;
+            _delegate = delegate;
+        }
+
+        @Override
+        public void success(Object event)
+        {
+            long start = System.nanoTime();
+            _delegate.success(event);
+            _events.record(_name, System.nanoTime() - start, takeLastEnvelopeSize(), false);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails)
+        {
+            long start = System.nanoTime();
+            _delegate.error(errorCode, errorMessage, errorDetails);
+            _events.record(_name, System.nanoTime() - start, takeLastEnvelopeSize(), true);
+        }
+
+        @Override
+        public void endOfStream()
+        {
+            _delegate.endOfStream();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+
+import com.geert.flauncher.core.IconPackIndex;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Third-party icon packs, in the ADW/Nova format. The appfilter.xml of the selected pack is
+ * parsed once into an {@link IconPackIndex}, persisted until the pack is updated, so that
+ * theming an icon is a hash lookup and the load of a single drawable.
+ */
+public class IconPacks
+{
+    // Intent actions icon packs declare, from the launchers they were made for
+    private static final List<String> THEME_ACTIONS = List.of(
+            "org.adw.launcher.THEMES",
+            "com.novalauncher.THEME",
+            "com.teslacoilsw.launcher.THEME",
+            "com.anddoes.launcher.THEME",
+            "com.gau.go.launcherex.theme");
+
+    private static final class LoadedPack
+    {
+        final IconPackIndex index;
+        final Resources resources;
+        // Drawable identifiers by name, 0 when the pack doesn't have the drawable
+        final Map<String, Integer> drawableIds = new ConcurrentHashMap<>();
+
+        LoadedPack(IconPackIndex index, Resources resources)
+        {
+            this.index = index;
+            this.resources = resources;
+        }
+    }
+
+    private final PackageManager _packageManager;
+    private final File _indexFile;
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+
+    private volatile CompletableFuture<LoadedPack> _pack = CompletableFuture.completedFuture(null);
+
+    public IconPacks(Context context, File indexFile)
+    {
+        _packageManager = context.getPackageManager();
+        _indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index of the selected pack in the background, parsing the pack again if it has
+     * been updated since.
+     */
+    public void load()
+    {
+        _pack = CompletableFuture.supplyAsync(() -> {
+            IconPackIndex index = readIndex();
+            return index != null ? loadPack(index.getPackPackageName(), index) : null;
+        }, _executor);
+    }
+
+    /**
+     * @return the installed icon packs, as maps of "packageName" and "name"
+     */
+    public List<Map<String, Object>> getIconPacks()
+    {
+        Set<String> packageNames = new HashSet<>();
+        List<Map<String, Object>> iconPacks = new ArrayList<>();
+
+        for (String action : THEME_ACTIONS) {
+            for (ResolveInfo resolveInfo : _packageManager.queryIntentActivities(new Intent(action), 0)) {
+                String packageName = resolveInfo.activityInfo.packageName;
+
+                if (packageNames.add(packageName)) {
+                    iconPacks.add(Map.of(
+                            "packageName", packageName,
+                            "name", resolveInfo.loadLabel(_packageManager).toString()));
+                }
+            }
+        }
+        return iconPacks;
+    }
+
+    /**
+     * @param callback called with the package name of the selected pack, null if none, once it is
+     *                 loaded: right away if it is, else from a background thread
+     */
+    public void getIconPack(Consumer<String> callback)
+    {
+        _pack.whenComplete((pack, throwable) ->
+                callback.accept(pack != null ? pack.index.getPackPackageName() : null));
+    }
+
+    /**
+     * Selects the pack, null for none, indexing it in the background.
+     *
+     * @param onSelected called from a background thread once the icons of the pack are loadable,
+     *                   or once selecting it failed
+     */
+    public void setIconPack(String packPackageName, Runnable onSelected)
+    {
+        _pack = CompletableFuture.supplyAsync(() -> {
+            if (packPackageName == null) {
+                _indexFile.delete();
+                return null;
+            }
+            return loadPack(packPackageName, readIndex());
+        }, _executor);
+        _pack.whenComplete((pack, throwable) -> onSelected.run());
+    }
+
+    /**
+     * Indexes the selected pack again if it is the given package, e.g. after an update.
+     *
+     * @return whether it is
+     */
+    public boolean packageChanged(String packageName)
+    {
+        LoadedPack pack = currentPack(false);
+
+        if (pack == null || !pack.index.getPackPackageName().equals(packageName)) {
+            return false;
+        }
+
+        setIconPack(packageName, () -> { });
+        return true;
+    }
+
+    /**
+     * Waits for the index of the pack if it is still loading, which only takes long when the
+     * pack has just been selected or updated. Meant for the image request workers: on the main
+     * thread, the icon is not themed until the pack is loaded.
+     *
+     * @return the icon of the activity in the selected pack, null if none
+     */
+    public Drawable loadIcon(ComponentName component)
+    {
+        LoadedPack pack = currentPack(Looper.myLooper() != Looper.getMainLooper());
+
+        if (pack == null || component == null) {
+            return null;
+        }
+
+        String drawable = pack.index.find(component.getPackageName(), component.getClassName());
+
+        if (drawable == null) {
+            return null;
+        }
+
+        int id = pack.drawableIds.computeIfAbsent(drawable,
+                name -> pack.resources.getIdentifier(name, "drawable", pack.index.getPackPackageName()));
+
+        try {
+            return id != 0 ? pack.resources.getDrawable(id, null) : null;
+        }
+        catch (Resources.NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops the background thread, the pack being loaded is abandoned.
+     */
+    public void close()
+    {
+        _executor.shutdownNow();
+    }
+
+    /**
+     * @param wait whether to wait for the pack being loaded, else it is null until it is
+     * @return the selected pack, null if none or if loading it failed
+     */
+    private LoadedPack currentPack(boolean wait)
+    {
+        try {
+            return wait ? _pack.join() : _pack.getNow(null);
+        }
+        catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private LoadedPack loadPack(String packPackageName, IconPackIndex persistedIndex)
+    {
+        try {
+            long versionCode = _packageManager.getPackageInfo(packPackageName, 0).getLongVersionCode();
+            Resources resources = _packageManager.getResourcesForApplication(packPackageName);
+            IconPackIndex index = persistedIndex;
+
+            if (index == null || !index.isIndexOf(packPackageName, versionCode)) {
+                index = parseAppFilter(packPackageName, versionCode, resources);
+                writeIndex(index);
+            }
+            return new LoadedPack(index, resources);
+        }
+        catch (PackageManager.NameNotFoundException | IOException | XmlPullParserException | RuntimeException e) {
+            // Malformed packs also throw Resources.NotFoundException or parser runtime exceptions
+            LauncherLog.d("IconPacks", "loadPack: cannot load {}: {}", packPackageName, e);
+            return null;
+        }
+    }
+
+    private static IconPackIndex parseAppFilter(String packPackageName, long versionCode, Resources resources)
+            throws IOException, XmlPullParserException
+    {
+        IconPackIndex index = new IconPackIndex(packPackageName, versionCode);
+        int id = resources.getIdentifier("appfilter", "xml", packPackageName);
+
+        if (id != 0) {
+            parseAppFilter(resources.getXml(id), index);
+        }
+        else {
+            try (InputStream stream = resources.getAssets().open("appfilter.xml")) {
+                XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+                parser.setInput(stream, null);
+                parseAppFilter(parser, index);
+            }
+        }
+        return index;
+    }
+
+    private static void parseAppFilter(XmlPullParser parser, IconPackIndex index)
+            throws IOException, XmlPullParserException
+    {
+        for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+            if (event == XmlPullParser.START_TAG && "item".equals(parser.getName())) {
+                index.add(parser.getAttributeValue(null, "component"), parser.getAttributeValue(null, "drawable"));
+            }
+        }
+    }
+
+    private IconPackIndex readIndex()
+    {
+        if (!_indexFile.exists()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(_indexFile)))) {
+            return IconPackIndex.read(input);
+        }
+        catch (IOException e) {
+            // Parsed again from the pack
+            return null;
+        }
+    }
+
+    private void writeIndex(IconPackIndex index) throws IOException
+    {
+        File temporaryFile = new File(_indexFile.getPath() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            index.write(output);
+        }
+        if (!temporaryFile.renameTo(_indexFile)) {
+            throw new IOException("Cannot replace " + _indexFile);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.geert.flauncher.core.ImageRequestScheduler;
+import com.geert.flauncher.core.ImageRequestTracker;
+import com.geert.flauncher.core.StartupTimeline;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Loads the application images requested by Dart on background workers, so that requests can be
+ * cancelled by id while they wait or run: a cancelled request stops at its next step and is
+ * answered with null.
+ * Requests are run in priority order, see {@link ImageRequestScheduler}; one of the workers at
+ * most runs speculative requests.
+ */
+public class ImageRequests
+{
+    private static final int WORKER_COUNT = 2;
+
+    private final ImageRequestTracker _tracker = new ImageRequestTracker();
+    private final ImageRequestScheduler _scheduler = new ImageRequestScheduler(WORKER_COUNT - 1, System::nanoTime);
+    private final Thread[] _workers = new Thread[WORKER_COUNT];
+    private final Handler _mainHandler = new Handler(Looper.getMainLooper());
+    // Only the first request is traced, as a cold start phase
+    private final AtomicBoolean _firstRequest = new AtomicBoolean(true);
+
+    public ImageRequests()
+    {
+        for (int i = 0; i < _workers.length; i++) {
+            _workers[i] = new Thread(this::runWorker, "ImageRequests-" + i);
+            _workers[i].start();
+        }
+    }
+
+    /**
+     * @param loader called from a background thread, goes through the request checkpoints
+     * @param result answered on the main thread
+     */
+    public <T> void submit(int id, ImageRequestScheduler.Priority priority,
+                           Function<ImageRequestTracker.Request, T> loader, MethodChannel.Result result)
+    {
+        ImageRequestTracker.Request request = _tracker.begin(id);
+        int startupSlot = _firstRequest.compareAndSet(true, false)
+                ? StartupTracer.begin("firstImageRequest")
+                : StartupTimeline.NO_SLOT;
+
+        _scheduler.submit(id, priority, () -> {
+            T value = null;
+
+            try {
+                request.checkpoint(ImageRequestTracker.Stage.QUEUED);
+                value = loader.apply(request);
+                _tracker.complete(request);
+            }
+            catch (CancellationException ignored) {
+                // Counted by the tracker
+            }
+            catch (RuntimeException e) {
+                _tracker.fail(request);
+                _mainHandler.post(() -> result.error("IMAGE_REQUEST_FAILED", e.toString(), null));
+                return;
+            }
+            finally {
+                StartupTracer.end(startupSlot);
+            }
+
+            T reply = value;
+            _mainHandler.post(() -> result.success(reply));
+        });
+    }
+
+    public void cancel(List<? extends Number> ids)
+    {
+        _tracker.cancel(ids);
+    }
+
+    /**
+     * Re-prioritizes the request, e.g. as its card gains or loses the focus. Completed requests
+     * are ignored.
+     */
+    public void setPriority(int id, ImageRequestScheduler.Priority priority)
+    {
+        _scheduler.setPriority(id, priority);
+    }
+
+    /**
+     * Completed and cancelled request counts, see {@link ImageRequestTracker#snapshot(boolean)},
+     * and the queue wait by priority under "queueWait".
+     */
+    public Map<String, Object> getMetrics(boolean reset)
+    {
+        Map<String, Object> metrics = new HashMap<>(_tracker.snapshot(reset));
+        metrics.put("queueWait", _scheduler.queueWaitSnapshot(reset));
+        return metrics;
+    }
+
+    public void close()
+    {
+        for (Thread worker : _workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void runWorker()
+    {
+        try {
+            while (true) {
+                _scheduler.take().run();
+            }
+        }
+        catch (InterruptedException ignored) {
+            // Closed
+        }
+    }
+}
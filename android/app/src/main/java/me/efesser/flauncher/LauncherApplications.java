@@ -0,0 +1,369 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Oscar Rojas
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.provider.Settings;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.geert.flauncher.core.ApplicationMerger;
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Enumerates the launchable applications, leanback ones first, the way they are sent to Dart.
+ * Their launch intents are kept from the enumeration, so that launching doesn't query the
+ * package manager between the key press and the activity start.
+ * Resolving an application, its label and version, has a time budget: one package with a huge
+ * APK or a broken resource table is sent with its package name as label, and resolved later.
+ */
+public class LauncherApplications
+{
+    static final long APPLICATION_BUDGET_MILLIS = 250;
+    // Bounds the enumeration when slow applications also delay the ones queued behind them
+    static final long ENUMERATION_DEADLINE_MILLIS = 1000;
+    private static final long POLL_MILLIS = 50;
+
+    private final PackageManager packageManager;
+    private final Supplier<ExecutorService> executorFactory;
+    private final Map<String, Intent> launchIntents = new ConcurrentHashMap<>();
+    private final ExecutorService launchIntentExecutor = Executors.newSingleThreadExecutor();
+    private volatile Consumer<LauncherMessages.Application> lateApplicationListener;
+
+    public LauncherApplications(PackageManager packageManager) {
+        this(packageManager, () -> Executors.newFixedThreadPool(4));
+    }
+
+    @VisibleForTesting
+    LauncherApplications(PackageManager packageManager, Supplier<ExecutorService> executorFactory) {
+        this.packageManager = packageManager;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * @param listener called, on a background thread, with the applications sent as placeholders
+     *                 once they are resolved
+     */
+    public void setLateApplicationListener(Consumer<LauncherMessages.Application> listener) {
+        lateApplicationListener = listener;
+    }
+
+    public List<LauncherMessages.Application> getApplications() {
+        return getApplications(Set.of());
+    }
+
+    /**
+     * @param identityOnlyPackageNames packages whose label and version are not needed, e.g.
+     *                                 hidden ones: they are sent as placeholders, with their
+     *                                 package name as label and without version, skipping their
+     *                                 resolution
+     */
+    public List<LauncherMessages.Application> getApplications(Set<String> identityOnlyPackageNames) {
+        int startupSlot = StartupTracer.begin("getApplications");
+        ExecutorService executor = executorFactory.get();
+        CompletionService<Pair<Boolean, List<ResolveInfo>>> queryIntentActivitiesCompletionService =
+                new ExecutorCompletionService<>(executor);
+        queryIntentActivitiesCompletionService.submit(() ->
+                Pair.create(false, queryIntentActivities(false)));
+        queryIntentActivitiesCompletionService.submit(() ->
+                Pair.create(true, queryIntentActivities(true)));
+        // A failed query enumerates no activity of its category
+        List<ResolveInfo> tvActivitiesInfo = List.of();
+        List<ResolveInfo> nonTvActivitiesInfo = List.of();
+
+        int completed = 0;
+        while (completed < 2) {
+            try {
+                var activitiesInfo = queryIntentActivitiesCompletionService.take().get();
+
+                if (!activitiesInfo.first) {
+                    tvActivitiesInfo = activitiesInfo.second;
+                }
+                else {
+                    nonTvActivitiesInfo = activitiesInfo.second;
+                }
+            } catch (ExecutionException e) {
+                LauncherLog.d("LauncherApplications", "getApplications: cannot query activities: {}", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            finally {
+                completed += 1;
+            }
+        }
+
+        int activityCount = tvActivitiesInfo.size() + nonTvActivitiesInfo.size();
+        List<LauncherMessages.Application> applications = new ArrayList<>(activityCount);
+        Map<String, Intent> enumeratedLaunchIntents = new HashMap<>(activityCount * 4 / 3 + 1);
+        BlockingQueue<Resolution> resolved = new LinkedBlockingQueue<>();
+        Set<Resolution> pending = new HashSet<>();
+
+        ApplicationMerger.Summary summary = ApplicationMerger.merge(tvActivitiesInfo, nonTvActivitiesInfo,
+                resolveInfo -> resolveInfo.activityInfo.packageName,
+                (resolveInfo, sideloaded) -> {
+                    // The first leanback activity is the one the package manager would resolve
+                    enumeratedLaunchIntents.putIfAbsent(resolveInfo.activityInfo.packageName,
+                            buildLaunchIntent(resolveInfo.activityInfo, sideloaded));
+
+                    if (identityOnlyPackageNames.contains(resolveInfo.activityInfo.packageName)) {
+                        applications.add(buildIdentity(resolveInfo.activityInfo, sideloaded));
+                    }
+                    else {
+                        pending.add(new Resolution(resolveInfo.activityInfo, sideloaded, executor, resolved));
+                    }
+                });
+
+        collectResolutions(pending, resolved, applications);
+
+        executor.shutdown();
+        launchIntents.clear();
+        launchIntents.putAll(enumeratedLaunchIntents);
+
+        if (!summary.settingsPresent) {
+            Intent settingsIntent = new Intent(Settings.ACTION_SETTINGS);
+            ActivityInfo activityInfo = settingsIntent.resolveActivityInfo(packageManager, 0);
+
+            if (activityInfo != null) {
+                applications.add(buildApplication(activityInfo, false, Settings.ACTION_SETTINGS));
+            }
+        }
+
+        StartupTracer.end(startupSlot);
+        return applications;
+    }
+
+    /**
+     * Adds the applications as they are resolved, until all the pending ones are over their
+     * budget or the enumeration deadline has passed. The pending ones are then added as
+     * placeholders, and followed up through the late application listener.
+     */
+    private void collectResolutions(Set<Resolution> pending, BlockingQueue<Resolution> resolved,
+                                    List<LauncherMessages.Application> applications) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ENUMERATION_DEADLINE_MILLIS);
+
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Resolution resolution = remaining > 0
+                        ? resolved.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS)), TimeUnit.NANOSECONDS)
+                        : null;
+
+                if (resolution != null) {
+                    pending.remove(resolution);
+                    applications.add(resolution.get());
+                }
+                else if (remaining <= 0 || allLate(pending)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Resolution resolution : pending) {
+            applications.add(buildIdentity(resolution.activityInfo, resolution.sideloaded));
+            resolution.future.thenAccept(application -> {
+                Consumer<LauncherMessages.Application> listener = lateApplicationListener;
+
+                if (listener != null) {
+                    listener.accept(application);
+                }
+            });
+        }
+    }
+
+    private static boolean allLate(Set<Resolution> pending) {
+        long now = System.nanoTime();
+
+        for (Resolution resolution : pending) {
+            long startNanos = resolution.startNanos;
+
+            // Not started yet, queued behind slow ones
+            if (startNanos == 0 || now - startNanos < TimeUnit.MILLISECONDS.toNanos(APPLICATION_BUDGET_MILLIS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public LauncherMessages.Application getApplication(String packageName) {
+        LauncherMessages.Application application = null;
+        Intent intent = resolveLaunchIntent(packageName);
+
+        if (intent != null) {
+            ActivityInfo activityInfo = intent.resolveActivityInfo(packageManager, 0);
+
+            if (activityInfo != null) {
+                application = buildApplication(activityInfo, false, null);
+            }
+        }
+
+        return application;
+    }
+
+    /**
+     * @return a copy of the cached launch intent, resolved and cached on a miss, or null if the
+     * package has no launchable activity
+     */
+    public Intent getLaunchIntent(String packageName) {
+        Intent intent = launchIntents.get(packageName);
+
+        if (intent == null) {
+            intent = resolveLaunchIntent(packageName);
+        }
+
+        return intent != null ? new Intent(intent) : null;
+    }
+
+    public boolean hasLaunchIntent(String packageName) {
+        return launchIntents.containsKey(packageName);
+    }
+
+    /**
+     * Resolves the launch intent in the background if it isn't cached, e.g. when the card of an
+     * application installed since the enumeration gains focus.
+     */
+    public void prepareLaunch(String packageName) {
+        if (!launchIntents.containsKey(packageName)) {
+            launchIntentExecutor.execute(() -> resolveLaunchIntent(packageName));
+        }
+    }
+
+    public void invalidateLaunchIntent(String packageName) {
+        launchIntents.remove(packageName);
+    }
+
+    private Intent resolveLaunchIntent(String packageName) {
+        Intent intent = packageManager.getLeanbackLaunchIntentForPackage(packageName);
+
+        if (intent == null) {
+            intent = packageManager.getLaunchIntentForPackage(packageName);
+        }
+
+        if (intent != null) {
+            launchIntents.put(packageName, intent);
+        }
+        else {
+            launchIntents.remove(packageName);
+        }
+
+        return intent;
+    }
+
+    private LauncherMessages.Application buildIdentity(ActivityInfo activityInfo, boolean sideloaded) {
+        return new LauncherMessages.Application(
+                activityInfo.packageName, activityInfo.packageName, null, sideloaded, null, true);
+    }
+
+    private Intent buildLaunchIntent(ActivityInfo activityInfo, boolean sideloaded) {
+        // Same intent as the package manager's getLeanbackLaunchIntentForPackage and getLaunchIntentForPackage
+        return new Intent(Intent.ACTION_MAIN)
+                .addCategory(sideloaded ? Intent.CATEGORY_LAUNCHER : Intent.CATEGORY_LEANBACK_LAUNCHER)
+                .setClassName(activityInfo.packageName, activityInfo.name)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+    }
+
+    private List<ResolveInfo> queryIntentActivities(boolean sideloaded) {
+        String category;
+        if (sideloaded) {
+            category = Intent.CATEGORY_LAUNCHER;
+        }
+        else {
+            category = Intent.CATEGORY_LEANBACK_LAUNCHER;
+        }
+
+        // NOTE: Would be nice to query the applications that match *either* of the above categories
+        // but from the addCategory function documentation, it says that it will "use activities
+        // that provide *all* the requested categories"
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .addCategory(category);
+
+        return packageManager
+                .queryIntentActivities(intent, 0);
+    }
+
+    @VisibleForTesting
+    LauncherMessages.Application buildApplication(ActivityInfo activityInfo, boolean sideloaded, String action) {
+        String  applicationName = activityInfo.loadLabel(packageManager).toString(),
+                applicationVersionName = "";
+        try {
+            applicationVersionName = packageManager.getPackageInfo(activityInfo.packageName, 0).versionName;
+        }
+        catch (PackageManager.NameNotFoundException ignored) { }
+
+        return new LauncherMessages.Application(
+                applicationName, activityInfo.packageName, applicationVersionName, sideloaded, action);
+    }
+
+    private class Resolution
+    {
+        final ActivityInfo activityInfo;
+        final boolean sideloaded;
+        final CompletableFuture<LauncherMessages.Application> future;
+        volatile long startNanos;
+
+        Resolution(ActivityInfo activityInfo, boolean sideloaded, ExecutorService executor,
+                   BlockingQueue<Resolution> resolved) {
+            this.activityInfo = activityInfo;
+            this.sideloaded = sideloaded;
+            future = CompletableFuture.supplyAsync(() -> {
+                startNanos = System.nanoTime();
+                return buildApplication(activityInfo, sideloaded, null);
+            }, executor);
+            future.whenComplete((application, throwable) -> resolved.add(this));
+        }
+
+        /**
+         * @return the resolved application, or its placeholder if resolving it failed
+         */
+        LauncherMessages.Application get() {
+            try {
+                return future.join();
+            } catch (CompletionException | CancellationException ignored) {
+                return buildIdentity(activityInfo, sideloaded);
+            }
+        }
+    }
+}
@@ -2,45 +2,95 @@ package com.geert.flauncher;
 
 import android.content.Context;
 import android.content.pm.LauncherApps;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserHandle;
 
-import java.io.Serializable;
+import com.geert.flauncher.core.LauncherMessages;
+import com.geert.flauncher.core.PackageEventCoalescer;
+import com.geert.flauncher.core.SearchIndex;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import io.flutter.plugin.common.EventChannel;
 
 public class LauncherAppsEventStreamHandler implements EventChannel.StreamHandler
 {
+    /**
+     * Applications state the package events are resolved against, kept by the activity.
+     */
+    public interface Applications
+    {
+        LauncherMessages.Application getApplication(String packageName);
+
+        void invalidateLaunchIntent(String packageName);
+
+        void invalidateApplicationImages(String packageName);
+    }
+
+    // Bursts of package events, e.g. during system updates, are sent to Dart as one batch
+    private static final long PACKAGE_EVENTS_DELAY_MILLIS = 100;
+
     private final LauncherApps _launcherApps;
-    private final MainActivity _activity;
+    private final Applications _applications;
+    private final SearchIndex _searchIndex;
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+    // Left out of the search index, as on a full enumeration
+    private Set<String> _hiddenPackageNames = Set.of();
 
-    private LauncherApps.Callback _launcherAppsCallback;
+    private LauncherAppsCallback _launcherAppsCallback;
 
-    public LauncherAppsEventStreamHandler(MainActivity activity)
+    public LauncherAppsEventStreamHandler(Context context, Applications applications, SearchIndex searchIndex)
     {
-        _activity = activity;
-        _launcherApps = (LauncherApps) _activity.getSystemService(Context.LAUNCHER_APPS_SERVICE);
+        _applications = applications;
+        _searchIndex = searchIndex;
+        _launcherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
     }
 
     @Override
     public void onCancel(Object arguments)
     {
         _launcherApps.unregisterCallback(_launcherAppsCallback);
+        _launcherAppsCallback.cancel();
+        _launcherAppsCallback = null;
     }
 
     @Override
     public void onListen(Object arguments, EventChannel.EventSink events)
     {
         _launcherAppsCallback = new LauncherAppsCallback(events);
-        _launcherApps.registerCallback(_launcherAppsCallback);
+        _launcherApps.registerCallback(_launcherAppsCallback, _handler);
+    }
+
+    /**
+     * Sets the packages to keep out of the search index when their events are sent. Must be
+     * called on the main thread.
+     */
+    public void setHiddenPackageNames(Set<String> hiddenPackageNames)
+    {
+        _hiddenPackageNames = hiddenPackageNames;
+    }
+
+    /**
+     * Sends an application enumerated as a placeholder once it is resolved, see
+     * {@link LauncherApplications}. Must be called on the main thread.
+     */
+    public void applicationResolved(LauncherMessages.Application application)
+    {
+        if (_launcherAppsCallback != null) {
+            _launcherAppsCallback.sendApplications(List.of(application), List.of());
+        }
     }
 
 
     private class LauncherAppsCallback extends LauncherApps.Callback
     {
         private final EventChannel.EventSink _eventSink;
+        private final PackageEventCoalescer _packageEvents = new PackageEventCoalescer();
+        private final Runnable _flushPackageEvents = this::flushPackageEvents;
 
         public LauncherAppsCallback(EventChannel.EventSink eventSink)
         {
@@ -49,45 +99,83 @@ public class LauncherAppsEventStreamHandler implements EventChannel.StreamHandle
 
         @Override
         public void onPackageRemoved(String packageName, UserHandle user) {
-            _eventSink.success(Map.of(
-                    "action", "PACKAGE_REMOVED",
-                    "packageName", packageName));
+            if (_packageEvents.packageRemoved(packageName)) {
+                scheduleFlush();
+            }
         }
 
         @Override
         public void onPackageAdded(String packageName, UserHandle user) {
-            Map<String, Serializable> application = _activity.getApplication(packageName);
-
-            if (!application.isEmpty()) {
-                _eventSink.success(Map.of(
-                        "action", "PACKAGE_ADDED",
-                        "activityInfo", application));
+            if (_packageEvents.packageUpdated(packageName)) {
+                scheduleFlush();
             }
         }
 
         @Override
         public void onPackageChanged(String packageName, UserHandle user) {
-            Map<String, Serializable> application = _activity.getApplication(packageName);
-
-            if (!application.isEmpty()) {
-                _eventSink.success(Map.of(
-                        "action", "PACKAGE_CHANGED",
-                        "activityInfo", application));
+            if (_packageEvents.packageUpdated(packageName)) {
+                scheduleFlush();
             }
         }
 
         @Override
         public void onPackagesAvailable(String[] packageNames, UserHandle user, boolean replacing) {
-            List<Map<String, Serializable>> applications = new ArrayList<>(packageNames.length);
+            boolean first = _packageEvents.isEmpty();
 
             for (String name : packageNames) {
-                Map<String, Serializable> application = _activity.getApplication(name);
+                _packageEvents.packageUpdated(name);
+            }
+
+            if (first && !_packageEvents.isEmpty()) {
+                scheduleFlush();
+            }
+        }
 
-                if (!application.isEmpty()) {
+        @Override
+        public void onPackagesUnavailable(String[] packageNames, UserHandle user, boolean replacing) {
+        }
+
+        void cancel() {
+            _handler.removeCallbacks(_flushPackageEvents);
+        }
+
+        private void scheduleFlush() {
+            _handler.postDelayed(_flushPackageEvents, PACKAGE_EVENTS_DELAY_MILLIS);
+        }
+
+        private void flushPackageEvents() {
+            PackageEventCoalescer.Batch batch = _packageEvents.drain();
+            List<LauncherMessages.Application> applications = new ArrayList<>(batch.updatedPackageNames.size());
+
+            for (String name : batch.updatedPackageNames) {
+                LauncherMessages.Application application = _applications.getApplication(name);
+
+                if (application != null) {
                     applications.add(application);
                 }
             }
 
+            for (String packageName : batch.updatedPackageNames) {
+                _applications.invalidateApplicationImages(packageName);
+            }
+
+            for (String packageName : batch.removedPackageNames) {
+                _applications.invalidateLaunchIntent(packageName);
+                _applications.invalidateApplicationImages(packageName);
+            }
+
+            sendApplications(applications, batch.removedPackageNames);
+        }
+
+        void sendApplications(List<LauncherMessages.Application> applications, List<String> removedPackageNames) {
+            updateSearchIndex(applications, removedPackageNames);
+
+            for (String packageName : removedPackageNames) {
+                _eventSink.success(Map.of(
+                        "action", "PACKAGE_REMOVED",
+                        "packageName", packageName));
+            }
+
             if (!applications.isEmpty()) {
                 _eventSink.success(Map.of(
                         "action", "PACKAGES_AVAILABLE",
@@ -95,8 +183,16 @@ public class LauncherAppsEventStreamHandler implements EventChannel.StreamHandle
             }
         }
 
-        @Override
-        public void onPackagesUnavailable(String[] packageNames, UserHandle user, boolean replacing) {
+        private void updateSearchIndex(List<LauncherMessages.Application> applications, List<String> removedPackageNames) {
+            for (String packageName : removedPackageNames) {
+                _searchIndex.remove(packageName);
+            }
+
+            for (LauncherMessages.Application application : applications) {
+                if (!_hiddenPackageNames.contains(application.packageName)) {
+                    _searchIndex.put(application.packageName, application.name);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.pm.ApplicationInfo;
+
+import com.geert.flauncher.core.RingLog;
+
+import java.util.List;
+
+/**
+ * Process-wide debug log, kept in an in-memory ring buffer rather than logcat and dumped through
+ * the media session debug info. It is only enabled in debuggable builds; otherwise calls return
+ * before touching their arguments. Formats take "{}" placeholders, see {@link RingLog}.
+ */
+public final class LauncherLog
+{
+    private static final int CAPACITY = 256;
+    private static final RingLog LOG = new RingLog(CAPACITY, System::currentTimeMillis);
+
+    private LauncherLog()
+    {
+    }
+
+    public static void configure(ApplicationInfo applicationInfo)
+    {
+        boolean debuggable = (applicationInfo.flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        LOG.setLevel(debuggable ? RingLog.DEBUG : RingLog.DISABLED);
+    }
+
+    public static void d(String tag, String format)
+    {
+        LOG.log(RingLog.DEBUG, tag, format);
+    }
+
+    public static void d(String tag, String format, Object argument)
+    {
+        LOG.log(RingLog.DEBUG, tag, format, argument);
+    }
+
+    public static void d(String tag, String format, Object first, Object second)
+    {
+        LOG.log(RingLog.DEBUG, tag, format, first, second);
+    }
+
+    public static List<String> dump()
+    {
+        return LOG.dump();
+    }
+}
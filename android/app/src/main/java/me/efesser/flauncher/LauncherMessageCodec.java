@@ -0,0 +1,150 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import io.flutter.plugin.common.MethodCodec;
+import io.flutter.plugin.common.StandardMessageCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * {@link StandardMessageCodec} extension writing {@link LauncherMessages} as a type tag followed
+ * by their fields, instead of string-keyed maps of boxed values.
+ */
+public class LauncherMessageCodec extends StandardMessageCodec
+{
+    public static final LauncherMessageCodec INSTANCE = new LauncherMessageCodec();
+    public static final MethodCodec METHOD_CODEC = new StandardMethodCodec(INSTANCE);
+
+    // Aligned with type tags on file lib/flauncher_messages.dart
+    private static final byte APPLICATION = (byte) 128;
+    private static final byte MEDIA_SESSION = (byte) 129;
+    private static final byte NETWORK_STATE = (byte) 130;
+    private static final byte WATCH_NEXT_PROGRAM = (byte) 131;
+
+    @Override
+    protected void writeValue(@NonNull ByteArrayOutputStream stream, @Nullable Object value)
+    {
+        if (value instanceof LauncherMessages.Application application) {
+            stream.write(APPLICATION);
+            writeValue(stream, application.name);
+            writeValue(stream, application.packageName);
+            writeValue(stream, application.version);
+            writeValue(stream, application.sideloaded);
+            writeValue(stream, application.action);
+            writeValue(stream, application.placeholder);
+        }
+        else if (value instanceof LauncherMessages.MediaSession session) {
+            stream.write(MEDIA_SESSION);
+            writeValue(stream, session.hasActiveSession);
+            writeValue(stream, session.packageName);
+            writeValue(stream, session.appName);
+            writeValue(stream, session.title);
+            writeValue(stream, session.artist);
+            writeValue(stream, session.album);
+            writeValue(stream, session.duration);
+            writeValue(stream, session.isPlaying);
+            writeValue(stream, session.position);
+            writeValue(stream, session.availableActions);
+        }
+        else if (value instanceof LauncherMessages.NetworkState state) {
+            stream.write(NETWORK_STATE);
+            writeValue(stream, state.networkAccess);
+            writeValue(stream, state.internetAccess);
+            writeValue(stream, state.networkType);
+            writeValue(stream, state.wirelessSignalLevel);
+            writeValue(stream, state.downstreamBandwidthKbps);
+            writeValue(stream, state.metered);
+        }
+        else if (value instanceof LauncherMessages.WatchNextProgram program) {
+            stream.write(WATCH_NEXT_PROGRAM);
+            writeValue(stream, program.id);
+            writeValue(stream, program.packageName);
+            writeValue(stream, program.title);
+            writeValue(stream, program.episodeTitle);
+            writeValue(stream, program.watchNextType);
+            writeValue(stream, program.lastEngagementTimeMillis);
+            writeValue(stream, program.durationMillis);
+            writeValue(stream, program.lastPlaybackPositionMillis);
+            writeValue(stream, program.intentUri);
+            writeValue(stream, program.posterArtUri);
+        }
+        else {
+            super.writeValue(stream, value);
+        }
+    }
+
+    @Override
+    protected Object readValueOfType(byte type, @NonNull ByteBuffer buffer)
+    {
+        return switch (type) {
+            case APPLICATION -> new LauncherMessages.Application(
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (Boolean) readValue(buffer),
+                    (String) readValue(buffer),
+                    (Boolean) readValue(buffer));
+            case MEDIA_SESSION -> new LauncherMessages.MediaSession(
+                    (Boolean) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    toLong(readValue(buffer)),
+                    (Boolean) readValue(buffer),
+                    toLong(readValue(buffer)),
+                    (Integer) readValue(buffer));
+            case NETWORK_STATE -> new LauncherMessages.NetworkState(
+                    (Boolean) readValue(buffer),
+                    (Boolean) readValue(buffer),
+                    (Integer) readValue(buffer),
+                    (Integer) readValue(buffer),
+                    (Integer) readValue(buffer),
+                    (Boolean) readValue(buffer));
+            case WATCH_NEXT_PROGRAM -> new LauncherMessages.WatchNextProgram(
+                    toLong(readValue(buffer)),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer),
+                    (Integer) readValue(buffer),
+                    toLong(readValue(buffer)),
+                    toLong(readValue(buffer)),
+                    toLong(readValue(buffer)),
+                    (String) readValue(buffer),
+                    (String) readValue(buffer));
+            default -> super.readValueOfType(type, buffer);
+        };
+    }
+
+    // Dart integers fitting in 32 bits come back as Integer
+    @Nullable
+    private static Long toLong(@Nullable Object value)
+    {
+        return value == null ? null : ((Number) value).longValue();
+    }
+}
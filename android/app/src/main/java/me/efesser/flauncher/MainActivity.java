@@ -19,7 +19,6 @@
 package com.geert.flauncher;
 
 
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.*;
@@ -30,70 +29,156 @@ import android.graphics.drawable.Drawable;
 import android.media.MediaMetadata;
 import android.media.session.MediaController;
 import android.media.session.MediaSession;
-import android.media.session.MediaSessionManager;
 import android.media.session.PlaybackState;
 import android.net.ConnectivityManager;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.Settings;
-import android.util.Log;
-import android.util.Pair;
 import android.view.KeyEvent;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.RequiresApi;
+
+import com.geert.flauncher.core.AppCatalog;
+import com.geert.flauncher.core.ChannelMetrics;
+import com.geert.flauncher.core.ImageRequestScheduler;
+import com.geert.flauncher.core.ImageRequestTracker;
+import com.geert.flauncher.core.KeyRepeatCoalescer;
+import com.geert.flauncher.core.LauncherMessages;
+import com.geert.flauncher.core.SearchIndex;
 
 import io.flutter.embedding.android.FlutterActivity;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
 
 import java.io.ByteArrayOutputStream;
-import java.io.Serializable;
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
-public class MainActivity extends FlutterActivity
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MainActivity extends FlutterActivity implements LauncherAppsEventStreamHandler.Applications
 {
     private final String METHOD_CHANNEL = "com.geert.flauncher/method";
     private final String APPS_EVENT_CHANNEL = "com.geert.flauncher/event_apps";
     private final String NETWORK_EVENT_CHANNEL = "com.geert.flauncher/event_network";
     private final String MEDIA_EVENT_CHANNEL = "com.geert.flauncher/event_media";
+    private final String WATCH_NEXT_EVENT_CHANNEL = "com.geert.flauncher/event_watch_next";
+    private final String PERMISSIONS_EVENT_CHANNEL = "com.geert.flauncher/event_permissions";
+    // Longer delays are not a launch following the last key press
+    private final long MAX_LAUNCH_LATENCY_MILLIS = 5000;
+    // Same default as FLauncherChannel.searchApplications
+    private final int DEFAULT_SEARCH_LIMIT = 20;
+    // Runtime permission, without which the Watch Next provider only returns the launcher's programs
+    private final String READ_EPG_DATA = "com.android.providers.tv.permission.READ_EPG_DATA";
+    private final int READ_EPG_DATA_REQUEST_CODE = 1;
 
-    private MediaSessionManager mediaSessionManager;
-    private MediaController activeMediaController;
     private EventChannel.EventSink mediaEventSink;
-    private MediaSessionManager.OnActiveSessionsChangedListener sessionListener;
-    private MediaController.Callback mediaCallback;
-    private FlutterEngine flutterEngine;
+    private final MediaSessionTracker.Listener mediaSessionListener = session -> runOnUiThread(() -> {
+        if (mediaEventSink != null) {
+            mediaEventSink.success(session);
+        }
+    });
+    private MethodChannel methodChannel;
+    private AppCatalog appCatalog;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private LauncherApplications launcherApplications;
+    private LauncherAppsEventStreamHandler appsEventStreamHandler;
+    private UsageRanking usageRanking;
+    private ApplicationStats applicationStats;
+    private IconPacks iconPacks;
+    private final AdaptiveIconRenderer adaptiveIconRenderer = new AdaptiveIconRenderer();
+    private final ImageRequests imageRequests = new ImageRequests();
+    private final AppImageCache appImageCache = new AppImageCache((int) Math.min(
+            Runtime.getRuntime().maxMemory() / 16, 32 * 1024 * 1024));
+    private WatchNextEventStreamHandler watchNextEventStreamHandler;
+    private PermissionStateObserver permissionStateObserver;
+    private ChannelInstrumentation channelInstrumentation;
+    private StrictModeReporter strictModeReporter;
+    private final ChannelMetrics launchMetrics = new ChannelMetrics();
+    // Uptime of the last confirm key press, the one launching the focused card
+    private long lastConfirmKeyDownUptime;
+    // Held directions move the focus every 4 frames, accelerating to every 2 frames after 1.2 s
+    private final KeyRepeatCoalescer keyRepeatCoalescer = new KeyRepeatCoalescer(4, 2, 600);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState)
+    {
+        int startupSlot = StartupTracer.begin("onCreate");
+        LauncherLog.configure(getApplicationInfo());
+        super.onCreate(savedInstanceState);
+        updateKeyRepeatRefreshRate();
+        StartupTracer.end(startupSlot);
+    }
 
     @Override
     public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine)
     {
+        int startupSlot = StartupTracer.begin("configureFlutterEngine");
         super.configureFlutterEngine(flutterEngine);
-        
-        this.flutterEngine = flutterEngine;
 
         BinaryMessenger messenger = flutterEngine.getDartExecutor().getBinaryMessenger();
-
-        new MethodChannel(messenger, METHOD_CHANNEL).setMethodCallHandler((call, result) -> {
+        appCatalog = new AppCatalog(new File(getFilesDir(), "app_catalog.bin"));
+        launcherApplications = new LauncherApplications(getPackageManager());
+        usageRanking = new UsageRanking(this, new File(getFilesDir(), "usage_ranking.bin"));
+        applicationStats = new ApplicationStats(this);
+        iconPacks = new IconPacks(this, new File(getFilesDir(), "icon_pack_index.bin"));
+        iconPacks.load();
+        permissionStateObserver = new PermissionStateObserver(this);
+        watchNextEventStreamHandler = new WatchNextEventStreamHandler(getContentResolver(), (int) Math.min(
+                Runtime.getRuntime().maxMemory() / 32, 8 * 1024 * 1024));
+        if (checkSelfPermission(READ_EPG_DATA) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{READ_EPG_DATA}, READ_EPG_DATA_REQUEST_CODE);
+        }
+        channelInstrumentation = new ChannelInstrumentation(LauncherMessageCodec.METHOD_CODEC);
+        strictModeReporter = new StrictModeReporter(channelInstrumentation);
+        strictModeReporter.install(getApplicationInfo());
+        MethodCodec codec = channelInstrumentation.getCodec();
+
+        methodChannel = new MethodChannel(messenger, METHOD_CHANNEL, codec);
+        methodChannel.setMethodCallHandler(channelInstrumentation.instrument((call, result) -> {
             switch (call.method)
             {
-                case "getApplications" -> result.success(getApplications());
-                case "getApplicationBanner" -> result.success(getApplicationBanner(call.arguments()));
-                case "getApplicationIcon" -> result.success(getApplicationIcon(call.arguments()));
+                case "getApplications" -> result.success(getApplications(call.arguments()));
+                case "getUsageRanking" -> result.success(usageRanking.getRanking(call.arguments()));
+                case "getApplicationCatalog" -> result.success(getApplicationCatalog(call.arguments()));
+                case "getApplicationBanner" -> getApplicationImage(AppImageCache.BANNER, call, result);
+                case "getApplicationIcon" -> getApplicationImage(AppImageCache.ICON, call, result);
+                case "cancelImageRequests" -> {
+                    imageRequests.cancel(call.arguments());
+                    result.success(null);
+                }
+                case "setImageRequestPriority" -> setImageRequestPriority(call, result);
+                case "getApplicationIconLayers" -> getApplicationIconLayers(call, result);
+                case "getIconPacks" -> result.success(iconPacks.getIconPacks());
+                case "getIconPack" -> iconPacks.getIconPack(
+                        packageName -> runOnUiThread(() -> result.success(packageName)));
+                case "setIconPack" -> iconPacks.setIconPack(call.arguments(), () -> runOnUiThread(() -> {
+                    appImageCache.invalidateAll();
+                    result.success(null);
+                }));
+                case "getApplicationStats" -> applicationStats.getStats(call.arguments(),
+                        stats -> runOnUiThread(() -> result.success(stats)));
+                case "getWatchNextPoster" -> watchNextEventStreamHandler.getPoster(
+                        ((Number) call.arguments()).longValue(), result::success);
+                case "searchApplications" -> result.success(
+                        searchApplications(call.argument("query"), call.argument("limit")));
                 case "applicationExists" -> result.success(applicationExists(call.arguments()));
                 case "launchActivityFromAction" -> result.success(launchActivityFromAction(call.arguments()));
                 case "launchApp" -> result.success(launchApp(call.arguments()));
+                case "prepareLaunch" -> {
+                    launcherApplications.prepareLaunch(call.arguments());
+                    result.success(null);
+                }
                 case "openSettings" -> result.success(openSettings());
                 case "openWifiSettings" -> result.success(openWifiSettings());
                 case "openAppInfo" -> result.success(openAppInfo(call.arguments()));
@@ -112,234 +197,294 @@ public class MainActivity extends FlutterActivity
                 case "hasNotificationListenerPermission" -> result.success(hasNotificationListenerPermission());
                 case "openNotificationListenerSettings" -> result.success(openNotificationListenerSettings());
                 case "getMediaSessionDebugInfo" -> result.success(getMediaSessionDebugInfo());
+                case "reportStartupMilestone" -> {
+                    StartupTracer.markFromDart(call.arguments());
+                    result.success(null);
+                }
+                case "getStartupTimeline" -> result.success(StartupTracer.getTimeline());
+                case "getPlatformMetrics" -> result.success(
+                        getPlatformMetrics(Boolean.TRUE.equals(call.arguments())));
+                case "getStrictModeViolations" -> result.success(
+                        strictModeReporter.getViolations(Boolean.TRUE.equals(call.arguments())));
                 default -> throw new IllegalArgumentException();
             }
-        });
-
-        new EventChannel(messenger, APPS_EVENT_CHANNEL).setStreamHandler(
-                new LauncherAppsEventStreamHandler(this));
+        }));
 
-        new EventChannel(messenger, NETWORK_EVENT_CHANNEL).setStreamHandler(
-                new NetworkEventStreamHandler(this));
+        appsEventStreamHandler = new LauncherAppsEventStreamHandler(this, this, searchIndex);
+        launcherApplications.setLateApplicationListener(application ->
+                runOnUiThread(() -> appsEventStreamHandler.applicationResolved(application)));
+        new EventChannel(messenger, APPS_EVENT_CHANNEL, codec).setStreamHandler(
+                channelInstrumentation.instrument(APPS_EVENT_CHANNEL, appsEventStreamHandler));
 
-        new EventChannel(messenger, MEDIA_EVENT_CHANNEL).setStreamHandler(
-                new MediaSessionEventStreamHandler());
+        new EventChannel(messenger, NETWORK_EVENT_CHANNEL, codec).setStreamHandler(
+                channelInstrumentation.instrument(NETWORK_EVENT_CHANNEL,
+                        new NetworkEventStreamHandler(this)));
 
-        initializeMediaSessionManager();
-    }
+        new EventChannel(messenger, MEDIA_EVENT_CHANNEL, codec).setStreamHandler(
+                channelInstrumentation.instrument(MEDIA_EVENT_CHANNEL,
+                        new MediaSessionEventStreamHandler()));
 
-    private List<Map<String, Serializable>> getApplications() {
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        CompletionService<Pair<Boolean, List<ResolveInfo>>> queryIntentActivitiesCompletionService =
-                new ExecutorCompletionService<>(executor);
-        queryIntentActivitiesCompletionService.submit(() ->
-                Pair.create(false, queryIntentActivities(false)));
-        queryIntentActivitiesCompletionService.submit(() ->
-                Pair.create(true, queryIntentActivities(true)));
-        List<ResolveInfo> tvActivitiesInfo = null;
-        List<ResolveInfo> nonTvActivitiesInfo = null;
+        new EventChannel(messenger, WATCH_NEXT_EVENT_CHANNEL, codec).setStreamHandler(
+                channelInstrumentation.instrument(WATCH_NEXT_EVENT_CHANNEL, watchNextEventStreamHandler));
 
-        int completed = 0;
-        while (completed < 2) {
-            try {
-                var activitiesInfo = queryIntentActivitiesCompletionService.take().get();
+        new EventChannel(messenger, PERMISSIONS_EVENT_CHANNEL, codec).setStreamHandler(
+                channelInstrumentation.instrument(PERMISSIONS_EVENT_CHANNEL, permissionStateObserver));
 
-                if (!activitiesInfo.first) {
-                    tvActivitiesInfo = activitiesInfo.second;
-                }
-                else {
-                    nonTvActivitiesInfo = activitiesInfo.second;
-                }
-            } catch (InterruptedException | ExecutionException ignored) { }
-            finally {
-                completed += 1;
-            }
-        }
-
-        CompletionService<Map<String, Serializable>> completionService = new ExecutorCompletionService<>(executor);
-
-        List<Map<String, Serializable>> applications = new ArrayList<>(
-                tvActivitiesInfo.size() + nonTvActivitiesInfo.size());
+        StartupTracer.end(startupSlot);
+    }
 
-        boolean settingsPresent = false;
-        int appCount = 0;
-        for (ResolveInfo tvActivityInfo : tvActivitiesInfo) {
-            if (!settingsPresent) {
-                settingsPresent = tvActivityInfo.activityInfo.packageName.equals("com.android.tv.settings");
+    @Override
+    public void onFlutterUiDisplayed()
+    {
+        super.onFlutterUiDisplayed();
+        StartupTracer.mark("firstFrame");
+    }
+
+    /**
+     * @param hiddenPackageNames packages only enumerated by identity, left out of the search index
+     *                           and of the image cache, may be null
+     */
+    private List<LauncherMessages.Application> getApplications(List<String> hiddenPackageNames) {
+        Set<String> hidden = hiddenPackageNames != null ? new HashSet<>(hiddenPackageNames) : Set.of();
+        List<LauncherMessages.Application> applications = launcherApplications.getApplications(hidden);
+
+        searchIndex.clear();
+        for (LauncherMessages.Application application : applications) {
+            if (!hidden.contains(application.packageName)) {
+                searchIndex.put(application.packageName, application.name);
             }
-
-            completionService.submit(() -> buildAppMap(tvActivityInfo.activityInfo, false, null));
-            appCount += 1;
         }
 
-        for (ResolveInfo nonTvActivityInfo : nonTvActivitiesInfo) {
-            boolean nonDuplicate = true;
-
-            if (!settingsPresent) {
-                settingsPresent = nonTvActivityInfo.activityInfo.packageName.equals("com.android.settings");
-            }
-
-            for (ResolveInfo tvActivityInfo : tvActivitiesInfo) {
-                if (tvActivityInfo.activityInfo.packageName.equals(nonTvActivityInfo.activityInfo.packageName)) {
-                    nonDuplicate = false;
-                    break;
-                }
-            }
+        appImageCache.setLowPriorityPackages(hidden);
+        appsEventStreamHandler.setHiddenPackageNames(hidden);
+        return applications;
+    }
 
-            if (nonDuplicate) {
-                appCount += 1;
-                completionService.submit(() -> buildAppMap(nonTvActivityInfo.activityInfo, true, null));
-            }
+    private String getApplicationCatalog(List<String> hiddenPackageNames) {
+        try {
+            appCatalog.write(getApplications(hiddenPackageNames));
+            return appCatalog.getFile().getPath();
+        } catch (IOException ignored) {
+            // Dart falls back to getApplications
+            return null;
         }
+    }
 
-        while (appCount > 0) {
-            try {
-                Future<Map<String, Serializable>> appMap = completionService.take();
-                applications.add(appMap.get());
-            } catch (InterruptedException | ExecutionException ignored) {
-            } finally {
-                appCount -= 1;
-            }
-        }
+    @Override
+    public LauncherMessages.Application getApplication(String packageName) {
+        return launcherApplications.getApplication(packageName);
+    }
 
-        executor.shutdown();
+    @Override
+    public void invalidateLaunchIntent(String packageName) {
+        launcherApplications.invalidateLaunchIntent(packageName);
+    }
 
-        if (!settingsPresent) {
-            PackageManager packageManager = getPackageManager();
-            Intent settingsIntent = new Intent(Settings.ACTION_SETTINGS);
-            ActivityInfo activityInfo = settingsIntent.resolveActivityInfo(packageManager, 0);
+    @Override
+    public void invalidateApplicationImages(String packageName) {
+        appImageCache.invalidate(packageName);
 
-            if (activityInfo != null) {
-                applications.add(buildAppMap(activityInfo, false, Settings.ACTION_SETTINGS));
-            }
+        if (iconPacks.packageChanged(packageName)) {
+            appImageCache.invalidateAll();
         }
-
-        return applications;
     }
 
-    public Map<String, Serializable> getApplication(String packageName) {
-        Map<String, Serializable> map = Map.of();
-        PackageManager packageManager = getPackageManager();
-        Intent intent = packageManager.getLeanbackLaunchIntentForPackage(packageName);
+    /**
+     * Answers right away with cached images, others are loaded in the background as a request
+     * Dart can cancel, see {@link ImageRequests}.
+     */
+    private void getApplicationImage(String type, MethodCall call, MethodChannel.Result result) {
+        String packageName = call.argument("packageName");
+        Integer requestId = call.argument("requestId");
+        Integer priority = call.argument("priority");
+        byte[] cached = appImageCache.peek(type, packageName);
 
-        if (intent == null) {
-            intent = packageManager.getLaunchIntentForPackage(packageName);
+        if (cached != null) {
+            result.success(cached);
+            return;
         }
 
-        if (intent != null) {
-            ActivityInfo activityInfo = intent.resolveActivityInfo(getPackageManager(), 0);
+        int id = requestId != null ? requestId : ImageRequestTracker.NO_ID;
+        ImageRequestScheduler.Priority requestPriority = priority != null
+                ? ImageRequestScheduler.Priority.of(priority)
+                : ImageRequestScheduler.Priority.VISIBLE;
 
-            if (activityInfo != null) {
-                map = buildAppMap(activityInfo, false, null);
-            }
-        }
-
-        return map;
+        imageRequests.submit(id, requestPriority, request -> appImageCache.get(type, packageName,
+                () -> type.equals(AppImageCache.BANNER)
+                        ? loadBanner(packageName, request)
+                        : loadIcon(packageName, request)), result);
     }
 
-    private byte[] getApplicationBanner(String packageName) {
+    private byte[] loadBanner(String packageName, ImageRequestTracker.Request request) {
         byte[] imageBytes = new byte[0];
 
         PackageManager packageManager = getPackageManager();
         try {
             ApplicationInfo info = packageManager.getApplicationInfo(packageName, 0);
             Drawable drawable = info.loadBanner(packageManager);
+            request.checkpoint(ImageRequestTracker.Stage.LOADED);
 
             if (drawable != null) {
-                imageBytes = drawableToByteArray(drawable);
+                imageBytes = drawableToByteArray(drawable, request);
             }
         } catch (PackageManager.NameNotFoundException ignored) { }
 
         return imageBytes;
     }
 
-    private byte[] getApplicationIcon(String packageName) {
+    private byte[] loadIcon(String packageName, ImageRequestTracker.Request request) {
         byte[] imageBytes = new byte[0];
 
         PackageManager packageManager = getPackageManager();
         try {
             ApplicationInfo info = packageManager.getApplicationInfo(packageName, 0);
-            Drawable drawable = info.loadIcon(packageManager);
+            Drawable drawable = loadThemedIcon(packageName);
+
+            if (drawable == null) {
+                drawable = info.loadIcon(packageManager);
+            }
+            request.checkpoint(ImageRequestTracker.Stage.LOADED);
 
             if (drawable != null) {
-                imageBytes = drawableToByteArray(drawable);
+                imageBytes = drawableToByteArray(drawable, request);
             }
         } catch (PackageManager.NameNotFoundException ignored) { }
 
         return imageBytes;
     }
 
-    private boolean applicationExists(String packageName) {
-        int flags;
+    private Drawable loadThemedIcon(String packageName) {
+        Intent launchIntent = launcherApplications.getLaunchIntent(packageName);
+        return launchIntent != null ? iconPacks.loadIcon(launchIntent.getComponent()) : null;
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            flags = PackageManager.MATCH_UNINSTALLED_PACKAGES;
-        } else {
-            flags = PackageManager.GET_UNINSTALLED_PACKAGES;
-        }
+    /**
+     * Answers with an error when the request id or the priority is missing.
+     */
+    private void setImageRequestPriority(MethodCall call, MethodChannel.Result result) {
+        Integer requestId = call.argument("requestId");
+        Integer priority = call.argument("priority");
 
-        try {
-            getPackageManager().getApplicationInfo(packageName, flags);
-            return true;
-        } catch (PackageManager.NameNotFoundException ignored) {
-            return false;
+        if (requestId == null || priority == null) {
+            result.error("INVALID_ARGUMENT", "setImageRequestPriority: requestId and priority are required", null);
+            return;
         }
+
+        imageRequests.setPriority(requestId, ImageRequestScheduler.Priority.of(priority));
+        result.success(null);
     }
 
-    private List<ResolveInfo> queryIntentActivities(boolean sideloaded) {
-        String category;
-        if (sideloaded) {
-            category = Intent.CATEGORY_LAUNCHER;
+    /**
+     * Renders the layers in the background, as an image request, see {@link ImageRequests}.
+     * Answers with an error when the size is missing.
+     */
+    private void getApplicationIconLayers(MethodCall call, MethodChannel.Result result) {
+        String packageName = call.argument("packageName");
+        Integer size = call.argument("size");
+
+        if (size == null) {
+            result.error("INVALID_ARGUMENT", "getApplicationIconLayers: size is required", null);
+            return;
         }
-        else {
-            category = Intent.CATEGORY_LEANBACK_LAUNCHER;
+
+        // Not cancellable, null answers a non adaptive icon
+        int renderedSize = AdaptiveIconRenderer.renderedSize(size);
+        imageRequests.submit(ImageRequestTracker.NO_ID, ImageRequestScheduler.Priority.VISIBLE,
+                request -> loadIconLayers(packageName, renderedSize), result);
+    }
+
+    private Map<String, Object> loadIconLayers(String packageName, int size) {
+        // Both layers are rendered at once, the background being cached unless evicted meanwhile
+        AtomicReference<byte[][]> loadedLayers = new AtomicReference<>();
+        byte[] foreground = appImageCache.get(appImageCache.sized(AppImageCache.ICON_FOREGROUND, size), packageName,
+                () -> {
+                    loadedLayers.set(renderIconLayers(packageName, size));
+                    return loadedLayers.get()[0];
+                });
+
+        // Non adaptive icons are cached as empty layers
+        if (foreground.length == 0) {
+            return null;
         }
 
-        // NOTE: Would be nice to query the applications that match *either* of the above categories
-        // but from the addCategory function documentation, it says that it will "use activities
-        // that provide *all* the requested categories"
-        Intent intent = new Intent(Intent.ACTION_MAIN)
-                .addCategory(category);
+        byte[] background = appImageCache.get(appImageCache.sized(AppImageCache.ICON_BACKGROUND, size), packageName,
+                () -> loadedLayers.get() != null ? loadedLayers.get()[1] : renderIconLayers(packageName, size)[1]);
 
-        return getPackageManager()
-                .queryIntentActivities(intent, 0);
+        Map<String, Object> layers = new HashMap<>();
+        layers.put("foreground", foreground);
+        layers.put("background", background);
+        layers.put("layerSize", AdaptiveIconRenderer.layerSize(size));
+        layers.put("mask", adaptiveIconRenderer.getMask(size));
+        layers.put("maskPath", adaptiveIconRenderer.getMaskPathData());
+        return layers;
     }
 
-    private Map<String, Serializable> buildAppMap(ActivityInfo activityInfo, boolean sideloaded, String action) {
-        PackageManager packageManager = getPackageManager();
+    private byte[][] renderIconLayers(String packageName, int size) {
+        byte[][] layers = null;
 
-        String  applicationName = activityInfo.loadLabel(packageManager).toString(),
-                applicationVersionName = "";
+        PackageManager packageManager = getPackageManager();
         try {
-            applicationVersionName = packageManager.getPackageInfo(activityInfo.packageName, 0).versionName;
-        }
-        catch (PackageManager.NameNotFoundException ignored) { }
+            ApplicationInfo info = packageManager.getApplicationInfo(packageName, 0);
+            Drawable icon = loadThemedIcon(packageName);
+            layers = adaptiveIconRenderer.renderLayers(icon != null ? icon : info.loadIcon(packageManager), size);
+        } catch (PackageManager.NameNotFoundException ignored) { }
+
+        return layers != null ? layers : new byte[][] { new byte[0], new byte[0] };
+    }
+
+    private List<String> searchApplications(String query, Integer limit) {
+        return searchIndex.search(query != null ? query : "", limit != null ? limit : DEFAULT_SEARCH_LIMIT);
+    }
 
-        Map<String, Serializable> appMap = new HashMap<>();
-        appMap.put("name", applicationName);
-        appMap.put("packageName", activityInfo.packageName);
-        appMap.put("version", applicationVersionName);
-        appMap.put("sideloaded", sideloaded);
+    private boolean applicationExists(String packageName) {
+        int flags;
 
-        if (action != null) {
-            appMap.put("action", action);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            flags = PackageManager.MATCH_UNINSTALLED_PACKAGES;
+        } else {
+            flags = PackageManager.GET_UNINSTALLED_PACKAGES;
+        }
+
+        try {
+            getPackageManager().getApplicationInfo(packageName, flags);
+            return true;
+        } catch (PackageManager.NameNotFoundException ignored) {
+            return false;
         }
-        return appMap;
     }
 
     private boolean launchActivityFromAction(String action) {
-        return tryStartActivity(new Intent(action));
+        boolean success = tryStartActivity(new Intent(action));
+        recordLaunch("action", success);
+        return success;
     }
 
     private boolean launchApp(String packageName) {
-        PackageManager packageManager = getPackageManager();
-        Intent intent = packageManager.getLeanbackLaunchIntentForPackage(packageName);
+        boolean cached = launcherApplications.hasLaunchIntent(packageName);
+        boolean success = tryStartActivity(launcherApplications.getLaunchIntent(packageName));
+        recordLaunch(cached ? "cached" : "resolved", success);
+        return success;
+    }
+
+    /**
+     * Records the latency from the confirm key press to the activity start. Launches not
+     * following a key press, e.g. from touch, are not recorded.
+     */
+    private void recordLaunch(String name, boolean success) {
+        long pressUptime = lastConfirmKeyDownUptime;
+        lastConfirmKeyDownUptime = 0;
 
-        if (intent == null) {
-            intent = packageManager.getLaunchIntentForPackage(packageName);
+        long latencyMillis = SystemClock.uptimeMillis() - pressUptime;
+        if (pressUptime != 0 && latencyMillis < MAX_LAUNCH_LATENCY_MILLIS) {
+            launchMetrics.record(name, latencyMillis * 1_000_000, 0, !success);
         }
+    }
 
-        return tryStartActivity(intent);
+    private Map<String, Object> getPlatformMetrics(boolean reset) {
+        Map<String, Object> metrics = new HashMap<>(channelInstrumentation.getMetrics(reset));
+        metrics.put("launches", launchMetrics.snapshot(reset));
+        metrics.put("imageRequests", imageRequests.getMetrics(reset));
+        return metrics;
     }
 
     private boolean openSettings() {
@@ -373,14 +518,7 @@ public class MainActivity extends FlutterActivity
     }
 
     private boolean isDefaultLauncher() {
-        Intent intent = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_HOME);
-        ResolveInfo defaultLauncher = getPackageManager().resolveActivity(intent, 0);
-
-        if (defaultLauncher != null && defaultLauncher.activityInfo != null) {
-            return defaultLauncher.activityInfo.packageName.equals(getPackageName());
-        }
-
-        return false;
+        return permissionStateObserver.isDefaultLauncher();
     }
 
     private boolean startAmbientMode()
@@ -391,7 +529,7 @@ public class MainActivity extends FlutterActivity
         return tryStartActivity(intent);
     }
 
-    private Map<String, Object> getActiveNetworkInformation()
+    private LauncherMessages.NetworkState getActiveNetworkInformation()
     {
         ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -417,7 +555,7 @@ public class MainActivity extends FlutterActivity
         return success;
     }
 
-    private byte[] drawableToByteArray(Drawable drawable) {
+    private byte[] drawableToByteArray(Drawable drawable, ImageRequestTracker.Request request) {
         if (drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
             return new byte[0];
         }
@@ -429,6 +567,8 @@ public class MainActivity extends FlutterActivity
         else {
             bitmap = drawableToBitmap(drawable);
         }
+        request.checkpoint(ImageRequestTracker.Stage.RASTERIZED);
+
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
         return stream.toByteArray();
@@ -447,140 +587,14 @@ public class MainActivity extends FlutterActivity
     }
 
     // Media Session Integration Methods
-    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
-    private void initializeMediaSessionManager() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            mediaSessionManager = (MediaSessionManager) getSystemService(Context.MEDIA_SESSION_SERVICE);
-
-            sessionListener = controllers -> {
-                updateActiveMediaController();
-            };
-
-            mediaCallback = new MediaController.Callback() {
-                @Override
-                public void onPlaybackStateChanged(PlaybackState state) {
-                    notifyMediaSessionChanged();
-                }
-
-                @Override
-                public void onMetadataChanged(MediaMetadata metadata) {
-                    notifyMediaSessionChanged();
-                }
-            };
-
-            updateActiveMediaController();
-        }
-    }
-
-    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
-    private void updateActiveMediaController() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Log.d("MediaSession", "updateActiveMediaController: starting update");
-            
-            // Unregister previous controller callback if exists
-            if (activeMediaController != null) {
-                activeMediaController.unregisterCallback(mediaCallback);
-                Log.d("MediaSession", "updateActiveMediaController: unregistered previous controller");
-            }
-
-            // Get active sessions
-            List<MediaController> controllers = null;
-
-            // Try to get sessions through NotificationListenerService first
-            if (MediaNotificationListenerService.isServiceEnabled()) {
-                controllers = MediaNotificationListenerService.getInstance().getActiveMediaSessions();
-                Log.d("MediaSession", "updateActiveMediaController: got sessions via NotificationListenerService");
-            }
-
-            // Fallback to direct access if service not available
-            if (controllers == null) {
-                try {
-                    ComponentName notificationListener = new ComponentName(this, MediaNotificationListenerService.class);
-                    controllers = mediaSessionManager.getActiveSessions(notificationListener);
-                    Log.d("MediaSession", "updateActiveMediaController: got sessions via direct access with component");
-                } catch (SecurityException e) {
-                    // Permission not granted, try with null component
-                    try {
-                        controllers = mediaSessionManager.getActiveSessions(null);
-                        Log.d("MediaSession", "updateActiveMediaController: got sessions via direct access without component");
-                    } catch (SecurityException ex) {
-                        controllers = new ArrayList<>();
-                        Log.d("MediaSession", "updateActiveMediaController: SecurityException - no access to sessions");
-                    }
-                }
-            }
-
-            if (controllers != null && !controllers.isEmpty()) {
-                // Use the first active controller
-                activeMediaController = controllers.get(0);
-                activeMediaController.registerCallback(mediaCallback);
-                Log.d("MediaSession", "updateActiveMediaController: found " + controllers.size() + " sessions, using: " + activeMediaController.getPackageName());
-            } else {
-                activeMediaController = null;
-                Log.d("MediaSession", "updateActiveMediaController: no active sessions found");
-            }
-
-            notifyMediaSessionChanged();
-        }
-    }
-
-    private Map<String, Object> getCurrentMediaSession() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            Map<String, Object> sessionInfo = new HashMap<>();
-
-            // Get package name
-            sessionInfo.put("packageName", activeMediaController.getPackageName());
-
-            // Get app name
-            PackageManager pm = getPackageManager();
-            try {
-                ApplicationInfo appInfo = pm.getApplicationInfo(activeMediaController.getPackageName(), 0);
-                sessionInfo.put("appName", pm.getApplicationLabel(appInfo).toString());
-            } catch (PackageManager.NameNotFoundException e) {
-                sessionInfo.put("appName", activeMediaController.getPackageName());
-            }
-
-            // Get metadata
-            MediaMetadata metadata = activeMediaController.getMetadata();
-            if (metadata != null) {
-                sessionInfo.put("title", metadata.getString(MediaMetadata.METADATA_KEY_TITLE));
-                sessionInfo.put("artist", metadata.getString(MediaMetadata.METADATA_KEY_ARTIST));
-                sessionInfo.put("album", metadata.getString(MediaMetadata.METADATA_KEY_ALBUM));
-                sessionInfo.put("duration", metadata.getLong(MediaMetadata.METADATA_KEY_DURATION));
-            }
-
-            // Get playback state
-            PlaybackState playbackState = activeMediaController.getPlaybackState();
-            if (playbackState != null) {
-                sessionInfo.put("isPlaying", playbackState.getState() == PlaybackState.STATE_PLAYING);
-                sessionInfo.put("position", playbackState.getPosition());
-
-                // Get available actions
-                List<String> actions = new ArrayList<>();
-                long availableActions = playbackState.getActions();
-
-                if ((availableActions & PlaybackState.ACTION_PLAY) != 0) actions.add("play");
-                if ((availableActions & PlaybackState.ACTION_PAUSE) != 0) actions.add("pause");
-                if ((availableActions & PlaybackState.ACTION_SKIP_TO_NEXT) != 0) actions.add("skipToNext");
-                if ((availableActions & PlaybackState.ACTION_SKIP_TO_PREVIOUS) != 0) actions.add("skipToPrevious");
-                if ((availableActions & PlaybackState.ACTION_SEEK_TO) != 0) actions.add("seekTo");
-
-                sessionInfo.put("availableActions", actions);
-            }
-
-            sessionInfo.put("hasActiveSession", true);
-            return sessionInfo;
-        }
-
-        // Return empty session info if no active controller
-        Map<String, Object> emptySession = new HashMap<>();
-        emptySession.put("hasActiveSession", false);
-        return emptySession;
+    private LauncherMessages.MediaSession getCurrentMediaSession() {
+        return MediaNotificationListenerService.getMediaSession();
     }
 
     private boolean sendMediaAction(String action) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            MediaController.TransportControls controls = activeMediaController.getTransportControls();
+        MediaController controller = MediaNotificationListenerService.getMediaController();
+        if (controller != null) {
+            MediaController.TransportControls controls = controller.getTransportControls();
 
             switch (action) {
                 case "play" -> controls.play();
@@ -598,10 +612,11 @@ public class MainActivity extends FlutterActivity
     }
 
     private boolean sendPlayPause() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            PlaybackState state = activeMediaController.getPlaybackState();
+        MediaController controller = MediaNotificationListenerService.getMediaController();
+        if (controller != null) {
+            PlaybackState state = controller.getPlaybackState();
             if (state != null) {
-                MediaController.TransportControls controls = activeMediaController.getTransportControls();
+                MediaController.TransportControls controls = controller.getTransportControls();
                 if (state.getState() == PlaybackState.STATE_PLAYING) {
                     controls.pause();
                 } else {
@@ -614,45 +629,19 @@ public class MainActivity extends FlutterActivity
     }
 
     private boolean sendPlay() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            activeMediaController.getTransportControls().play();
-            return true;
-        }
-        return false;
+        return sendMediaAction("play");
     }
 
     private boolean sendPause() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            activeMediaController.getTransportControls().pause();
-            return true;
-        }
-        return false;
+        return sendMediaAction("pause");
     }
 
     private boolean sendSkipToNext() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            activeMediaController.getTransportControls().skipToNext();
-            return true;
-        }
-        return false;
+        return sendMediaAction("skipToNext");
     }
 
     private boolean sendSkipToPrevious() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && activeMediaController != null) {
-            activeMediaController.getTransportControls().skipToPrevious();
-            return true;
-        }
-        return false;
-    }
-
-    private void notifyMediaSessionChanged() {
-        if (mediaEventSink != null) {
-            Map<String, Object> sessionData = getCurrentMediaSession();
-            Log.d("MediaSession", "notifyMediaSessionChanged: sending session data - hasActiveSession: " + sessionData.get("hasActiveSession"));
-            mediaEventSink.success(sessionData);
-        } else {
-            Log.d("MediaSession", "notifyMediaSessionChanged: mediaEventSink is null");
-        }
+        return sendMediaAction("skipToPrevious");
     }
 
     // Media Session Event Stream Handler
@@ -660,51 +649,22 @@ public class MainActivity extends FlutterActivity
         @Override
         public void onListen(Object arguments, EventChannel.EventSink events) {
             mediaEventSink = events;
-
-            // Register session listener if not already registered
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && mediaSessionManager != null) {
-                try {
-                    ComponentName notificationListener = new ComponentName(MainActivity.this, MediaNotificationListenerService.class);
-                    mediaSessionManager.addOnActiveSessionsChangedListener(sessionListener, notificationListener);
-                } catch (SecurityException e) {
-                    // Need notification listener permission - try with null
-                    try {
-                        mediaSessionManager.addOnActiveSessionsChangedListener(sessionListener, null);
-                    } catch (SecurityException ex) {
-                        // Cannot register listener without proper permissions
-                    }
-                }
-            }
+            MediaNotificationListenerService.addMediaSessionListener(mediaSessionListener);
 
             // Send initial state
-            notifyMediaSessionChanged();
+            events.success(getCurrentMediaSession());
         }
 
         @Override
         public void onCancel(Object arguments) {
+            MediaNotificationListenerService.removeMediaSessionListener(mediaSessionListener);
             mediaEventSink = null;
-
-            // Unregister listeners
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                if (mediaSessionManager != null && sessionListener != null) {
-                    mediaSessionManager.removeOnActiveSessionsChangedListener(sessionListener);
-                }
-
-                if (activeMediaController != null && mediaCallback != null) {
-                    activeMediaController.unregisterCallback(mediaCallback);
-                }
-            }
         }
     }
 
     // Permission and Debug Methods
     private boolean hasNotificationListenerPermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            ComponentName notificationListener = new ComponentName(this, MediaNotificationListenerService.class);
-            String enabledListeners = Settings.Secure.getString(getContentResolver(), "enabled_notification_listeners");
-            return enabledListeners != null && enabledListeners.contains(notificationListener.flattenToString());
-        }
-        return false;
+        return permissionStateObserver.hasNotificationListenerPermission();
     }
 
     private boolean openNotificationListenerSettings() {
@@ -723,84 +683,135 @@ public class MainActivity extends FlutterActivity
         debugInfo.put("hasNotificationListenerPermission", hasNotificationListenerPermission());
         debugInfo.put("isMediaNotificationListenerServiceEnabled", MediaNotificationListenerService.isServiceEnabled());
         
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            debugInfo.put("hasMediaSessionManager", mediaSessionManager != null);
-            debugInfo.put("hasActiveMediaController", activeMediaController != null);
-            
-            if (activeMediaController != null) {
-                debugInfo.put("activeControllerPackageName", activeMediaController.getPackageName());
-                PlaybackState state = activeMediaController.getPlaybackState();
-                if (state != null) {
-                    debugInfo.put("playbackState", state.getState());
-                    debugInfo.put("playbackStateString", getPlaybackStateString(state.getState()));
-                }
-                MediaMetadata metadata = activeMediaController.getMetadata();
-                if (metadata != null) {
-                    debugInfo.put("hasMetadata", true);
-                    debugInfo.put("title", metadata.getString(MediaMetadata.METADATA_KEY_TITLE));
-                    debugInfo.put("artist", metadata.getString(MediaMetadata.METADATA_KEY_ARTIST));
-                } else {
-                    debugInfo.put("hasMetadata", false);
-                }
+        MediaController controller = MediaNotificationListenerService.getMediaController();
+        debugInfo.put("hasActiveMediaController", controller != null);
+
+        if (controller != null) {
+            debugInfo.put("activeControllerPackageName", controller.getPackageName());
+            PlaybackState state = controller.getPlaybackState();
+            if (state != null) {
+                debugInfo.put("playbackState", state.getState());
+                debugInfo.put("playbackStateString", getPlaybackStateString(state.getState()));
             }
-            
-            // Try to get all active sessions for debugging
-            try {
-                ComponentName notificationListener = new ComponentName(this, MediaNotificationListenerService.class);
-                List<MediaController> controllers = mediaSessionManager.getActiveSessions(notificationListener);
-                debugInfo.put("totalActiveSessions", controllers.size());
-                
-                List<String> sessionPackages = new ArrayList<>();
-                for (MediaController controller : controllers) {
-                    sessionPackages.add(controller.getPackageName());
-                }
-                debugInfo.put("activeSessionPackages", sessionPackages);
-            } catch (SecurityException e) {
-                debugInfo.put("sessionAccessError", "SecurityException: " + e.getMessage());
-            } catch (Exception e) {
-                debugInfo.put("sessionAccessError", "Exception: " + e.getMessage());
+            MediaMetadata metadata = controller.getMetadata();
+            if (metadata != null) {
+                debugInfo.put("hasMetadata", true);
+                debugInfo.put("title", metadata.getString(MediaMetadata.METADATA_KEY_TITLE));
+                debugInfo.put("artist", metadata.getString(MediaMetadata.METADATA_KEY_ARTIST));
+            } else {
+                debugInfo.put("hasMetadata", false);
             }
-        } else {
-            debugInfo.put("apiLevel", "Below LOLLIPOP");
         }
-        
+
+        List<String> sessionPackages = MediaNotificationListenerService.getSessionPackageNames();
+        debugInfo.put("totalActiveSessions", sessionPackages.size());
+        debugInfo.put("activeSessionPackages", sessionPackages);
+
+        debugInfo.put("log", LauncherLog.dump());
         return debugInfo;
     }
 
     @Override
-    public void onWindowFocusChanged(boolean hasFocus) {
-        super.onWindowFocusChanged(hasFocus);
-        if (hasFocus && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Log.d("MediaSession", "onWindowFocusChanged: hasFocus=" + hasFocus);
-            updateActiveMediaController();
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() == 0
+                && isConfirmKey(event.getKeyCode())) {
+            lastConfirmKeyDownUptime = event.getEventTime();
+        }
+
+        if (isDirectionKey(event.getKeyCode())) {
+            if (event.getAction() == KeyEvent.ACTION_DOWN && !keyRepeatCoalescer.keyDown(event.getKeyCode(),
+                    event.getRepeatCount(), event.getEventTime(), SystemClock.uptimeMillis())) {
+                // Consumed, Flutter only sees the paced repeats
+                return true;
+            }
+            if (event.getAction() == KeyEvent.ACTION_UP) {
+                keyRepeatCoalescer.keyUp(event.getKeyCode());
+            }
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    private void updateKeyRepeatRefreshRate() {
+        // Context.getDisplay() only exists from Android 11
+        //noinspection deprecation
+        keyRepeatCoalescer.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
+    }
+
+    private static boolean isDirectionKey(int keyCode) {
+        return switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_DOWN, KeyEvent.KEYCODE_DPAD_LEFT,
+                    KeyEvent.KEYCODE_DPAD_RIGHT -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isConfirmKey(int keyCode) {
+        return switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_CENTER, KeyEvent.KEYCODE_ENTER, KeyEvent.KEYCODE_NUMPAD_ENTER,
+                    KeyEvent.KEYCODE_BUTTON_A, KeyEvent.KEYCODE_SPACE -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+
+        if (requestCode == READ_EPG_DATA_REQUEST_CODE && grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            watchNextEventStreamHandler.reload();
         }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        Log.d("MediaSession", "onResume: launcher becoming visible");
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            updateActiveMediaController();
+        LauncherLog.d("MediaSession", "onResume: launcher becoming visible");
+
+        if (usageRanking != null) {
+            usageRanking.refresh();
         }
-        
+
+        if (permissionStateObserver != null) {
+            permissionStateObserver.refresh();
+        }
+
+        // The refresh rate may have changed with the display mode, e.g. after playing a video
+        updateKeyRepeatRefreshRate();
+
         // Notify Flutter that launcher is visible
-        if (flutterEngine != null) {
-            new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), 
-                METHOD_CHANNEL).invokeMethod("onLauncherVisible", true);
+        if (methodChannel != null) {
+            methodChannel.invokeMethod("onLauncherVisible", true);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (permissionStateObserver != null) {
+            permissionStateObserver.close();
+        }
+        imageRequests.close();
+        if (applicationStats != null) {
+            applicationStats.close();
+        }
+        if (usageRanking != null) {
+            usageRanking.close();
+        }
+        if (iconPacks != null) {
+            iconPacks.close();
         }
+        super.onDestroy();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        Log.d("MediaSession", "onPause: launcher becoming hidden");
+        LauncherLog.d("MediaSession", "onPause: launcher becoming hidden");
         
         // Notify Flutter that launcher is not visible
-        if (flutterEngine != null) {
-            new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), 
-                METHOD_CHANNEL).invokeMethod("onLauncherVisible", false);
+        if (methodChannel != null) {
+            methodChannel.invokeMethod("onLauncherVisible", false);
         }
     }
 
@@ -19,35 +19,47 @@
 package com.geert.flauncher;
 
 import android.annotation.TargetApi;
+import android.content.ComponentName;
 import android.media.session.MediaController;
-import android.media.session.MediaSession;
-import android.media.session.MediaSessionManager;
 import android.os.Build;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
 
+import com.geert.flauncher.core.LauncherMessages;
+
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+/**
+ * Media sessions are only visible to enabled notification listeners, the sessions are tracked
+ * while this service is connected and published to the activity, if any.
+ */
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
 public class MediaNotificationListenerService extends NotificationListenerService {
 
-    private static MediaNotificationListenerService instance;
-    private MediaSessionManager mediaSessionManager;
+    private static final Set<MediaSessionTracker.Listener> listeners = new CopyOnWriteArraySet<>();
+    private static volatile MediaSessionTracker tracker;
+    // Incremented by every new tracker, publications of the previous ones are dropped
+    private static final Object publicationLock = new Object();
+    private static int generation;
 
     @Override
-    public void onCreate() {
-        super.onCreate();
-        instance = this;
+    public void onListenerConnected() {
+        super.onListenerConnected();
+        startTracking();
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            mediaSessionManager = (MediaSessionManager) getSystemService(MEDIA_SESSION_SERVICE);
-        }
+    @Override
+    public void onListenerDisconnected() {
+        stopTracking();
+        super.onListenerDisconnected();
     }
 
     @Override
     public void onDestroy() {
+        stopTracking();
         super.onDestroy();
-        instance = null;
     }
 
     @Override
@@ -60,33 +72,78 @@ public class MediaNotificationListenerService extends NotificationListenerServic
         // We can handle notification removed events if needed
     }
 
-    /**
-     * Get the active media sessions
-     * This requires the NotificationListenerService to be enabled
-     */
-    public List<MediaController> getActiveMediaSessions() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && mediaSessionManager != null) {
-            try {
-                return mediaSessionManager.getActiveSessions(null);
-            } catch (SecurityException e) {
-                // Permission not granted
-                return null;
+    private void startTracking() {
+        stopTracking();
+
+        // The empty session published by the closed tracker, from its own thread, may come after
+        // the first one of the new tracker
+        int trackerGeneration;
+        synchronized (publicationLock) {
+            trackerGeneration = ++generation;
+        }
+        tracker = new MediaSessionTracker(this, new ComponentName(this, MediaNotificationListenerService.class),
+                session -> publish(trackerGeneration, session));
+        tracker.start();
+    }
+
+    private static void publish(int trackerGeneration, LauncherMessages.MediaSession session) {
+        synchronized (publicationLock) {
+            if (trackerGeneration != generation) {
+                return;
+            }
+
+            for (MediaSessionTracker.Listener listener : listeners) {
+                listener.onMediaSessionChanged(session);
             }
         }
-        return null;
+    }
+
+    private static void stopTracking() {
+        MediaSessionTracker previous = tracker;
+
+        if (previous != null) {
+            tracker = null;
+            previous.close();
+        }
+    }
+
+    /**
+     * Listeners are called on the tracker thread, with the session tracked while the service is
+     * connected, and an empty session when it disconnects.
+     */
+    public static void addMediaSessionListener(MediaSessionTracker.Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeMediaSessionListener(MediaSessionTracker.Listener listener) {
+        listeners.remove(listener);
     }
 
     /**
-     * Static method to get the instance of this service
+     * @return the latest published session, empty when the service is not connected
      */
-    public static MediaNotificationListenerService getInstance() {
-        return instance;
+    public static LauncherMessages.MediaSession getMediaSession() {
+        MediaSessionTracker current = tracker;
+        return current != null ? current.getSession() : LauncherMessages.MediaSession.EMPTY;
+    }
+
+    /**
+     * @return the controller of the tracked session, null if none or when the service is not connected
+     */
+    public static MediaController getMediaController() {
+        MediaSessionTracker current = tracker;
+        return current != null ? current.getController() : null;
+    }
+
+    public static List<String> getSessionPackageNames() {
+        MediaSessionTracker current = tracker;
+        return current != null ? current.getSessionPackageNames() : List.of();
     }
 
     /**
      * Check if the service is running and connected
      */
     public static boolean isServiceEnabled() {
-        return instance != null;
+        return tracker != null;
     }
 }
@@ -0,0 +1,251 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.media.MediaMetadata;
+import android.media.session.MediaController;
+import android.media.session.MediaSessionManager;
+import android.media.session.PlaybackState;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.geert.flauncher.core.EventThrottler;
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the first active media session on a background thread. Controller callbacks are
+ * throttled, seek scrubbing and buffering send a playback state every few milliseconds, and the
+ * resulting state is published as an immutable snapshot readable from any thread without locks.
+ */
+public class MediaSessionTracker
+{
+    public interface Listener
+    {
+        /**
+         * Called on the tracker thread.
+         */
+        void onMediaSessionChanged(LauncherMessages.MediaSession session);
+    }
+
+    private static final long THROTTLE_MILLIS = 250;
+
+    private final MediaSessionManager _mediaSessionManager;
+    private final PackageManager _packageManager;
+    private final ComponentName _notificationListener;
+    private final Listener _listener;
+    private final HandlerThread _thread = new HandlerThread("MediaSession");
+    private final Handler _handler;
+
+    private volatile MediaController _controller;
+    private volatile LauncherMessages.MediaSession _session = LauncherMessages.MediaSession.EMPTY;
+    private volatile List<String> _sessionPackageNames = List.of();
+
+    // Only accessed from the tracker thread
+    private final EventThrottler _throttler = new EventThrottler(THROTTLE_MILLIS);
+    private final Runnable _publishTrailingEdge = this::publishTrailingEdge;
+    private final MediaSessionManager.OnActiveSessionsChangedListener _sessionsListener = this::setActiveSessions;
+    private final MediaController.Callback _controllerCallback = new MediaController.Callback()
+    {
+        @Override
+        public void onPlaybackStateChanged(PlaybackState state)
+        {
+            sessionChanged();
+        }
+
+        @Override
+        public void onMetadataChanged(MediaMetadata metadata)
+        {
+            sessionChanged();
+        }
+
+        @Override
+        public void onSessionDestroyed()
+        {
+            setActiveSessions(getActiveSessions());
+        }
+    };
+    private String _appName;
+
+    public MediaSessionTracker(Context context, ComponentName notificationListener, Listener listener)
+    {
+        _mediaSessionManager = context.getSystemService(MediaSessionManager.class);
+        _packageManager = context.getPackageManager();
+        _notificationListener = notificationListener;
+        _listener = listener;
+        _thread.start();
+        _handler = new Handler(_thread.getLooper());
+    }
+
+    public void start()
+    {
+        _handler.post(() -> {
+            try {
+                _mediaSessionManager.addOnActiveSessionsChangedListener(_sessionsListener, _notificationListener,
+                        _handler);
+            }
+            catch (SecurityException ignored) {
+                // The notification listener was disabled in the meantime
+            }
+            setActiveSessions(getActiveSessions());
+        });
+    }
+
+    /**
+     * Stops tracking, publishing an empty session, and ends the tracker thread.
+     */
+    public void close()
+    {
+        _handler.post(() -> {
+            _mediaSessionManager.removeOnActiveSessionsChangedListener(_sessionsListener);
+            setActiveSessions(List.of());
+        });
+        _thread.quitSafely();
+    }
+
+    public LauncherMessages.MediaSession getSession()
+    {
+        return _session;
+    }
+
+    /**
+     * @return the controller of the tracked session, for its transport controls, null if none
+     */
+    public MediaController getController()
+    {
+        return _controller;
+    }
+
+    public List<String> getSessionPackageNames()
+    {
+        return _sessionPackageNames;
+    }
+
+    private List<MediaController> getActiveSessions()
+    {
+        try {
+            return _mediaSessionManager.getActiveSessions(_notificationListener);
+        }
+        catch (SecurityException e) {
+            return List.of();
+        }
+    }
+
+    private void setActiveSessions(List<MediaController> controllers)
+    {
+        MediaController controller = controllers == null || controllers.isEmpty() ? null : controllers.get(0);
+        List<String> packageNames = new ArrayList<>(controllers == null ? 0 : controllers.size());
+
+        if (controllers != null) {
+            for (MediaController activeController : controllers) {
+                packageNames.add(activeController.getPackageName());
+            }
+        }
+        _sessionPackageNames = List.copyOf(packageNames);
+
+        if (_controller != null) {
+            _controller.unregisterCallback(_controllerCallback);
+        }
+        if (controller != null) {
+            controller.registerCallback(_controllerCallback, _handler);
+            _appName = loadAppName(controller.getPackageName());
+        }
+        _controller = controller;
+        LauncherLog.d("MediaSession", "setActiveSessions: {} sessions, using: {}", packageNames.size(),
+                controller != null ? controller.getPackageName() : null);
+
+        // A new session is published right away
+        _handler.removeCallbacks(_publishTrailingEdge);
+        _throttler.reset();
+        sessionChanged();
+    }
+
+    private void sessionChanged()
+    {
+        long delayMillis = _throttler.submit(SystemClock.uptimeMillis());
+
+        if (delayMillis == EventThrottler.EMIT_NOW) {
+            publish();
+        }
+        else if (delayMillis > 0) {
+            _handler.postDelayed(_publishTrailingEdge, delayMillis);
+        }
+    }
+
+    private void publishTrailingEdge()
+    {
+        _throttler.trailingEdge(SystemClock.uptimeMillis());
+        publish();
+    }
+
+    private void publish()
+    {
+        _session = readSession(_controller);
+        _listener.onMediaSessionChanged(_session);
+    }
+
+    private LauncherMessages.MediaSession readSession(MediaController controller)
+    {
+        if (controller == null) {
+            return LauncherMessages.MediaSession.EMPTY;
+        }
+
+        String title = null, artist = null, album = null;
+        Long duration = null;
+        MediaMetadata metadata = controller.getMetadata();
+        if (metadata != null) {
+            title = metadata.getString(MediaMetadata.METADATA_KEY_TITLE);
+            artist = metadata.getString(MediaMetadata.METADATA_KEY_ARTIST);
+            album = metadata.getString(MediaMetadata.METADATA_KEY_ALBUM);
+            duration = metadata.getLong(MediaMetadata.METADATA_KEY_DURATION);
+        }
+
+        boolean isPlaying = false;
+        Long position = null;
+        int actions = 0;
+        PlaybackState playbackState = controller.getPlaybackState();
+        if (playbackState != null) {
+            isPlaying = playbackState.getState() == PlaybackState.STATE_PLAYING;
+            position = playbackState.getPosition();
+            actions = LauncherMessages.MediaSession.availableActions(playbackState.getActions());
+        }
+
+        return new LauncherMessages.MediaSession(
+                true, controller.getPackageName(), _appName, title, artist, album, duration, isPlaying, position,
+                actions);
+    }
+
+    private String loadAppName(String packageName)
+    {
+        try {
+            ApplicationInfo appInfo = _packageManager.getApplicationInfo(packageName, 0);
+            return _packageManager.getApplicationLabel(appInfo).toString();
+        }
+        catch (PackageManager.NameNotFoundException e) {
+            return packageName;
+        }
+    }
+}
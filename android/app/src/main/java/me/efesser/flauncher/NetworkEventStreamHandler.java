@@ -14,8 +14,9 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 
+import com.geert.flauncher.core.LauncherMessages;
+
 import java.util.Map;
-import java.util.Objects;
 
 import io.flutter.plugin.common.EventChannel;
 
@@ -41,11 +42,12 @@ public class NetworkEventStreamHandler implements EventChannel.StreamHandler
     public void onListen(Object arguments, EventChannel.EventSink events) {
 
         try {
+            // A single registration per API level, a second callback would send every network event twice
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
                 _networkCallback = new NetworkCallbackImplApi31(events, null);
                 _connectivityManager.registerDefaultNetworkCallback(_networkCallback, _handler);
             }
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 _networkCallback = new NetworkCallbackImpl(events, null);
                 _connectivityManager.registerDefaultNetworkCallback(_networkCallback, _handler);
             }
@@ -95,9 +97,9 @@ public class NetworkEventStreamHandler implements EventChannel.StreamHandler
 
         @Override
         public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
-            Map<String, Object> map = NetworkUtils.getNetworkCapabilitiesInformation(_context, networkCapabilities);
+            LauncherMessages.NetworkState state = NetworkUtils.getNetworkCapabilitiesInformation(_context, networkCapabilities);
 
-            if (Objects.equals(map.get(NetworkUtils.KEY_NETWORK_TYPE), NetworkUtils.NETWORK_TYPE_CELLULAR)) {
+            if (state.networkType == NetworkUtils.NETWORK_TYPE_CELLULAR) {
                 TelephonyManager manager = (TelephonyManager) _context.getSystemService(Context.TELEPHONY_SERVICE);
 
                 if (_phoneStateListener == null) {
@@ -109,7 +111,7 @@ public class NetworkEventStreamHandler implements EventChannel.StreamHandler
 
             postEvent(Map.of(
                     "name", "CAPABILITIES_CHANGED",
-                    "arguments", map
+                    "arguments", state
             ));
         }
 
@@ -138,9 +140,9 @@ public class NetworkEventStreamHandler implements EventChannel.StreamHandler
 
         @Override
         public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
-            Map<String, Object> map = NetworkUtils.getNetworkCapabilitiesInformation(_context, networkCapabilities);
+            LauncherMessages.NetworkState state = NetworkUtils.getNetworkCapabilitiesInformation(_context, networkCapabilities);
 
-            if (Objects.equals(map.get(NetworkUtils.KEY_NETWORK_TYPE), NetworkUtils.NETWORK_TYPE_CELLULAR)) {
+            if (state.networkType == NetworkUtils.NETWORK_TYPE_CELLULAR) {
                 TelephonyManager manager = (TelephonyManager) _context.getSystemService(Context.TELEPHONY_SERVICE);
 
                 if (_telephonyCallback == null) {
@@ -151,7 +153,7 @@ public class NetworkEventStreamHandler implements EventChannel.StreamHandler
 
             postEvent(Map.of(
                     "name", "CAPABILITIES_CHANGED",
-                    "arguments", map
+                    "arguments", state
             ));
         }
 
@@ -14,9 +14,8 @@ import android.telephony.TelephonyManager;
 
 import androidx.annotation.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import com.geert.flauncher.core.LauncherMessages;
+import com.geert.flauncher.core.SignalLevels;
 
 public class NetworkUtils
 {
@@ -27,15 +26,10 @@ public class NetworkUtils
     public static final short NETWORK_TYPE_WIRED = 3;
     public static final short NETWORK_TYPE_UNKNOWN = 4;
 
-    public static final String KEY_INTERNET_ACCESS = "internetAccess";
-    public static final String KEY_NETWORK_ACCESS = "networkAccess";
-    public static final String KEY_NETWORK_TYPE = "networkType";
-    public static final String KEY_WIRELESS_SIGNAL_LEVEL = "wirelessSignalLevel";
-
-    public static Map<String, Object> getNetworkCapabilitiesInformation(Context context, NetworkCapabilities capabilities)
+    public static LauncherMessages.NetworkState getNetworkCapabilitiesInformation(Context context, NetworkCapabilities capabilities)
     {
-        boolean hasNetworkAccess, hasInternetAccess;
-        int wirelessNetworkSignalLevel = 0;
+        boolean hasNetworkAccess, hasInternetAccess, metered;
+        int wirelessNetworkSignalLevel = SignalLevels.UNKNOWN_LEVEL;
         short networkType = NETWORK_TYPE_UNKNOWN;
 
         hasNetworkAccess = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
@@ -45,15 +39,20 @@ public class NetworkUtils
         else {
             hasInternetAccess = hasNetworkAccess;
         }
+        metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
 
         if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
             networkType = NETWORK_TYPE_CELLULAR;
         }
         else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
-            // minSdkVersion is 29+, so we can always use getTransportInfo()
+            // getTransportInfo() only carries the WifiInfo from Android 12
             if (capabilities.getTransportInfo() instanceof WifiInfo wifiInfo) {
                 wirelessNetworkSignalLevel = getWifiSignalLevel(wifiInfo);
             }
+            else {
+                WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+                wirelessNetworkSignalLevel = getWifiSignalLevel(wifiManager.getConnectionInfo());
+            }
 
             networkType = NETWORK_TYPE_WIFI;
         }
@@ -64,49 +63,42 @@ public class NetworkUtils
             networkType = NETWORK_TYPE_WIRED;
         }
 
-        return Map.of(
-                KEY_NETWORK_ACCESS, hasNetworkAccess,
-                KEY_INTERNET_ACCESS, hasInternetAccess,
-                KEY_NETWORK_TYPE, networkType,
-                KEY_WIRELESS_SIGNAL_LEVEL, wirelessNetworkSignalLevel);
+        return new LauncherMessages.NetworkState(hasNetworkAccess, hasInternetAccess, networkType,
+                wirelessNetworkSignalLevel, capabilities.getLinkDownstreamBandwidthKbps(), metered);
     }
 
-    public static Map<String, Object> getNetworkInformation(Context context, Network network)
+    public static LauncherMessages.NetworkState getNetworkInformation(Context context, Network network)
     {
-        Map<String, Object> map = null;
-        int wirelessNetworkSignalLevel = 0;
+        LauncherMessages.NetworkState state;
 
         ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
 
         if (capabilities != null) {
-            map = getNetworkCapabilitiesInformation(context, capabilities);
+            state = getNetworkCapabilitiesInformation(context, capabilities);
 
-            if (Objects.equals(map.get(KEY_NETWORK_TYPE), NETWORK_TYPE_WIFI)) {
+            if (state.networkType == NETWORK_TYPE_WIFI) {
                 WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
-                wirelessNetworkSignalLevel = getWifiSignalLevel(wifiManager.getConnectionInfo());
+                state = state.withWirelessSignalLevel(getWifiSignalLevel(wifiManager.getConnectionInfo()));
             }
         }
-
-        if (map != null) {
-            map = new HashMap<>(map);
-        }
         else {
-            map = new HashMap<>();
+            state = new LauncherMessages.NetworkState(false, false, NETWORK_TYPE_UNKNOWN,
+                    SignalLevels.UNKNOWN_LEVEL, 0, false);
         }
 
-        map.put(KEY_WIRELESS_SIGNAL_LEVEL, wirelessNetworkSignalLevel);
-
-        return map;
+        return state;
     }
 
-    public static Map<String, Object> getNetworkInformation(Context context, @Nullable NetworkInfo networkInfo)
+    public static LauncherMessages.NetworkState getNetworkInformation(Context context, @Nullable NetworkInfo networkInfo)
     {
-        boolean hasNetworkAccess = false;
-        int networkType = NETWORK_TYPE_UNKNOWN, networkInfoType, wirelessSignalLevel = 0;
+        boolean hasNetworkAccess = false, metered = false;
+        int networkType = NETWORK_TYPE_UNKNOWN, networkInfoType, wirelessSignalLevel = SignalLevels.UNKNOWN_LEVEL;
 
         if (networkInfo != null) {
             hasNetworkAccess = networkInfo.isConnected();
+            metered = ((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE))
+                    .isActiveNetworkMetered();
             networkInfoType = networkInfo.getType();
 
             if (networkInfoType == ConnectivityManager.TYPE_MOBILE) {
@@ -127,33 +119,16 @@ public class NetworkUtils
             }
         }
 
-        return Map.of(
-                KEY_NETWORK_TYPE, networkType,
-                KEY_NETWORK_ACCESS, hasNetworkAccess,
-                KEY_INTERNET_ACCESS, hasNetworkAccess,
-                KEY_WIRELESS_SIGNAL_LEVEL, wirelessSignalLevel);
-    }
-
-    public static int getWifiSignalLevel(WifiInfo wifiInfo)
-    {
-        final int SIGNAL_LEVELS = 4;
-        int rssi = wifiInfo.getRssi();
-
-        return calculateSignalLevel(rssi, SIGNAL_LEVELS);
+        // The legacy API has no bandwidth estimate
+        return new LauncherMessages.NetworkState(
+                hasNetworkAccess, hasNetworkAccess, networkType, wirelessSignalLevel, 0, metered);
     }
 
-    private static final int MIN_RSSI = -90;
-    private static final int MAX_RSSI = -55;
-    public static int calculateSignalLevel(int rssi, int levels)
+    /**
+     * @return {@link SignalLevels#UNKNOWN_LEVEL} if there is no connection info or it has no RSSI
+     */
+    public static int getWifiSignalLevel(@Nullable WifiInfo wifiInfo)
     {
-        if (rssi <= MIN_RSSI) {
-            return 0;
-        } else if (rssi >= MAX_RSSI) {
-            return levels - 1;
-        } else {
-            final float inputRange = (MAX_RSSI - MIN_RSSI);
-            final float outputRange = (levels - 1);
-            return (int)((float)(rssi - MIN_RSSI) * outputRange / inputRange);
-        }
+        return wifiInfo != null ? SignalLevels.wifiSignalLevel(wifiInfo.getRssi()) : SignalLevels.UNKNOWN_LEVEL;
     }
 }
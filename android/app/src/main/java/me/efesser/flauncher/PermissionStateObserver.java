@@ -0,0 +1,171 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.app.role.RoleManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ResolveInfo;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Keeps whether the launcher holds the home role and whether its notification listener is
+ * enabled, so that Dart gets them without probing the package manager or parsing the secure
+ * setting on every call. The notification listener state is refreshed by the secure setting
+ * changes, the home role by package changes, a newly installed or removed home app, and on
+ * resume, after the user may have picked another one. Changes are streamed to Dart.
+ */
+public class PermissionStateObserver implements EventChannel.StreamHandler
+{
+    private static final String ENABLED_NOTIFICATION_LISTENERS = "enabled_notification_listeners";
+
+    private final Context _context;
+    private final RoleManager _roleManager;
+    private final String _notificationListener;
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+    private final ContentObserver _settingObserver;
+    private final BroadcastReceiver _packageReceiver;
+
+    // Only accessed from the main thread
+    private boolean _defaultLauncher;
+    private boolean _notificationListenerEnabled;
+    private EventChannel.EventSink _eventSink;
+
+    public PermissionStateObserver(Context context)
+    {
+        _context = context;
+        _roleManager = context.getSystemService(RoleManager.class);
+        _notificationListener = new ComponentName(context, MediaNotificationListenerService.class).flattenToString();
+        _defaultLauncher = queryDefaultLauncher();
+        _notificationListenerEnabled = queryNotificationListenerEnabled();
+
+        _settingObserver = new ContentObserver(_handler)
+        {
+            @Override
+            public void onChange(boolean selfChange)
+            {
+                update(_defaultLauncher, queryNotificationListenerEnabled());
+            }
+        };
+        _packageReceiver = new BroadcastReceiver()
+        {
+            @Override
+            public void onReceive(Context context, Intent intent)
+            {
+                update(queryDefaultLauncher(), _notificationListenerEnabled);
+            }
+        };
+
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addDataScheme("package");
+
+        context.getContentResolver().registerContentObserver(
+                Settings.Secure.getUriFor(ENABLED_NOTIFICATION_LISTENERS), false, _settingObserver);
+        context.registerReceiver(_packageReceiver, packageFilter, null, _handler);
+    }
+
+    public boolean isDefaultLauncher()
+    {
+        return _defaultLauncher;
+    }
+
+    public boolean hasNotificationListenerPermission()
+    {
+        return _notificationListenerEnabled;
+    }
+
+    /**
+     * Queries both states again, e.g. on resume, where the user may come back from the settings.
+     */
+    public void refresh()
+    {
+        update(queryDefaultLauncher(), queryNotificationListenerEnabled());
+    }
+
+    public void close()
+    {
+        _context.getContentResolver().unregisterContentObserver(_settingObserver);
+        _context.unregisterReceiver(_packageReceiver);
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events)
+    {
+        _eventSink = events;
+        _eventSink.success(toMap());
+    }
+
+    @Override
+    public void onCancel(Object arguments)
+    {
+        _eventSink = null;
+    }
+
+    private void update(boolean defaultLauncher, boolean notificationListenerEnabled)
+    {
+        if (defaultLauncher == _defaultLauncher && notificationListenerEnabled == _notificationListenerEnabled) {
+            return;
+        }
+
+        _defaultLauncher = defaultLauncher;
+        _notificationListenerEnabled = notificationListenerEnabled;
+
+        if (_eventSink != null) {
+            _eventSink.success(toMap());
+        }
+    }
+
+    private Map<String, Object> toMap()
+    {
+        return Map.of(
+                "defaultLauncher", _defaultLauncher,
+                "notificationListener", _notificationListenerEnabled);
+    }
+
+    private boolean queryDefaultLauncher()
+    {
+        if (_roleManager != null && _roleManager.isRoleAvailable(RoleManager.ROLE_HOME)) {
+            return _roleManager.isRoleHeld(RoleManager.ROLE_HOME);
+        }
+
+        Intent intent = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_HOME);
+        ResolveInfo defaultLauncher = _context.getPackageManager().resolveActivity(intent, 0);
+        return defaultLauncher != null && defaultLauncher.activityInfo != null
+                && defaultLauncher.activityInfo.packageName.equals(_context.getPackageName());
+    }
+
+    private boolean queryNotificationListenerEnabled()
+    {
+        String enabledListeners = Settings.Secure.getString(_context.getContentResolver(), ENABLED_NOTIFICATION_LISTENERS);
+        return enabledListeners != null && enabledListeners.contains(_notificationListener);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import com.geert.flauncher.core.StartupTimeline;
+
+import java.util.Map;
+
+/**
+ * Process-wide cold start timeline, timestamped with {@link SystemClock#elapsedRealtimeNanos()}
+ * so that phases can be placed relative to the process start. Phases are also emitted as
+ * asynchronous trace sections, visible in system traces.
+ */
+public final class StartupTracer
+{
+    private static final StartupTimeline TIMELINE = new StartupTimeline();
+    private static final String DART_PHASE_PREFIX = "dart.";
+
+    private StartupTracer()
+    {
+    }
+
+    /**
+     * @return the slot to pass to {@link #end(int)}
+     */
+    public static int begin(String phase)
+    {
+        int slot = TIMELINE.begin(phase, SystemClock.elapsedRealtimeNanos());
+
+        if (slot != StartupTimeline.NO_SLOT) {
+            Trace.beginAsyncSection(phase, slot);
+        }
+        return slot;
+    }
+
+    public static void end(int slot)
+    {
+        if (slot != StartupTimeline.NO_SLOT) {
+            TIMELINE.end(slot, SystemClock.elapsedRealtimeNanos());
+            Trace.endAsyncSection(TIMELINE.phase(slot), slot);
+        }
+    }
+
+    public static void mark(String phase)
+    {
+        end(begin(phase));
+    }
+
+    /**
+     * Milestones reported by Dart are timestamped on reception, and prefixed to tell them apart.
+     */
+    public static void markFromDart(String milestone)
+    {
+        mark(DART_PHASE_PREFIX + milestone);
+    }
+
+    public static Map<String, Object> getTimeline()
+    {
+        long processStartMillis = Process.getStartElapsedRealtime();
+
+        return Map.of(
+                "processStartElapsedRealtimeMillis", processStartMillis,
+                "phases", TIMELINE.snapshot(processStartMillis * 1_000_000L));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+
+import com.geert.flauncher.core.ViolationAggregator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects disk, network and slow call violations on the main thread in debuggable builds, and
+ * aggregates them per channel call or callback, exposed through getStrictModeViolations.
+ * StrictMode reports main thread violations right after the message that caused them, so those
+ * raised under a channel handler are attributed to the call dispatched last, the other ones to
+ * their innermost launcher frame.
+ */
+public class StrictModeReporter
+{
+    private final ChannelInstrumentation _channelInstrumentation;
+    private final ViolationAggregator _violations = new ViolationAggregator(
+            StrictModeReporter.class.getPackage().getName());
+    private boolean _enabled;
+
+    public StrictModeReporter(ChannelInstrumentation channelInstrumentation)
+    {
+        _channelInstrumentation = channelInstrumentation;
+    }
+
+    /**
+     * Enables the thread policy of the calling thread, the main one, in debuggable builds.
+     */
+    public void install(ApplicationInfo applicationInfo)
+    {
+        if ((applicationInfo.flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return;
+        }
+
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectAll()
+                .penaltyListener(Runnable::run, this::onViolation)
+                .build());
+        _enabled = true;
+    }
+
+    /**
+     * @return whether the policy is enabled, and the violations under "violations", see
+     * {@link ViolationAggregator#snapshot(boolean)}
+     */
+    public Map<String, Object> getViolations(boolean reset)
+    {
+        List<Map<String, Object>> violations = _violations.snapshot(reset);
+        return Map.of(
+                "enabled", _enabled,
+                "violations", violations);
+    }
+
+    private void onViolation(Violation violation)
+    {
+        StackTraceElement[] stack = violation.getStackTrace();
+        String attribution = null;
+
+        if (isChannelCall(stack)) {
+            attribution = _channelInstrumentation.getLastCall();
+        }
+        if (attribution == null) {
+            attribution = _violations.callerOf(stack);
+        }
+
+        _violations.record(attribution != null ? attribution : ViolationAggregator.OTHER,
+                violation.getClass().getSimpleName(), stack);
+    }
+
+    private static boolean isChannelCall(StackTraceElement[] stack)
+    {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(ChannelInstrumentation.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
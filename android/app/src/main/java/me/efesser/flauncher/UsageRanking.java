@@ -0,0 +1,149 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+
+import com.geert.flauncher.core.UsageAggregator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ranks applications by recency and frequency of use, from the foreground events of
+ * {@link UsageStatsManager}. Only the events newer than the last ingested one are queried, and the
+ * aggregate is persisted so that they stay the only ones after a restart.
+ * Without the PACKAGE_USAGE_STATS access, no events are returned and the ranking stays empty.
+ */
+public class UsageRanking
+{
+    private static final long HALF_LIFE_MILLIS = 3 * 24 * 60 * 60 * 1000L;
+    // History ingested on the first refresh
+    private static final long INITIAL_WINDOW_MILLIS = 14 * 24 * 60 * 60 * 1000L;
+
+    private final UsageStatsManager _usageStatsManager;
+    private final UsageAggregator _aggregator;
+    private final File _file;
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+
+    private boolean _loaded;
+
+    public UsageRanking(Context context, File file)
+    {
+        _usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        _aggregator = new UsageAggregator(HALF_LIFE_MILLIS, context.getPackageName());
+        _file = file;
+    }
+
+    /**
+     * Ingests the new events in the background.
+     */
+    public void refresh()
+    {
+        _executor.execute(this::ingestNewEvents);
+    }
+
+    /**
+     * @see UsageAggregator#ranking(int, long)
+     */
+    public List<Map<String, Object>> getRanking(int limit)
+    {
+        return _aggregator.ranking(limit, System.currentTimeMillis());
+    }
+
+    private void ingestNewEvents()
+    {
+        if (!_loaded) {
+            load();
+            _loaded = true;
+        }
+
+        long now = System.currentTimeMillis();
+        long begin = Math.max(_aggregator.getCheckpoint() + 1, now - INITIAL_WINDOW_MILLIS);
+        UsageEvents events = _usageStatsManager.queryEvents(begin, now);
+        if (events == null) {
+            return;
+        }
+
+        UsageEvents.Event event = new UsageEvents.Event();
+        boolean changed = false;
+
+        while (events.getNextEvent(event)) {
+            if (event.getEventType() == UsageEvents.Event.ACTIVITY_RESUMED) {
+                changed |= _aggregator.recordForeground(event.getPackageName(), event.getTimeStamp());
+            }
+        }
+
+        if (changed) {
+            save();
+        }
+    }
+
+    private void load()
+    {
+        if (!_file.exists()) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+            _aggregator.read(input);
+        }
+        catch (IOException ignored) {
+            // Starts over from the initial window
+        }
+    }
+
+    /**
+     * Stops the background thread once the events being ingested are saved.
+     */
+    public void close()
+    {
+        _executor.shutdown();
+    }
+
+    private void save()
+    {
+        // Written aside then renamed, so that a crash while writing keeps the previous history
+        File temporaryFile = new File(_file.getPath() + ".tmp");
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                _aggregator.write(output);
+            }
+            if (!temporaryFile.renameTo(_file)) {
+                throw new IOException("Cannot replace " + _file);
+            }
+        }
+        catch (IOException ignored) {
+            // The events since the last saved checkpoint are ingested again on the next start
+        }
+    }
+}
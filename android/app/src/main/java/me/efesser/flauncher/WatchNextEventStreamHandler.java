@@ -0,0 +1,259 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.media.tv.TvContract;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.geert.flauncher.core.LauncherMessages;
+import com.geert.flauncher.core.WatchNextCache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Streams the Watch Next programs: all of them when listening starts, then only the programs
+ * added, updated and removed since. The provider is read on a background thread, and only the
+ * changed programs are read again when it notifies their uri.
+ * Without READ_EPG_DATA, requested by the activity, the provider only returns the programs of
+ * the launcher itself; {@link #reload()} reads them all again once it is granted.
+ */
+public class WatchNextEventStreamHandler implements EventChannel.StreamHandler
+{
+    // Apps update their programs in bursts, e.g. the playback position of several episodes
+    private static final long CHANGE_DELAY_MILLIS = 250;
+    private static final int POSTER_MAX_WIDTH = 480;
+    private static final int POSTER_MAX_HEIGHT = 270;
+
+    private final ContentResolver _contentResolver;
+    private final WatchNextReader _reader;
+    private final WatchNextCache _cache = new WatchNextCache(WatchNextReader.MAX_PROGRAMS);
+    private final LruCache<Long, byte[]> _posters;
+    private final Handler _mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread _thread;
+    private Handler _handler;
+    private ContentObserver _observer;
+    private EventChannel.EventSink _eventSink;
+
+    // Only accessed from the background thread
+    private final Set<Long> _changedIds = new HashSet<>();
+    private boolean _reloadPending;
+    private final Runnable _flushChanges = this::flushChanges;
+
+    public WatchNextEventStreamHandler(ContentResolver contentResolver, int posterCacheBytes)
+    {
+        _contentResolver = contentResolver;
+        _reader = new WatchNextReader(contentResolver);
+        _posters = new LruCache<>(posterCacheBytes)
+        {
+            @Override
+            protected int sizeOf(Long key, byte[] value)
+            {
+                return Math.max(value.length, 1);
+            }
+        };
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events)
+    {
+        _eventSink = events;
+        _thread = new HandlerThread("WatchNext");
+        _thread.start();
+        _handler = new Handler(_thread.getLooper());
+        _observer = new ContentObserver(_handler)
+        {
+            @Override
+            public void onChange(boolean selfChange, Uri uri)
+            {
+                programChanged(uri);
+            }
+        };
+
+        try {
+            _contentResolver.registerContentObserver(TvContract.WatchNextPrograms.CONTENT_URI, true, _observer);
+        }
+        catch (SecurityException ignored) { }
+
+        _handler.post(() -> {
+            _cache.replaceAll(_reader.readAll());
+            List<LauncherMessages.WatchNextProgram> programs = _cache.snapshot();
+            send(Map.of(
+                    "action", "RESET",
+                    "programs", programs));
+        });
+    }
+
+    @Override
+    public void onCancel(Object arguments)
+    {
+        _contentResolver.unregisterContentObserver(_observer);
+        _thread.quitSafely();
+        _eventSink = null;
+    }
+
+    /**
+     * Reads all the programs again, e.g. after READ_EPG_DATA was granted, sending the difference.
+     */
+    public void reload()
+    {
+        if (_handler != null) {
+            _handler.post(() -> programChanged(null));
+        }
+    }
+
+    /**
+     * Loads the poster on the background thread, the provider and the decoding being too slow
+     * for the main one.
+     *
+     * @param callback called on the main thread with the JPEG encoded poster art of the program,
+     *                 empty if it has none or is unknown
+     */
+    public void getPoster(long id, Consumer<byte[]> callback)
+    {
+        byte[] poster = _posters.get(id);
+
+        if (poster != null) {
+            callback.accept(poster);
+        }
+        // Not listening, no program is known
+        else if (_handler == null || !_handler.post(() -> {
+            byte[] loadedPoster = loadPoster(id);
+            _mainHandler.post(() -> callback.accept(loadedPoster));
+        })) {
+            callback.accept(new byte[0]);
+        }
+    }
+
+    private byte[] loadPoster(long id)
+    {
+        byte[] poster = _posters.get(id);
+
+        if (poster == null) {
+            LauncherMessages.WatchNextProgram program = _cache.get(id);
+
+            if (program == null) {
+                return new byte[0];
+            }
+
+            poster = _reader.loadPoster(program.posterArtUri, POSTER_MAX_WIDTH, POSTER_MAX_HEIGHT);
+            _posters.put(id, poster);
+        }
+        return poster;
+    }
+
+    private void programChanged(Uri uri)
+    {
+        Long id = programId(uri);
+
+        if (id != null) {
+            _changedIds.add(id);
+        }
+        else {
+            _reloadPending = true;
+        }
+
+        _handler.removeCallbacks(_flushChanges);
+        _handler.postDelayed(_flushChanges, CHANGE_DELAY_MILLIS);
+    }
+
+    private void flushChanges()
+    {
+        WatchNextCache.Diff diff;
+
+        if (_reloadPending) {
+            diff = _cache.replaceAll(_reader.readAll());
+        }
+        else {
+            List<LauncherMessages.WatchNextProgram> programs = new ArrayList<>(_changedIds.size());
+            List<Long> removedIds = new ArrayList<>();
+
+            for (long id : _changedIds) {
+                LauncherMessages.WatchNextProgram program = _reader.read(id);
+
+                if (program != null) {
+                    programs.add(program);
+                }
+                else {
+                    removedIds.add(id);
+                }
+            }
+            diff = _cache.update(programs, removedIds);
+        }
+
+        _reloadPending = false;
+        _changedIds.clear();
+
+        for (LauncherMessages.WatchNextProgram program : diff.updated) {
+            _posters.remove(program.id);
+        }
+        for (long id : diff.removedIds) {
+            _posters.remove(id);
+        }
+
+        if (!diff.isEmpty()) {
+            send(Map.of(
+                    "action", "DIFF",
+                    "added", diff.added,
+                    "updated", diff.updated,
+                    "removed", diff.removedIds));
+        }
+    }
+
+    private void send(Map<String, Object> event)
+    {
+        _mainHandler.post(() -> {
+            if (_eventSink != null) {
+                _eventSink.success(event);
+            }
+        });
+    }
+
+    /**
+     * @return the id of a single program uri, null for the whole table
+     */
+    private static Long programId(Uri uri)
+    {
+        if (uri == null) {
+            return null;
+        }
+
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() == 2) {
+            try {
+                return Long.parseLong(segments.get(1));
+            }
+            catch (NumberFormatException ignored) { }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.tv.TvContract;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the browsable programs of {@link TvContract.WatchNextPrograms}, by pages and only the
+ * columns of {@link LauncherMessages.WatchNextProgram}, and their downscaled poster art.
+ */
+public class WatchNextReader
+{
+    static final int PAGE_SIZE = 50;
+    static final int MAX_PROGRAMS = 100;
+
+    private static final String[] PROJECTION = {
+            TvContract.WatchNextPrograms._ID,
+            TvContract.WatchNextPrograms.COLUMN_PACKAGE_NAME,
+            TvContract.WatchNextPrograms.COLUMN_TITLE,
+            TvContract.WatchNextPrograms.COLUMN_EPISODE_TITLE,
+            TvContract.WatchNextPrograms.COLUMN_WATCH_NEXT_TYPE,
+            TvContract.WatchNextPrograms.COLUMN_LAST_ENGAGEMENT_TIME_UTC_MILLIS,
+            TvContract.WatchNextPrograms.COLUMN_DURATION_MILLIS,
+            TvContract.WatchNextPrograms.COLUMN_LAST_PLAYBACK_POSITION_MILLIS,
+            TvContract.WatchNextPrograms.COLUMN_INTENT_URI,
+            TvContract.WatchNextPrograms.COLUMN_POSTER_ART_URI
+    };
+    // Aligned with PROJECTION
+    private static final int ID = 0;
+    private static final int PACKAGE_NAME = 1;
+    private static final int TITLE = 2;
+    private static final int EPISODE_TITLE = 3;
+    private static final int WATCH_NEXT_TYPE = 4;
+    private static final int LAST_ENGAGEMENT_TIME = 5;
+    private static final int DURATION = 6;
+    private static final int LAST_PLAYBACK_POSITION = 7;
+    private static final int INTENT_URI = 8;
+    private static final int POSTER_ART_URI = 9;
+
+    private static final String SELECTION = TvContract.WatchNextPrograms.COLUMN_BROWSABLE + " = 1";
+    private static final String SORT_ORDER =
+            TvContract.WatchNextPrograms.COLUMN_LAST_ENGAGEMENT_TIME_UTC_MILLIS + " DESC";
+
+    private final ContentResolver _contentResolver;
+
+    public WatchNextReader(ContentResolver contentResolver)
+    {
+        _contentResolver = contentResolver;
+    }
+
+    /**
+     * @return the most recently engaged programs, at most {@link #MAX_PROGRAMS}, or none if the
+     * provider is missing or denies access
+     */
+    public List<LauncherMessages.WatchNextProgram> readAll()
+    {
+        List<LauncherMessages.WatchNextProgram> programs = new ArrayList<>();
+        boolean lastPage = false;
+
+        while (!lastPage && programs.size() < MAX_PROGRAMS) {
+            Bundle queryArgs = queryArgs();
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, PAGE_SIZE);
+            queryArgs.putInt(ContentResolver.QUERY_ARG_OFFSET, programs.size());
+
+            try (Cursor cursor = _contentResolver.query(
+                    TvContract.WatchNextPrograms.CONTENT_URI, PROJECTION, queryArgs, null)) {
+                if (cursor == null) {
+                    break;
+                }
+
+                int count = 0;
+                while (programs.size() < MAX_PROGRAMS && cursor.moveToNext()) {
+                    programs.add(readProgram(cursor));
+                    count += 1;
+                }
+
+                // A provider ignoring the limit returned every program at once
+                lastPage = count < PAGE_SIZE || !isPaged(cursor);
+            } catch (SecurityException | IllegalArgumentException ignored) {
+                break;
+            }
+        }
+
+        return programs;
+    }
+
+    /**
+     * @return the program, or null if it was deleted or isn't browsable anymore
+     */
+    public LauncherMessages.WatchNextProgram read(long id)
+    {
+        try (Cursor cursor = _contentResolver.query(
+                TvContract.buildWatchNextProgramUri(id), PROJECTION, queryArgs(), null)) {
+            return cursor != null && cursor.moveToFirst() ? readProgram(cursor) : null;
+        } catch (SecurityException | IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the poster art subsampled close to the given bounds, then scaled down to fit them.
+     *
+     * @return the JPEG encoded poster, empty if it can't be read
+     */
+    public byte[] loadPoster(String posterArtUri, int maxWidth, int maxHeight)
+    {
+        if (posterArtUri == null) {
+            return new byte[0];
+        }
+
+        Uri uri = Uri.parse(posterArtUri);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+
+        try {
+            try (InputStream stream = _contentResolver.openInputStream(uri)) {
+                BitmapFactory.decodeStream(stream, null, options);
+            }
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return new byte[0];
+            }
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, maxWidth, maxHeight);
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+
+            Bitmap bitmap;
+            try (InputStream stream = _contentResolver.openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(stream, null, options);
+            }
+            if (bitmap == null) {
+                return new byte[0];
+            }
+
+            float scale = Math.min(1f, Math.min(
+                    (float) maxWidth / bitmap.getWidth(), (float) maxHeight / bitmap.getHeight()));
+            if (scale < 1f) {
+                Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                        Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                        Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+                bitmap.recycle();
+                bitmap = scaled;
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 85, output);
+            bitmap.recycle();
+            return output.toByteArray();
+        } catch (IOException | SecurityException ignored) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * @return the largest power of two subsampling keeping the image at least as large as the bounds
+     */
+    static int sampleSize(int width, int height, int maxWidth, int maxHeight)
+    {
+        int sampleSize = 1;
+
+        while (width / (sampleSize * 2) >= maxWidth && height / (sampleSize * 2) >= maxHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bundle queryArgs()
+    {
+        Bundle queryArgs = new Bundle();
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, SELECTION);
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, SORT_ORDER);
+        return queryArgs;
+    }
+
+    private static boolean isPaged(Cursor cursor)
+    {
+        String[] honoredArgs = cursor.getExtras().getStringArray(ContentResolver.EXTRA_HONORED_ARGS);
+
+        if (honoredArgs != null) {
+            for (String honoredArg : honoredArgs) {
+                if (ContentResolver.QUERY_ARG_LIMIT.equals(honoredArg)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static LauncherMessages.WatchNextProgram readProgram(Cursor cursor)
+    {
+        return new LauncherMessages.WatchNextProgram(
+                cursor.getLong(ID),
+                cursor.getString(PACKAGE_NAME),
+                cursor.getString(TITLE),
+                cursor.getString(EPISODE_TITLE),
+                cursor.getInt(WATCH_NEXT_TYPE),
+                cursor.getLong(LAST_ENGAGEMENT_TIME),
+                cursor.getLong(DURATION),
+                cursor.getLong(LAST_PLAYBACK_POSITION),
+                cursor.getString(INTENT_URI),
+                cursor.getString(POSTER_ART_URI));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.drawable.AdaptiveIconDrawable;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.GraphicsMode;
+
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class AdaptiveIconRendererTest
+{
+    private final AdaptiveIconRenderer _renderer = new AdaptiveIconRenderer();
+
+    @Test
+    public void layersLeaveRoomForTheShift()
+    {
+        assertEquals(144, AdaptiveIconRenderer.layerSize(96));
+    }
+
+    @Test
+    public void requestedSizesAreRoundedToAFewRenderedSizes()
+    {
+        assertEquals(96, AdaptiveIconRenderer.renderedSize(96));
+        assertEquals(128, AdaptiveIconRenderer.renderedSize(97));
+        assertEquals(32, AdaptiveIconRenderer.renderedSize(-5));
+        assertEquals(512, AdaptiveIconRenderer.renderedSize(100_000));
+    }
+
+    @Test
+    public void adaptiveIconIsSplitIntoLayers()
+    {
+        AdaptiveIconDrawable icon = new AdaptiveIconDrawable(new ColorDrawable(Color.BLUE),
+                new ColorDrawable(Color.RED));
+
+        byte[][] layers = _renderer.renderLayers(icon, 96);
+
+        Bitmap foreground = BitmapFactory.decodeByteArray(layers[0], 0, layers[0].length);
+        Bitmap background = BitmapFactory.decodeByteArray(layers[1], 0, layers[1].length);
+        assertEquals(144, foreground.getWidth());
+        assertEquals(144, background.getHeight());
+        assertEquals(Color.RED, foreground.getPixel(0, 0));
+        assertEquals(Color.BLUE, background.getPixel(143, 143));
+    }
+
+    @Test
+    public void legacyIconHasNoLayers()
+    {
+        BitmapDrawable icon = new BitmapDrawable(RuntimeEnvironment.getApplication().getResources(),
+                Bitmap.createBitmap(96, 96, Bitmap.Config.ARGB_8888));
+
+        assertNull(_renderer.renderLayers(icon, 96));
+    }
+
+    @Test
+    public void maskIsCachedPerSize()
+    {
+        byte[] mask = _renderer.getMask(96);
+        Bitmap bitmap = BitmapFactory.decodeByteArray(mask, 0, mask.length);
+
+        assertNotNull(bitmap);
+        assertEquals(96, bitmap.getWidth());
+        // Opaque in the centre of the shape, whatever the shape
+        assertTrue(Color.alpha(bitmap.getPixel(48, 48)) > 0);
+        assertSame(mask, _renderer.getMask(96));
+    }
+}
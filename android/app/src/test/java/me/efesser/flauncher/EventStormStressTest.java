@@ -0,0 +1,354 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.pm.LauncherApps;
+import android.media.session.MediaController;
+import android.media.session.MediaSession;
+import android.media.session.MediaSessionManager;
+import android.media.session.PlaybackState;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import com.geert.flauncher.core.LauncherMessages;
+import com.geert.flauncher.core.SearchIndex;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowNetwork;
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+import org.robolectric.util.ReflectionHelpers;
+
+/**
+ * Floods the stream handlers with scripted platform callbacks, thousands per second of
+ * simulated time, as during bulk application restores, Wi-Fi flaps or seek scrubbing. Checks
+ * what reaches Dart for loss, duplicates and ordering, and bounds the allocations per callback.
+ * The occupancy of the looper handling the callbacks, its busy time over the simulated duration,
+ * depends on the machine running the tests: it is only checked when the flauncher.benchmark
+ * system property is set, as in LauncherApplicationsBenchmarkTest. Every run writes both
+ * measures to {@code build/benchmark-results/EventStormStressTest.<test>.properties}, so that
+ * they can be compared between runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventStormStressTest
+{
+    private static final int EVENTS_PER_MILLISECOND = 3;
+    private static final Duration STORM_DURATION = Duration.ofSeconds(1);
+    private static final int PACKAGE_COUNT = 500;
+
+    // Generous bounds, meant to catch a per-event flush or an unbounded queue, not noise
+    private static final long MAX_ALLOCATED_BYTES_PER_EVENT = 16 * 1024;
+    private static final double MAX_LOOPER_OCCUPANCY = 0.5;
+
+    private static final boolean CHECK_TIME = Boolean.getBoolean("flauncher.benchmark");
+    private static final File RESULTS_DIRECTORY = new File("build/benchmark-results");
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private Application _application;
+
+    @Before
+    public void setUp()
+    {
+        _application = RuntimeEnvironment.getApplication();
+    }
+
+    @Test
+    public void bulkRestoreIsCoalesced() throws IOException
+    {
+        Set<String> installed = new HashSet<>();
+        Map<String, Boolean> expected = new HashMap<>();
+        LauncherAppsEventStreamHandler handler = new LauncherAppsEventStreamHandler(_application,
+                new FakeApplications(installed), new SearchIndex());
+        RecordingEventSink sink = new RecordingEventSink();
+        handler.onListen(null, sink);
+        LauncherApps.Callback callback = ReflectionHelpers.getField(handler, "_launcherAppsCallback");
+        Random random = new Random(42);
+
+        StormResult result = storm(Looper.getMainLooper(), event -> {
+            String packageName = "com.example.restored" + random.nextInt(PACKAGE_COUNT);
+            int kind = random.nextInt(100);
+
+            if (kind < 70) {
+                installed.add(packageName);
+                callback.onPackageAdded(packageName, Process.myUserHandle());
+            }
+            else if (kind < 80) {
+                installed.add(packageName);
+                callback.onPackageChanged(packageName, Process.myUserHandle());
+            }
+            else if (kind < 95) {
+                installed.remove(packageName);
+                callback.onPackageRemoved(packageName, Process.myUserHandle());
+            }
+            else {
+                String[] packageNames = new String[20];
+                for (int i = 0; i < packageNames.length; ++i) {
+                    packageNames[i] = "com.example.restored" + random.nextInt(PACKAGE_COUNT);
+                    installed.add(packageNames[i]);
+                    expected.put(packageNames[i], true);
+                }
+                callback.onPackagesAvailable(packageNames, Process.myUserHandle(), false);
+            }
+            expected.put(packageName, installed.contains(packageName));
+        });
+
+        // Replaying what Dart received must give the final state of every package
+        Map<String, Boolean> received = new HashMap<>();
+        int availableEvents = 0;
+        for (Object event : sink.events) {
+            Map<?, ?> map = (Map<?, ?>) event;
+
+            if ("PACKAGES_AVAILABLE".equals(map.get("action"))) {
+                availableEvents += 1;
+                for (Object application : (List<?>) map.get("activitiesInfo")) {
+                    received.put(((LauncherMessages.Application) application).packageName, true);
+                }
+            }
+            else {
+                received.put((String) map.get("packageName"), false);
+            }
+        }
+
+        assertEquals(expected, received);
+        assertTrue("One batch per flush, got " + availableEvents,
+                availableEvents <= STORM_DURATION.toMillis() / 100 + 2);
+        assertEquals(0, sink.errorCount);
+        assertWithinBounds(result);
+    }
+
+    @Test
+    public void wifiFlapsAreSentOnceInOrder() throws IOException
+    {
+        ConnectivityManager connectivityManager = _application.getSystemService(ConnectivityManager.class);
+        NetworkEventStreamHandler handler = new NetworkEventStreamHandler(_application);
+        RecordingEventSink sink = new RecordingEventSink();
+        handler.onListen(null, sink);
+        Set<ConnectivityManager.NetworkCallback> callbacks = shadowOf(connectivityManager).getNetworkCallbacks();
+        Network network = ShadowNetwork.newInstance(100);
+        NetworkCapabilities validated = wifiCapabilities(true);
+        NetworkCapabilities unvalidated = wifiCapabilities(false);
+
+        // Connected and validated, captive, lost, over and over
+        StormResult result = storm(Looper.getMainLooper(), event -> {
+            for (ConnectivityManager.NetworkCallback callback : callbacks) {
+                switch (event % 3) {
+                    case 0 -> callback.onCapabilitiesChanged(network, validated);
+                    case 1 -> callback.onCapabilitiesChanged(network, unvalidated);
+                    default -> callback.onLost(network);
+                }
+            }
+        });
+
+        assertEquals(result.eventCount, sink.events.size());
+        for (int i = 0; i < sink.events.size(); ++i) {
+            Map<?, ?> event = (Map<?, ?>) sink.events.get(i);
+
+            if (i % 3 == 2) {
+                assertEquals("NETWORK_UNAVAILABLE", event.get("name"));
+            }
+            else {
+                assertEquals(i % 3 == 0, ((LauncherMessages.NetworkState) event.get("arguments")).internetAccess);
+            }
+        }
+        assertWithinBounds(result);
+
+        handler.onCancel(null);
+        assertTrue(shadowOf(connectivityManager).getNetworkCallbacks().isEmpty());
+    }
+
+    @Test
+    public void scrubbingIsThrottledOffMainThread() throws IOException
+    {
+        MediaController controller = new MediaController(_application,
+                new MediaSession(_application, "storm").getSessionToken());
+        shadowOf(controller).setPackageName("com.example.player");
+        shadowOf(_application.getSystemService(MediaSessionManager.class)).addController(controller);
+        RecordingEventSink sink = new RecordingEventSink();
+        MediaSessionTracker tracker = new MediaSessionTracker(_application,
+                new ComponentName(_application, MediaNotificationListenerService.class), sink::success);
+        Looper trackerLooper = ReflectionHelpers.<HandlerThread>getField(tracker, "_thread").getLooper();
+        tracker.start();
+        shadowOf(trackerLooper).idle();
+        sink.events.clear();
+
+        // A playback state per position while seeking, the last one must not be lost
+        StormResult result = storm(trackerLooper, event -> shadowOf(controller).executeOnPlaybackStateChanged(
+                new PlaybackState.Builder().setState(PlaybackState.STATE_PLAYING, event, 1f).build()));
+
+        assertTrue("Throttled to one event per interval, got " + sink.events.size(),
+                sink.events.size() <= STORM_DURATION.toMillis() / 250 + 2);
+        LauncherMessages.MediaSession last = (LauncherMessages.MediaSession) sink.events.get(sink.events.size() - 1);
+        assertEquals(result.eventCount - 1, (long) last.position);
+        assertEquals(last.position, tracker.getSession().position);
+        assertTrue(shadowOf(Looper.getMainLooper()).isIdle());
+        assertWithinBounds(result);
+
+        tracker.close();
+    }
+
+    private static NetworkCapabilities wifiCapabilities(boolean validated)
+    {
+        NetworkCapabilities capabilities = ShadowNetworkCapabilities.newInstance();
+        shadowOf(capabilities).addTransportType(NetworkCapabilities.TRANSPORT_WIFI);
+        shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        if (validated) {
+            shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        }
+        return capabilities;
+    }
+
+    /**
+     * Runs the script at {@link #EVENTS_PER_MILLISECOND} over {@link #STORM_DURATION} of
+     * simulated time, running the looper of the handler between milliseconds, then until it is
+     * idle. Only the time spent running the looper is counted as busy, not the script's.
+     */
+    private static StormResult storm(Looper looper, IntConsumer script)
+    {
+        long startAllocatedBytes = currentThreadAllocatedBytes();
+        long busyNanos = 0;
+        int eventCount = 0;
+
+        for (long millisecond = 0; millisecond < STORM_DURATION.toMillis(); ++millisecond) {
+            for (int i = 0; i < EVENTS_PER_MILLISECOND; ++i) {
+                script.accept(eventCount++);
+            }
+
+            long start = System.nanoTime();
+            shadowOf(looper).idleFor(Duration.ofMillis(1));
+            busyNanos += System.nanoTime() - start;
+        }
+
+        long start = System.nanoTime();
+        shadowOf(looper).idleFor(Duration.ofSeconds(1));
+        busyNanos += System.nanoTime() - start;
+
+        return new StormResult(eventCount, busyNanos, currentThreadAllocatedBytes() - startAllocatedBytes);
+    }
+
+    private void assertWithinBounds(StormResult result) throws IOException
+    {
+        long allocatedBytesPerEvent = result.allocatedBytes / result.eventCount;
+        double looperOccupancy = result.looperOccupancy();
+
+        Properties results = new Properties();
+        results.setProperty("eventCount", String.valueOf(result.eventCount));
+        results.setProperty("allocatedBytesPerEvent", String.valueOf(allocatedBytesPerEvent));
+        results.setProperty("looperOccupancy", String.format(Locale.ROOT, "%.4f", looperOccupancy));
+        RESULTS_DIRECTORY.mkdirs();
+        try (Writer writer = new FileWriter(new File(RESULTS_DIRECTORY,
+                "EventStormStressTest." + testName.getMethodName() + ".properties"))) {
+            results.store(writer, null);
+        }
+
+        assertTrue("Allocated " + allocatedBytesPerEvent + " bytes per callback",
+                allocatedBytesPerEvent < MAX_ALLOCATED_BYTES_PER_EVENT);
+        if (CHECK_TIME) {
+            assertTrue(String.format("Looper occupancy %.1f%%", looperOccupancy * 100),
+                    looperOccupancy < MAX_LOOPER_OCCUPANCY);
+        }
+    }
+
+    private static long currentThreadAllocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static class FakeApplications implements LauncherAppsEventStreamHandler.Applications
+    {
+        private final Set<String> _installed;
+
+        FakeApplications(Set<String> installed)
+        {
+            _installed = installed;
+        }
+
+        @Override
+        public LauncherMessages.Application getApplication(String packageName)
+        {
+            return _installed.contains(packageName)
+                    ? new LauncherMessages.Application(packageName, packageName, "1.0", false, null)
+                    : null;
+        }
+
+        @Override
+        public void invalidateLaunchIntent(String packageName)
+        {
+        }
+
+        @Override
+        public void invalidateApplicationImages(String packageName)
+        {
+        }
+    }
+
+    private static class StormResult
+    {
+        final int eventCount;
+        final long busyNanos;
+        final long allocatedBytes;
+
+        StormResult(int eventCount, long busyNanos, long allocatedBytes)
+        {
+            this.eventCount = eventCount;
+            this.busyNanos = busyNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Time spent running the looper, over the simulated duration.
+         */
+        double looperOccupancy()
+        {
+            return (double) busyNanos / STORM_DURATION.toNanos();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.media.tv.TvContract;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Local Watch Next provider, holding programs as rows of values keyed by column and recording
+ * the queries it receives.
+ */
+public class FakeWatchNextProvider extends ContentProvider
+{
+    final List<ContentValues> programs = new ArrayList<>();
+    final List<String[]> projections = new ArrayList<>();
+    // Whether QUERY_ARG_LIMIT and QUERY_ARG_OFFSET are honored
+    boolean paged = true;
+
+    void addProgram(long id, long lastEngagementTimeMillis, boolean browsable)
+    {
+        ContentValues values = new ContentValues();
+        values.put(TvContract.WatchNextPrograms._ID, id);
+        values.put(TvContract.WatchNextPrograms.COLUMN_PACKAGE_NAME, "com.example.player");
+        values.put(TvContract.WatchNextPrograms.COLUMN_TITLE, "Program " + id);
+        values.put(TvContract.WatchNextPrograms.COLUMN_WATCH_NEXT_TYPE,
+                TvContract.WatchNextPrograms.WATCH_NEXT_TYPE_CONTINUE);
+        values.put(TvContract.WatchNextPrograms.COLUMN_LAST_ENGAGEMENT_TIME_UTC_MILLIS, lastEngagementTimeMillis);
+        values.put(TvContract.WatchNextPrograms.COLUMN_DURATION_MILLIS, 3_600_000L);
+        values.put(TvContract.WatchNextPrograms.COLUMN_LAST_PLAYBACK_POSITION_MILLIS, 60_000L);
+        values.put(TvContract.WatchNextPrograms.COLUMN_BROWSABLE, browsable ? 1 : 0);
+        programs.add(values);
+    }
+
+    @Override
+    public boolean onCreate()
+    {
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, Bundle queryArgs, CancellationSignal cancellationSignal)
+    {
+        projections.add(projection);
+
+        List<ContentValues> rows = new ArrayList<>();
+        for (ContentValues program : programs) {
+            boolean browsable = program.getAsInteger(TvContract.WatchNextPrograms.COLUMN_BROWSABLE) == 1;
+            boolean matches = uri.getPathSegments().size() == 1
+                    || program.getAsLong(TvContract.WatchNextPrograms._ID) == Long.parseLong(uri.getLastPathSegment());
+
+            if (browsable && matches) {
+                rows.add(program);
+            }
+        }
+        rows.sort(Comparator.comparing((ContentValues program) ->
+                program.getAsLong(TvContract.WatchNextPrograms.COLUMN_LAST_ENGAGEMENT_TIME_UTC_MILLIS)).reversed());
+
+        int offset = 0;
+        int limit = rows.size();
+        if (paged && queryArgs.containsKey(ContentResolver.QUERY_ARG_LIMIT)) {
+            offset = Math.min(queryArgs.getInt(ContentResolver.QUERY_ARG_OFFSET), rows.size());
+            limit = queryArgs.getInt(ContentResolver.QUERY_ARG_LIMIT);
+        }
+
+        MatrixCursor cursor = new MatrixCursor(projection);
+        for (ContentValues row : rows.subList(offset, Math.min(rows.size(), offset + limit))) {
+            Object[] values = new Object[projection.length];
+            for (int i = 0; i < projection.length; ++i) {
+                values[i] = row.get(projection[i]);
+            }
+            cursor.addRow(values);
+        }
+
+        if (paged) {
+            Bundle extras = new Bundle();
+            extras.putStringArray(ContentResolver.EXTRA_HONORED_ARGS, new String[] {
+                    ContentResolver.QUERY_ARG_LIMIT, ContentResolver.QUERY_ARG_OFFSET });
+            cursor.setExtras(extras);
+        }
+        return cursor;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getType(Uri uri)
+    {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.provider.Settings;
+
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Measures {@link LauncherApplications#getApplications()} against synthetic package sets, and
+ * fails when allocations regress past the baselines stored in
+ * launcher_applications_baseline.properties. Wall time depends on the machine running the tests,
+ * it is only checked when the flauncher.benchmark system property is set, e.g. with
+ * {@code gradle test -Pflauncher.benchmark}. Failure messages give the measured values, so that
+ * baselines can be updated after an intended change.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class LauncherApplicationsBenchmarkTest
+{
+    private static final String BASELINE_RESOURCE = "/launcher_applications_baseline.properties";
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+
+    private static final boolean CHECK_TIME = Boolean.getBoolean("flauncher.benchmark");
+
+    private static final double TIME_TOLERANCE = 3;
+    private static final long TIME_SLACK_MILLIS = 20;
+    private static final double ALLOCATION_TOLERANCE = 1.25;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} packages")
+    public static List<Object[]> packageCounts()
+    {
+        return Arrays.asList(new Object[][] { {10}, {100}, {500}, {1000}, {2000} });
+    }
+
+    private final int _packageCount;
+    private final AtomicLong _workerAllocatedBytes = new AtomicLong();
+
+    private LauncherApplications _launcherApplications;
+
+    public LauncherApplicationsBenchmarkTest(int packageCount)
+    {
+        _packageCount = packageCount;
+    }
+
+    @Before
+    public void setUp()
+    {
+        PackageManager packageManager = RuntimeEnvironment.getApplication().getPackageManager();
+        SyntheticPackages packages = new SyntheticPackages(packageManager);
+
+        // Half TV only, a quarter with both activities, a quarter sideloaded; no settings
+        // application, so that the settings fallback is always exercised
+        for (int i = 0; i < _packageCount; ++i) {
+            String packageName = "com.example.application" + i;
+
+            switch (i % 4) {
+                case 0, 1 -> packages.installLeanback(packageName);
+                case 2 -> packages.installBoth(packageName);
+                default -> packages.installLauncher(packageName);
+            }
+        }
+        packages.install("com.example.settings", "Settings", Settings.ACTION_SETTINGS, Intent.CATEGORY_DEFAULT);
+
+        _launcherApplications = new LauncherApplications(packageManager, () -> new AllocationTrackingExecutor(4));
+    }
+
+    @Test
+    public void getApplications() throws IOException
+    {
+        for (int i = 0; i < WARMUP_RUNS; ++i) {
+            assertApplications(_launcherApplications.getApplications());
+        }
+
+        long[] millis = new long[MEASURED_RUNS];
+        long[] allocatedBytes = new long[MEASURED_RUNS];
+
+        for (int i = 0; i < MEASURED_RUNS; ++i) {
+            _workerAllocatedBytes.set(0);
+            long startAllocatedBytes = currentThreadAllocatedBytes();
+            long start = System.nanoTime();
+
+            List<LauncherMessages.Application> applications = _launcherApplications.getApplications();
+
+            millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            allocatedBytes[i] = currentThreadAllocatedBytes() - startAllocatedBytes + _workerAllocatedBytes.get();
+            assertApplications(applications);
+        }
+
+        long medianMillis = median(millis);
+        long medianAllocatedBytes = median(allocatedBytes);
+
+        Properties baseline = loadBaseline();
+        long baselineMillis = Long.parseLong(baseline.getProperty(_packageCount + ".millis"));
+        long baselineAllocatedBytes = Long.parseLong(baseline.getProperty(_packageCount + ".allocatedBytes"));
+
+        if (CHECK_TIME) {
+            assertTrue("Wall time regressed: " + medianMillis + " ms, baseline " + baselineMillis + " ms",
+                    medianMillis <= baselineMillis * TIME_TOLERANCE + TIME_SLACK_MILLIS);
+        }
+        assertTrue("Allocations regressed: " + medianAllocatedBytes + " bytes, baseline " + baselineAllocatedBytes + " bytes",
+                medianAllocatedBytes <= baselineAllocatedBytes * ALLOCATION_TOLERANCE);
+    }
+
+    private void assertApplications(List<LauncherMessages.Application> applications)
+    {
+        // Every package once, plus the settings fallback
+        assertEquals(_packageCount + 1, applications.size());
+
+        Set<String> packageNames = new HashSet<>();
+        for (LauncherMessages.Application application : applications) {
+            assertTrue("Duplicate " + application.packageName, packageNames.add(application.packageName));
+            assertEquals(application.packageName.startsWith("com.example.application")
+                            && Integer.parseInt(application.packageName.substring(23)) % 4 == 3,
+                    application.sideloaded);
+        }
+
+        LauncherMessages.Application settings = applications.get(_packageCount);
+        assertEquals(Settings.ACTION_SETTINGS, settings.action);
+    }
+
+    private static Properties loadBaseline() throws IOException
+    {
+        Properties properties = new Properties();
+
+        try (InputStream stream = LauncherApplicationsBenchmarkTest.class.getResourceAsStream(BASELINE_RESOURCE)) {
+            assertNotNull(BASELINE_RESOURCE, stream);
+            properties.load(stream);
+        }
+
+        return properties;
+    }
+
+    private static long median(long[] values)
+    {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long currentThreadAllocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Fixed thread pool adding up what each task allocates, since pool threads are gone by the
+     * time getApplications returns.
+     */
+    private class AllocationTrackingExecutor extends ThreadPoolExecutor
+    {
+        private final ThreadLocal<Long> _startAllocatedBytes = new ThreadLocal<>();
+
+        AllocationTrackingExecutor(int threadCount)
+        {
+            super(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task)
+        {
+            _startAllocatedBytes.set(currentThreadAllocatedBytes());
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable throwable)
+        {
+            _workerAllocatedBytes.addAndGet(currentThreadAllocatedBytes() - _startAllocatedBytes.get());
+        }
+    }
+}
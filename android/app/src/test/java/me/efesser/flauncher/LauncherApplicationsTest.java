@@ -0,0 +1,256 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.provider.Settings;
+
+import com.geert.flauncher.core.ApplicationMerger;
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class LauncherApplicationsTest
+{
+    private SyntheticPackages _packages;
+    private LauncherApplications _launcherApplications;
+
+    @Before
+    public void setUp()
+    {
+        PackageManager packageManager = RuntimeEnvironment.getApplication().getPackageManager();
+        _packages = new SyntheticPackages(packageManager);
+        _launcherApplications = new LauncherApplications(packageManager);
+    }
+
+    private Map<String, LauncherMessages.Application> getApplications()
+    {
+        return _launcherApplications.getApplications().stream()
+                .collect(Collectors.toMap(application -> application.packageName, Function.identity()));
+    }
+
+    @Test
+    public void leanbackActivitiesWinOverLauncherOnes()
+    {
+        _packages.installLeanback("com.example.tv");
+        _packages.installBoth("com.example.both");
+        _packages.installLauncher("com.example.mobile");
+        _packages.installLeanback(ApplicationMerger.TV_SETTINGS_PACKAGE);
+
+        Map<String, LauncherMessages.Application> applications = getApplications();
+
+        assertEquals(4, applications.size());
+        assertFalse(applications.get("com.example.tv").sideloaded);
+        assertFalse(applications.get("com.example.both").sideloaded);
+        assertTrue(applications.get("com.example.mobile").sideloaded);
+        assertEquals("1.0", applications.get("com.example.mobile").version);
+    }
+
+    @Test
+    public void fallsBackToTheSettingsActionWithoutSettingsApplication()
+    {
+        _packages.installLeanback("com.example.tv");
+        _packages.install("com.example.settings", "Settings", Settings.ACTION_SETTINGS, Intent.CATEGORY_DEFAULT);
+
+        List<LauncherMessages.Application> applications = _launcherApplications.getApplications();
+
+        assertEquals(2, applications.size());
+        LauncherMessages.Application settings = applications.get(1);
+        assertEquals("com.example.settings", settings.packageName);
+        assertEquals("Settings", settings.name);
+        assertEquals(Settings.ACTION_SETTINGS, settings.action);
+    }
+
+    @Test
+    public void noSettingsFallbackWithTvSettings()
+    {
+        _packages.installLeanback(ApplicationMerger.TV_SETTINGS_PACKAGE);
+        _packages.install("com.example.settings", "Settings", Settings.ACTION_SETTINGS, Intent.CATEGORY_DEFAULT);
+
+        List<LauncherMessages.Application> applications = _launcherApplications.getApplications();
+
+        assertEquals(1, applications.size());
+        assertNull(applications.get(0).action);
+    }
+
+    @Test
+    public void getApplicationPrefersTheLeanbackActivity()
+    {
+        _packages.installBoth("com.example.both");
+
+        LauncherMessages.Application application = _launcherApplications.getApplication("com.example.both");
+
+        assertEquals("com.example.both", application.packageName);
+        assertFalse(application.sideloaded);
+        assertNull(_launcherApplications.getApplication("com.example.missing"));
+    }
+
+    @Test
+    public void identityOnlyPackagesSkipResolution()
+    {
+        _packages.install("com.example.hidden", "Hidden", Intent.ACTION_MAIN, Intent.CATEGORY_LEANBACK_LAUNCHER);
+        _packages.install("com.example.visible", "Visible", Intent.ACTION_MAIN, Intent.CATEGORY_LAUNCHER);
+
+        Map<String, LauncherMessages.Application> applications = _launcherApplications
+                .getApplications(Set.of("com.example.hidden")).stream()
+                .collect(Collectors.toMap(application -> application.packageName, Function.identity()));
+
+        assertEquals(2, applications.size());
+        assertEquals("com.example.hidden", applications.get("com.example.hidden").name);
+        assertNull(applications.get("com.example.hidden").version);
+        assertFalse(applications.get("com.example.hidden").sideloaded);
+        assertEquals("Visible", applications.get("com.example.visible").name);
+        assertEquals("1.0", applications.get("com.example.visible").version);
+        assertTrue(_launcherApplications.hasLaunchIntent("com.example.hidden"));
+    }
+
+    @Test
+    public void launchIntentsAreKeptFromTheEnumeration()
+    {
+        _packages.installBoth("com.example.both");
+        _packages.installLauncher("com.example.mobile");
+
+        _launcherApplications.getApplications();
+
+        assertTrue(_launcherApplications.hasLaunchIntent("com.example.both"));
+        Intent leanbackIntent = _launcherApplications.getLaunchIntent("com.example.both");
+        assertEquals("com.example.both.MainActivity", leanbackIntent.getComponent().getClassName());
+        assertTrue(leanbackIntent.hasCategory(Intent.CATEGORY_LEANBACK_LAUNCHER));
+        assertTrue((leanbackIntent.getFlags() & Intent.FLAG_ACTIVITY_NEW_TASK) != 0);
+        assertTrue(_launcherApplications.getLaunchIntent("com.example.mobile").hasCategory(Intent.CATEGORY_LAUNCHER));
+    }
+
+    @Test
+    public void launchIntentsAreResolvedOnMissAndInvalidated()
+    {
+        _packages.installLeanback("com.example.tv");
+
+        assertFalse(_launcherApplications.hasLaunchIntent("com.example.tv"));
+        assertNotNull(_launcherApplications.getLaunchIntent("com.example.tv"));
+        assertTrue(_launcherApplications.hasLaunchIntent("com.example.tv"));
+
+        _launcherApplications.invalidateLaunchIntent("com.example.tv");
+        assertFalse(_launcherApplications.hasLaunchIntent("com.example.tv"));
+
+        assertNull(_launcherApplications.getLaunchIntent("com.example.missing"));
+        assertFalse(_launcherApplications.hasLaunchIntent("com.example.missing"));
+    }
+
+    private LauncherApplications blockingOn(String packageName, CountDownLatch release)
+    {
+        return new LauncherApplications(RuntimeEnvironment.getApplication().getPackageManager())
+        {
+            @Override
+            LauncherMessages.Application buildApplication(ActivityInfo activityInfo, boolean sideloaded, String action)
+            {
+                if (activityInfo.packageName.equals(packageName)) {
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.buildApplication(activityInfo, sideloaded, action);
+            }
+        };
+    }
+
+    @Test
+    public void slowApplicationsAreSentAsPlaceholdersThenFollowedUp() throws InterruptedException
+    {
+        _packages.install("com.example.slow", "Slow", Intent.ACTION_MAIN, Intent.CATEGORY_LEANBACK_LAUNCHER);
+        _packages.install("com.example.fast", "Fast", Intent.ACTION_MAIN, Intent.CATEGORY_LEANBACK_LAUNCHER);
+        CountDownLatch release = new CountDownLatch(1);
+        LauncherApplications launcherApplications = blockingOn("com.example.slow", release);
+        BlockingQueue<LauncherMessages.Application> followUps = new LinkedBlockingQueue<>();
+        launcherApplications.setLateApplicationListener(followUps::add);
+
+        long start = System.nanoTime();
+        Map<String, LauncherMessages.Application> applications = launcherApplications.getApplications().stream()
+                .collect(Collectors.toMap(application -> application.packageName, Function.identity()));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < LauncherApplications.ENUMERATION_DEADLINE_MILLIS);
+        assertEquals("Fast", applications.get("com.example.fast").name);
+        assertEquals("com.example.slow", applications.get("com.example.slow").name);
+        assertNull(applications.get("com.example.slow").version);
+        assertTrue(applications.get("com.example.slow").placeholder);
+        assertFalse(applications.get("com.example.fast").placeholder);
+        assertTrue(followUps.isEmpty());
+
+        release.countDown();
+        LauncherMessages.Application followUp = followUps.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(followUp);
+        assertEquals("Slow", followUp.name);
+        assertEquals("1.0", followUp.version);
+        assertFalse(followUp.placeholder);
+    }
+
+    @Test
+    public void failingApplicationsAreSentAsPlaceholders()
+    {
+        _packages.install("com.example.broken", "Broken", Intent.ACTION_MAIN, Intent.CATEGORY_LEANBACK_LAUNCHER);
+        LauncherApplications launcherApplications = new LauncherApplications(
+                RuntimeEnvironment.getApplication().getPackageManager())
+        {
+            @Override
+            LauncherMessages.Application buildApplication(ActivityInfo activityInfo, boolean sideloaded, String action)
+            {
+                if (activityInfo.packageName.equals("com.example.broken")) {
+                    throw new IllegalStateException("Broken resource table");
+                }
+                return super.buildApplication(activityInfo, sideloaded, action);
+            }
+        };
+
+        LauncherMessages.Application broken = launcherApplications.getApplications().stream()
+                .filter(application -> application.packageName.equals("com.example.broken"))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals("com.example.broken", broken.name);
+        assertNull(broken.version);
+        assertTrue(broken.placeholder);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Looper;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowNetwork;
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkEventStreamHandlerTest
+{
+    @Test
+    public void registersASingleDefaultNetworkCallback()
+    {
+        Application application = RuntimeEnvironment.getApplication();
+        ConnectivityManager connectivityManager = application.getSystemService(ConnectivityManager.class);
+        NetworkEventStreamHandler handler = new NetworkEventStreamHandler(application);
+        RecordingEventSink sink = new RecordingEventSink();
+
+        handler.onListen(null, sink);
+        Set<ConnectivityManager.NetworkCallback> callbacks = shadowOf(connectivityManager).getNetworkCallbacks();
+        NetworkCapabilities capabilities = ShadowNetworkCapabilities.newInstance();
+        shadowOf(capabilities).addTransportType(NetworkCapabilities.TRANSPORT_WIFI);
+        for (ConnectivityManager.NetworkCallback callback : callbacks) {
+            callback.onCapabilitiesChanged(ShadowNetwork.newInstance(100), capabilities);
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertEquals(1, callbacks.size());
+        assertEquals(1, sink.events.size());
+
+        handler.onCancel(null);
+        assertTrue(shadowOf(connectivityManager).getNetworkCallbacks().isEmpty());
+    }
+}
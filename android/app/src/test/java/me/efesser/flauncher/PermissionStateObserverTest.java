@@ -0,0 +1,125 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.app.role.RoleManager;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Looper;
+import android.provider.Settings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import io.flutter.plugin.common.EventChannel;
+
+@RunWith(RobolectricTestRunner.class)
+public class PermissionStateObserverTest
+{
+    private static final String ENABLED_NOTIFICATION_LISTENERS = "enabled_notification_listeners";
+
+    private final List<Object> _events = new ArrayList<>();
+    private Application _application;
+    private PermissionStateObserver _observer;
+
+    @Before
+    public void setUp()
+    {
+        _application = RuntimeEnvironment.getApplication();
+        shadowOf(_application.getSystemService(RoleManager.class)).addAvailableRole(RoleManager.ROLE_HOME);
+        _observer = new PermissionStateObserver(_application);
+        _observer.onListen(null, new EventChannel.EventSink()
+        {
+            @Override
+            public void success(Object event)
+            {
+                _events.add(event);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails)
+            {
+            }
+
+            @Override
+            public void endOfStream()
+            {
+            }
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        _observer.close();
+    }
+
+    @Test
+    public void theStateIsSentWhenListeningStarts()
+    {
+        assertEquals(List.of(Map.of("defaultLauncher", false, "notificationListener", false)), _events);
+    }
+
+    @Test
+    public void notificationListenerChangesArePushedOnce()
+    {
+        String listener = new ComponentName(_application, MediaNotificationListenerService.class).flattenToString();
+        Settings.Secure.putString(_application.getContentResolver(), ENABLED_NOTIFICATION_LISTENERS, listener);
+        _application.getContentResolver().notifyChange(Settings.Secure.getUriFor(ENABLED_NOTIFICATION_LISTENERS), null);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(_observer.hasNotificationListenerPermission());
+        assertEquals(Map.of("defaultLauncher", false, "notificationListener", true), _events.get(1));
+
+        _observer.refresh();
+        _application.getContentResolver().notifyChange(Settings.Secure.getUriFor(ENABLED_NOTIFICATION_LISTENERS), null);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertEquals(2, _events.size());
+    }
+
+    @Test
+    public void homeRoleChangesArePushedOnPackageChanges()
+    {
+        shadowOf(_application.getSystemService(RoleManager.class)).addHeldRole(RoleManager.ROLE_HOME);
+
+        assertFalse(_observer.isDefaultLauncher());
+
+        _application.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_ADDED, Uri.fromParts("package", "com.example.home", null)));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertTrue(_observer.isDefaultLauncher());
+        assertEquals(Map.of("defaultLauncher", true, "notificationListener", false), _events.get(1));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Event sink keeping what a stream handler sends to Dart, in order.
+ */
+class RecordingEventSink implements EventChannel.EventSink
+{
+    final List<Object> events = new ArrayList<>();
+    int errorCount;
+    boolean ended;
+
+    @Override
+    public void success(Object event)
+    {
+        events.add(event);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails)
+    {
+        errorCount += 1;
+    }
+
+    @Override
+    public void endOfStream()
+    {
+        ended = true;
+    }
+}
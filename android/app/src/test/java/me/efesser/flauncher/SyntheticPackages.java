@@ -0,0 +1,90 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+
+import org.robolectric.shadows.ShadowPackageManager;
+
+/**
+ * Installs synthetic packages on the Robolectric package manager.
+ */
+class SyntheticPackages
+{
+    private final ShadowPackageManager _packageManager;
+
+    SyntheticPackages(PackageManager packageManager)
+    {
+        _packageManager = shadowOf(packageManager);
+    }
+
+    /**
+     * Installs a package with one main activity answering the given intent filter categories,
+     * or the given action when it isn't {@link Intent#ACTION_MAIN}.
+     */
+    void install(String packageName, String label, String action, String... categories)
+    {
+        ApplicationInfo applicationInfo = new ApplicationInfo();
+        applicationInfo.packageName = packageName;
+
+        ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.name = packageName + ".MainActivity";
+        activityInfo.packageName = packageName;
+        activityInfo.applicationInfo = applicationInfo;
+        activityInfo.nonLocalizedLabel = label;
+
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.versionName = "1.0";
+        packageInfo.applicationInfo = applicationInfo;
+        _packageManager.installPackage(packageInfo);
+        _packageManager.addOrUpdateActivity(activityInfo);
+
+        IntentFilter filter = new IntentFilter(action);
+        for (String category : categories) {
+            filter.addCategory(category);
+        }
+
+        _packageManager.addIntentFilterForActivity(new ComponentName(packageName, activityInfo.name), filter);
+    }
+
+    void installLeanback(String packageName)
+    {
+        install(packageName, packageName, Intent.ACTION_MAIN, Intent.CATEGORY_LEANBACK_LAUNCHER);
+    }
+
+    void installLauncher(String packageName)
+    {
+        install(packageName, packageName, Intent.ACTION_MAIN, Intent.CATEGORY_LAUNCHER);
+    }
+
+    void installBoth(String packageName)
+    {
+        install(packageName, packageName, Intent.ACTION_MAIN,
+                Intent.CATEGORY_LEANBACK_LAUNCHER, Intent.CATEGORY_LAUNCHER);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.media.tv.TvContract;
+
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class WatchNextReaderTest
+{
+    private FakeWatchNextProvider _provider;
+    private WatchNextReader _reader;
+
+    @Before
+    public void setUp()
+    {
+        _provider = Robolectric.setupContentProvider(FakeWatchNextProvider.class, TvContract.AUTHORITY);
+        _reader = new WatchNextReader(RuntimeEnvironment.getApplication().getContentResolver());
+    }
+
+    @Test
+    public void readsBrowsableProgramsByPagesMostRecentFirst()
+    {
+        for (int id = 1; id <= 80; ++id) {
+            _provider.addProgram(id, id * 1000L, id % 10 != 0);
+        }
+
+        List<LauncherMessages.WatchNextProgram> programs = _reader.readAll();
+
+        assertEquals(72, programs.size());
+        assertEquals(79, programs.get(0).id);
+        assertEquals(1, programs.get(71).id);
+        assertEquals("Program 79", programs.get(0).title);
+        assertEquals(60_000L, programs.get(0).lastPlaybackPositionMillis);
+        assertEquals(2, _provider.projections.size());
+        assertEquals(10, _provider.projections.get(0).length);
+    }
+
+    @Test
+    public void readsAtMostMaxPrograms()
+    {
+        for (int id = 1; id <= WatchNextReader.MAX_PROGRAMS + 30; ++id) {
+            _provider.addProgram(id, id, true);
+        }
+
+        assertEquals(WatchNextReader.MAX_PROGRAMS, _reader.readAll().size());
+        assertEquals(WatchNextReader.MAX_PROGRAMS / WatchNextReader.PAGE_SIZE, _provider.projections.size());
+    }
+
+    @Test
+    public void readsOnceWhenTheProviderIgnoresTheLimit()
+    {
+        _provider.paged = false;
+        for (int id = 1; id <= WatchNextReader.PAGE_SIZE + 10; ++id) {
+            _provider.addProgram(id, id, true);
+        }
+
+        assertEquals(WatchNextReader.PAGE_SIZE + 10, _reader.readAll().size());
+        assertEquals(1, _provider.projections.size());
+    }
+
+    @Test
+    public void readsSinglePrograms()
+    {
+        _provider.addProgram(1, 1000, true);
+        _provider.addProgram(2, 2000, false);
+
+        assertEquals("Program 1", _reader.read(1).title);
+        assertNull(_reader.read(2));
+        assertNull(_reader.read(3));
+    }
+
+    @Test
+    public void posterSubsamplingKeepsTheBoundsCovered()
+    {
+        assertEquals(4, WatchNextReader.sampleSize(1920, 1080, 480, 270));
+        assertEquals(2, WatchNextReader.sampleSize(1000, 1500, 480, 270));
+        assertEquals(1, WatchNextReader.sampleSize(400, 600, 480, 270));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core.benchmark;
+
+import com.geert.flauncher.core.AppCatalog;
+import com.geert.flauncher.core.LauncherMessages;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppCatalogBenchmark
+{
+    @Param({"50", "300", "1000"})
+    public int applicationCount;
+
+    private File _directory;
+    private AppCatalog _catalog;
+    private List<LauncherMessages.Application> _applications;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        _directory = Files.createTempDirectory("app-catalog-benchmark").toFile();
+        _catalog = new AppCatalog(new File(_directory, "app_catalog.bin"));
+        _applications = new ArrayList<>(applicationCount);
+
+        for (int i = 0; i < applicationCount; ++i) {
+            _applications.add(new LauncherMessages.Application(
+                    "Application " + i, "com.example.application" + i, "1." + i + ".0", i % 2 == 1, null));
+        }
+
+        _catalog.write(_applications);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (File file : _directory.listFiles()) {
+            file.delete();
+        }
+        _directory.delete();
+    }
+
+    @Benchmark
+    public void write() throws IOException
+    {
+        _catalog.write(_applications);
+    }
+
+    @Benchmark
+    public Map<String, LauncherMessages.Application> readApplications() throws IOException
+    {
+        return _catalog.readApplications();
+    }
+}
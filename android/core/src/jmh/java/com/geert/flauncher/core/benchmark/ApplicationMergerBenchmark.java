@@ -0,0 +1,82 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core.benchmark;
+
+import com.geert.flauncher.core.ApplicationMerger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationMergerBenchmark
+{
+    // Installed application counts, from a stock device to a heavily loaded one
+    @Param({"50", "300", "1000"})
+    public int applicationCount;
+
+    private List<String> _tvActivities;
+    private List<String> _nonTvActivities;
+
+    @Setup
+    public void setUp()
+    {
+        _tvActivities = new ArrayList<>(applicationCount);
+        _nonTvActivities = new ArrayList<>(applicationCount);
+
+        // Half of the applications are TV ones, and half of those also have a regular activity
+        for (int i = 0; i < applicationCount; ++i) {
+            String packageName = "com.example.application" + i;
+
+            if (i % 2 == 0) {
+                _tvActivities.add(packageName);
+            }
+
+            if (i % 4 != 0) {
+                _nonTvActivities.add(packageName);
+            }
+        }
+    }
+
+    @Benchmark
+    public ApplicationMerger.Summary merge(Blackhole blackhole)
+    {
+        return ApplicationMerger.merge(_tvActivities, _nonTvActivities, Function.identity(),
+                (activity, sideloaded) -> blackhole.consume(activity));
+    }
+}
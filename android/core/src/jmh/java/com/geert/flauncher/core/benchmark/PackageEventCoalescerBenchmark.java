@@ -0,0 +1,78 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core.benchmark;
+
+import com.geert.flauncher.core.PackageEventCoalescer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackageEventCoalescerBenchmark
+{
+    // Events in a burst, e.g. a system update touching every package a few times
+    @Param({"10", "200", "2000"})
+    public int eventCount;
+
+    private final PackageEventCoalescer _coalescer = new PackageEventCoalescer();
+    private String[] _packageNames;
+
+    @Setup
+    public void setUp()
+    {
+        // Each package receives about 4 events per burst
+        _packageNames = new String[Math.max(1, eventCount / 4)];
+        for (int i = 0; i < _packageNames.length; ++i) {
+            _packageNames[i] = "com.example.application" + i;
+        }
+    }
+
+    @Benchmark
+    public PackageEventCoalescer.Batch burst()
+    {
+        for (int i = 0; i < eventCount; ++i) {
+            String packageName = _packageNames[i % _packageNames.length];
+
+            if (i % 7 == 0) {
+                _coalescer.packageRemoved(packageName);
+            }
+            else {
+                _coalescer.packageUpdated(packageName);
+            }
+        }
+
+        return _coalescer.drain();
+    }
+}
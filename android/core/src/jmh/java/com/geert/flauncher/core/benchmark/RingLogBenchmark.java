@@ -0,0 +1,79 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core.benchmark;
+
+import com.geert.flauncher.core.RingLog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a media callback log statement, disabled as in release builds and enabled as in debug
+ * ones, against the string concatenation it replaced. Run with -prof gc to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingLogBenchmark
+{
+    private final RingLog _disabled = new RingLog(256, System::currentTimeMillis);
+    private final RingLog _enabled = new RingLog(256, System::currentTimeMillis);
+    private final String _packageName = "com.example.player";
+    private int _sessionCount;
+
+    @Setup
+    public void setUp()
+    {
+        _enabled.setLevel(RingLog.DEBUG);
+    }
+
+    @Benchmark
+    public void disabled()
+    {
+        _sessionCount = (_sessionCount + 1) & 7;
+        _disabled.log(RingLog.DEBUG, "MediaSession", "found {} sessions, using: {}", _sessionCount, _packageName);
+    }
+
+    @Benchmark
+    public void enabled()
+    {
+        _sessionCount = (_sessionCount + 1) & 7;
+        _enabled.log(RingLog.DEBUG, "MediaSession", "found {} sessions, using: {}", _sessionCount, _packageName);
+    }
+
+    @Benchmark
+    public String concatenated()
+    {
+        _sessionCount = (_sessionCount + 1) & 7;
+        return "found " + _sessionCount + " sessions, using: " + _packageName;
+    }
+}
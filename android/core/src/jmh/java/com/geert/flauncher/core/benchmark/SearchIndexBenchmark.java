@@ -0,0 +1,93 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core.benchmark;
+
+import com.geert.flauncher.core.SearchIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per keystroke cost of a search, from the broadest single letter prefix to a two term query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark
+{
+    private static final String[] WORDS = {
+            "Video", "Player", "Music", "Live", "TV", "Kids", "Sports", "News", "Movies", "Stream",
+            "Radio", "Photos", "Games", "Télé", "Cinéma", "Weather"
+    };
+
+    @Param({"150", "1000"})
+    public int applicationCount;
+
+    private SearchIndex _index;
+
+    @Setup
+    public void setUp()
+    {
+        _index = new SearchIndex();
+
+        for (int i = 0; i < applicationCount; ++i) {
+            String label = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            _index.put("com.example.application" + i, label);
+        }
+    }
+
+    @Benchmark
+    public List<String> singleLetter()
+    {
+        return _index.search("m", 20);
+    }
+
+    @Benchmark
+    public List<String> word()
+    {
+        return _index.search("cine", 20);
+    }
+
+    @Benchmark
+    public List<String> twoTerms()
+    {
+        return _index.search("video pla", 20);
+    }
+
+    @Benchmark
+    public void update()
+    {
+        _index.put("com.example.application0", "Video Player Updated");
+    }
+}
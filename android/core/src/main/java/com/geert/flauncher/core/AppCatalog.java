@@ -0,0 +1,283 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary application catalog shared with Dart by file, so that large application lists don't
+ * have to go through the platform channel. The reader lives on file lib/app_catalog.dart.
+ *
+ * <pre>
+ * Header, 32 bytes, little-endian
+ *   0  u32  magic "FLAC"
+ *   4  u16  format version
+ *   6  u16  record size
+ *   8  u32  block count
+ *   12 u32  committed data length, following the header
+ *   16 u64  generation, incremented on every write
+ *   24 u64  reserved
+ * Block, repeated block count times
+ *   0  u32  record count
+ *   4  u32  string table length
+ *   8  records, record count * record size bytes
+ *   .. string table, UTF-8
+ * Record
+ *   0  u32  flags, see FLAG_*
+ *   4  u32  package name offset, in the block string table, and u32 length
+ *   12 u32  name offset and u32 length
+ *   20 u32  version offset and u32 length, offset is NO_STRING when absent
+ *   28 u32  action offset and u32 length, offset is NO_STRING when absent
+ *   36 u32  reserved
+ * </pre>
+ *
+ * Readers apply blocks in order, later records superseding earlier ones for the same package and
+ * records flagged with FLAG_REMOVED dropping them. The catalog is always written whole, as a
+ * single block, to a temporary file moved over the previous one, so a reader never sees a
+ * partially written catalog.
+ */
+public class AppCatalog
+{
+    public static final short FORMAT_VERSION = 1;
+
+    static final int MAGIC = 0x43414C46;
+    static final int HEADER_SIZE = 32;
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 40;
+    static final int NO_STRING = -1;
+
+    static final int FLAG_SIDELOADED = 1;
+    static final int FLAG_REMOVED = 1 << 1;
+    static final int FLAG_PLACEHOLDER = 1 << 2;
+
+    private final File _file;
+
+    public AppCatalog(File file)
+    {
+        _file = file;
+    }
+
+    public File getFile()
+    {
+        return _file;
+    }
+
+    /**
+     * Replaces the whole catalog, atomically.
+     */
+    public synchronized void write(List<LauncherMessages.Application> applications) throws IOException
+    {
+        long generation = 0;
+        if (_file.exists()) {
+            try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = readHeader(channel);
+                if (header != null) {
+                    generation = header.getLong(16);
+                }
+            }
+        }
+
+        ByteBuffer block = encodeBlock(applications);
+        ByteBuffer header = encodeHeader(1, block.remaining(), generation + 1);
+
+        File temporaryFile = new File(_file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            writeFully(channel, block, HEADER_SIZE);
+            channel.force(false);
+        }
+
+        Files.move(temporaryFile.toPath(), _file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads back the current catalog content, keyed by package name, in catalog order.
+     */
+    public synchronized Map<String, LauncherMessages.Application> readApplications() throws IOException
+    {
+        Map<String, LauncherMessages.Application> applications = new LinkedHashMap<>();
+
+        try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                throw new IOException("Invalid application catalog");
+            }
+
+            int blockCount = header.getInt(8);
+            int dataLength = header.getInt(12);
+            int recordSize = Short.toUnsignedInt(header.getShort(6));
+
+            ByteBuffer data = ByteBuffer.allocate(dataLength).order(ByteOrder.LITTLE_ENDIAN);
+            while (data.hasRemaining() && channel.read(data, HEADER_SIZE + data.position()) >= 0) { }
+            data.flip();
+
+            int blockStart = 0;
+            for (int block = 0; block < blockCount; ++block) {
+                int recordCount = data.getInt(blockStart);
+                int stringTableLength = data.getInt(blockStart + 4);
+                int recordsStart = blockStart + BLOCK_HEADER_SIZE;
+                int stringTableStart = recordsStart + recordCount * recordSize;
+
+                for (int i = 0; i < recordCount; ++i) {
+                    int record = recordsStart + i * recordSize;
+                    int flags = data.getInt(record);
+                    String packageName = readString(data, stringTableStart, record + 4);
+
+                    if ((flags & FLAG_REMOVED) != 0) {
+                        applications.remove(packageName);
+                    }
+                    else {
+                        applications.put(packageName, new LauncherMessages.Application(
+                                readString(data, stringTableStart, record + 12),
+                                packageName,
+                                readString(data, stringTableStart, record + 20),
+                                (flags & FLAG_SIDELOADED) != 0,
+                                readString(data, stringTableStart, record + 28),
+                                (flags & FLAG_PLACEHOLDER) != 0));
+                    }
+                }
+
+                blockStart = stringTableStart + stringTableLength;
+            }
+        }
+
+        return applications;
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) { }
+
+        if (header.hasRemaining()
+                || header.getInt(0) != MAGIC
+                || header.getShort(4) != FORMAT_VERSION
+                || Short.toUnsignedInt(header.getShort(6)) < RECORD_SIZE) {
+            return null;
+        }
+
+        return header;
+    }
+
+    private static ByteBuffer encodeHeader(int blockCount, long dataLength, long generation)
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort((short) RECORD_SIZE)
+                .putInt(blockCount)
+                .putInt((int) dataLength)
+                .putLong(generation)
+                .putLong(0);
+        header.flip();
+        return header;
+    }
+
+    private static ByteBuffer encodeBlock(List<LauncherMessages.Application> applications)
+    {
+        int recordCount = applications.size();
+        ByteBuffer records = ByteBuffer.allocate(recordCount * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        StringTable strings = new StringTable();
+
+        for (LauncherMessages.Application application : applications) {
+            records.putInt((application.sideloaded ? FLAG_SIDELOADED : 0)
+                    | (application.placeholder ? FLAG_PLACEHOLDER : 0));
+            strings.put(records, application.packageName);
+            strings.put(records, application.name);
+            strings.put(records, application.version);
+            strings.put(records, application.action);
+            records.putInt(0);
+        }
+
+        byte[] stringTable = strings.toByteArray();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + records.capacity() + stringTable.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(recordCount)
+                .putInt(stringTable.length)
+                .put(records.array())
+                .put(stringTable);
+        block.flip();
+        return block;
+    }
+
+    private static String readString(ByteBuffer data, int stringTableStart, int reference)
+    {
+        int offset = data.getInt(reference);
+        if (offset == NO_STRING) {
+            return null;
+        }
+
+        int length = data.getInt(reference + 4);
+        return new String(data.array(), data.arrayOffset() + stringTableStart + offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * UTF-8 string table of a block, storing repeated strings (versions, mostly) only once.
+     */
+    private static class StringTable
+    {
+        private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+        private final Map<String, int[]> _references = new HashMap<>();
+
+        void put(ByteBuffer records, String value)
+        {
+            if (value == null) {
+                records.putInt(NO_STRING).putInt(0);
+                return;
+            }
+
+            int[] reference = _references.get(value);
+            if (reference == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                reference = new int[] { _bytes.size(), bytes.length };
+                _bytes.write(bytes, 0, bytes.length);
+                _references.put(value, reference);
+            }
+
+            records.putInt(reference[0]).putInt(reference[1]);
+        }
+
+        byte[] toByteArray()
+        {
+            return _bytes.toByteArray();
+        }
+    }
+}
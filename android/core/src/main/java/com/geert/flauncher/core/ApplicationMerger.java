@@ -0,0 +1,96 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Merges the activities answering the leanback launcher intent with those answering the regular
+ * launcher intent. Leanback activities always win; a regular activity is only listed, as
+ * sideloaded, when its package has no leanback activity.
+ */
+public final class ApplicationMerger
+{
+    public static final String TV_SETTINGS_PACKAGE = "com.android.tv.settings";
+    public static final String SETTINGS_PACKAGE = "com.android.settings";
+
+    public interface Visitor<T>
+    {
+        void visit(T activity, boolean sideloaded);
+    }
+
+    public static final class Summary
+    {
+        public final int applicationCount;
+        public final boolean settingsPresent;
+
+        Summary(int applicationCount, boolean settingsPresent)
+        {
+            this.applicationCount = applicationCount;
+            this.settingsPresent = settingsPresent;
+        }
+    }
+
+    private ApplicationMerger()
+    {
+    }
+
+    /**
+     * Visits every leanback activity, then every regular activity whose package has no leanback
+     * activity, in list order.
+     */
+    public static <T> Summary merge(List<T> tvActivities, List<T> nonTvActivities,
+                                    Function<T, String> packageName, Visitor<T> visitor)
+    {
+        boolean settingsPresent = false;
+        int applicationCount = 0;
+        // Sized so that it never rehashes, leanback packages can number in the hundreds
+        Set<String> tvPackageNames = new HashSet<>(tvActivities.size() * 4 / 3 + 1);
+
+        for (T tvActivity : tvActivities) {
+            String tvPackageName = packageName.apply(tvActivity);
+
+            if (!settingsPresent) {
+                settingsPresent = tvPackageName.equals(TV_SETTINGS_PACKAGE);
+            }
+
+            tvPackageNames.add(tvPackageName);
+            visitor.visit(tvActivity, false);
+            applicationCount += 1;
+        }
+
+        for (T nonTvActivity : nonTvActivities) {
+            String nonTvPackageName = packageName.apply(nonTvActivity);
+
+            if (!settingsPresent) {
+                settingsPresent = nonTvPackageName.equals(SETTINGS_PACKAGE);
+            }
+
+            if (!tvPackageNames.contains(nonTvPackageName)) {
+                visitor.visit(nonTvActivity, true);
+                applicationCount += 1;
+            }
+        }
+
+        return new Summary(applicationCount, settingsPresent);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-name call counts, latency and payload size histograms, and error counts, for platform
+ * channel methods or events. Recording is lock-free; the number of names is capped, so that
+ * memory stays bounded whatever Dart sends.
+ */
+public final class ChannelMetrics
+{
+    public static final String OTHER = "other";
+
+    private static final int MAX_NAMES = 64;
+
+    private final ConcurrentHashMap<String, Recorder> _recorders = new ConcurrentHashMap<>();
+
+    public void record(String name, long latencyNanos, long payloadBytes, boolean error)
+    {
+        Recorder recorder = _recorders.get(name);
+
+        if (recorder == null) {
+            if (_recorders.size() >= MAX_NAMES) {
+                name = OTHER;
+            }
+            recorder = _recorders.computeIfAbsent(name, key -> new Recorder());
+        }
+
+        recorder.latencyNanos.record(latencyNanos);
+        if (payloadBytes >= 0) {
+            recorder.payloadBytes.record(payloadBytes);
+        }
+        if (error) {
+            recorder.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Latencies are given in microseconds, payload sizes in bytes. Names are sorted.
+     */
+    public Map<String, Map<String, Object>> snapshot(boolean reset)
+    {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+
+        for (Map.Entry<String, Recorder> entry : _recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            Histogram.Snapshot latency = recorder.latencyNanos.snapshot(reset);
+            Histogram.Snapshot payload = recorder.payloadBytes.snapshot(reset);
+            long errors = reset ? recorder.errors.getAndSet(0) : recorder.errors.get();
+
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("count", latency.count);
+            metrics.put("errors", errors);
+            metrics.put("p50Micros", toMicros(latency.percentile(50)));
+            metrics.put("p95Micros", toMicros(latency.percentile(95)));
+            metrics.put("p99Micros", toMicros(latency.percentile(99)));
+            metrics.put("maxMicros", toMicros(latency.max));
+            metrics.put("payloadP50Bytes", payload.percentile(50));
+            metrics.put("payloadMaxBytes", payload.max);
+            metrics.put("payloadTotalBytes", payload.sum);
+            snapshot.put(entry.getKey(), metrics);
+        }
+
+        return snapshot;
+    }
+
+    private static long toMicros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static final class Recorder
+    {
+        final Histogram latencyNanos = new Histogram();
+        final Histogram payloadBytes = new Histogram();
+        final AtomicLong errors = new AtomicLong();
+    }
+}
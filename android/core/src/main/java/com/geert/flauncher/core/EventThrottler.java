@@ -0,0 +1,93 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+/**
+ * Throttles a stream of change notifications to at most one emission per interval. The first
+ * change after a quiet interval is emitted right away, the leading edge, and the changes within
+ * the interval are folded into a single emission at its end, the trailing edge, so that the
+ * last state is never lost. Not thread-safe, changes are expected on a single thread.
+ */
+public final class EventThrottler
+{
+    /**
+     * Returned by {@link #submit(long)} when the change must be emitted now.
+     */
+    public static final long EMIT_NOW = 0;
+    /**
+     * Returned by {@link #submit(long)} when the change is folded into the scheduled trailing edge.
+     */
+    public static final long SCHEDULED = -1;
+
+    private final long _intervalMillis;
+
+    private long _lastEmitMillis;
+    private boolean _emitted;
+    private boolean _trailingScheduled;
+
+    public EventThrottler(long intervalMillis)
+    {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        _intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @return {@link #EMIT_NOW}, {@link #SCHEDULED}, or the delay after which the caller must
+     *         call {@link #trailingEdge(long)} and emit
+     */
+    public long submit(long nowMillis)
+    {
+        if (_trailingScheduled) {
+            return SCHEDULED;
+        }
+
+        long elapsedMillis = nowMillis - _lastEmitMillis;
+
+        if (!_emitted || elapsedMillis >= _intervalMillis) {
+            _emitted = true;
+            _lastEmitMillis = nowMillis;
+            return EMIT_NOW;
+        }
+
+        _trailingScheduled = true;
+        return _intervalMillis - elapsedMillis;
+    }
+
+    /**
+     * Records the trailing emission scheduled by {@link #submit(long)}.
+     */
+    public void trailingEdge(long nowMillis)
+    {
+        _trailingScheduled = false;
+        _lastEmitMillis = nowMillis;
+    }
+
+    /**
+     * Forgets the emissions, the next change is emitted right away. A scheduled trailing edge
+     * must be cancelled by the caller.
+     */
+    public void reset()
+    {
+        _emitted = false;
+        _trailingScheduled = false;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative long values, in fixed memory.
+ * Values below 16 get their own bucket; above, every power of two is split in 8 buckets, so
+ * that reported percentiles are within 12.5% of the recorded values.
+ */
+public final class Histogram
+{
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong _count = new AtomicLong();
+    private final AtomicLong _sum = new AtomicLong();
+    private final AtomicLong _max = new AtomicLong();
+
+    public void record(long value)
+    {
+        if (value < 0) {
+            value = 0;
+        }
+
+        _buckets.incrementAndGet(bucketIndex(value));
+        _count.incrementAndGet();
+        _sum.addAndGet(value);
+
+        long max = _max.get();
+        while (value > max && !_max.compareAndSet(max, value)) {
+            max = _max.get();
+        }
+    }
+
+    /**
+     * Copies the current state. With reset, values recorded concurrently go either to the
+     * returned snapshot or to the next one, but counts and buckets may then disagree slightly.
+     */
+    public Snapshot snapshot(boolean reset)
+    {
+        long[] buckets = new long[BUCKET_COUNT];
+
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets[i] = reset ? _buckets.getAndSet(i, 0) : _buckets.get(i);
+        }
+
+        if (reset) {
+            return new Snapshot(buckets, _count.getAndSet(0), _sum.getAndSet(0), _max.getAndSet(0));
+        }
+        return new Snapshot(buckets, _count.get(), _sum.get(), _max.get());
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index)
+    {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + subBucket) * width) + width - 1;
+    }
+
+    public static final class Snapshot
+    {
+        private final long[] _buckets;
+
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max)
+        {
+            _buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the upper bound of the bucket holding the percentile, capped by the maximum,
+         * or 0 when nothing was recorded
+         */
+        public long percentile(double percentile)
+        {
+            long total = 0;
+            for (long bucket : _buckets) {
+                total += bucket;
+            }
+
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < _buckets.length; ++i) {
+                seen += _buckets[i];
+
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
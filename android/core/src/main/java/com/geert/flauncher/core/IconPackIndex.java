@@ -0,0 +1,190 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Index of the drawables of an icon pack by component, built once from its appfilter.xml and
+ * persisted along with the version of the pack, so that it is only parsed again once the pack is
+ * updated. Packages whose launch activity isn't in the pack fall back to the first drawable of
+ * another activity of theirs, e.g. when an application renamed its activity. Both maps are
+ * persisted, so that the fallback of a package doesn't depend on the order they are read in.
+ * Not thread-safe while being built, to be shared once built.
+ */
+public final class IconPackIndex
+{
+    static final int FORMAT_VERSION = 2;
+    // Without the package fallbacks, which are parsed again from the pack
+    private static final int FORMAT_VERSION_WITHOUT_PACKAGES = 1;
+    private static final int MAX_ENTRIES = 100_000;
+    private static final String COMPONENT_INFO_PREFIX = "ComponentInfo{";
+
+    private final String _packPackageName;
+    private final long _packVersionCode;
+    private final boolean _outdated;
+    private final Map<String, String> _drawables = new LinkedHashMap<>();
+    private final Map<String, String> _packageDrawables = new LinkedHashMap<>();
+
+    public IconPackIndex(String packPackageName, long packVersionCode)
+    {
+        this(packPackageName, packVersionCode, false);
+    }
+
+    private IconPackIndex(String packPackageName, long packVersionCode, boolean outdated)
+    {
+        _packPackageName = packPackageName;
+        _packVersionCode = packVersionCode;
+        _outdated = outdated;
+    }
+
+    public String getPackPackageName()
+    {
+        return _packPackageName;
+    }
+
+    /**
+     * @return false as well if the index was persisted in an older format, to be parsed again
+     */
+    public boolean isIndexOf(String packPackageName, long packVersionCode)
+    {
+        return !_outdated && _packPackageName.equals(packPackageName) && _packVersionCode == packVersionCode;
+    }
+
+    /**
+     * Adds an item of the appfilter.
+     *
+     * @param componentInfo the component attribute, "ComponentInfo{package/class}", the class
+     *                      possibly relative to the package
+     * @return false if the item was malformed and ignored
+     */
+    public boolean add(String componentInfo, String drawable)
+    {
+        if (componentInfo == null || drawable == null || drawable.isEmpty()
+                || !componentInfo.startsWith(COMPONENT_INFO_PREFIX) || !componentInfo.endsWith("}")) {
+            return false;
+        }
+
+        String component = componentInfo.substring(COMPONENT_INFO_PREFIX.length(), componentInfo.length() - 1).trim();
+        int separator = component.indexOf('/');
+
+        if (separator <= 0 || separator == component.length() - 1) {
+            return false;
+        }
+
+        String packageName = component.substring(0, separator);
+        String className = component.substring(separator + 1);
+        put(packageName, className, drawable);
+        return true;
+    }
+
+    /**
+     * @return the drawable name of the activity, or of its package, null if the pack has none
+     */
+    public String find(String packageName, String className)
+    {
+        String drawable = _drawables.get(key(packageName, normalize(packageName, className)));
+        return drawable != null ? drawable : _packageDrawables.get(packageName);
+    }
+
+    public int size()
+    {
+        return _drawables.size();
+    }
+
+    public void write(DataOutputStream output) throws IOException
+    {
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(_packPackageName);
+        output.writeLong(_packVersionCode);
+        writeMap(output, _drawables);
+        writeMap(output, _packageDrawables);
+    }
+
+    public static IconPackIndex read(DataInputStream input) throws IOException
+    {
+        int version = input.readInt();
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_WITHOUT_PACKAGES) {
+            throw new IOException("Unsupported icon pack index version " + version);
+        }
+
+        IconPackIndex index = new IconPackIndex(input.readUTF(), input.readLong(),
+                version == FORMAT_VERSION_WITHOUT_PACKAGES);
+        readMap(input, index._drawables);
+
+        for (String key : index._drawables.keySet()) {
+            if (key.indexOf('/') <= 0) {
+                throw new IOException("Invalid icon pack index component " + key);
+            }
+        }
+
+        if (version == FORMAT_VERSION) {
+            readMap(input, index._packageDrawables);
+        }
+        return index;
+    }
+
+    private static void writeMap(DataOutputStream output, Map<String, String> map) throws IOException
+    {
+        output.writeInt(map.size());
+
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeUTF(entry.getValue());
+        }
+    }
+
+    private static void readMap(DataInputStream input, Map<String, String> map) throws IOException
+    {
+        int count = input.readInt();
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IOException("Invalid icon pack index size " + count);
+        }
+
+        for (int i = 0; i < count; ++i) {
+            String key = input.readUTF();
+            map.put(key, input.readUTF());
+        }
+    }
+
+    private void put(String packageName, String className, String drawable)
+    {
+        if (_drawables.size() >= MAX_ENTRIES) {
+            return;
+        }
+
+        // The first item of a component wins, as in the launchers icon packs are made for
+        _drawables.putIfAbsent(key(packageName, normalize(packageName, className)), drawable);
+        _packageDrawables.putIfAbsent(packageName, drawable);
+    }
+
+    private static String normalize(String packageName, String className)
+    {
+        return className.startsWith(".") ? packageName + className : className;
+    }
+
+    private static String key(String packageName, String className)
+    {
+        return packageName + '/' + className;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Orders the image work by priority class, first in first out within a class: the focused card
+ * first, then the visible ones, then speculative loads such as the cards built while scrolling
+ * fast. Speculative tasks are capped in number running at once, so that the workers are never
+ * all held by them; the focused card then waits for one running task at most, however many
+ * images are queued.
+ * Priorities can change while tasks wait or run, as the focus moves.
+ */
+public final class ImageRequestScheduler
+{
+    // Aligned with ImageRequestPriority enum value indices, on file lib/flauncher_channel.dart
+    public enum Priority
+    {
+        FOCUSED,
+        VISIBLE,
+        SPECULATIVE;
+
+        public static Priority of(int index)
+        {
+            Priority[] priorities = values();
+            return index >= 0 && index < priorities.length ? priorities[index] : VISIBLE;
+        }
+    }
+
+    private final int _maxRunningSpeculative;
+    private final LongSupplier _nanoClock;
+    private final ArrayDeque<Task>[] _queues;
+    // Tasks with an id, waiting or running, so that they can be re-prioritized
+    private final Map<Integer, Task> _tasks = new HashMap<>();
+    private final ChannelMetrics _queueWaits = new ChannelMetrics();
+    private int _runningSpeculative;
+
+    // Generic arrays can only be created raw
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public ImageRequestScheduler(int maxRunningSpeculative, LongSupplier nanoClock)
+    {
+        _maxRunningSpeculative = maxRunningSpeculative;
+        _nanoClock = nanoClock;
+        _queues = new ArrayDeque[Priority.values().length];
+
+        for (int i = 0; i < _queues.length; i++) {
+            _queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @param id {@link ImageRequestTracker#NO_ID} for tasks that are never re-prioritized
+     */
+    public synchronized void submit(int id, Priority priority, Runnable work)
+    {
+        Task task = new Task(id, priority, work, _nanoClock.getAsLong());
+
+        if (id != ImageRequestTracker.NO_ID) {
+            _tasks.put(id, task);
+        }
+        _queues[priority.ordinal()].addLast(task);
+        notifyAll();
+    }
+
+    /**
+     * Moves a waiting task to the back of its new class. A running task keeps running, it only
+     * stops counting towards the speculative cap once promoted.
+     */
+    public synchronized void setPriority(int id, Priority priority)
+    {
+        Task task = _tasks.get(id);
+
+        if (task == null || task._priority == priority) {
+            return;
+        }
+
+        if (task._running) {
+            if (task._priority == Priority.SPECULATIVE) {
+                _runningSpeculative--;
+            }
+            else if (priority == Priority.SPECULATIVE) {
+                _runningSpeculative++;
+            }
+        }
+        else {
+            _queues[task._priority.ordinal()].remove(task);
+            _queues[priority.ordinal()].addLast(task);
+        }
+        task._priority = priority;
+        notifyAll();
+    }
+
+    /**
+     * @return the next task to run, or null if none can run now
+     */
+    public synchronized Task poll()
+    {
+        for (Priority priority : Priority.values()) {
+            if (priority == Priority.SPECULATIVE && _runningSpeculative >= _maxRunningSpeculative) {
+                break;
+            }
+
+            Task task = _queues[priority.ordinal()].pollFirst();
+            if (task != null) {
+                start(task);
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the next task to run. The task must be run, its completion frees its slot.
+     */
+    public synchronized Task take() throws InterruptedException
+    {
+        Task task;
+
+        while ((task = poll()) == null) {
+            wait();
+        }
+        return task;
+    }
+
+    public synchronized int queuedCount()
+    {
+        int count = 0;
+
+        for (ArrayDeque<Task> queue : _queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Time spent waiting in the queue, keyed by the priority the task started with, see
+     * {@link ChannelMetrics#snapshot(boolean)}.
+     */
+    public Map<String, Map<String, Object>> queueWaitSnapshot(boolean reset)
+    {
+        return _queueWaits.snapshot(reset);
+    }
+
+    private void start(Task task)
+    {
+        task._running = true;
+        if (task._priority == Priority.SPECULATIVE) {
+            _runningSpeculative++;
+        }
+
+        _queueWaits.record(task._priority.name().toLowerCase(), _nanoClock.getAsLong() - task._submitNanos, -1,
+                false);
+    }
+
+    private synchronized void finish(Task task)
+    {
+        if (task._priority == Priority.SPECULATIVE) {
+            _runningSpeculative--;
+        }
+        _tasks.remove(task.id, task);
+        notifyAll();
+    }
+
+    public final class Task implements Runnable
+    {
+        public final int id;
+
+        private final Runnable _work;
+        private final long _submitNanos;
+        private Priority _priority;
+        private boolean _running;
+
+        private Task(int id, Priority priority, Runnable work, long submitNanos)
+        {
+            this.id = id;
+            _priority = priority;
+            _work = work;
+            _submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                _work.run();
+            }
+            finally {
+                finish(this);
+            }
+        }
+    }
+}
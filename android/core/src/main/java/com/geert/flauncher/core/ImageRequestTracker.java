@@ -0,0 +1,174 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancellation state and outcome counts of the image requests made by Dart. Requests whose card
+ * went away before the image arrived are cancelled by id; the work checks for it between its
+ * steps through {@link Request#checkpoint(Stage)}, so that a cancelled request stops at the
+ * next step instead of being rasterized and encoded for nothing.
+ */
+public final class ImageRequestTracker
+{
+    /**
+     * Id of the requests that cannot be cancelled.
+     */
+    public static final int NO_ID = 0;
+
+    /**
+     * Last step a request went through when it stopped.
+     */
+    public enum Stage
+    {
+        QUEUED("cancelledQueued"),
+        LOADED("cancelledLoaded"),
+        RASTERIZED("cancelledRasterized");
+
+        final String metricName;
+
+        Stage(String metricName)
+        {
+            this.metricName = metricName;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Request> _requests = new ConcurrentHashMap<>();
+    private final AtomicLong _completed = new AtomicLong();
+    private final AtomicLong _failed = new AtomicLong();
+    private final AtomicLong[] _cancelledAt = new AtomicLong[Stage.values().length];
+
+    public ImageRequestTracker()
+    {
+        for (int i = 0; i < _cancelledAt.length; i++) {
+            _cancelledAt[i] = new AtomicLong();
+        }
+    }
+
+    public Request begin(int id)
+    {
+        Request request = new Request(id);
+
+        if (id != NO_ID) {
+            _requests.put(id, request);
+        }
+        return request;
+    }
+
+    /**
+     * Unknown ids, of requests already completed, are ignored.
+     *
+     * @return the number of requests cancelled
+     */
+    public int cancel(Collection<? extends Number> ids)
+    {
+        int cancelled = 0;
+
+        for (Number id : ids) {
+            Request request = _requests.remove(id.intValue());
+
+            if (request != null) {
+                request._cancelled = true;
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    public void complete(Request request)
+    {
+        if (request.id != NO_ID) {
+            _requests.remove(request.id, request);
+        }
+        _completed.incrementAndGet();
+    }
+
+    public void fail(Request request)
+    {
+        if (request.id != NO_ID) {
+            _requests.remove(request.id, request);
+        }
+        _failed.incrementAndGet();
+    }
+
+    public int pendingCount()
+    {
+        return _requests.size();
+    }
+
+    /**
+     * Requests cancelled are counted by the last step they went through, the work of the
+     * following steps being saved.
+     */
+    public Map<String, Object> snapshot(boolean reset)
+    {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long cancelled = 0;
+
+        snapshot.put("completed", reset ? _completed.getAndSet(0) : _completed.get());
+        snapshot.put("failed", reset ? _failed.getAndSet(0) : _failed.get());
+        for (Stage stage : Stage.values()) {
+            AtomicLong counter = _cancelledAt[stage.ordinal()];
+            long count = reset ? counter.getAndSet(0) : counter.get();
+
+            snapshot.put(stage.metricName, count);
+            cancelled += count;
+        }
+        snapshot.put("cancelled", cancelled);
+        snapshot.put("pending", _requests.size());
+        return snapshot;
+    }
+
+    public final class Request
+    {
+        public final int id;
+
+        private volatile boolean _cancelled;
+
+        private Request(int id)
+        {
+            this.id = id;
+        }
+
+        public boolean isCancelled()
+        {
+            return _cancelled;
+        }
+
+        /**
+         * Marks the end of the given step.
+         *
+         * @throws CancellationException if the request was cancelled, counted as stopped after
+         *                               the given step
+         */
+        public void checkpoint(Stage stage)
+        {
+            if (_cancelled) {
+                _cancelledAt[stage.ordinal()].incrementAndGet();
+                throw new CancellationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+/**
+ * Paces the repeats of a held key on the display frames, so that focus moves at most once every
+ * few frames instead of at the remote's 20-30 Hz repeat rate. The pace accelerates the longer
+ * the key is held. Repeats dispatched late, queued while the main thread was busy, and repeats
+ * following the release of their key are dropped rather than replayed as a burst.
+ * Not thread-safe, key events are expected on a single thread.
+ */
+public final class KeyRepeatCoalescer
+{
+    private static final int NO_KEY = -1;
+    // Repeats dispatched this many frames after they were generated are stale
+    private static final int STALE_FRAMES = 2;
+
+    private final int _initialFrames;
+    private final int _minimumFrames;
+    private final long _accelerationStepMillis;
+
+    private long _frameIntervalNanos = 16_666_667;
+    private int _heldKeyCode = NO_KEY;
+    private long _downTimeMillis;
+    private long _lastDeliveredMillis;
+
+    /**
+     * @param initialFrames          frames between delivered repeats when the key starts repeating
+     * @param minimumFrames          frames between delivered repeats once fully accelerated
+     * @param accelerationStepMillis hold duration removing one frame between delivered repeats
+     */
+    public KeyRepeatCoalescer(int initialFrames, int minimumFrames, long accelerationStepMillis)
+    {
+        if (minimumFrames < 1 || initialFrames < minimumFrames || accelerationStepMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        _initialFrames = initialFrames;
+        _minimumFrames = minimumFrames;
+        _accelerationStepMillis = accelerationStepMillis;
+    }
+
+    public void setRefreshRate(float framesPerSecond)
+    {
+        if (framesPerSecond > 0) {
+            _frameIntervalNanos = (long) (1_000_000_000L / framesPerSecond);
+        }
+    }
+
+    /**
+     * @param repeatCount      0 for the initial press, always delivered
+     * @param eventTimeMillis  uptime the event was generated at
+     * @param uptimeMillis     uptime the event is dispatched at
+     * @return whether the event must be delivered
+     */
+    public boolean keyDown(int keyCode, int repeatCount, long eventTimeMillis, long uptimeMillis)
+    {
+        if (repeatCount == 0) {
+            _heldKeyCode = keyCode;
+            _downTimeMillis = eventTimeMillis;
+            _lastDeliveredMillis = eventTimeMillis;
+            return true;
+        }
+
+        if (keyCode != _heldKeyCode
+                || (uptimeMillis - eventTimeMillis) * 1_000_000L > STALE_FRAMES * _frameIntervalNanos) {
+            return false;
+        }
+
+        if ((eventTimeMillis - _lastDeliveredMillis) * 1_000_000L < repeatFrames(eventTimeMillis) * _frameIntervalNanos) {
+            return false;
+        }
+
+        _lastDeliveredMillis = eventTimeMillis;
+        return true;
+    }
+
+    public void keyUp(int keyCode)
+    {
+        if (keyCode == _heldKeyCode) {
+            _heldKeyCode = NO_KEY;
+        }
+    }
+
+    private int repeatFrames(long eventTimeMillis)
+    {
+        long steps = (eventTimeMillis - _downTimeMillis) / _accelerationStepMillis;
+        return (int) Math.max(_minimumFrames, _initialFrames - steps);
+    }
+}
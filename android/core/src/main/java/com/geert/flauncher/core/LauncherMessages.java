@@ -0,0 +1,210 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.Objects;
+
+/**
+ * Typed payloads sent to Dart through LauncherMessageCodec, on the app module.
+ * Fields are written positionally, in declaration order, so any change here must be mirrored
+ * on file lib/flauncher_messages.dart. Boxed and string fields may be null, except for the
+ * application name and package name.
+ */
+public final class LauncherMessages
+{
+    private LauncherMessages() { }
+
+    public static final class Application
+    {
+        public final String name;
+        public final String packageName;
+        public final String version;
+        public final boolean sideloaded;
+        public final String action;
+        /**
+         * Sent before its label and version were resolved, with the package name as label and
+         * no version, not to be persisted.
+         */
+        public final boolean placeholder;
+
+        public Application(String name, String packageName, String version, boolean sideloaded,
+                           String action)
+        {
+            this(name, packageName, version, sideloaded, action, false);
+        }
+
+        public Application(String name, String packageName, String version, boolean sideloaded,
+                           String action, boolean placeholder)
+        {
+            this.name = name;
+            this.packageName = packageName;
+            this.version = version;
+            this.sideloaded = sideloaded;
+            this.action = action;
+            this.placeholder = placeholder;
+        }
+    }
+
+    public static final class MediaSession
+    {
+        // Aligned with the action names on file lib/flauncher_messages.dart
+        public static final int ACTION_PLAY = 1;
+        public static final int ACTION_PAUSE = 1 << 1;
+        public static final int ACTION_SKIP_TO_NEXT = 1 << 2;
+        public static final int ACTION_SKIP_TO_PREVIOUS = 1 << 3;
+        public static final int ACTION_SEEK_TO = 1 << 4;
+
+        // Aligned with android.media.session.PlaybackState action flags
+        private static final long PLAYBACK_ACTION_PAUSE = 1L << 1;
+        private static final long PLAYBACK_ACTION_PLAY = 1L << 2;
+        private static final long PLAYBACK_ACTION_SKIP_TO_PREVIOUS = 1L << 4;
+        private static final long PLAYBACK_ACTION_SKIP_TO_NEXT = 1L << 5;
+        private static final long PLAYBACK_ACTION_SEEK_TO = 1L << 8;
+
+        public static final MediaSession EMPTY = new MediaSession(
+                false, null, null, null, null, null, null, false, null, 0);
+
+        public final boolean hasActiveSession;
+        public final String packageName;
+        public final String appName;
+        public final String title;
+        public final String artist;
+        public final String album;
+        public final Long duration;
+        public final boolean isPlaying;
+        public final Long position;
+        public final int availableActions;
+
+        public MediaSession(boolean hasActiveSession, String packageName, String appName,
+                            String title, String artist, String album,
+                            Long duration, boolean isPlaying, Long position,
+                            int availableActions)
+        {
+            this.hasActiveSession = hasActiveSession;
+            this.packageName = packageName;
+            this.appName = appName;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+            this.duration = duration;
+            this.isPlaying = isPlaying;
+            this.position = position;
+            this.availableActions = availableActions;
+        }
+
+        /**
+         * Maps {@code PlaybackState.getActions()} to the subset of actions FLauncher exposes.
+         */
+        public static int availableActions(long playbackActions)
+        {
+            int actions = 0;
+
+            if ((playbackActions & PLAYBACK_ACTION_PLAY) != 0) actions |= ACTION_PLAY;
+            if ((playbackActions & PLAYBACK_ACTION_PAUSE) != 0) actions |= ACTION_PAUSE;
+            if ((playbackActions & PLAYBACK_ACTION_SKIP_TO_NEXT) != 0) actions |= ACTION_SKIP_TO_NEXT;
+            if ((playbackActions & PLAYBACK_ACTION_SKIP_TO_PREVIOUS) != 0) actions |= ACTION_SKIP_TO_PREVIOUS;
+            if ((playbackActions & PLAYBACK_ACTION_SEEK_TO) != 0) actions |= ACTION_SEEK_TO;
+
+            return actions;
+        }
+    }
+
+    public static final class NetworkState
+    {
+        public final boolean networkAccess;
+        public final boolean internetAccess;
+        public final int networkType;
+        public final int wirelessSignalLevel;
+        // Estimated by the platform, 0 when unknown
+        public final int downstreamBandwidthKbps;
+        public final boolean metered;
+
+        public NetworkState(boolean networkAccess, boolean internetAccess, int networkType, int wirelessSignalLevel,
+                            int downstreamBandwidthKbps, boolean metered)
+        {
+            this.networkAccess = networkAccess;
+            this.internetAccess = internetAccess;
+            this.networkType = networkType;
+            this.wirelessSignalLevel = wirelessSignalLevel;
+            this.downstreamBandwidthKbps = downstreamBandwidthKbps;
+            this.metered = metered;
+        }
+
+        public NetworkState withWirelessSignalLevel(int wirelessSignalLevel)
+        {
+            return new NetworkState(networkAccess, internetAccess, networkType, wirelessSignalLevel,
+                    downstreamBandwidthKbps, metered);
+        }
+    }
+
+    /**
+     * Program of the TvContract.WatchNextPrograms table, "continue watching" content.
+     */
+    public static final class WatchNextProgram
+    {
+        public final long id;
+        public final String packageName;
+        public final String title;
+        public final String episodeTitle;
+        public final int watchNextType;
+        public final long lastEngagementTimeMillis;
+        public final long durationMillis;
+        public final long lastPlaybackPositionMillis;
+        public final String intentUri;
+        public final String posterArtUri;
+
+        public WatchNextProgram(long id, String packageName, String title, String episodeTitle, int watchNextType,
+                                long lastEngagementTimeMillis, long durationMillis, long lastPlaybackPositionMillis,
+                                String intentUri, String posterArtUri)
+        {
+            this.id = id;
+            this.packageName = packageName;
+            this.title = title;
+            this.episodeTitle = episodeTitle;
+            this.watchNextType = watchNextType;
+            this.lastEngagementTimeMillis = lastEngagementTimeMillis;
+            this.durationMillis = durationMillis;
+            this.lastPlaybackPositionMillis = lastPlaybackPositionMillis;
+            this.intentUri = intentUri;
+            this.posterArtUri = posterArtUri;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof WatchNextProgram program
+                    && id == program.id
+                    && watchNextType == program.watchNextType
+                    && lastEngagementTimeMillis == program.lastEngagementTimeMillis
+                    && durationMillis == program.durationMillis
+                    && lastPlaybackPositionMillis == program.lastPlaybackPositionMillis
+                    && Objects.equals(packageName, program.packageName)
+                    && Objects.equals(title, program.title)
+                    && Objects.equals(episodeTitle, program.episodeTitle)
+                    && Objects.equals(intentUri, program.intentUri)
+                    && Objects.equals(posterArtUri, program.posterArtUri);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(id, title, lastEngagementTimeMillis, lastPlaybackPositionMillis);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses bursts of package events, as sent during system updates or multi-package installs,
+ * into a single batch. Only the last event of each package matters: a removal drops earlier
+ * updates, and an update following a removal resolves the package again.
+ * Not thread-safe, events are expected on a single thread.
+ */
+public final class PackageEventCoalescer
+{
+    public static final class Batch
+    {
+        public final List<String> updatedPackageNames;
+        public final List<String> removedPackageNames;
+
+        Batch(List<String> updatedPackageNames, List<String> removedPackageNames)
+        {
+            this.updatedPackageNames = updatedPackageNames;
+            this.removedPackageNames = removedPackageNames;
+        }
+
+        public boolean isEmpty()
+        {
+            return updatedPackageNames.isEmpty() && removedPackageNames.isEmpty();
+        }
+    }
+
+    private final LinkedHashMap<String, Boolean> _pendingRemovals = new LinkedHashMap<>();
+
+    /**
+     * @return whether this is the first pending event, in which case a drain must be scheduled
+     */
+    public boolean packageUpdated(String packageName)
+    {
+        return put(packageName, false);
+    }
+
+    /**
+     * @return whether this is the first pending event, in which case a drain must be scheduled
+     */
+    public boolean packageRemoved(String packageName)
+    {
+        return put(packageName, true);
+    }
+
+    public boolean isEmpty()
+    {
+        return _pendingRemovals.isEmpty();
+    }
+
+    public Batch drain()
+    {
+        List<String> updated = new ArrayList<>(_pendingRemovals.size());
+        List<String> removed = new ArrayList<>();
+
+        for (Map.Entry<String, Boolean> entry : _pendingRemovals.entrySet()) {
+            if (entry.getValue()) {
+                removed.add(entry.getKey());
+            }
+            else {
+                updated.add(entry.getKey());
+            }
+        }
+
+        _pendingRemovals.clear();
+        return new Batch(updated, removed);
+    }
+
+    private boolean put(String packageName, boolean removed)
+    {
+        boolean first = _pendingRemovals.isEmpty();
+        // Re-inserting moves the package after the ones whose last event came earlier
+        _pendingRemovals.remove(packageName);
+        _pendingRemovals.put(packageName, removed);
+        return first;
+    }
+}
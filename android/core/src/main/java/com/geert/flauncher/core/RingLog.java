@@ -0,0 +1,202 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Level-gated log keeping its last entries in a ring buffer allocated once.
+ * Messages are formats with "{}" placeholders, formatted only when the log is dumped, so that a
+ * disabled level costs a field read and an enabled one a few reference stores. Fixed arity
+ * overloads avoid varargs arrays; primitive arguments should stay in the boxing caches (small
+ * integers, booleans), or be guarded with {@link #isLoggable(int)}.
+ * Arguments are held until their entry is overwritten, so they should be values rather than
+ * large objects.
+ */
+public final class RingLog
+{
+    // Aligned with android.util.Log priorities
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int DISABLED = Integer.MAX_VALUE;
+
+    private static final int MAX_ARGUMENTS = 3;
+    private static final char[] LEVEL_LETTERS = { '?', '?', 'V', 'D', 'I', 'W', 'E' };
+
+    private final long[] _timestamps;
+    private final int[] _levels;
+    private final String[] _tags;
+    private final String[] _formats;
+    private final Object[] _arguments;
+    private final LongSupplier _clock;
+
+    private volatile int _level = DISABLED;
+    private int _next;
+    private int _size;
+
+    /**
+     * @param clock wall clock, in milliseconds
+     */
+    public RingLog(int capacity, LongSupplier clock)
+    {
+        _timestamps = new long[capacity];
+        _levels = new int[capacity];
+        _tags = new String[capacity];
+        _formats = new String[capacity];
+        _arguments = new Object[capacity * MAX_ARGUMENTS];
+        _clock = clock;
+    }
+
+    public void setLevel(int level)
+    {
+        _level = level;
+    }
+
+    public boolean isLoggable(int level)
+    {
+        return level >= _level;
+    }
+
+    public void log(int level, String tag, String format)
+    {
+        if (level >= _level) {
+            append(level, tag, format, null, null, null);
+        }
+    }
+
+    public void log(int level, String tag, String format, Object argument)
+    {
+        if (level >= _level) {
+            append(level, tag, format, argument, null, null);
+        }
+    }
+
+    public void log(int level, String tag, String format, Object first, Object second)
+    {
+        if (level >= _level) {
+            append(level, tag, format, first, second, null);
+        }
+    }
+
+    public void log(int level, String tag, String format, Object first, Object second, Object third)
+    {
+        if (level >= _level) {
+            append(level, tag, format, first, second, third);
+        }
+    }
+
+    /**
+     * Formats the retained entries, oldest first, as "HH:mm:ss.SSS L/tag: message".
+     */
+    public synchronized List<String> dump()
+    {
+        List<String> lines = new ArrayList<>(_size);
+        int capacity = _timestamps.length;
+        ZoneId zone = ZoneId.systemDefault();
+
+        for (int i = 0; i < _size; ++i) {
+            int slot = (_next - _size + i + capacity) % capacity;
+            LocalTime time = Instant.ofEpochMilli(_timestamps[slot]).atZone(zone).toLocalTime();
+
+            StringBuilder line = new StringBuilder(64)
+                    .append(String.format("%02d:%02d:%02d.%03d",
+                            time.getHour(), time.getMinute(), time.getSecond(), time.getNano() / 1_000_000))
+                    .append(' ')
+                    .append(levelLetter(_levels[slot]))
+                    .append('/')
+                    .append(_tags[slot])
+                    .append(": ");
+            appendFormatted(line, _formats[slot], _arguments, slot * MAX_ARGUMENTS, slot * MAX_ARGUMENTS + MAX_ARGUMENTS);
+            lines.add(line.toString());
+        }
+
+        return lines;
+    }
+
+    public synchronized void clear()
+    {
+        _size = 0;
+        _next = 0;
+        Arrays.fill(_tags, null);
+        Arrays.fill(_formats, null);
+        Arrays.fill(_arguments, null);
+    }
+
+    /**
+     * Replaces each "{}" of the format by the next argument, "null" past the provided ones.
+     */
+    public static String format(String format, Object... arguments)
+    {
+        StringBuilder builder = new StringBuilder(format.length() + 16);
+        appendFormatted(builder, format, arguments, 0, arguments.length);
+        return builder.toString();
+    }
+
+    private synchronized void append(int level, String tag, String format, Object first, Object second, Object third)
+    {
+        int slot = _next;
+        _timestamps[slot] = _clock.getAsLong();
+        _levels[slot] = level;
+        _tags[slot] = tag;
+        _formats[slot] = format;
+        _arguments[slot * MAX_ARGUMENTS] = first;
+        _arguments[slot * MAX_ARGUMENTS + 1] = second;
+        _arguments[slot * MAX_ARGUMENTS + 2] = third;
+
+        _next = (slot + 1) % _timestamps.length;
+        if (_size < _timestamps.length) {
+            _size += 1;
+        }
+    }
+
+    /**
+     * Arguments are read from offset, inclusive, to end, exclusive: placeholders past the end are
+     * "null", never the arguments of the next entry.
+     */
+    private static void appendFormatted(StringBuilder builder, String format, Object[] arguments, int offset,
+                                        int end)
+    {
+        int argument = offset;
+        int start = 0;
+        int placeholder;
+
+        while ((placeholder = format.indexOf("{}", start)) >= 0) {
+            builder.append(format, start, placeholder);
+            builder.append(argument < end ? arguments[argument] : null);
+            argument += 1;
+            start = placeholder + 2;
+        }
+
+        builder.append(format, start, format.length());
+    }
+
+    private static char levelLetter(int level)
+    {
+        return level >= 0 && level < LEVEL_LETTERS.length ? LEVEL_LETTERS[level] : '?';
+    }
+}
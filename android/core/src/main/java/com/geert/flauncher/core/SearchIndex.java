@@ -0,0 +1,263 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix trie over the words of application labels and package names, folded to lower case
+ * without accents. Every node keeps the applications having a word with its prefix, along with
+ * the best rank of that word, so that a query term is resolved by a single walk down the trie.
+ * A query matches the applications having, for each of its terms, a word starting with it.
+ * Not thread-safe, updates and queries are expected on a single thread.
+ */
+public final class SearchIndex
+{
+    // Lower is better
+    static final int RANK_LABEL_START = 0;
+    static final int RANK_LABEL_WORD = 1;
+    static final int RANK_PACKAGE = 2;
+
+    private static final class Node
+    {
+        final Map<Character, Node> children = new HashMap<>(4);
+        final Map<String, Integer> ranks = new HashMap<>(4);
+    }
+
+    private static final class Entry
+    {
+        final String foldedLabel;
+        final List<String> words;
+
+        Entry(String foldedLabel, List<String> words)
+        {
+            this.foldedLabel = foldedLabel;
+            this.words = words;
+        }
+    }
+
+    private static final class Match
+    {
+        final String packageName;
+        final String foldedLabel;
+        int rank;
+
+        Match(String packageName, String foldedLabel, int rank)
+        {
+            this.packageName = packageName;
+            this.foldedLabel = foldedLabel;
+            this.rank = rank;
+        }
+    }
+
+    private final Node _root = new Node();
+    private final Map<String, Entry> _entries = new HashMap<>();
+
+    public int size()
+    {
+        return _entries.size();
+    }
+
+    public void clear()
+    {
+        _root.children.clear();
+        _entries.clear();
+    }
+
+    /**
+     * Indexes the application, replacing its previous label if any.
+     */
+    public void put(String packageName, String label)
+    {
+        remove(packageName);
+
+        String foldedLabel = fold(label);
+        List<String> words = new ArrayList<>();
+        List<String> labelWords = split(foldedLabel);
+
+        for (int i = 0; i < labelWords.size(); ++i) {
+            String word = labelWords.get(i);
+            words.add(word);
+            insert(word, packageName, i == 0 ? RANK_LABEL_START : RANK_LABEL_WORD);
+        }
+
+        // The first segment is the domain suffix ("com", "org", ...), which would match everything
+        List<String> packageWords = split(fold(packageName));
+        for (int i = packageWords.size() > 1 ? 1 : 0; i < packageWords.size(); ++i) {
+            String word = packageWords.get(i);
+            words.add(word);
+            insert(word, packageName, RANK_PACKAGE);
+        }
+
+        _entries.put(packageName, new Entry(foldedLabel, words));
+    }
+
+    public void remove(String packageName)
+    {
+        Entry entry = _entries.remove(packageName);
+
+        if (entry != null) {
+            for (String word : entry.words) {
+                delete(word, packageName);
+            }
+        }
+    }
+
+    /**
+     * @return the package names of the matching applications, best first: ranked by where the
+     * terms matched (first label word, other label words, package name), then by label
+     */
+    public List<String> search(String query, int limit)
+    {
+        List<String> terms = split(fold(query));
+        List<String> packageNames = new ArrayList<>();
+
+        if (terms.isEmpty() || limit <= 0) {
+            return packageNames;
+        }
+
+        Map<String, Match> matches = null;
+        for (String term : terms) {
+            Node node = find(term);
+
+            if (node == null) {
+                return packageNames;
+            }
+
+            if (matches == null) {
+                matches = new HashMap<>(node.ranks.size() * 2);
+                for (Map.Entry<String, Integer> rank : node.ranks.entrySet()) {
+                    String packageName = rank.getKey();
+                    matches.put(packageName,
+                            new Match(packageName, _entries.get(packageName).foldedLabel, rank.getValue()));
+                }
+            }
+            else {
+                matches.values().removeIf(match -> {
+                    Integer rank = node.ranks.get(match.packageName);
+                    if (rank == null) {
+                        return true;
+                    }
+                    match.rank += rank;
+                    return false;
+                });
+            }
+        }
+
+        List<Match> sorted = new ArrayList<>(matches.values());
+        sorted.sort((a, b) -> {
+            int byRank = Integer.compare(a.rank, b.rank);
+            if (byRank != 0) {
+                return byRank;
+            }
+            int byLabel = a.foldedLabel.compareTo(b.foldedLabel);
+            return byLabel != 0 ? byLabel : a.packageName.compareTo(b.packageName);
+        });
+
+        for (int i = 0; i < sorted.size() && i < limit; ++i) {
+            packageNames.add(sorted.get(i).packageName);
+        }
+        return packageNames;
+    }
+
+    /**
+     * Lower cases the text and strips its combining marks, so that "É" and "e" compare equal.
+     */
+    static String fold(String text)
+    {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); ++i) {
+            char c = decomposed.charAt(i);
+
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Splits on everything that is not a letter or a digit.
+     */
+    static List<String> split(String text)
+    {
+        List<String> words = new ArrayList<>(4);
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); ++i) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if (wordCharacter && start < 0) {
+                start = i;
+            }
+            else if (!wordCharacter && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void insert(String word, String packageName, int rank)
+    {
+        Node node = _root;
+
+        for (int i = 0; i < word.length(); ++i) {
+            node = node.children.computeIfAbsent(word.charAt(i), c -> new Node());
+            node.ranks.merge(packageName, rank, Math::min);
+        }
+    }
+
+    private void delete(String word, String packageName)
+    {
+        Node node = _root;
+
+        for (int i = 0; i < word.length(); ++i) {
+            Node child = node.children.get(word.charAt(i));
+
+            if (child == null) {
+                return;
+            }
+
+            child.ranks.remove(packageName);
+            // Every application below a node is also on the node, so an empty node has an empty subtree
+            if (child.ranks.isEmpty()) {
+                node.children.remove(word.charAt(i));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private Node find(String prefix)
+    {
+        Node node = _root;
+
+        for (int i = 0; i < prefix.length() && node != null; ++i) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+}
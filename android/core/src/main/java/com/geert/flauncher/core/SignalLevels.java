@@ -0,0 +1,59 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+public final class SignalLevels
+{
+    public static final int WIFI_SIGNAL_LEVELS = 4;
+    // Level of a link whose signal strength isn't known, as opposed to level 0, the weakest
+    public static final int UNKNOWN_LEVEL = -1;
+    // Reported by WifiInfo.getRssi() when the signal strength isn't known
+    static final int INVALID_RSSI = -127;
+
+    private static final int MIN_RSSI = -90;
+    private static final int MAX_RSSI = -55;
+
+    private SignalLevels()
+    {
+    }
+
+    /**
+     * @return the level of the Wi-Fi signal, {@link #UNKNOWN_LEVEL} if it wasn't measured
+     */
+    public static int wifiSignalLevel(int rssi)
+    {
+        return rssi != INVALID_RSSI ? calculateSignalLevel(rssi, WIFI_SIGNAL_LEVELS) : UNKNOWN_LEVEL;
+    }
+
+    /**
+     * Mirrors the deprecated static {@code WifiManager.calculateSignalLevel(int, int)}.
+     */
+    public static int calculateSignalLevel(int rssi, int levels)
+    {
+        if (rssi <= MIN_RSSI) {
+            return 0;
+        } else if (rssi >= MAX_RSSI) {
+            return levels - 1;
+        } else {
+            final float inputRange = (MAX_RSSI - MIN_RSSI);
+            final float outputRange = (levels - 1);
+            return (int)((float)(rssi - MIN_RSSI) * outputRange / inputRange);
+        }
+    }
+}
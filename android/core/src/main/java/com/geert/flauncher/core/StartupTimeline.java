@@ -0,0 +1,113 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the first occurrence of each startup phase, as monotonic start and end timestamps in
+ * nanoseconds, into arrays allocated once. Later occurrences of a phase, and phases past the
+ * capacity, are ignored, so that recording can stay in place after startup at no cost.
+ */
+public final class StartupTimeline
+{
+    public static final int CAPACITY = 32;
+    public static final int NO_SLOT = -1;
+
+    private static final long NOT_ENDED = Long.MIN_VALUE;
+
+    private final String[] _phases = new String[CAPACITY];
+    private final long[] _starts = new long[CAPACITY];
+    private final long[] _ends = new long[CAPACITY];
+    private int _count;
+
+    /**
+     * @return the slot to end the phase with, or {@link #NO_SLOT} if the phase was already
+     * recorded or the timeline is full
+     */
+    public synchronized int begin(String phase, long timestampNanos)
+    {
+        if (_count == CAPACITY || indexOf(phase) >= 0) {
+            return NO_SLOT;
+        }
+
+        int slot = _count++;
+        _phases[slot] = phase;
+        _starts[slot] = timestampNanos;
+        _ends[slot] = NOT_ENDED;
+        return slot;
+    }
+
+    public synchronized void end(int slot, long timestampNanos)
+    {
+        if (slot >= 0 && slot < _count && _ends[slot] == NOT_ENDED) {
+            _ends[slot] = timestampNanos;
+        }
+    }
+
+    /**
+     * Records an instantaneous phase.
+     *
+     * @return whether this was the first occurrence of the phase
+     */
+    public synchronized boolean mark(String phase, long timestampNanos)
+    {
+        int slot = begin(phase, timestampNanos);
+        end(slot, timestampNanos);
+        return slot != NO_SLOT;
+    }
+
+    public synchronized String phase(int slot)
+    {
+        return slot >= 0 && slot < _count ? _phases[slot] : null;
+    }
+
+    /**
+     * Phases in recording order, with their start as an offset from the origin and their
+     * duration, both in microseconds. The duration is null for phases still running.
+     */
+    public synchronized List<Map<String, Object>> snapshot(long originNanos)
+    {
+        List<Map<String, Object>> phases = new ArrayList<>(_count);
+
+        for (int i = 0; i < _count; ++i) {
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("phase", _phases[i]);
+            phase.put("startMicros", (_starts[i] - originNanos) / 1000);
+            phase.put("durationMicros", _ends[i] == NOT_ENDED ? null : (_ends[i] - _starts[i]) / 1000);
+            phases.add(phase);
+        }
+
+        return phases;
+    }
+
+    private int indexOf(String phase)
+    {
+        for (int i = 0; i < _count; ++i) {
+            if (_phases[i].equals(phase)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage footprint of the applications, keyed by package and by the last update time of the
+ * package, so that installing an update invalidates it. Data and cache sizes also drift between
+ * updates: entries older than the refresh interval are still served, and refreshed lazily.
+ */
+public final class StorageStatsCache
+{
+    public static final class Stats
+    {
+        public final String packageName;
+        public final long lastUpdateTime;
+        public final long appBytes;
+        // Includes the cache
+        public final long dataBytes;
+        public final long cacheBytes;
+        public final long computedMillis;
+
+        public Stats(String packageName, long lastUpdateTime, long appBytes, long dataBytes, long cacheBytes,
+                     long computedMillis)
+        {
+            this.packageName = packageName;
+            this.lastUpdateTime = lastUpdateTime;
+            this.appBytes = appBytes;
+            this.dataBytes = dataBytes;
+            this.cacheBytes = cacheBytes;
+            this.computedMillis = computedMillis;
+        }
+
+        /**
+         * @return "packageName", "appBytes", "dataBytes" and "cacheBytes"
+         */
+        public Map<String, Object> toMap()
+        {
+            return Map.of(
+                    "packageName", packageName,
+                    "appBytes", appBytes,
+                    "dataBytes", dataBytes,
+                    "cacheBytes", cacheBytes);
+        }
+    }
+
+    private final long _refreshMillis;
+    private final Map<String, Stats> _stats = new HashMap<>();
+    private final Set<String> _refreshing = new HashSet<>();
+
+    public StorageStatsCache(long refreshMillis)
+    {
+        _refreshMillis = refreshMillis;
+    }
+
+    /**
+     * @return the stats of the package as of its last update time, null if none
+     */
+    public synchronized Stats get(String packageName, long lastUpdateTime)
+    {
+        Stats stats = _stats.get(packageName);
+        return stats != null && stats.lastUpdateTime == lastUpdateTime ? stats : null;
+    }
+
+    public boolean isStale(Stats stats, long nowMillis)
+    {
+        return nowMillis - stats.computedMillis >= _refreshMillis;
+    }
+
+    /**
+     * Marks the package as being computed, until {@link #put(Stats)} or
+     * {@link #endRefresh(String)}.
+     *
+     * @return false if it already is, the caller must not compute it again
+     */
+    public synchronized boolean beginRefresh(String packageName)
+    {
+        return _refreshing.add(packageName);
+    }
+
+    public synchronized void endRefresh(String packageName)
+    {
+        _refreshing.remove(packageName);
+    }
+
+    public synchronized void put(Stats stats)
+    {
+        _stats.put(stats.packageName, stats);
+        _refreshing.remove(stats.packageName);
+    }
+
+    public synchronized int size()
+    {
+        return _stats.size();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates foreground events into a per-package score, the number of launches decayed
+ * exponentially with time, so that the ranking favours applications both used often and used
+ * recently. Events are ingested incrementally: those not newer than the checkpoint, the
+ * timestamp of the last ingested event, are ignored.
+ * Memory is bounded to {@link #MAX_PACKAGES}, the lowest scored package being evicted.
+ */
+public final class UsageAggregator
+{
+    public static final int MAX_PACKAGES = 256;
+    static final int FORMAT_VERSION = 1;
+
+    private static final class Usage
+    {
+        final String packageName;
+        // Score as of scoreMillis, decayed lazily
+        double score;
+        long scoreMillis;
+        int launchCount;
+        long lastUsedMillis;
+
+        Usage(String packageName)
+        {
+            this.packageName = packageName;
+        }
+    }
+
+    private final long _halfLifeMillis;
+    private final String _excludedPackageName;
+    private final Map<String, Usage> _usages = new HashMap<>();
+
+    private long _checkpointMillis;
+    private String _foregroundPackageName;
+
+    /**
+     * @param excludedPackageName package whose foreground events end the current launch without
+     *                            counting, typically the launcher itself
+     */
+    public UsageAggregator(long halfLifeMillis, String excludedPackageName)
+    {
+        _halfLifeMillis = halfLifeMillis;
+        _excludedPackageName = excludedPackageName;
+    }
+
+    public synchronized long getCheckpoint()
+    {
+        return _checkpointMillis;
+    }
+
+    /**
+     * Records a package coming to the foreground. Consecutive events of the same package, e.g.
+     * when moving between its activities, are one launch.
+     *
+     * @return whether the event was newer than the checkpoint
+     */
+    public synchronized boolean recordForeground(String packageName, long timestampMillis)
+    {
+        if (timestampMillis <= _checkpointMillis) {
+            return false;
+        }
+        _checkpointMillis = timestampMillis;
+
+        if (packageName.equals(_excludedPackageName)) {
+            _foregroundPackageName = null;
+            return true;
+        }
+
+        Usage usage = _usages.get(packageName);
+        if (usage == null) {
+            if (_usages.size() >= MAX_PACKAGES) {
+                evictLowest(timestampMillis);
+            }
+            usage = new Usage(packageName);
+            _usages.put(packageName, usage);
+        }
+
+        if (!packageName.equals(_foregroundPackageName)) {
+            usage.score = decayedScore(usage, timestampMillis) + 1;
+            usage.scoreMillis = timestampMillis;
+            usage.launchCount += 1;
+            _foregroundPackageName = packageName;
+        }
+        usage.lastUsedMillis = timestampMillis;
+        return true;
+    }
+
+    /**
+     * @return the best scored packages first, each as a map of "packageName", "score",
+     * "launchCount" and "lastUsedMillis"
+     */
+    public synchronized List<Map<String, Object>> ranking(int limit, long nowMillis)
+    {
+        List<Usage> usages = new ArrayList<>(_usages.values());
+        Map<Usage, Double> scores = new HashMap<>(usages.size() * 2);
+        for (Usage usage : usages) {
+            scores.put(usage, decayedScore(usage, nowMillis));
+        }
+
+        usages.sort((a, b) -> {
+            int byScore = Double.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Long.compare(b.lastUsedMillis, a.lastUsedMillis);
+        });
+
+        List<Map<String, Object>> ranking = new ArrayList<>(Math.min(limit, usages.size()));
+        for (int i = 0; i < usages.size() && i < limit; ++i) {
+            Usage usage = usages.get(i);
+            ranking.add(Map.of(
+                    "packageName", usage.packageName,
+                    "score", scores.get(usage),
+                    "launchCount", usage.launchCount,
+                    "lastUsedMillis", usage.lastUsedMillis));
+        }
+        return ranking;
+    }
+
+    public synchronized void write(DataOutputStream output) throws IOException
+    {
+        output.writeInt(FORMAT_VERSION);
+        output.writeLong(_checkpointMillis);
+        output.writeUTF(_foregroundPackageName != null ? _foregroundPackageName : "");
+        output.writeInt(_usages.size());
+
+        for (Usage usage : _usages.values()) {
+            output.writeUTF(usage.packageName);
+            output.writeDouble(usage.score);
+            output.writeLong(usage.scoreMillis);
+            output.writeInt(usage.launchCount);
+            output.writeLong(usage.lastUsedMillis);
+        }
+    }
+
+    /**
+     * Replaces the aggregated usage by the one previously written.
+     */
+    public synchronized void read(DataInputStream input) throws IOException
+    {
+        int version = input.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported usage aggregate version " + version);
+        }
+
+        long checkpointMillis = input.readLong();
+        String foregroundPackageName = input.readUTF();
+        int count = input.readInt();
+        if (count < 0 || count > MAX_PACKAGES) {
+            throw new IOException("Invalid usage aggregate size " + count);
+        }
+
+        Map<String, Usage> usages = new HashMap<>(count * 2);
+        for (int i = 0; i < count; ++i) {
+            Usage usage = new Usage(input.readUTF());
+            usage.score = input.readDouble();
+            usage.scoreMillis = input.readLong();
+            usage.launchCount = input.readInt();
+            usage.lastUsedMillis = input.readLong();
+            usages.put(usage.packageName, usage);
+        }
+
+        _checkpointMillis = checkpointMillis;
+        _foregroundPackageName = foregroundPackageName.isEmpty() ? null : foregroundPackageName;
+        _usages.clear();
+        _usages.putAll(usages);
+    }
+
+    private double decayedScore(Usage usage, long nowMillis)
+    {
+        long elapsed = Math.max(0, nowMillis - usage.scoreMillis);
+        return usage.score * Math.pow(0.5, (double) elapsed / _halfLifeMillis);
+    }
+
+    private void evictLowest(long nowMillis)
+    {
+        Usage lowest = null;
+        double lowestScore = Double.MAX_VALUE;
+
+        for (Usage usage : _usages.values()) {
+            double score = decayedScore(usage, nowMillis);
+            if (score < lowestScore) {
+                lowest = usage;
+                lowestScore = score;
+            }
+        }
+
+        if (lowest != null) {
+            _usages.remove(lowest.packageName);
+        }
+    }
+}
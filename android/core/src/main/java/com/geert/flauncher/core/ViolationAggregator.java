@@ -0,0 +1,152 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts main thread policy violations per attribution, the channel call or callback that was
+ * executing, and per stack signature, the violation type and the innermost frame of the
+ * application code that caused it. The number of entries is capped, so that memory stays bounded
+ * whatever the violation rate.
+ */
+public final class ViolationAggregator
+{
+    public static final String OTHER = "other";
+
+    private static final int MAX_ENTRIES = 64;
+    private static final int MAX_STACK_FRAMES = 12;
+
+    private final String _packagePrefix;
+    private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>();
+
+    /**
+     * @param packagePrefix prefix of the class names of the application code
+     */
+    public ViolationAggregator(String packagePrefix)
+    {
+        _packagePrefix = packagePrefix;
+    }
+
+    public synchronized void record(String attribution, String type, StackTraceElement[] stack)
+    {
+        StackTraceElement frame = innermostFrame(stack);
+        String signature = type + " at " + (frame != null ? format(frame) : "?");
+        String key = attribution + '\n' + signature;
+        Entry entry = _entries.get(key);
+
+        if (entry == null) {
+            if (_entries.size() >= MAX_ENTRIES) {
+                key = OTHER;
+                entry = _entries.get(OTHER);
+            }
+            if (entry == null) {
+                entry = key.equals(OTHER)
+                        ? new Entry(OTHER, OTHER, List.of())
+                        : new Entry(attribution, signature, stackSample(stack));
+                _entries.put(key, entry);
+            }
+        }
+
+        entry.count += 1;
+    }
+
+    /**
+     * @return the class and method of the innermost application frame, to attribute violations
+     * happening outside of channel calls, or null if no frame belongs to the application
+     */
+    public String callerOf(StackTraceElement[] stack)
+    {
+        StackTraceElement frame = innermostFrame(stack);
+        return frame != null ? simpleClassName(frame.getClassName()) + '.' + frame.getMethodName() : null;
+    }
+
+    /**
+     * @return the violations, most frequent first, with their attribution, signature, count and
+     * the innermost frames of a sample stack
+     */
+    public synchronized List<Map<String, Object>> snapshot(boolean reset)
+    {
+        List<Entry> entries = new ArrayList<>(_entries.values());
+        entries.sort((first, second) -> Integer.compare(second.count, first.count));
+
+        List<Map<String, Object>> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Map<String, Object> violation = new LinkedHashMap<>();
+            violation.put("attribution", entry.attribution);
+            violation.put("signature", entry.signature);
+            violation.put("count", entry.count);
+            violation.put("stack", entry.stack);
+            snapshot.add(violation);
+        }
+
+        if (reset) {
+            _entries.clear();
+        }
+        return snapshot;
+    }
+
+    private StackTraceElement innermostFrame(StackTraceElement[] stack)
+    {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(_packagePrefix)) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> stackSample(StackTraceElement[] stack)
+    {
+        List<String> frames = new ArrayList<>(Math.min(stack.length, MAX_STACK_FRAMES));
+
+        for (int i = 0; i < stack.length && i < MAX_STACK_FRAMES; ++i) {
+            frames.add(format(stack[i]));
+        }
+        return frames;
+    }
+
+    private static String format(StackTraceElement frame)
+    {
+        return simpleClassName(frame.getClassName()) + '.' + frame.getMethodName() + ':' + frame.getLineNumber();
+    }
+
+    private static String simpleClassName(String className)
+    {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static final class Entry
+    {
+        final String attribution;
+        final String signature;
+        final List<String> stack;
+        int count;
+
+        Entry(String attribution, String signature, List<String> stack)
+        {
+            this.attribution = attribution;
+            this.signature = signature;
+            this.stack = stack;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of the Watch Next programs, turning full reloads and single program updates
+ * into the differences sent to Dart, so that only those cross the channel.
+ * Only the most recently engaged programs are kept, the others are removed as newer ones come.
+ */
+public final class WatchNextCache
+{
+    public static final class Diff
+    {
+        public final List<LauncherMessages.WatchNextProgram> added;
+        public final List<LauncherMessages.WatchNextProgram> updated;
+        public final List<Long> removedIds;
+
+        Diff(List<LauncherMessages.WatchNextProgram> added, List<LauncherMessages.WatchNextProgram> updated,
+             List<Long> removedIds)
+        {
+            this.added = added;
+            this.updated = updated;
+            this.removedIds = removedIds;
+        }
+
+        public boolean isEmpty()
+        {
+            return added.isEmpty() && updated.isEmpty() && removedIds.isEmpty();
+        }
+    }
+
+    private final int _maxPrograms;
+    private final Map<Long, LauncherMessages.WatchNextProgram> _programs = new HashMap<>();
+
+    public WatchNextCache(int maxPrograms)
+    {
+        _maxPrograms = maxPrograms;
+    }
+
+    /**
+     * Replaces the programs by a full reload of the table.
+     */
+    public synchronized Diff replaceAll(List<LauncherMessages.WatchNextProgram> programs)
+    {
+        Map<Long, LauncherMessages.WatchNextProgram> previous = new HashMap<>(_programs);
+        List<LauncherMessages.WatchNextProgram> added = new ArrayList<>();
+        List<LauncherMessages.WatchNextProgram> updated = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+
+        _programs.clear();
+        for (LauncherMessages.WatchNextProgram program : programs) {
+            _programs.put(program.id, program);
+            LauncherMessages.WatchNextProgram previousProgram = previous.remove(program.id);
+
+            if (previousProgram == null) {
+                added.add(program);
+            }
+            else if (!previousProgram.equals(program)) {
+                updated.add(program);
+            }
+        }
+        removedIds.addAll(previous.keySet());
+        trim(added, updated, removedIds);
+
+        return new Diff(added, updated, removedIds);
+    }
+
+    /**
+     * Applies the reload of single programs.
+     *
+     * @param programs   programs read again
+     * @param removedIds programs deleted or not browsable anymore
+     */
+    public synchronized Diff update(Collection<LauncherMessages.WatchNextProgram> programs, Collection<Long> removedIds)
+    {
+        List<LauncherMessages.WatchNextProgram> added = new ArrayList<>();
+        List<LauncherMessages.WatchNextProgram> updated = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+
+        for (LauncherMessages.WatchNextProgram program : programs) {
+            LauncherMessages.WatchNextProgram previous = _programs.put(program.id, program);
+
+            if (previous == null) {
+                added.add(program);
+            }
+            else if (!previous.equals(program)) {
+                updated.add(program);
+            }
+        }
+
+        for (long id : removedIds) {
+            if (_programs.remove(id) != null) {
+                removed.add(id);
+            }
+        }
+        trim(added, updated, removed);
+
+        return new Diff(added, updated, removed);
+    }
+
+    /**
+     * Removes the least recently engaged programs above the maximum, dropping them from the
+     * programs added or updated by the same change, or else reporting them as removed.
+     */
+    private void trim(List<LauncherMessages.WatchNextProgram> added, List<LauncherMessages.WatchNextProgram> updated,
+                      List<Long> removedIds)
+    {
+        if (_programs.size() <= _maxPrograms) {
+            return;
+        }
+
+        List<LauncherMessages.WatchNextProgram> programs = new ArrayList<>(_programs.values());
+        programs.sort(Comparator.comparingLong(program -> program.lastEngagementTimeMillis));
+
+        for (int i = 0; _programs.size() > _maxPrograms; i++) {
+            LauncherMessages.WatchNextProgram program = programs.get(i);
+            _programs.remove(program.id);
+
+            if (!added.remove(program)) {
+                updated.remove(program);
+                removedIds.add(program.id);
+            }
+        }
+    }
+
+    public synchronized LauncherMessages.WatchNextProgram get(long id)
+    {
+        return _programs.get(id);
+    }
+
+    /**
+     * @return the programs, the most recently engaged first
+     */
+    public synchronized List<LauncherMessages.WatchNextProgram> snapshot()
+    {
+        List<LauncherMessages.WatchNextProgram> programs = new ArrayList<>(_programs.values());
+        programs.sort(Comparator.comparingLong(
+                (LauncherMessages.WatchNextProgram program) -> program.lastEngagementTimeMillis).reversed());
+        return programs;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AppCatalogTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static LauncherMessages.Application application(String packageName, String version)
+    {
+        return new LauncherMessages.Application("Name of " + packageName, packageName, version, false, null);
+    }
+
+    @Test
+    public void writeThenRead() throws IOException
+    {
+        AppCatalog catalog = new AppCatalog(temporaryFolder.newFile());
+        catalog.write(List.of(
+                application("a", "1.0"),
+                new LauncherMessages.Application("Réglages", "b", null, true, "android.settings.SETTINGS"),
+                new LauncherMessages.Application("c", "c", null, false, null, true)));
+
+        Map<String, LauncherMessages.Application> applications = catalog.readApplications();
+
+        assertEquals(List.of("a", "b", "c"), List.copyOf(applications.keySet()));
+        assertEquals("1.0", applications.get("a").version);
+        assertEquals(false, applications.get("a").placeholder);
+        assertEquals(true, applications.get("c").placeholder);
+        LauncherMessages.Application settings = applications.get("b");
+        assertEquals("Réglages", settings.name);
+        assertNull(settings.version);
+        assertEquals(true, settings.sideloaded);
+        assertEquals("android.settings.SETTINGS", settings.action);
+    }
+
+    @Test
+    public void writeReplacesThePreviousCatalog() throws IOException
+    {
+        File file = temporaryFolder.newFile();
+        AppCatalog catalog = new AppCatalog(file);
+        catalog.write(List.of(application("a", "1.0"), application("b", "1.0")));
+
+        catalog.write(List.of(application("a", "2.0"), application("c", "1.0")));
+
+        Map<String, LauncherMessages.Application> applications = catalog.readApplications();
+        assertEquals(List.of("a", "c"), List.copyOf(applications.keySet()));
+        assertEquals("2.0", applications.get("a").version);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class ApplicationMergerTest
+{
+    private final List<String> _visited = new ArrayList<>();
+
+    private ApplicationMerger.Summary merge(List<String> tvActivities, List<String> nonTvActivities)
+    {
+        return ApplicationMerger.merge(tvActivities, nonTvActivities, Function.identity(),
+                (packageName, sideloaded) -> _visited.add(packageName + (sideloaded ? ":sideloaded" : "")));
+    }
+
+    @Test
+    public void leanbackActivitiesWinOverRegularOnes()
+    {
+        ApplicationMerger.Summary summary = merge(
+                List.of("a", "b"),
+                List.of("b", "c", "a", "d"));
+
+        assertEquals(List.of("a", "b", "c:sideloaded", "d:sideloaded"), _visited);
+        assertEquals(4, summary.applicationCount);
+        assertFalse(summary.settingsPresent);
+    }
+
+    @Test
+    public void detectsTvSettings()
+    {
+        assertTrue(merge(List.of(ApplicationMerger.TV_SETTINGS_PACKAGE), List.of()).settingsPresent);
+    }
+
+    @Test
+    public void detectsRegularSettingsEvenWhenDuplicated()
+    {
+        ApplicationMerger.Summary summary = merge(
+                List.of(ApplicationMerger.SETTINGS_PACKAGE),
+                List.of(ApplicationMerger.SETTINGS_PACKAGE));
+
+        assertTrue(summary.settingsPresent);
+        assertEquals(1, summary.applicationCount);
+    }
+
+    @Test
+    public void emptyLists()
+    {
+        ApplicationMerger.Summary summary = merge(List.of(), List.of());
+
+        assertEquals(0, summary.applicationCount);
+        assertTrue(_visited.isEmpty());
+    }
+}
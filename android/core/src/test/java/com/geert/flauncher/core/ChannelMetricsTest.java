@@ -0,0 +1,77 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ChannelMetricsTest
+{
+    @Test
+    public void snapshotPerName()
+    {
+        ChannelMetrics metrics = new ChannelMetrics();
+        metrics.record("launchApp", 2_000_000, 100, false);
+        metrics.record("launchApp", 4_000_000, 300, true);
+        metrics.record("getApplications", 50_000_000, 80_000, false);
+
+        Map<String, Map<String, Object>> snapshot = metrics.snapshot(false);
+
+        assertEquals(List.of("getApplications", "launchApp"), List.copyOf(snapshot.keySet()));
+        Map<String, Object> launchApp = snapshot.get("launchApp");
+        assertEquals(2L, launchApp.get("count"));
+        assertEquals(1L, launchApp.get("errors"));
+        assertEquals(4000L, launchApp.get("maxMicros"));
+        assertEquals(300L, launchApp.get("payloadMaxBytes"));
+        assertEquals(400L, launchApp.get("payloadTotalBytes"));
+        assertTrue((Long) launchApp.get("p50Micros") >= 2000);
+    }
+
+    @Test
+    public void resetClearsCounts()
+    {
+        ChannelMetrics metrics = new ChannelMetrics();
+        metrics.record("launchApp", 1000, 10, true);
+
+        metrics.snapshot(true);
+
+        Map<String, Object> launchApp = metrics.snapshot(false).get("launchApp");
+        assertEquals(0L, launchApp.get("count"));
+        assertEquals(0L, launchApp.get("errors"));
+    }
+
+    @Test
+    public void namesAreCapped()
+    {
+        ChannelMetrics metrics = new ChannelMetrics();
+
+        for (int i = 0; i < 100; ++i) {
+            metrics.record("method" + i, 1000, 10, false);
+        }
+
+        Map<String, Map<String, Object>> snapshot = metrics.snapshot(false);
+        assertEquals(65, snapshot.size());
+        assertEquals(36L, snapshot.get(ChannelMetrics.OTHER).get("count"));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class EventThrottlerTest
+{
+    private final EventThrottler _throttler = new EventThrottler(250);
+
+    @Test
+    public void firstChangeIsEmittedRightAway()
+    {
+        assertEquals(EventThrottler.EMIT_NOW, _throttler.submit(1000));
+    }
+
+    @Test
+    public void changesWithinIntervalAreFoldedIntoTrailingEdge()
+    {
+        _throttler.submit(1000);
+
+        assertEquals(150, _throttler.submit(1100));
+        assertEquals(EventThrottler.SCHEDULED, _throttler.submit(1120));
+        assertEquals(EventThrottler.SCHEDULED, _throttler.submit(1249));
+    }
+
+    @Test
+    public void changeAfterQuietIntervalIsEmittedRightAway()
+    {
+        _throttler.submit(1000);
+
+        assertEquals(EventThrottler.EMIT_NOW, _throttler.submit(1250));
+    }
+
+    @Test
+    public void trailingEdgeStartsNewInterval()
+    {
+        _throttler.submit(1000);
+        _throttler.submit(1100);
+        _throttler.trailingEdge(1250);
+
+        assertEquals(200, _throttler.submit(1300));
+    }
+
+    @Test
+    public void stormIsEmittedOncePerInterval()
+    {
+        int emissions = 0;
+        long trailingEdgeMillis = Long.MAX_VALUE;
+
+        // A playback state every 5 ms for 2 s, as while scrubbing
+        for (long now = 0; now < 2000; now += 5) {
+            if (now >= trailingEdgeMillis) {
+                _throttler.trailingEdge(trailingEdgeMillis);
+                trailingEdgeMillis = Long.MAX_VALUE;
+                emissions += 1;
+            }
+
+            long delay = _throttler.submit(now);
+
+            if (delay == EventThrottler.EMIT_NOW) {
+                emissions += 1;
+            }
+            else if (delay > 0) {
+                trailingEdgeMillis = now + delay;
+            }
+        }
+
+        // The leading edge, then a trailing edge every 250 ms, the last one still scheduled
+        assertEquals(8, emissions);
+        assertEquals(2000, trailingEdgeMillis);
+    }
+
+    @Test
+    public void resetEmitsNextChangeRightAway()
+    {
+        _throttler.submit(1000);
+        _throttler.submit(1100);
+        _throttler.reset();
+
+        assertEquals(EventThrottler.EMIT_NOW, _throttler.submit(1120));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HistogramTest
+{
+    @Test
+    public void bucketsCoverTheWholeRange()
+    {
+        long previousUpperBound = -1;
+
+        for (long value : new long[] { 0, 1, 15, 16, 17, 100, 1000, 123456789, Long.MAX_VALUE }) {
+            int index = Histogram.bucketIndex(value);
+            long upperBound = Histogram.bucketUpperBound(index);
+
+            assertTrue(value + " <= " + upperBound, value <= upperBound);
+            assertTrue(value + " > previous bucket", index == 0 || value > Histogram.bucketUpperBound(index - 1));
+            assertTrue(upperBound >= previousUpperBound);
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision()
+    {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10000; ++value) {
+            histogram.record(value * 1000);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot(false);
+
+        assertEquals(10000, snapshot.count);
+        assertEquals(10_000_000, snapshot.max);
+        assertWithin(5_000_000, snapshot.percentile(50));
+        assertWithin(9_500_000, snapshot.percentile(95));
+        assertWithin(9_900_000, snapshot.percentile(99));
+        assertEquals(10_000_000, snapshot.percentile(100));
+    }
+
+    @Test
+    public void emptySnapshot()
+    {
+        Histogram.Snapshot snapshot = new Histogram().snapshot(false);
+
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.percentile(99));
+    }
+
+    @Test
+    public void resetStartsOver()
+    {
+        Histogram histogram = new Histogram();
+        histogram.record(42);
+
+        assertEquals(1, histogram.snapshot(true).count);
+
+        Histogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.max);
+        assertEquals(0, snapshot.percentile(50));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException
+    {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; ++t) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; ++i) {
+                    histogram.record(i + offset);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(400_000, snapshot.count);
+        assertEquals(100_002, snapshot.max);
+    }
+
+    private static void assertWithin(long expected, long actual)
+    {
+        assertTrue(actual + " too far from " + expected,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class IconPackIndexTest
+{
+    private final IconPackIndex _index = new IconPackIndex("com.example.iconpack", 12);
+
+    @Test
+    public void findsDrawableByComponent()
+    {
+        _index.add("ComponentInfo{com.netflix.ninja/com.netflix.ninja.MainActivity}", "netflix");
+        _index.add("ComponentInfo{com.google.android.youtube.tv/com.google.android.apps.youtube.tv.activity.ShellActivity}",
+                "youtube");
+
+        assertEquals("netflix", _index.find("com.netflix.ninja", "com.netflix.ninja.MainActivity"));
+        assertEquals("youtube", _index.find("com.google.android.youtube.tv",
+                "com.google.android.apps.youtube.tv.activity.ShellActivity"));
+        assertNull(_index.find("com.example.other", "com.example.other.MainActivity"));
+    }
+
+    @Test
+    public void relativeClassNamesAreExpanded()
+    {
+        _index.add("ComponentInfo{com.netflix.ninja/.MainActivity}", "netflix");
+
+        assertEquals("netflix", _index.find("com.netflix.ninja", "com.netflix.ninja.MainActivity"));
+        assertEquals("netflix", _index.find("com.netflix.ninja", ".MainActivity"));
+    }
+
+    @Test
+    public void unknownActivityFallsBackToItsPackage()
+    {
+        _index.add("ComponentInfo{com.netflix.ninja/com.netflix.ninja.OldActivity}", "netflix");
+        _index.add("ComponentInfo{com.netflix.ninja/com.netflix.ninja.OtherActivity}", "netflix_alt");
+
+        assertEquals("netflix", _index.find("com.netflix.ninja", "com.netflix.ninja.MainActivity"));
+    }
+
+    @Test
+    public void firstItemOfComponentWins()
+    {
+        _index.add("ComponentInfo{com.netflix.ninja/.MainActivity}", "netflix");
+        _index.add("ComponentInfo{com.netflix.ninja/com.netflix.ninja.MainActivity}", "netflix_alt");
+
+        assertEquals("netflix", _index.find("com.netflix.ninja", ".MainActivity"));
+        assertEquals(1, _index.size());
+    }
+
+    @Test
+    public void malformedItemsAreIgnored()
+    {
+        assertFalse(_index.add("ComponentInfo{com.netflix.ninja}", "netflix"));
+        assertFalse(_index.add("ComponentInfo{/.MainActivity}", "netflix"));
+        assertFalse(_index.add(":CALENDAR", "calendar"));
+        assertFalse(_index.add("ComponentInfo{com.netflix.ninja/.MainActivity}", ""));
+        assertFalse(_index.add(null, "netflix"));
+        assertEquals(0, _index.size());
+    }
+
+    @Test
+    public void roundTripKeepsPackVersion() throws IOException
+    {
+        _index.add("ComponentInfo{com.netflix.ninja/.MainActivity}", "netflix");
+        _index.add("ComponentInfo{com.plexapp.android/com.plexapp.plex.activities.SplashActivity}", "plex");
+
+        IconPackIndex read = IconPackIndex.read(new DataInputStream(new ByteArrayInputStream(write(_index))));
+
+        assertTrue(read.isIndexOf("com.example.iconpack", 12));
+        assertFalse(read.isIndexOf("com.example.iconpack", 13));
+        assertEquals(2, read.size());
+        assertEquals("plex", read.find("com.plexapp.android", "com.plexapp.plex.activities.SplashActivity"));
+        assertEquals("netflix", read.find("com.netflix.ninja", "com.netflix.ninja.Unknown"));
+    }
+
+    @Test
+    public void roundTripKeepsPackageFallbacks() throws IOException
+    {
+        for (int i = 0; i < 50; ++i) {
+            _index.add("ComponentInfo{com.example.app" + i + "/.ZActivity}", "first" + i);
+            _index.add("ComponentInfo{com.example.app" + i + "/.AActivity}", "second" + i);
+        }
+
+        IconPackIndex read = IconPackIndex.read(new DataInputStream(new ByteArrayInputStream(write(_index))));
+
+        for (int i = 0; i < 50; ++i) {
+            assertEquals("first" + i, read.find("com.example.app" + i, ".Unknown"));
+        }
+    }
+
+    @Test
+    public void indexWithoutPackageFallbacksIsOutdated() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(1);
+        output.writeUTF("com.example.iconpack");
+        output.writeLong(12);
+        output.writeInt(1);
+        output.writeUTF("com.netflix.ninja/com.netflix.ninja.MainActivity");
+        output.writeUTF("netflix");
+
+        IconPackIndex read = IconPackIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertFalse(read.isIndexOf("com.example.iconpack", 12));
+        assertEquals("netflix", read.find("com.netflix.ninja", ".MainActivity"));
+    }
+
+    @Test
+    public void unsupportedVersionIsRejected() throws IOException
+    {
+        byte[] bytes = write(_index);
+        bytes[3] = 42;
+
+        assertThrows(IOException.class,
+                () -> IconPackIndex.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    private static byte[] write(IconPackIndex index) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.geert.flauncher.core.ImageRequestScheduler.Priority;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+public class ImageRequestSchedulerTest
+{
+    private long _nanos;
+    private final ImageRequestScheduler _scheduler = new ImageRequestScheduler(1, () -> _nanos);
+
+    @Test
+    public void higherPrioritiesRunFirst()
+    {
+        _scheduler.submit(1, Priority.SPECULATIVE, () -> {});
+        _scheduler.submit(2, Priority.VISIBLE, () -> {});
+        _scheduler.submit(3, Priority.FOCUSED, () -> {});
+        _scheduler.submit(4, Priority.VISIBLE, () -> {});
+
+        assertEquals(3, _scheduler.poll().id);
+        assertEquals(2, _scheduler.poll().id);
+        assertEquals(4, _scheduler.poll().id);
+        assertEquals(1, _scheduler.poll().id);
+    }
+
+    @Test
+    public void speculativeTasksAreCapped()
+    {
+        _scheduler.submit(1, Priority.SPECULATIVE, () -> {});
+        _scheduler.submit(2, Priority.SPECULATIVE, () -> {});
+
+        ImageRequestScheduler.Task first = _scheduler.poll();
+        assertEquals(1, first.id);
+        assertNull(_scheduler.poll());
+
+        _scheduler.submit(3, Priority.VISIBLE, () -> {});
+        assertEquals(3, _scheduler.poll().id);
+
+        first.run();
+        assertEquals(2, _scheduler.poll().id);
+    }
+
+    @Test
+    public void focusedTaskOvertakesQueuedBacklog()
+    {
+        for (int id = 1; id <= 500; id++) {
+            _scheduler.submit(id, id % 2 == 0 ? Priority.VISIBLE : Priority.SPECULATIVE, () -> {});
+        }
+        _scheduler.poll();
+        _scheduler.submit(1000, Priority.FOCUSED, () -> {});
+
+        assertEquals(1000, _scheduler.poll().id);
+    }
+
+    @Test
+    public void waitingTaskMovesWithFocus()
+    {
+        _scheduler.submit(1, Priority.VISIBLE, () -> {});
+        _scheduler.submit(2, Priority.VISIBLE, () -> {});
+        _scheduler.submit(3, Priority.SPECULATIVE, () -> {});
+
+        _scheduler.setPriority(3, Priority.FOCUSED);
+        _scheduler.setPriority(1, Priority.SPECULATIVE);
+
+        assertEquals(3, _scheduler.poll().id);
+        assertEquals(2, _scheduler.poll().id);
+        assertEquals(1, _scheduler.poll().id);
+    }
+
+    @Test
+    public void promotedRunningTaskFreesSpeculativeSlot()
+    {
+        _scheduler.submit(1, Priority.SPECULATIVE, () -> {});
+        _scheduler.submit(2, Priority.SPECULATIVE, () -> {});
+        ImageRequestScheduler.Task running = _scheduler.poll();
+
+        _scheduler.setPriority(1, Priority.FOCUSED);
+        assertEquals(2, _scheduler.poll().id);
+
+        running.run();
+        _scheduler.submit(3, Priority.SPECULATIVE, () -> {});
+        assertNull(_scheduler.poll());
+    }
+
+    @Test
+    public void queueWaitIsRecordedByPriority()
+    {
+        _scheduler.submit(1, Priority.FOCUSED, () -> {});
+        _scheduler.submit(ImageRequestTracker.NO_ID, Priority.VISIBLE, () -> {});
+        _nanos = 2_000_000;
+        _scheduler.poll();
+        _scheduler.poll();
+
+        Map<String, Map<String, Object>> waits = _scheduler.queueWaitSnapshot(false);
+        assertEquals(1L, waits.get("focused").get("count"));
+        assertEquals(1L, waits.get("visible").get("count"));
+        assertEquals(0, _scheduler.queuedCount());
+    }
+}
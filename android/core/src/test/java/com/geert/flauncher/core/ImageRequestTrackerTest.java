@@ -0,0 +1,128 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+public class ImageRequestTrackerTest
+{
+    private final ImageRequestTracker _tracker = new ImageRequestTracker();
+
+    @Test
+    public void completedRequestsAreCounted()
+    {
+        ImageRequestTracker.Request request = _tracker.begin(1);
+        request.checkpoint(ImageRequestTracker.Stage.QUEUED);
+        request.checkpoint(ImageRequestTracker.Stage.LOADED);
+        _tracker.complete(request);
+
+        Map<String, Object> snapshot = _tracker.snapshot(false);
+        assertEquals(1L, snapshot.get("completed"));
+        assertEquals(0L, snapshot.get("cancelled"));
+        assertEquals(0, snapshot.get("pending"));
+    }
+
+    @Test
+    public void cancelledRequestStopsAtNextCheckpoint()
+    {
+        ImageRequestTracker.Request request = _tracker.begin(1);
+        request.checkpoint(ImageRequestTracker.Stage.QUEUED);
+
+        assertEquals(1, _tracker.cancel(List.of(1)));
+        assertTrue(request.isCancelled());
+        assertThrows(CancellationException.class, () -> request.checkpoint(ImageRequestTracker.Stage.LOADED));
+
+        Map<String, Object> snapshot = _tracker.snapshot(false);
+        assertEquals(0L, snapshot.get("completed"));
+        assertEquals(1L, snapshot.get("cancelled"));
+        assertEquals(0L, snapshot.get("cancelledQueued"));
+        assertEquals(1L, snapshot.get("cancelledLoaded"));
+        assertEquals(0, snapshot.get("pending"));
+    }
+
+    @Test
+    public void unknownAndCompletedIdsAreIgnored()
+    {
+        ImageRequestTracker.Request request = _tracker.begin(1);
+        _tracker.complete(request);
+
+        assertEquals(0, _tracker.cancel(List.of(1, 2L)));
+        assertFalse(request.isCancelled());
+    }
+
+    @Test
+    public void requestsWithoutIdCannotBeCancelled()
+    {
+        ImageRequestTracker.Request request = _tracker.begin(ImageRequestTracker.NO_ID);
+
+        assertEquals(0, _tracker.pendingCount());
+        assertEquals(0, _tracker.cancel(List.of(ImageRequestTracker.NO_ID)));
+        request.checkpoint(ImageRequestTracker.Stage.RASTERIZED);
+    }
+
+    @Test
+    public void reusedIdOnlyCancelsLatestRequest()
+    {
+        ImageRequestTracker.Request banner = _tracker.begin(7);
+        _tracker.complete(banner);
+        ImageRequestTracker.Request icon = _tracker.begin(7);
+
+        _tracker.cancel(List.of(7));
+
+        assertFalse(banner.isCancelled());
+        assertTrue(icon.isCancelled());
+    }
+
+    @Test
+    public void failedRequestsAreNoLongerPending()
+    {
+        _tracker.fail(_tracker.begin(3));
+
+        Map<String, Object> snapshot = _tracker.snapshot(false);
+        assertEquals(1L, snapshot.get("failed"));
+        assertEquals(0L, snapshot.get("completed"));
+        assertEquals(0, snapshot.get("pending"));
+    }
+
+    @Test
+    public void snapshotResets()
+    {
+        ImageRequestTracker.Request request = _tracker.begin(1);
+        _tracker.cancel(List.of(1));
+        assertThrows(CancellationException.class, () -> request.checkpoint(ImageRequestTracker.Stage.QUEUED));
+        _tracker.complete(_tracker.begin(2));
+
+        Map<String, Object> snapshot = _tracker.snapshot(true);
+        assertEquals(1L, snapshot.get("completed"));
+        assertEquals(1L, snapshot.get("cancelledQueued"));
+
+        snapshot = _tracker.snapshot(false);
+        assertEquals(0L, snapshot.get("completed"));
+        assertEquals(0L, snapshot.get("cancelled"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyRepeatCoalescerTest
+{
+    private static final int DPAD_RIGHT = 22;
+    private static final int DPAD_DOWN = 20;
+    // Remote repeat rate, 25 Hz
+    private static final long REPEAT_MILLIS = 40;
+
+    private KeyRepeatCoalescer _coalescer;
+
+    @Before
+    public void setUp()
+    {
+        // 60 Hz display: repeats every 6 frames (100 ms), down to every 3 frames (50 ms)
+        _coalescer = new KeyRepeatCoalescer(6, 3, 500);
+        _coalescer.setRefreshRate(60);
+    }
+
+    /**
+     * Holds the key for the given number of repeats, each dispatched with the given lag.
+     *
+     * @return the number of delivered events, the initial press included
+     */
+    private int hold(int keyCode, long downTimeMillis, int repeats, long lagMillis)
+    {
+        int delivered = _coalescer.keyDown(keyCode, 0, downTimeMillis, downTimeMillis) ? 1 : 0;
+
+        for (int repeat = 1; repeat <= repeats; ++repeat) {
+            long eventTimeMillis = downTimeMillis + repeat * REPEAT_MILLIS;
+
+            if (_coalescer.keyDown(keyCode, repeat, eventTimeMillis, eventTimeMillis + lagMillis)) {
+                delivered += 1;
+            }
+        }
+        return delivered;
+    }
+
+    @Test
+    public void singlePressesAreAlwaysDelivered()
+    {
+        for (int press = 0; press < 10; ++press) {
+            assertTrue(_coalescer.keyDown(DPAD_RIGHT, 0, press * 10L, press * 10L));
+            _coalescer.keyUp(DPAD_RIGHT);
+        }
+    }
+
+    @Test
+    public void repeatsArePacedOnFrames()
+    {
+        // Half a second of repeats: 12 repeats at 25 Hz, one delivered every 120 ms
+        assertEquals(5, hold(DPAD_RIGHT, 0, 12, 0));
+    }
+
+    @Test
+    public void holdingTheKeyAccelerates()
+    {
+        // Three seconds of repeats, 26 events without acceleration
+        assertEquals(34, hold(DPAD_RIGHT, 0, 75, 0));
+    }
+
+    @Test
+    public void lateRepeatsAreDropped()
+    {
+        assertEquals(1, hold(DPAD_RIGHT, 0, 12, 100));
+    }
+
+    @Test
+    public void repeatsAfterTheReleaseAreDropped()
+    {
+        hold(DPAD_RIGHT, 0, 3, 0);
+        _coalescer.keyUp(DPAD_RIGHT);
+
+        assertFalse(_coalescer.keyDown(DPAD_RIGHT, 4, 1000, 1000));
+    }
+
+    @Test
+    public void pressingAnotherKeyStopsTheRepeats()
+    {
+        hold(DPAD_RIGHT, 0, 3, 0);
+
+        assertTrue(_coalescer.keyDown(DPAD_DOWN, 0, 200, 200));
+        assertFalse(_coalescer.keyDown(DPAD_RIGHT, 5, 240, 240));
+        // Releasing the previous key doesn't release the held one
+        _coalescer.keyUp(DPAD_RIGHT);
+        assertTrue(_coalescer.keyDown(DPAD_DOWN, 3, 320, 320));
+    }
+}
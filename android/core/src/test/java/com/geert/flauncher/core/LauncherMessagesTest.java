@@ -0,0 +1,42 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LauncherMessagesTest
+{
+    @Test
+    public void mapsPlaybackActions()
+    {
+        // PlaybackState.ACTION_PAUSE | ACTION_PLAY | ACTION_SKIP_TO_NEXT | ACTION_SEEK_TO | ACTION_STOP
+        long playbackActions = 2L | 4L | 32L | 256L | 1L;
+
+        assertEquals(LauncherMessages.MediaSession.ACTION_PLAY
+                        | LauncherMessages.MediaSession.ACTION_PAUSE
+                        | LauncherMessages.MediaSession.ACTION_SKIP_TO_NEXT
+                        | LauncherMessages.MediaSession.ACTION_SEEK_TO,
+                LauncherMessages.MediaSession.availableActions(playbackActions));
+        assertEquals(LauncherMessages.MediaSession.ACTION_SKIP_TO_PREVIOUS,
+                LauncherMessages.MediaSession.availableActions(16L));
+        assertEquals(0, LauncherMessages.MediaSession.availableActions(0L));
+    }
+}
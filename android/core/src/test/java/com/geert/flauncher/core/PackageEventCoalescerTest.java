@@ -0,0 +1,88 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class PackageEventCoalescerTest
+{
+    private final PackageEventCoalescer _coalescer = new PackageEventCoalescer();
+
+    @Test
+    public void onlyTheFirstEventSchedulesADrain()
+    {
+        assertTrue(_coalescer.packageUpdated("a"));
+        assertFalse(_coalescer.packageUpdated("b"));
+        assertFalse(_coalescer.packageRemoved("c"));
+
+        _coalescer.drain();
+
+        assertTrue(_coalescer.isEmpty());
+        assertTrue(_coalescer.packageRemoved("a"));
+    }
+
+    @Test
+    public void repeatedUpdatesAreSentOnce()
+    {
+        _coalescer.packageUpdated("a");
+        _coalescer.packageUpdated("b");
+        _coalescer.packageUpdated("a");
+
+        PackageEventCoalescer.Batch batch = _coalescer.drain();
+
+        assertEquals(List.of("b", "a"), batch.updatedPackageNames);
+        assertTrue(batch.removedPackageNames.isEmpty());
+    }
+
+    @Test
+    public void removalDropsEarlierUpdates()
+    {
+        _coalescer.packageUpdated("a");
+        _coalescer.packageRemoved("a");
+
+        PackageEventCoalescer.Batch batch = _coalescer.drain();
+
+        assertTrue(batch.updatedPackageNames.isEmpty());
+        assertEquals(List.of("a"), batch.removedPackageNames);
+    }
+
+    @Test
+    public void updateAfterRemovalResolvesThePackageAgain()
+    {
+        _coalescer.packageRemoved("a");
+        _coalescer.packageUpdated("a");
+
+        PackageEventCoalescer.Batch batch = _coalescer.drain();
+
+        assertEquals(List.of("a"), batch.updatedPackageNames);
+        assertTrue(batch.removedPackageNames.isEmpty());
+    }
+
+    @Test
+    public void drainingNothingGivesAnEmptyBatch()
+    {
+        assertTrue(_coalescer.drain().isEmpty());
+    }
+}
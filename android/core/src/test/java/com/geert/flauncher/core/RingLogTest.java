@@ -0,0 +1,117 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class RingLogTest
+{
+    @Test
+    public void disabledByDefault()
+    {
+        RingLog log = new RingLog(4, () -> 0);
+
+        log.log(RingLog.ERROR, "Tag", "dropped");
+
+        assertFalse(log.isLoggable(RingLog.ERROR));
+        assertTrue(log.dump().isEmpty());
+    }
+
+    @Test
+    public void filtersLevelsBelowTheThreshold()
+    {
+        RingLog log = new RingLog(4, () -> 0);
+        log.setLevel(RingLog.INFO);
+
+        log.log(RingLog.DEBUG, "Tag", "debug");
+        log.log(RingLog.WARN, "Tag", "warn {}", 1);
+
+        List<String> lines = log.dump();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0), lines.get(0).endsWith(" W/Tag: warn 1"));
+    }
+
+    @Test
+    public void keepsTheLastEntriesOldestFirst()
+    {
+        RingLog log = new RingLog(3, () -> 0);
+        log.setLevel(RingLog.VERBOSE);
+
+        for (int i = 0; i < 5; ++i) {
+            log.log(RingLog.DEBUG, "Tag", "entry {}", i);
+        }
+
+        List<String> lines = log.dump();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).endsWith("entry 2"));
+        assertTrue(lines.get(2).endsWith("entry 4"));
+    }
+
+    @Test
+    public void formatsArgumentsLazily()
+    {
+        RingLog log = new RingLog(2, () -> 0);
+        log.setLevel(RingLog.DEBUG);
+        StringBuilder argument = new StringBuilder("before");
+
+        log.log(RingLog.DEBUG, "Tag", "{} and {}", argument, null);
+        argument.setLength(0);
+        argument.append("after");
+
+        assertTrue(log.dump().get(0).endsWith("Tag: after and null"));
+    }
+
+    @Test
+    public void surplusPlaceholdersAreNull()
+    {
+        RingLog log = new RingLog(2, () -> 0);
+        log.setLevel(RingLog.DEBUG);
+
+        log.log(RingLog.DEBUG, "Tag", "{} {} {} {} {}", 1);
+        log.log(RingLog.DEBUG, "Tag", "{} {} {}", "next", "entry", "arguments");
+
+        assertTrue(log.dump().get(0), log.dump().get(0).endsWith("Tag: 1 null null null null"));
+    }
+
+    @Test
+    public void clearDropsEntries()
+    {
+        RingLog log = new RingLog(2, () -> 0);
+        log.setLevel(RingLog.DEBUG);
+        log.log(RingLog.DEBUG, "Tag", "entry");
+
+        log.clear();
+
+        assertTrue(log.dump().isEmpty());
+    }
+
+    @Test
+    public void format()
+    {
+        assertEquals("a=1, b=two, c=null", RingLog.format("a={}, b={}, c={}", 1, "two"));
+        assertEquals("no placeholders", RingLog.format("no placeholders", 1));
+        assertEquals("x=null", RingLog.format("x={}"));
+    }
+}
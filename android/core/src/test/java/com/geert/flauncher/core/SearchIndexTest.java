@@ -0,0 +1,116 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class SearchIndexTest
+{
+    private static SearchIndex index()
+    {
+        SearchIndex index = new SearchIndex();
+        index.put("com.google.android.youtube.tv", "YouTube");
+        index.put("com.google.android.youtube.tvkids", "YouTube Kids");
+        index.put("com.netflix.ninja", "Netflix");
+        index.put("org.videolan.vlc", "VLC");
+        index.put("fr.example.tele", "Télé à la demande");
+        return index;
+    }
+
+    @Test
+    public void matchesWordPrefixes()
+    {
+        SearchIndex index = index();
+
+        assertEquals(List.of("com.google.android.youtube.tv", "com.google.android.youtube.tvkids"),
+                index.search("you", 10));
+        assertEquals(List.of("com.google.android.youtube.tvkids"), index.search("ki", 10));
+        assertTrue(index.search("tube", 10).isEmpty());
+    }
+
+    @Test
+    public void foldsCaseAndAccents()
+    {
+        SearchIndex index = index();
+
+        assertEquals(List.of("fr.example.tele"), index.search("TELE", 10));
+        assertEquals(List.of("fr.example.tele"), index.search("demande a", 10));
+        assertEquals(List.of("fr.example.tele"), index.search("télé", 10));
+    }
+
+    @Test
+    public void requiresEveryTerm()
+    {
+        SearchIndex index = index();
+
+        assertEquals(List.of("com.google.android.youtube.tvkids"), index.search("youtube kids", 10));
+        assertTrue(index.search("youtube netflix", 10).isEmpty());
+    }
+
+    @Test
+    public void ranksLabelStartBeforeOtherWordsAndPackageNames()
+    {
+        SearchIndex index = new SearchIndex();
+        index.put("com.example.kidsmode", "Parental Control");
+        index.put("com.example.games", "Games for Kids");
+        index.put("com.example.kidstv", "Kids TV");
+
+        assertEquals(List.of("com.example.kidstv", "com.example.games", "com.example.kidsmode"),
+                index.search("kids", 10));
+        assertEquals(List.of("com.example.kidstv"), index.search("kids", 1));
+    }
+
+    @Test
+    public void ignoresThePackageDomainSuffix()
+    {
+        SearchIndex index = index();
+
+        assertTrue(index.search("com", 10).isEmpty());
+        assertTrue(index.search("org", 10).isEmpty());
+        assertEquals(List.of("org.videolan.vlc"), index.search("videolan", 10));
+    }
+
+    @Test
+    public void updatesIncrementally()
+    {
+        SearchIndex index = index();
+
+        index.put("com.netflix.ninja", "Flix");
+        assertTrue(index.search("netf", 10).contains("com.netflix.ninja"));
+        assertEquals(List.of("com.netflix.ninja"), index.search("fli", 10));
+
+        index.remove("com.netflix.ninja");
+        assertTrue(index.search("netflix", 10).isEmpty());
+        assertTrue(index.search("fli", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void emptyQueryMatchesNothing()
+    {
+        assertTrue(index().search("", 10).isEmpty());
+        assertTrue(index().search(" - ", 10).isEmpty());
+        assertTrue(index().search("you", 0).isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SignalLevelsTest
+{
+    @Test
+    public void clampsOutOfRangeValues()
+    {
+        assertEquals(0, SignalLevels.calculateSignalLevel(-120, 4));
+        assertEquals(0, SignalLevels.calculateSignalLevel(-90, 4));
+        assertEquals(3, SignalLevels.calculateSignalLevel(-55, 4));
+        assertEquals(3, SignalLevels.calculateSignalLevel(-20, 4));
+    }
+
+    @Test
+    public void scalesLinearlyInRange()
+    {
+        assertEquals(0, SignalLevels.calculateSignalLevel(-79, 4));
+        assertEquals(1, SignalLevels.calculateSignalLevel(-78, 4));
+        assertEquals(1, SignalLevels.calculateSignalLevel(-67, 4));
+        assertEquals(2, SignalLevels.calculateSignalLevel(-66, 4));
+        assertEquals(2, SignalLevels.calculateSignalLevel(-56, 4));
+    }
+
+    @Test
+    public void invalidWifiRssiIsAnUnknownLevel()
+    {
+        assertEquals(SignalLevels.UNKNOWN_LEVEL, SignalLevels.wifiSignalLevel(SignalLevels.INVALID_RSSI));
+        assertEquals(0, SignalLevels.wifiSignalLevel(-100));
+        assertEquals(3, SignalLevels.wifiSignalLevel(-50));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class StartupTimelineTest
+{
+    @Test
+    public void recordsPhasesRelativeToTheOrigin()
+    {
+        StartupTimeline timeline = new StartupTimeline();
+
+        int onCreate = timeline.begin("onCreate", 1_100_000);
+        assertTrue(timeline.mark("firstFrame", 1_500_000));
+        timeline.begin("getApplications", 2_000_000);
+        timeline.end(onCreate, 1_300_000);
+
+        List<Map<String, Object>> phases = timeline.snapshot(1_000_000);
+
+        assertEquals(3, phases.size());
+        assertEquals(Map.of("phase", "onCreate", "startMicros", 100L, "durationMicros", 200L), phases.get(0));
+        assertEquals(500L, phases.get(1).get("startMicros"));
+        assertEquals(0L, phases.get(1).get("durationMicros"));
+        assertNull(phases.get(2).get("durationMicros"));
+    }
+
+    @Test
+    public void onlyTheFirstOccurrenceIsRecorded()
+    {
+        StartupTimeline timeline = new StartupTimeline();
+
+        int first = timeline.begin("firstImageRequest", 10_000);
+        assertEquals(StartupTimeline.NO_SLOT, timeline.begin("firstImageRequest", 20_000));
+        assertFalse(timeline.mark("firstImageRequest", 30_000));
+        timeline.end(first, 15_000);
+        timeline.end(first, 50_000);
+        timeline.end(StartupTimeline.NO_SLOT, 50_000);
+
+        List<Map<String, Object>> phases = timeline.snapshot(0);
+        assertEquals(1, phases.size());
+        assertEquals(5L, phases.get(0).get("durationMicros"));
+    }
+
+    @Test
+    public void ignoresPhasesPastCapacity()
+    {
+        StartupTimeline timeline = new StartupTimeline();
+
+        for (int i = 0; i < StartupTimeline.CAPACITY + 5; ++i) {
+            timeline.mark("phase" + i, i);
+        }
+
+        assertEquals(StartupTimeline.CAPACITY, timeline.snapshot(0).size());
+        assertEquals(StartupTimeline.NO_SLOT, timeline.begin("late", 0));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class StorageStatsCacheTest
+{
+    private static final long REFRESH_MILLIS = 60_000;
+
+    private final StorageStatsCache _cache = new StorageStatsCache(REFRESH_MILLIS);
+
+    @Test
+    public void statsAreKeyedByLastUpdateTime()
+    {
+        StorageStatsCache.Stats stats = stats("com.example.app", 1000, 0);
+        _cache.put(stats);
+
+        assertSame(stats, _cache.get("com.example.app", 1000));
+        assertNull(_cache.get("com.example.app", 2000));
+        assertNull(_cache.get("com.example.other", 1000));
+    }
+
+    @Test
+    public void updateReplacesStats()
+    {
+        _cache.put(stats("com.example.app", 1000, 0));
+        StorageStatsCache.Stats updated = stats("com.example.app", 2000, 10);
+        _cache.put(updated);
+
+        assertSame(updated, _cache.get("com.example.app", 2000));
+        assertNull(_cache.get("com.example.app", 1000));
+        assertEquals(1, _cache.size());
+    }
+
+    @Test
+    public void statsBecomeStaleAfterRefreshInterval()
+    {
+        StorageStatsCache.Stats stats = stats("com.example.app", 1000, 5000);
+
+        assertFalse(_cache.isStale(stats, 5000 + REFRESH_MILLIS - 1));
+        assertTrue(_cache.isStale(stats, 5000 + REFRESH_MILLIS));
+    }
+
+    @Test
+    public void refreshIsComputedOnce()
+    {
+        assertTrue(_cache.beginRefresh("com.example.app"));
+        assertFalse(_cache.beginRefresh("com.example.app"));
+
+        _cache.put(stats("com.example.app", 1000, 0));
+
+        assertTrue(_cache.beginRefresh("com.example.app"));
+        _cache.endRefresh("com.example.app");
+        assertTrue(_cache.beginRefresh("com.example.app"));
+    }
+
+    @Test
+    public void toMap()
+    {
+        Map<String, Object> map = new StorageStatsCache.Stats("com.example.app", 1000, 30, 20, 5, 0).toMap();
+
+        assertEquals(Map.of("packageName", "com.example.app", "appBytes", 30L, "dataBytes", 20L, "cacheBytes", 5L),
+                map);
+    }
+
+    private static StorageStatsCache.Stats stats(String packageName, long lastUpdateTime, long computedMillis)
+    {
+        return new StorageStatsCache.Stats(packageName, lastUpdateTime, 100, 50, 10, computedMillis);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class UsageAggregatorTest
+{
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final String LAUNCHER = "com.geert.flauncher";
+
+    private static List<Object> packageNames(List<Map<String, Object>> ranking)
+    {
+        return ranking.stream().map(usage -> usage.get("packageName")).toList();
+    }
+
+    @Test
+    public void countsLaunchesNotActivityChanges()
+    {
+        UsageAggregator aggregator = new UsageAggregator(7 * DAY, LAUNCHER);
+
+        aggregator.recordForeground("a", 1);
+        aggregator.recordForeground("a", 2);
+        aggregator.recordForeground(LAUNCHER, 3);
+        aggregator.recordForeground("a", 4);
+
+        Map<String, Object> usage = aggregator.ranking(10, 4).get(0);
+        assertEquals(2, usage.get("launchCount"));
+        assertEquals(4L, usage.get("lastUsedMillis"));
+        assertEquals(1, aggregator.ranking(10, 4).size());
+    }
+
+    @Test
+    public void ignoresEventsNotNewerThanTheCheckpoint()
+    {
+        UsageAggregator aggregator = new UsageAggregator(7 * DAY, LAUNCHER);
+
+        assertTrue(aggregator.recordForeground("a", 10));
+        assertFalse(aggregator.recordForeground("b", 10));
+        assertFalse(aggregator.recordForeground("b", 5));
+
+        assertEquals(10, aggregator.getCheckpoint());
+        assertEquals(List.of("a"), packageNames(aggregator.ranking(10, 10)));
+    }
+
+    @Test
+    public void recentUsageOutweighsOldUsage()
+    {
+        UsageAggregator aggregator = new UsageAggregator(DAY, LAUNCHER);
+
+        // Three launches ten days ago against one yesterday
+        for (int i = 0; i < 3; ++i) {
+            aggregator.recordForeground("old", 2 * i + 1);
+            aggregator.recordForeground(LAUNCHER, 2 * i + 2);
+        }
+        aggregator.recordForeground("recent", 9 * DAY);
+
+        assertEquals(List.of("recent", "old"), packageNames(aggregator.ranking(10, 10 * DAY)));
+        assertEquals(List.of("recent"), packageNames(aggregator.ranking(1, 10 * DAY)));
+    }
+
+    @Test
+    public void frequentUsageOutweighsRecency()
+    {
+        UsageAggregator aggregator = new UsageAggregator(7 * DAY, LAUNCHER);
+
+        for (int i = 0; i < 5; ++i) {
+            aggregator.recordForeground("frequent", 2 * i + 1);
+            aggregator.recordForeground(LAUNCHER, 2 * i + 2);
+        }
+        aggregator.recordForeground("once", 100);
+
+        assertEquals(List.of("frequent", "once"), packageNames(aggregator.ranking(10, 200)));
+    }
+
+    @Test
+    public void evictsTheLowestScoreWhenFull()
+    {
+        UsageAggregator aggregator = new UsageAggregator(DAY, LAUNCHER);
+
+        aggregator.recordForeground("stale", 1);
+        for (int i = 0; i < UsageAggregator.MAX_PACKAGES; ++i) {
+            aggregator.recordForeground("package" + i, DAY + i);
+        }
+
+        List<Object> packageNames = packageNames(aggregator.ranking(Integer.MAX_VALUE, 2 * DAY));
+        assertEquals(UsageAggregator.MAX_PACKAGES, packageNames.size());
+        assertFalse(packageNames.contains("stale"));
+    }
+
+    @Test
+    public void roundTrips() throws IOException
+    {
+        UsageAggregator aggregator = new UsageAggregator(DAY, LAUNCHER);
+        aggregator.recordForeground("a", 1);
+        aggregator.recordForeground(LAUNCHER, 2);
+        aggregator.recordForeground("b", 3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        aggregator.write(new DataOutputStream(bytes));
+
+        UsageAggregator copy = new UsageAggregator(DAY, LAUNCHER);
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(3, copy.getCheckpoint());
+        assertEquals(aggregator.ranking(10, 5), copy.ranking(10, 5));
+        // "b" is still in the foreground, so the next event is the same launch
+        copy.recordForeground("b", 4);
+        assertEquals(1, copy.ranking(1, 5).get(0).get("launchCount"));
+    }
+}
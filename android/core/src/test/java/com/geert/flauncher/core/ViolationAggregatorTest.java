@@ -0,0 +1,91 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ViolationAggregatorTest
+{
+    private final ViolationAggregator _aggregator = new ViolationAggregator("com.geert.flauncher");
+
+    private static StackTraceElement[] stack(String... frames)
+    {
+        StackTraceElement[] stack = new StackTraceElement[frames.length];
+
+        for (int i = 0; i < frames.length; ++i) {
+            int separator = frames[i].lastIndexOf('.');
+            stack[i] = new StackTraceElement(frames[i].substring(0, separator), frames[i].substring(separator + 1),
+                    null, 10 + i);
+        }
+        return stack;
+    }
+
+    private static final StackTraceElement[] BANNER_STACK = stack(
+            "android.os.StrictMode$AndroidBlockGuardPolicy.onReadFromDisk",
+            "libcore.io.BlockGuardOs.open",
+            "com.geert.flauncher.MainActivity.loadBanner",
+            "com.geert.flauncher.MainActivity.getApplicationBanner",
+            "com.geert.flauncher.ChannelInstrumentation.lambda$instrument$0");
+
+    @Test
+    public void violationsAreCountedPerAttributionAndSignature()
+    {
+        _aggregator.record("getApplicationBanner", "DiskReadViolation", BANNER_STACK);
+        _aggregator.record("getApplicationBanner", "DiskReadViolation", BANNER_STACK);
+        _aggregator.record("getApplicationIcon", "DiskReadViolation", BANNER_STACK);
+
+        List<Map<String, Object>> violations = _aggregator.snapshot(false);
+
+        assertEquals(2, violations.size());
+        assertEquals("getApplicationBanner", violations.get(0).get("attribution"));
+        assertEquals("DiskReadViolation at MainActivity.loadBanner:12", violations.get(0).get("signature"));
+        assertEquals(2, violations.get(0).get("count"));
+        assertEquals(5, ((List<?>) violations.get(0).get("stack")).size());
+        assertEquals(1, violations.get(1).get("count"));
+    }
+
+    @Test
+    public void callersAreTheInnermostApplicationFrame()
+    {
+        assertEquals("MainActivity.loadBanner", _aggregator.callerOf(BANNER_STACK));
+        assertNull(_aggregator.callerOf(stack("android.os.Looper.loop")));
+    }
+
+    @Test
+    public void entriesAreCapped()
+    {
+        for (int i = 0; i < 100; ++i) {
+            _aggregator.record("method" + i, "DiskReadViolation", BANNER_STACK);
+        }
+
+        List<Map<String, Object>> violations = _aggregator.snapshot(true);
+
+        assertEquals(65, violations.size());
+        assertEquals(ViolationAggregator.OTHER, violations.get(0).get("attribution"));
+        assertEquals(36, violations.get(0).get("count"));
+        assertTrue(_aggregator.snapshot(false).isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.geert.flauncher.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class WatchNextCacheTest
+{
+    private static LauncherMessages.WatchNextProgram program(long id, long lastEngagement, long position)
+    {
+        return new LauncherMessages.WatchNextProgram(id, "com.example.player", "Program " + id, null, 0,
+                lastEngagement, 3_600_000, position, "intent:#Intent;end", null);
+    }
+
+    @Test
+    public void fullReloadsAreDiffed()
+    {
+        WatchNextCache cache = new WatchNextCache(100);
+        cache.replaceAll(List.of(program(1, 10, 0), program(2, 20, 0), program(3, 30, 0)));
+
+        WatchNextCache.Diff diff = cache.replaceAll(List.of(program(1, 10, 0), program(2, 40, 5000), program(4, 50, 0)));
+
+        assertEquals(List.of(program(4, 50, 0)), diff.added);
+        assertEquals(List.of(program(2, 40, 5000)), diff.updated);
+        assertEquals(List.of(3L), diff.removedIds);
+        assertTrue(cache.replaceAll(List.of(program(1, 10, 0), program(2, 40, 5000), program(4, 50, 0))).isEmpty());
+    }
+
+    @Test
+    public void singleProgramChanges()
+    {
+        WatchNextCache cache = new WatchNextCache(100);
+
+        assertEquals(List.of(program(1, 10, 0)), cache.update(List.of(program(1, 10, 0)), List.of()).added);
+        assertTrue(cache.update(List.of(program(1, 10, 0)), List.of()).isEmpty());
+
+        WatchNextCache.Diff diff = cache.update(List.of(program(1, 10, 1000), program(2, 20, 0)), List.of(3L));
+
+        assertEquals(List.of(program(2, 20, 0)), diff.added);
+        assertEquals(List.of(program(1, 10, 1000)), diff.updated);
+        assertTrue(diff.removedIds.isEmpty());
+        assertEquals(List.of(1L), cache.update(List.of(), List.of(1L)).removedIds);
+    }
+
+    @Test
+    public void snapshotIsMostRecentFirst()
+    {
+        WatchNextCache cache = new WatchNextCache(100);
+        cache.replaceAll(List.of(program(1, 10, 0), program(2, 30, 0), program(3, 20, 0)));
+
+        assertEquals(List.of(2L, 3L, 1L), cache.snapshot().stream().map(program -> program.id).toList());
+        assertEquals("Program 3", cache.get(3).title);
+    }
+
+    @Test
+    public void leastRecentlyEngagedProgramsAreTrimmed()
+    {
+        WatchNextCache cache = new WatchNextCache(2);
+        cache.replaceAll(List.of(program(1, 10, 0), program(2, 20, 0)));
+
+        WatchNextCache.Diff diff = cache.update(List.of(program(3, 30, 0)), List.of());
+
+        assertEquals(List.of(program(3, 30, 0)), diff.added);
+        assertEquals(List.of(1L), diff.removedIds);
+
+        // An older program than those kept is never sent
+        assertTrue(cache.update(List.of(program(4, 5, 0)), List.of()).isEmpty());
+        assertEquals(List.of(3L, 2L), cache.snapshot().stream().map(program -> program.id).toList());
+    }
+}
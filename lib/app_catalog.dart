@@ -0,0 +1,129 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'dart:convert';
+import 'dart:io';
+import 'dart:typed_data';
+
+import 'package:flauncher/flauncher_messages.dart';
+
+/// Reader for the binary application catalog written by the platform.
+/// The format is documented on file android/core/src/main/java/com/geert/flauncher/core/AppCatalog.java
+class AppCatalog {
+  static const int formatVersion = 1;
+
+  static const int _magic = 0x43414C46;
+  static const int _headerSize = 32;
+  static const int _blockHeaderSize = 8;
+  static const int _recordSize = 40;
+  static const int _noString = 0xFFFFFFFF;
+
+  static const int _flagSideloaded = 1;
+  static const int _flagRemoved = 1 << 1;
+  static const int _flagPlaceholder = 1 << 2;
+
+  /// Reads the catalog at [path], which the platform replaces whole, atomically. Only the data
+  /// length announced by the header is read.
+  static Future<List<SystemApplication>> read(String path) async {
+    RandomAccessFile file = await File(path).open();
+    try {
+      ByteData header = ByteData.sublistView(await file.read(_headerSize));
+      if (header.lengthInBytes < _headerSize ||
+          header.getUint32(0, Endian.little) != _magic) {
+        throw AppCatalogException("Not an application catalog");
+      }
+
+      int version = header.getUint16(4, Endian.little);
+      if (version != formatVersion) {
+        throw AppCatalogException("Unsupported catalog version $version");
+      }
+
+      int recordSize = header.getUint16(6, Endian.little);
+      int blockCount = header.getUint32(8, Endian.little);
+      int dataLength = header.getUint32(12, Endian.little);
+
+      Uint8List data = await file.read(dataLength);
+      if (data.lengthInBytes < dataLength || recordSize < _recordSize) {
+        throw AppCatalogException("Truncated application catalog");
+      }
+
+      return parse(data, blockCount, recordSize);
+    } finally {
+      await file.close();
+    }
+  }
+
+  /// Applies the catalog blocks in order: later records replace earlier ones for the same
+  /// package, and removal records drop them.
+  static List<SystemApplication> parse(
+      Uint8List data, int blockCount, int recordSize) {
+    ByteData view = ByteData.sublistView(data);
+    Map<String, SystemApplication> applications = {};
+
+    int blockStart = 0;
+    for (int block = 0; block < blockCount; ++block) {
+      int recordCount = view.getUint32(blockStart, Endian.little);
+      int stringTableLength = view.getUint32(blockStart + 4, Endian.little);
+      int recordsStart = blockStart + _blockHeaderSize;
+      int stringTableStart = recordsStart + recordCount * recordSize;
+
+      String? readString(int reference) {
+        int offset = view.getUint32(reference, Endian.little);
+        if (offset == _noString) {
+          return null;
+        }
+
+        int start = stringTableStart + offset;
+        int length = view.getUint32(reference + 4, Endian.little);
+        return utf8.decode(Uint8List.sublistView(data, start, start + length));
+      }
+
+      for (int i = 0; i < recordCount; ++i) {
+        int record = recordsStart + i * recordSize;
+        int flags = view.getUint32(record, Endian.little);
+        String packageName = readString(record + 4)!;
+
+        if (flags & _flagRemoved != 0) {
+          applications.remove(packageName);
+        } else {
+          applications[packageName] = SystemApplication(
+            name: readString(record + 12)!,
+            packageName: packageName,
+            version: readString(record + 20),
+            sideloaded: flags & _flagSideloaded != 0,
+            action: readString(record + 28),
+            placeholder: flags & _flagPlaceholder != 0,
+          );
+        }
+      }
+
+      blockStart = stringTableStart + stringTableLength;
+    }
+
+    return applications.values.toList(growable: false);
+  }
+}
+
+class AppCatalogException implements Exception {
+  final String message;
+
+  AppCatalogException(this.message);
+
+  @override
+  String toString() => "AppCatalogException: $message";
+}
@@ -18,34 +18,162 @@
 
 import 'dart:async';
 
+import 'package:flauncher/app_catalog.dart';
+import 'package:flauncher/flauncher_messages.dart';
+import 'package:flauncher/models/adaptive_icon_layers.dart';
+import 'package:flauncher/models/app_storage_stats.dart';
+import 'package:flauncher/models/media_session_info.dart';
 import 'package:flutter/services.dart';
 
+// Aligned with ImageRequestScheduler.Priority, on file android/core/.../ImageRequestScheduler.java
+/// Scheduling class of native image requests, [focused] ones running first.
+enum ImageRequestPriority { focused, visible, speculative }
+
 class FLauncherChannel {
-  static const _methodChannel = MethodChannel('com.geert.flauncher/method');
+  static const methodCodec = StandardMethodCodec(FLauncherMessageCodec());
+
+  static const _methodChannel =
+      MethodChannel('com.geert.flauncher/method', methodCodec);
   static const _appsEventChannel =
-      EventChannel('com.geert.flauncher/event_apps');
+      EventChannel('com.geert.flauncher/event_apps', methodCodec);
   static const _networkEventChannel =
-      EventChannel('com.geert.flauncher/event_network');
+      EventChannel('com.geert.flauncher/event_network', methodCodec);
   static const _mediaEventChannel =
-      EventChannel('com.geert.flauncher/event_media');
+      EventChannel('com.geert.flauncher/event_media', methodCodec);
+  static const _permissionsEventChannel =
+      EventChannel('com.geert.flauncher/event_permissions', methodCodec);
+  static const _watchNextEventChannel =
+      EventChannel('com.geert.flauncher/event_watch_next', methodCodec);
 
   void Function(bool)? _visibilityListener;
+  int _lastImageRequestId = 0;
+
+  /// Applications listed in [hiddenPackageNames] are only enumerated by identity: their name
+  /// is their package name and they have no version.
+  Future<List<SystemApplication>> getApplications(
+      {List<String> hiddenPackageNames = const []}) async {
+    String? catalogPath = await _methodChannel.invokeMethod(
+        "getApplicationCatalog", hiddenPackageNames);
+
+    if (catalogPath != null) {
+      try {
+        return await AppCatalog.read(catalogPath);
+      } on Exception {
+        // Fall back to receiving the applications through the channel
+      }
+    }
 
-  Future<List<Map<dynamic, dynamic>>> getApplications() async {
-    List<Map<dynamic, dynamic>>? applications =
-        await _methodChannel.invokeListMethod("getApplications");
+    List<SystemApplication>? applications =
+        await _methodChannel.invokeListMethod(
+            "getApplications", hiddenPackageNames);
     return applications!;
   }
 
-  Future<Uint8List> getApplicationBanner(String packageName) async {
-    Uint8List bytes =
-        await _methodChannel.invokeMethod("getApplicationBanner", packageName);
+  /// Most used applications, by launch count decayed over time, best first. Each entry has
+  /// "packageName", "score", "launchCount" and "lastUsedMillis". Empty without usage access.
+  Future<List<Map<String, dynamic>>> getUsageRanking({int limit = 10}) async {
+    List<Map<dynamic, dynamic>>? ranking =
+        await _methodChannel.invokeListMethod("getUsageRanking", limit);
+    return ranking!.map((usage) => usage.cast<String, dynamic>()).toList();
+  }
+
+  /// Package names of the applications whose label or package name has words starting with
+  /// every term of [query], accents and case ignored, best matches first.
+  Future<List<String>> searchApplications(String query, {int limit = 20}) async {
+    List<String>? packageNames = await _methodChannel.invokeListMethod(
+        "searchApplications", {"query": query, "limit": limit});
+    return packageNames!;
+  }
+
+  /// Id for [getApplicationBanner] and [getApplicationIcon] requests, to cancel them with
+  /// [cancelImageRequests]. Never 0, the id of requests that cannot be cancelled.
+  int newImageRequestId() {
+    _lastImageRequestId = _lastImageRequestId % 0x7fffffff + 1;
+    return _lastImageRequestId;
+  }
+
+  /// Banner of [packageName], empty if it has none. Throws [ImageRequestCancelledException] if
+  /// the request [requestId] is cancelled before the banner is loaded.
+  Future<Uint8List> getApplicationBanner(String packageName,
+          {int requestId = 0,
+          ImageRequestPriority priority = ImageRequestPriority.visible}) =>
+      _getApplicationImage(
+          "getApplicationBanner", packageName, requestId, priority);
+
+  /// Icon of [packageName]. Throws [ImageRequestCancelledException] if the request [requestId]
+  /// is cancelled before the icon is loaded.
+  Future<Uint8List> getApplicationIcon(String packageName,
+          {int requestId = 0,
+          ImageRequestPriority priority = ImageRequestPriority.visible}) =>
+      _getApplicationImage(
+          "getApplicationIcon", packageName, requestId, priority);
+
+  Future<Uint8List> _getApplicationImage(String method, String packageName,
+      int requestId, ImageRequestPriority priority) async {
+    Uint8List? bytes = await _methodChannel.invokeMethod(method, {
+      "packageName": packageName,
+      "requestId": requestId,
+      "priority": priority.index
+    });
+
+    if (bytes == null) {
+      throw ImageRequestCancelledException(requestId);
+    }
     return bytes;
   }
 
-  Future<Uint8List> getApplicationIcon(String packageName) async {
+  /// Stops the image requests [requestIds] at their next step, the loading, rasterizing and
+  /// encoding of the image. Completed requests are ignored.
+  Future<void> cancelImageRequests(List<int> requestIds) async =>
+      await _methodChannel.invokeMethod("cancelImageRequests", requestIds);
+
+  /// Moves the pending image request [requestId] to [priority], e.g. as its card gains or
+  /// loses the focus. Completed requests are ignored.
+  Future<void> setImageRequestPriority(
+          int requestId, ImageRequestPriority priority) async =>
+      await _methodChannel.invokeMethod("setImageRequestPriority",
+          {"requestId": requestId, "priority": priority.index});
+
+  /// Foreground and background layers of the icon of [packageName], for an icon [size] pixels
+  /// wide, null if it is not an adaptive icon. Cached natively along with the other images.
+  /// They are rendered at [size] rounded up to a multiple of 32, 512 at most, to be scaled.
+  Future<AdaptiveIconLayers?> getApplicationIconLayers(
+      String packageName, int size) async {
+    Map<dynamic, dynamic>? layers = await _methodChannel.invokeMethod(
+        "getApplicationIconLayers", {"packageName": packageName, "size": size});
+    return layers != null ? AdaptiveIconLayers.fromMap(layers) : null;
+  }
+
+  /// Installed icon packs, each with "packageName" and "name".
+  Future<List<Map<String, dynamic>>> getIconPacks() async {
+    List<Map<dynamic, dynamic>>? iconPacks =
+        await _methodChannel.invokeListMethod("getIconPacks");
+    return iconPacks!.map((iconPack) => iconPack.cast<String, dynamic>()).toList();
+  }
+
+  /// Package name of the icon pack the application icons are themed with, if any.
+  Future<String?> getIconPack() async =>
+      await _methodChannel.invokeMethod("getIconPack");
+
+  /// Themes the application icons with the icon pack [packageName], or none if null. Completes
+  /// once the pack is indexed, icons loaded afterwards being themed.
+  Future<void> setIconPack(String? packageName) async =>
+      await _methodChannel.invokeMethod("setIconPack", packageName);
+
+  /// Storage footprint of the applications [packageNames], in the same order. Computed in the
+  /// background and cached natively until the application is updated. Applications whose stats
+  /// are not accessible, without usage access, are omitted.
+  Future<List<AppStorageStats>> getApplicationStats(
+      List<String> packageNames) async {
+    List<Map<dynamic, dynamic>>? stats = await _methodChannel
+        .invokeListMethod("getApplicationStats", packageNames);
+    return stats!.map(AppStorageStats.fromMap).toList();
+  }
+
+  /// Poster art of the Watch Next program [id], downscaled, empty if it has none.
+  Future<Uint8List> getWatchNextPoster(int id) async {
     Uint8List bytes =
-        await _methodChannel.invokeMethod("getApplicationIcon", packageName);
+        await _methodChannel.invokeMethod("getWatchNextPoster", id);
     return bytes;
   }
 
@@ -58,6 +186,10 @@ class FLauncherChannel {
   Future<void> launchApp(String packageName) async =>
       await _methodChannel.invokeMethod('launchApp', packageName);
 
+  /// Resolves the launch intent of [packageName] ahead of [launchApp], if it isn't already.
+  Future<void> prepareLaunch(String packageName) async =>
+      await _methodChannel.invokeMethod('prepareLaunch', packageName);
+
   Future<void> openSettings() async =>
       await _methodChannel.invokeMethod('openSettings');
 
@@ -76,21 +208,16 @@ class FLauncherChannel {
   Future<bool> checkForGetContentAvailability() async =>
       await _methodChannel.invokeMethod("checkForGetContentAvailability");
 
-  Future<Map<String, dynamic>> getActiveNetworkInformation() async {
-    Map<dynamic, dynamic> map =
-        await _methodChannel.invokeMethod("getActiveNetworkInformation");
-    return map.cast<String, dynamic>();
-  }
+  Future<NetworkState> getActiveNetworkInformation() async =>
+      await _methodChannel.invokeMethod("getActiveNetworkInformation");
 
   Future<void> startAmbientMode() async =>
       await _methodChannel.invokeMethod("startAmbientMode");
 
   // Media Session methods
-  Future<Map<String, dynamic>?> getCurrentMediaSession() async {
+  Future<MediaSessionInfo?> getCurrentMediaSession() async {
     try {
-      Map<dynamic, dynamic>? result =
-          await _methodChannel.invokeMethod("getCurrentMediaSession");
-      return result?.cast<String, dynamic>();
+      return await _methodChannel.invokeMethod("getCurrentMediaSession");
     } catch (e) {
       return null;
     }
@@ -127,6 +254,45 @@ class FLauncherChannel {
     return map.cast<String, dynamic>();
   }
 
+  /// Platform channel call counts, latency percentiles, payload sizes and error counts, under
+  /// "methods" and "events", keyed by method and event channel name. "launches" holds the
+  /// latency from the confirm key press to the activity start, keyed by "cached" and
+  /// "resolved" launch intent, or "action". "imageRequests" counts the application image
+  /// requests "completed", "failed" and "cancelled", the latter also by the last step done:
+  /// "cancelledQueued", "cancelledLoaded" and "cancelledRasterized". Its "queueWait" holds the
+  /// time requests waited to run, keyed by [ImageRequestPriority] name.
+  /// With [reset], recording starts over once the snapshot is taken.
+  Future<Map<String, dynamic>> getPlatformMetrics({bool reset = false}) async {
+    Map<dynamic, dynamic> map =
+        await _methodChannel.invokeMethod("getPlatformMetrics", reset);
+    return map.cast<String, dynamic>();
+  }
+
+  /// Main thread I/O and slow call violations, only detected in debuggable builds as told by
+  /// "enabled". "violations" are sorted by "count", each with the "attribution", the channel
+  /// method or callback that caused it, a "signature" and a sample "stack".
+  /// With [reset], recording starts over once the snapshot is taken.
+  Future<Map<String, dynamic>> getStrictModeViolations({bool reset = false}) async {
+    Map<dynamic, dynamic> map =
+        await _methodChannel.invokeMethod("getStrictModeViolations", reset);
+    return map.cast<String, dynamic>();
+  }
+
+  /// Records [milestone] on the native cold start timeline, timestamped on reception.
+  Future<void> reportStartupMilestone(String milestone) async =>
+      await _methodChannel.invokeMethod("reportStartupMilestone", milestone);
+
+  /// Cold start phases, native ones and milestones reported from Dart, under "phases", each
+  /// with a "startMicros" offset from the process start and a "durationMicros".
+  Future<Map<String, dynamic>> getStartupTimeline() async {
+    Map<dynamic, dynamic> map =
+        await _methodChannel.invokeMethod("getStartupTimeline");
+    return map.cast<String, dynamic>();
+  }
+
+  /// Package events, batched natively: added and changed packages are sent together as one
+  /// "PACKAGES_AVAILABLE" event with their "activitiesInfo", removed ones as "PACKAGE_REMOVED"
+  /// events with their "packageName".
   void addAppsChangedListener(void Function(Map<String, dynamic>) listener) =>
       _appsEventChannel.receiveBroadcastStream().listen((event) {
         Map<dynamic, dynamic> eventMap = event;
@@ -140,8 +306,26 @@ class FLauncherChannel {
         listener(eventMap.cast<String, dynamic>());
       });
 
-  void addMediaSessionListener(void Function(Map<String, dynamic>) listener) =>
-      _mediaEventChannel.receiveBroadcastStream().listen((event) {
+  void addMediaSessionListener(void Function(MediaSessionInfo) listener) =>
+      _mediaEventChannel
+          .receiveBroadcastStream()
+          .listen((event) => listener(event as MediaSessionInfo));
+
+  /// The first event is a "RESET" with every Watch Next program under "programs", most recently
+  /// engaged first. The following ones are "DIFF", with the "added" and "updated" programs and
+  /// the "removed" program ids.
+  void addWatchNextChangedListener(
+          void Function(Map<String, dynamic>) listener) =>
+      _watchNextEventChannel.receiveBroadcastStream().listen((event) {
+        Map<dynamic, dynamic> eventMap = event;
+        listener(eventMap.cast<String, dynamic>());
+      });
+
+  /// Called with "defaultLauncher" and "notificationListener" when listening starts, then
+  /// whenever either changes.
+  StreamSubscription addPermissionStateListener(
+          void Function(Map<String, dynamic>) listener) =>
+      _permissionsEventChannel.receiveBroadcastStream().listen((event) {
         Map<dynamic, dynamic> eventMap = event;
         listener(eventMap.cast<String, dynamic>());
       });
@@ -154,3 +338,12 @@ class FLauncherChannel {
     _visibilityListener?.call(visible);
   }
 }
+
+class ImageRequestCancelledException implements Exception {
+  final int requestId;
+
+  ImageRequestCancelledException(this.requestId);
+
+  @override
+  String toString() => "Image request $requestId cancelled";
+}
@@ -0,0 +1,222 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'package:flauncher/models/media_session_info.dart';
+import 'package:flutter/services.dart';
+
+/// Application as enumerated by the platform, before being merged with the database.
+class SystemApplication {
+  final String name;
+  final String packageName;
+  final String? version;
+  final bool sideloaded;
+  final String? action;
+  /// Sent before its label and version were resolved, with the package name as [name] and no
+  /// [version], not to be persisted.
+  final bool placeholder;
+
+  const SystemApplication({
+    required this.name,
+    required this.packageName,
+    this.version,
+    this.sideloaded = false,
+    this.action,
+    this.placeholder = false,
+  });
+}
+
+class NetworkState {
+  final bool networkAccess;
+  final bool internetAccess;
+  final int networkType;
+  final int wirelessSignalLevel;
+  /// Estimated by the platform, 0 when unknown.
+  final int downstreamBandwidthKbps;
+  final bool metered;
+
+  const NetworkState({
+    required this.networkAccess,
+    required this.internetAccess,
+    required this.networkType,
+    required this.wirelessSignalLevel,
+    this.downstreamBandwidthKbps = 0,
+    this.metered = false,
+  });
+}
+
+/// Program of the platform Watch Next ("continue watching") list.
+class WatchNextProgram {
+  final int id;
+  final String packageName;
+  final String? title;
+  final String? episodeTitle;
+  final int watchNextType;
+  final int lastEngagementTimeMillis;
+  final int durationMillis;
+  final int lastPlaybackPositionMillis;
+  final String? intentUri;
+  final String? posterArtUri;
+
+  const WatchNextProgram({
+    required this.id,
+    required this.packageName,
+    this.title,
+    this.episodeTitle,
+    required this.watchNextType,
+    required this.lastEngagementTimeMillis,
+    this.durationMillis = 0,
+    this.lastPlaybackPositionMillis = 0,
+    this.intentUri,
+    this.posterArtUri,
+  });
+}
+
+/// Codec for the typed platform messages. Every message is written as its type tag followed by
+/// its fields, in order, so the layout must be kept aligned with the Java side, on file
+/// android/app/src/main/java/me/efesser/flauncher/LauncherMessageCodec.java
+class FLauncherMessageCodec extends StandardMessageCodec {
+  static const int _application = 128;
+  static const int _mediaSession = 129;
+  static const int _networkState = 130;
+  static const int _watchNextProgram = 131;
+
+  // Aligned with LauncherMessages.MediaSession action flags
+  static const List<String> _mediaActions = [
+    'play',
+    'pause',
+    'skipToNext',
+    'skipToPrevious',
+    'seekTo'
+  ];
+
+  const FLauncherMessageCodec();
+
+  @override
+  void writeValue(WriteBuffer buffer, Object? value) {
+    if (value is SystemApplication) {
+      buffer.putUint8(_application);
+      writeValue(buffer, value.name);
+      writeValue(buffer, value.packageName);
+      writeValue(buffer, value.version);
+      writeValue(buffer, value.sideloaded);
+      writeValue(buffer, value.action);
+      writeValue(buffer, value.placeholder);
+    } else if (value is MediaSessionInfo) {
+      buffer.putUint8(_mediaSession);
+      writeValue(buffer, value.hasActiveSession);
+      writeValue(buffer, value.packageName);
+      writeValue(buffer, value.appName);
+      writeValue(buffer, value.title);
+      writeValue(buffer, value.artist);
+      writeValue(buffer, value.album);
+      writeValue(buffer, value.duration);
+      writeValue(buffer, value.isPlaying);
+      writeValue(buffer, value.position);
+      writeValue(buffer, _mediaActionsToFlags(value.availableActions));
+    } else if (value is NetworkState) {
+      buffer.putUint8(_networkState);
+      writeValue(buffer, value.networkAccess);
+      writeValue(buffer, value.internetAccess);
+      writeValue(buffer, value.networkType);
+      writeValue(buffer, value.wirelessSignalLevel);
+      writeValue(buffer, value.downstreamBandwidthKbps);
+      writeValue(buffer, value.metered);
+    } else if (value is WatchNextProgram) {
+      buffer.putUint8(_watchNextProgram);
+      writeValue(buffer, value.id);
+      writeValue(buffer, value.packageName);
+      writeValue(buffer, value.title);
+      writeValue(buffer, value.episodeTitle);
+      writeValue(buffer, value.watchNextType);
+      writeValue(buffer, value.lastEngagementTimeMillis);
+      writeValue(buffer, value.durationMillis);
+      writeValue(buffer, value.lastPlaybackPositionMillis);
+      writeValue(buffer, value.intentUri);
+      writeValue(buffer, value.posterArtUri);
+    } else {
+      super.writeValue(buffer, value);
+    }
+  }
+
+  @override
+  Object? readValueOfType(int type, ReadBuffer buffer) {
+    switch (type) {
+      case _application:
+        return SystemApplication(
+          name: readValue(buffer) as String,
+          packageName: readValue(buffer) as String,
+          version: readValue(buffer) as String?,
+          sideloaded: readValue(buffer) as bool,
+          action: readValue(buffer) as String?,
+          placeholder: readValue(buffer) as bool,
+        );
+      case _mediaSession:
+        return MediaSessionInfo(
+          hasActiveSession: readValue(buffer) as bool,
+          packageName: readValue(buffer) as String?,
+          appName: readValue(buffer) as String?,
+          title: readValue(buffer) as String?,
+          artist: readValue(buffer) as String?,
+          album: readValue(buffer) as String?,
+          duration: readValue(buffer) as int?,
+          isPlaying: readValue(buffer) as bool,
+          position: readValue(buffer) as int?,
+          availableActions: _mediaActionsFromFlags(readValue(buffer) as int),
+        );
+      case _networkState:
+        return NetworkState(
+          networkAccess: readValue(buffer) as bool,
+          internetAccess: readValue(buffer) as bool,
+          networkType: readValue(buffer) as int,
+          wirelessSignalLevel: readValue(buffer) as int,
+          downstreamBandwidthKbps: readValue(buffer) as int,
+          metered: readValue(buffer) as bool,
+        );
+      case _watchNextProgram:
+        return WatchNextProgram(
+          id: readValue(buffer) as int,
+          packageName: readValue(buffer) as String,
+          title: readValue(buffer) as String?,
+          episodeTitle: readValue(buffer) as String?,
+          watchNextType: readValue(buffer) as int,
+          lastEngagementTimeMillis: readValue(buffer) as int,
+          durationMillis: readValue(buffer) as int,
+          lastPlaybackPositionMillis: readValue(buffer) as int,
+          intentUri: readValue(buffer) as String?,
+          posterArtUri: readValue(buffer) as String?,
+        );
+      default:
+        return super.readValueOfType(type, buffer);
+    }
+  }
+
+  static List<String> _mediaActionsFromFlags(int flags) => [
+        for (int i = 0; i < _mediaActions.length; ++i)
+          if (flags & (1 << i) != 0) _mediaActions[i]
+      ];
+
+  static int _mediaActionsToFlags(List<String> actions) {
+    int flags = 0;
+    for (int i = 0; i < _mediaActions.length; ++i) {
+      if (actions.contains(_mediaActions[i])) {
+        flags |= 1 << i;
+      }
+    }
+    return flags;
+  }
+}
@@ -118,6 +118,12 @@ abstract class AppLocalizations {
   /// **'Failed to fetch wallpaper: {error}'**
   String unsplashErrorMessage(String error);
 
+  /// No description provided for @unsplashDeferredMessage.
+  ///
+  /// In en, this message translates to:
+  /// **'The wallpaper will be downloaded once the connection is faster or unmetered'**
+  String get unsplashDeferredMessage;
+
   /// No description provided for @dateFormatSpecifier_d.
   ///
   /// In en, this message translates to:
@@ -538,6 +544,12 @@ abstract class AppLocalizations {
   /// **'Sort'**
   String get sort;
 
+  /// No description provided for @storageUsage.
+  ///
+  /// In en, this message translates to:
+  /// **'App {app}, data {data} (cache {cache})'**
+  String storageUsage(String app, String data, String cache);
+
   /// No description provided for @systemSettings.
   ///
   /// In en, this message translates to:
@@ -19,6 +19,10 @@ class AppLocalizationsEn extends AppLocalizations {
     return 'Failed to fetch wallpaper: $error';
   }
 
+  @override
+  String get unsplashDeferredMessage =>
+      'The wallpaper will be downloaded once the connection is faster or unmetered';
+
   @override
   String get dateFormatSpecifier_d => '[d] Day in month (10)';
 
@@ -239,6 +243,11 @@ class AppLocalizationsEn extends AppLocalizations {
   @override
   String get sort => 'Sort';
 
+  @override
+  String storageUsage(String app, String data, String cache) {
+    return 'App $app, data $data (cache $cache)';
+  }
+
   @override
   String get systemSettings => 'System settings';
 
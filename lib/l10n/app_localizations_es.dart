@@ -19,6 +19,10 @@ class AppLocalizationsEs extends AppLocalizations {
     return 'No se pudo obtener el fondo $error';
   }
 
+  @override
+  String get unsplashDeferredMessage =>
+      'El fondo se descargará cuando la conexión sea más rápida o sin límite de datos';
+
   @override
   String get dateFormatSpecifier_d => '[d] Día en el mes (10)';
 
@@ -242,6 +246,11 @@ class AppLocalizationsEs extends AppLocalizations {
   @override
   String get sort => 'Orden';
 
+  @override
+  String storageUsage(String app, String data, String cache) {
+    return 'Aplicación $app, datos $data (caché $cache)';
+  }
+
   @override
   String get systemSettings => 'Ajustes del sistema';
 
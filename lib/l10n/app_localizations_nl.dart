@@ -19,6 +19,10 @@ class AppLocalizationsNl extends AppLocalizations {
     return 'Kon achtergrond niet ophalen: $error';
   }
 
+  @override
+  String get unsplashDeferredMessage =>
+      'De achtergrond wordt gedownload zodra de verbinding sneller of onbeperkt is';
+
   @override
   String get dateFormatSpecifier_d => '[d] Dag in maand (10)';
 
@@ -239,6 +243,11 @@ class AppLocalizationsNl extends AppLocalizations {
   @override
   String get sort => 'Sorteren';
 
+  @override
+  String storageUsage(String app, String data, String cache) {
+    return 'App $app, gegevens $data (cache $cache)';
+  }
+
   @override
   String get systemSettings => 'Systeeminstellingen';
 
@@ -37,16 +37,18 @@ import 'package:flutter_dotenv/flutter_dotenv.dart';
 
 Future<void> main() async {
   WidgetsFlutterBinding.ensureInitialized();
+  final fLauncherChannel = FLauncherChannel();
+  unawaited(fLauncherChannel.reportStartupMilestone("main"));
   initializeDateFormatting();
 
   final sharedPreferences = await SharedPreferences.getInstance();
-  final fLauncherChannel = FLauncherChannel();
   final fLauncherDatabase = FLauncherDatabase(connect());
 
   await dotenv.load(fileName: ".env");
 
   // Set up method channel handler for platform-initiated calls
-  const methodChannel = MethodChannel('com.geert.flauncher/method');
+  const methodChannel = MethodChannel(
+      'com.geert.flauncher/method', FLauncherChannel.methodCodec);
   methodChannel.setMethodCallHandler((call) async {
     switch (call.method) {
       case 'onLauncherVisible':
@@ -61,6 +63,10 @@ Future<void> main() async {
     }
   });
 
+  unawaited(fLauncherChannel.reportStartupMilestone("runApp"));
+  WidgetsBinding.instance.addPostFrameCallback((_) =>
+      unawaited(fLauncherChannel.reportStartupMilestone("firstFrame")));
+
   runApp(MultiProvider(providers: [
     ChangeNotifierProvider(
         create: (_) => SettingsService(sharedPreferences), lazy: false),
@@ -70,7 +76,9 @@ Future<void> main() async {
     ChangeNotifierProvider(create: (_) => NetworkService(fLauncherChannel)),
     ChangeNotifierProvider(create: (context) {
       SettingsService settingsService = Provider.of(context, listen: false);
-      return WallpaperService(fLauncherChannel, settingsService);
+      NetworkService networkService = Provider.of(context, listen: false);
+      return WallpaperService(fLauncherChannel, settingsService,
+          networkService: networkService);
     }),
     ChangeNotifierProvider(create: (_) => MediaService(fLauncherChannel)),
   ], child: FLauncherApp()));
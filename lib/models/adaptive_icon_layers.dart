@@ -0,0 +1,49 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'dart:typed_data';
+
+/// Layers of an adaptive icon rendered for an icon of a given size. The layers are
+/// [layerSize] square, the icon being their centre, the margin leaving room to shift them
+/// against each other; [mask] is the icon size and opaque inside the system icon shape.
+class AdaptiveIconLayers {
+  final Uint8List foreground;
+  final Uint8List background;
+  final int layerSize;
+  final Uint8List mask;
+
+  /// SVG path data of the system icon shape in a 100 by 100 viewport, if exposed.
+  final String? maskPath;
+
+  const AdaptiveIconLayers({
+    required this.foreground,
+    required this.background,
+    required this.layerSize,
+    required this.mask,
+    this.maskPath,
+  });
+
+  factory AdaptiveIconLayers.fromMap(Map<dynamic, dynamic> map) =>
+      AdaptiveIconLayers(
+        foreground: map["foreground"],
+        background: map["background"],
+        layerSize: map["layerSize"],
+        mask: map["mask"],
+        maskPath: map["maskPath"],
+      );
+}
@@ -16,6 +16,8 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+import 'package:flauncher/flauncher_messages.dart';
+
 class App
 {
   final String name;
@@ -42,16 +44,12 @@ class App
     categoryOrders = Map(),
     sideloaded = false;
 
-  App.fromSystem(Map<dynamic, dynamic> data):
-    packageName = data['packageName'],
-    name = data['name'],
-    version = data['version'],
+  App.fromSystem(SystemApplication data):
+    packageName = data.packageName,
+    name = data.name,
+    version = data.version ?? "",
     hidden = false,
-    sideloaded = data['sideloaded'],
-    categoryOrders = Map() {
-
-    if (data.containsKey('action')) {
-      action = data['action'];
-    }
-  }
+    sideloaded = data.sideloaded,
+    categoryOrders = Map(),
+    action = data.action;
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+class AppStorageStats {
+  final String packageName;
+  final int appBytes;
+
+  /// Includes [cacheBytes].
+  final int dataBytes;
+  final int cacheBytes;
+
+  const AppStorageStats({
+    required this.packageName,
+    required this.appBytes,
+    required this.dataBytes,
+    required this.cacheBytes,
+  });
+
+  factory AppStorageStats.fromMap(Map<dynamic, dynamic> map) => AppStorageStats(
+        packageName: map["packageName"],
+        appBytes: map["appBytes"],
+        dataBytes: map["dataBytes"],
+        cacheBytes: map["cacheBytes"],
+      );
+
+  int get totalBytes => appBytes + dataBytes;
+}
+
+/// [bytes] in the largest unit keeping at least one unit, e.g. "12.3 MB".
+String formatStorageSize(int bytes) {
+  const units = ["B", "KB", "MB", "GB"];
+  double size = bytes.toDouble();
+  int unit = 0;
+
+  while (size >= 1024 && unit < units.length - 1) {
+    size /= 1024;
+    unit += 1;
+  }
+  return unit == 0 || size >= 100
+      ? "${size.round()} ${units[unit]}"
+      : "${size.toStringAsFixed(1)} ${units[unit]}";
+}
@@ -0,0 +1,80 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+class MediaSessionInfo {
+  final String? packageName;
+  final String? appName;
+  final String? title;
+  final String? artist;
+  final String? album;
+  final bool isPlaying;
+  final bool hasActiveSession;
+  final int? position;
+  final int? duration;
+  final List<String> availableActions;
+
+  const MediaSessionInfo({
+    this.packageName,
+    this.appName,
+    this.title,
+    this.artist,
+    this.album,
+    this.isPlaying = false,
+    this.hasActiveSession = false,
+    this.position,
+    this.duration,
+    this.availableActions = const [],
+  });
+
+  MediaSessionInfo copyWith({
+    String? packageName,
+    String? appName,
+    String? title,
+    String? artist,
+    String? album,
+    bool? isPlaying,
+    bool? hasActiveSession,
+    int? position,
+    int? duration,
+    List<String>? availableActions,
+  }) {
+    return MediaSessionInfo(
+      packageName: packageName ?? this.packageName,
+      appName: appName ?? this.appName,
+      title: title ?? this.title,
+      artist: artist ?? this.artist,
+      album: album ?? this.album,
+      isPlaying: isPlaying ?? this.isPlaying,
+      hasActiveSession: hasActiveSession ?? this.hasActiveSession,
+      position: position ?? this.position,
+      duration: duration ?? this.duration,
+      availableActions: availableActions ?? this.availableActions,
+    );
+  }
+
+  bool get canPlay => availableActions.contains('play');
+  bool get canPause => availableActions.contains('pause');
+  bool get canSkipNext => availableActions.contains('skipToNext');
+  bool get canSkipPrevious => availableActions.contains('skipToPrevious');
+  bool get canSeek => availableActions.contains('seekTo');
+
+  @override
+  String toString() {
+    return 'MediaSessionInfo(packageName: $packageName, appName: $appName, title: $title, artist: $artist, isPlaying: $isPlaying, hasActiveSession: $hasActiveSession)';
+  }
+}
@@ -23,10 +23,12 @@ import 'package:collection/collection.dart' as collection;
 import 'package:drift/drift.dart';
 import 'package:flauncher/database.dart';
 import 'package:flauncher/flauncher_channel.dart';
+import 'package:flauncher/flauncher_messages.dart';
 import 'package:flutter/foundation.dart' hide Category;
-import 'package:tuple/tuple.dart';
 
+import '../models/adaptive_icon_layers.dart';
 import '../models/app.dart';
+import '../models/app_storage_stats.dart';
 import '../models/category.dart';
 
 class AppsService extends ChangeNotifier {
@@ -38,6 +40,12 @@ class AppsService extends ChangeNotifier {
   List<LauncherSection> _launcherSections = List.empty(growable: true);
   Map<String, App> _applications = Map();
   Map<int, Category> _categoriesById = Map();
+  final List<int> _cancelledImageRequestIds = [];
+  final Set<String> _storageStatsPackageNames = {};
+  Completer<Map<String, AppStorageStats>>? _storageStatsBatch;
+  // Packages whose launch intent the platform has cached, by enumeration, package event or
+  // prepareLaunch, so that focusing their cards doesn't go through the channel
+  final Set<String> _preparedLaunchPackageNames = {};
 
   bool get initialized => _initialized;
 
@@ -62,26 +70,21 @@ class AppsService extends ChangeNotifier {
 
     _fLauncherChannel.addAppsChangedListener((event) async {
       switch (event["action"]) {
-        case "PACKAGE_ADDED":
-        case "PACKAGE_CHANGED":
-          Map<dynamic, dynamic> applicationInfo = event['activityInfo'];
-          await _database.persistApps([_buildAppCompanion(applicationInfo)]);
-
-          App application = App.fromSystem(applicationInfo);
-          _applications[application.packageName] = application;
-          break;
         case "PACKAGES_AVAILABLE":
-          List<dynamic> applicationsInfo = event["activitiesInfo"];
+          List<SystemApplication> applicationsInfo =
+              (event["activitiesInfo"] as List).cast<SystemApplication>();
           await _database
               .persistApps((applicationsInfo).map(_buildAppCompanion));
 
-          for (Map<dynamic, dynamic> applicationInfo in applicationsInfo) {
+          for (SystemApplication applicationInfo in applicationsInfo) {
             App application = App.fromSystem(applicationInfo);
             _applications[application.packageName] = application;
+            _preparedLaunchPackageNames.add(application.packageName);
           }
           break;
         case "PACKAGE_REMOVED":
           String packageName = event['packageName'];
+          _preparedLaunchPackageNames.remove(packageName);
           await _database.deleteApps([packageName]);
 
           App? application = _applications.remove(packageName);
@@ -104,16 +107,11 @@ class AppsService extends ChangeNotifier {
     notifyListeners();
   }
 
-  AppsCompanion _buildAppCompanion(dynamic data) {
-    String? version = data["version"];
-    if (version == null) {
-      version = "";
-    }
-
+  AppsCompanion _buildAppCompanion(SystemApplication data) {
     return AppsCompanion(
-        packageName: Value(data["packageName"]),
-        name: Value(data["name"]),
-        version: Value(version),
+        packageName: Value(data.packageName),
+        name: Value(data.name),
+        version: Value(data.version ?? ""),
         hidden: const Value.absent());
   }
 
@@ -154,38 +152,28 @@ class AppsService extends ChangeNotifier {
         _database.getAppsCategories();
     Future<List<Category>> categoriesFuture = _database.getCategories();
     Future<List<LauncherSpacer>> spacersFuture = _database.getLauncherSpacers();
-    List<Map<dynamic, dynamic>> appsFromSystem =
-        await _fLauncherChannel.getApplications();
-    Iterable<MapEntry<String, Tuple2<Map, AppsCompanion>>> appEntries =
-        appsFromSystem.map((appFromSystem) => new MapEntry(
-            appFromSystem['packageName'],
-            Tuple2(appFromSystem, _buildAppCompanion(appFromSystem))));
-    Map<String, Tuple2<Map, AppsCompanion>> appsFromSystemByPackageName =
-        Map.fromEntries(appEntries);
-
     List<App> appsFromDatabase = await appsFromDatabaseFuture;
-    final Iterable<App> appsRemovedFromSystem = appsFromDatabase.where(
-        (app) => !appsFromSystemByPackageName.containsKey(app.packageName));
-
-    final List<String> uninstalledApplications = [];
-    for (App app in appsRemovedFromSystem) {
-      String packageName = app.packageName;
-
-      // Haven't noticed this being needed, but edge case might be possible. No huge performance impact.
-      bool appExists = await _fLauncherChannel.applicationExists(packageName);
-      if (!appExists) {
-        uninstalledApplications.add(packageName);
-      }
+    // Hidden applications are never shown, their labels and versions aren't resolved again
+    Set<String> hiddenPackageNames = {
+      for (App app in appsFromDatabase)
+        if (app.hidden) app.packageName
+    };
+    List<SystemApplication> appsFromSystem = await _fLauncherChannel
+        .getApplications(hiddenPackageNames: hiddenPackageNames.toList());
+    Map<String, SystemApplication> appsFromSystemByPackageName = {
+      for (SystemApplication appFromSystem in appsFromSystem)
+        appFromSystem.packageName: appFromSystem
+    };
+    _preparedLaunchPackageNames
+      ..clear()
+      ..addAll(appsFromSystemByPackageName.keys);
+
+    // Steady state refreshes, where no row changed, write nothing and keep the rows already read
+    if (await _persistApplications(
+        appsFromDatabase, appsFromSystemByPackageName, hiddenPackageNames)) {
+      appsFromDatabaseFuture = _database.getApplications();
     }
 
-    await _database.transaction(() async {
-      await _database.persistApps(
-          appsFromSystemByPackageName.values.map((tuple) => tuple.item2));
-      await _database.deleteApps(uninstalledApplications);
-    });
-
-    appsFromDatabaseFuture = _database.getApplications();
-
     await Future.wait([
       appsFromDatabaseFuture,
       appsCategoriesFuture,
@@ -209,16 +197,14 @@ class AppsService extends ChangeNotifier {
     _launcherSections.sort((ls0, ls1) => ls0.order.compareTo(ls1.order));
 
     for (App application in _applications.values) {
-      Map? applicationFromSystem =
-          appsFromSystemByPackageName[application.packageName]?.item1;
+      SystemApplication? applicationFromSystem =
+          appsFromSystemByPackageName[application.packageName];
 
       if (applicationFromSystem != null) {
-        if (applicationFromSystem.containsKey('action')) {
-          application.action = applicationFromSystem['action'];
-        }
-        if (applicationFromSystem.containsKey('sideloaded')) {
-          application.sideloaded = applicationFromSystem['sideloaded'];
+        if (applicationFromSystem.action != null) {
+          application.action = applicationFromSystem.action;
         }
+        application.sideloaded = applicationFromSystem.sideloaded;
       }
 
       if (appsCategories.isNotEmpty && !application.hidden) {
@@ -245,6 +231,57 @@ class AppsService extends ChangeNotifier {
     }
   }
 
+  /// Writes the rows of the applications whose name or version changed, and deletes those of the
+  /// uninstalled ones. Placeholders, not resolved in time, keep their row until they are.
+  /// Returns whether any row was written.
+  Future<bool> _persistApplications(
+      List<App> appsFromDatabase,
+      Map<String, SystemApplication> appsFromSystemByPackageName,
+      Set<String> hiddenPackageNames) async {
+    Map<String, App> appsFromDatabaseByPackageName = {
+      for (App app in appsFromDatabase) app.packageName: app
+    };
+    final List<SystemApplication> changedApplications = [
+      for (SystemApplication appFromSystem
+          in appsFromSystemByPackageName.values)
+        if (!appFromSystem.placeholder &&
+            !hiddenPackageNames.contains(appFromSystem.packageName) &&
+            _hasChanged(
+                appsFromDatabaseByPackageName[appFromSystem.packageName],
+                appFromSystem))
+          appFromSystem
+    ];
+
+    final Iterable<App> appsRemovedFromSystem = appsFromDatabase.where(
+        (app) => !appsFromSystemByPackageName.containsKey(app.packageName));
+
+    final List<String> uninstalledApplications = [];
+    for (App app in appsRemovedFromSystem) {
+      String packageName = app.packageName;
+
+      // Haven't noticed this being needed, but edge case might be possible. No huge performance impact.
+      bool appExists = await _fLauncherChannel.applicationExists(packageName);
+      if (!appExists) {
+        uninstalledApplications.add(packageName);
+      }
+    }
+
+    if (changedApplications.isEmpty && uninstalledApplications.isEmpty) {
+      return false;
+    }
+
+    await _database.transaction(() async {
+      await _database.persistApps(changedApplications.map(_buildAppCompanion));
+      await _database.deleteApps(uninstalledApplications);
+    });
+    return true;
+  }
+
+  bool _hasChanged(App? appFromDatabase, SystemApplication appFromSystem) =>
+      appFromDatabase == null ||
+      appFromDatabase.name != appFromSystem.name ||
+      appFromDatabase.version != (appFromSystem.version ?? "");
+
   void sortCategory(Category category) {
     if (category.sort == CategorySort.alphabetical) {
       category.applications.sortBy((application) => application.name);
@@ -254,12 +291,101 @@ class AppsService extends ChangeNotifier {
     }
   }
 
-  Future<Uint8List> getAppBanner(String packageName) {
-    return _fLauncherChannel.getApplicationBanner(packageName);
+  Future<List<App>> searchApplications(String query, {int limit = 20}) async {
+    List<String> packageNames =
+        await _fLauncherChannel.searchApplications(query, limit: limit);
+    return packageNames
+        .map((packageName) => _applications[packageName])
+        .whereType<App>()
+        .where((application) => !application.hidden)
+        .toList(growable: false);
+  }
+
+  int newImageRequestId() => _fLauncherChannel.newImageRequestId();
+
+  Future<Uint8List> getAppBanner(String packageName,
+      {int requestId = 0,
+      ImageRequestPriority priority = ImageRequestPriority.visible}) {
+    return _fLauncherChannel.getApplicationBanner(packageName,
+        requestId: requestId, priority: priority);
+  }
+
+  Future<Uint8List> getAppIcon(String packageName,
+      {int requestId = 0,
+      ImageRequestPriority priority = ImageRequestPriority.visible}) {
+    return _fLauncherChannel.getApplicationIcon(packageName,
+        requestId: requestId, priority: priority);
+  }
+
+  Future<void> setImageRequestPriority(
+          int requestId, ImageRequestPriority priority) =>
+      _fLauncherChannel.setImageRequestPriority(requestId, priority);
+
+  /// Cancels the image request [requestId]. The requests cancelled together, e.g. by the cards
+  /// disposed while scrolling, are sent in one call.
+  void cancelImageRequest(int requestId) {
+    if (_cancelledImageRequestIds.isEmpty) {
+      scheduleMicrotask(() {
+        final requestIds = List.of(_cancelledImageRequestIds);
+        _cancelledImageRequestIds.clear();
+        _fLauncherChannel.cancelImageRequests(requestIds);
+      });
+    }
+    _cancelledImageRequestIds.add(requestId);
+  }
+
+  Future<AdaptiveIconLayers?> getAppIconLayers(String packageName, int size) {
+    return _fLauncherChannel.getApplicationIconLayers(packageName, size);
+  }
+
+  Future<List<Map<String, dynamic>>> getIconPacks() =>
+      _fLauncherChannel.getIconPacks();
+
+  Future<String?> getIconPack() => _fLauncherChannel.getIconPack();
+
+  /// Themes the application icons with [packageName], none if null. Only the application
+  /// images loaded afterwards are themed.
+  Future<void> setIconPack(String? packageName) async {
+    await _fLauncherChannel.setIconPack(packageName);
+    notifyListeners();
+  }
+
+  /// Storage footprint of [applications] by package name, missing for those whose stats are
+  /// not accessible. The stats requested together, e.g. by the items of a page built in the
+  /// same frame, are queried in one call.
+  Future<Map<String, AppStorageStats>> getStorageStats(
+      Iterable<App> applications) async {
+    Completer<Map<String, AppStorageStats>>? batch = _storageStatsBatch;
+    if (batch == null) {
+      batch = _storageStatsBatch = Completer();
+      scheduleMicrotask(_getBatchedStorageStats);
+    }
+
+    final packageNames =
+        applications.map((app) => app.packageName).toList(growable: false);
+    _storageStatsPackageNames.addAll(packageNames);
+
+    final stats = await batch.future;
+    return {
+      for (final packageName in packageNames)
+        if (stats.containsKey(packageName)) packageName: stats[packageName]!
+    };
   }
 
-  Future<Uint8List> getAppIcon(String packageName) {
-    return _fLauncherChannel.getApplicationIcon(packageName);
+  Future<void> _getBatchedStorageStats() async {
+    final batch = _storageStatsBatch!;
+    final packageNames = _storageStatsPackageNames.toList(growable: false);
+    _storageStatsBatch = null;
+    _storageStatsPackageNames.clear();
+
+    try {
+      List<AppStorageStats> stats =
+          await _fLauncherChannel.getApplicationStats(packageNames);
+      batch.complete(
+          {for (final appStats in stats) appStats.packageName: appStats});
+    } catch (error, stackTrace) {
+      batch.completeError(error, stackTrace);
+    }
   }
 
   Future<void> launchApp(App app) {
@@ -273,6 +399,14 @@ class AppsService extends ChangeNotifier {
     return future;
   }
 
+  /// Only goes through the channel for packages whose launch intent isn't cached yet, so that
+  /// moving the focus across cards costs no platform call once they are.
+  Future<void> prepareLaunch(App app) async {
+    if (app.action == null && _preparedLaunchPackageNames.add(app.packageName)) {
+      await _fLauncherChannel.prepareLaunch(app.packageName);
+    }
+  }
+
   Future<void> openAppInfo(App app) =>
       _fLauncherChannel.openAppInfo(app.packageName);
 
@@ -19,85 +19,10 @@
 import 'dart:async';
 
 import 'package:flauncher/flauncher_channel.dart';
+import 'package:flauncher/models/media_session_info.dart';
 import 'package:flutter/foundation.dart';
 
-class MediaSessionInfo {
-  final String? packageName;
-  final String? appName;
-  final String? title;
-  final String? artist;
-  final String? album;
-  final bool isPlaying;
-  final bool hasActiveSession;
-  final int? position;
-  final int? duration;
-  final List<String> availableActions;
-
-  const MediaSessionInfo({
-    this.packageName,
-    this.appName,
-    this.title,
-    this.artist,
-    this.album,
-    this.isPlaying = false,
-    this.hasActiveSession = false,
-    this.position,
-    this.duration,
-    this.availableActions = const [],
-  });
-
-  factory MediaSessionInfo.fromMap(Map<String, dynamic> data) {
-    return MediaSessionInfo(
-      packageName: data['packageName'],
-      appName: data['appName'],
-      title: data['title'],
-      artist: data['artist'],
-      album: data['album'],
-      isPlaying: data['isPlaying'] ?? false,
-      hasActiveSession: data['hasActiveSession'] ?? false,
-      position: data['position'],
-      duration: data['duration'],
-      availableActions: List<String>.from(data['availableActions'] ?? []),
-    );
-  }
-
-  MediaSessionInfo copyWith({
-    String? packageName,
-    String? appName,
-    String? title,
-    String? artist,
-    String? album,
-    bool? isPlaying,
-    bool? hasActiveSession,
-    int? position,
-    int? duration,
-    List<String>? availableActions,
-  }) {
-    return MediaSessionInfo(
-      packageName: packageName ?? this.packageName,
-      appName: appName ?? this.appName,
-      title: title ?? this.title,
-      artist: artist ?? this.artist,
-      album: album ?? this.album,
-      isPlaying: isPlaying ?? this.isPlaying,
-      hasActiveSession: hasActiveSession ?? this.hasActiveSession,
-      position: position ?? this.position,
-      duration: duration ?? this.duration,
-      availableActions: availableActions ?? this.availableActions,
-    );
-  }
-
-  bool get canPlay => availableActions.contains('play');
-  bool get canPause => availableActions.contains('pause');
-  bool get canSkipNext => availableActions.contains('skipToNext');
-  bool get canSkipPrevious => availableActions.contains('skipToPrevious');
-  bool get canSeek => availableActions.contains('seekTo');
-
-  @override
-  String toString() {
-    return 'MediaSessionInfo(packageName: $packageName, appName: $appName, title: $title, artist: $artist, isPlaying: $isPlaying, hasActiveSession: $hasActiveSession)';
-  }
-}
+export 'package:flauncher/models/media_session_info.dart';
 
 class MediaService extends ChangeNotifier {
   final FLauncherChannel _fLauncherChannel;
@@ -142,23 +67,16 @@ class MediaService extends ChangeNotifier {
 
   Future<void> _refreshMediaSession() async {
     try {
-      final sessionData = await _fLauncherChannel.getCurrentMediaSession();
-      if (sessionData != null) {
-        final newSession = MediaSessionInfo.fromMap(sessionData);
-        _currentSession = newSession;
-      } else {
-        _currentSession = const MediaSessionInfo();
-      }
+      final session = await _fLauncherChannel.getCurrentMediaSession();
+      _currentSession = session ?? const MediaSessionInfo();
       notifyListeners();
     } catch (e) {
       // Failed to refresh media session
     }
   }
 
-  void _onMediaSessionChanged(Map<String, dynamic> data) {
+  void _onMediaSessionChanged(MediaSessionInfo newSession) {
     try {
-      final newSession = MediaSessionInfo.fromMap(data);
-
       // Check if this is a meaningful change
       if (_currentSession.packageName != newSession.packageName ||
           _currentSession.isPlaying != newSession.isPlaying ||
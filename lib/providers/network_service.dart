@@ -17,6 +17,7 @@
  */
 
 import 'package:flauncher/flauncher_channel.dart';
+import 'package:flauncher/flauncher_messages.dart';
 import 'package:flutter/material.dart';
 
 enum NetworkType
@@ -56,28 +57,34 @@ enum CellularNetworkType
 
 class NetworkService extends ChangeNotifier
 {
+  // Signal level of a wireless link whose strength isn't known, as opposed to 0, the weakest
+  static const int unknownSignalLevel = -1;
+
   final FLauncherChannel  _channel;
 
   bool                _hasInternetAccess;
   CellularNetworkType _cellularNetworkType;
   NetworkType         _networkType;
   int                 _wirelessNetworkSignalLevel;
+  int                 _downstreamBandwidthKbps;
+  bool                _metered;
 
 
   NetworkService(this._channel) :
         _hasInternetAccess = false,
         _cellularNetworkType = CellularNetworkType.Unknown,
         _networkType = NetworkType.Unknown,
-        _wirelessNetworkSignalLevel = 0
+        _wirelessNetworkSignalLevel = unknownSignalLevel,
+        _downstreamBandwidthKbps = 0,
+        _metered = false
   {
     _channel.addNetworkChangedListener(_onNetworkChanged);
 
     _channel
         .getActiveNetworkInformation()
-        .then((map) {
-          if (map.isNotEmpty) {
-            _getNetworkInformation(map);
-          }
+        .then((state) {
+          _getNetworkInformation(state);
+          notifyListeners();
         });
   }
 
@@ -85,6 +92,8 @@ class NetworkService extends ChangeNotifier
   CellularNetworkType   get   cellularNetworkType           => _cellularNetworkType;
   NetworkType           get   networkType                   => _networkType;
   int                   get   wirelessNetworkSignalLevel    => _wirelessNetworkSignalLevel;
+  int                   get   downstreamBandwidthKbps       => _downstreamBandwidthKbps;
+  bool                  get   metered                       => _metered;
 
   CellularNetworkType _getCellularNetworkType(int index)
   {
@@ -96,14 +105,15 @@ class NetworkService extends ChangeNotifier
     return type;
   }
 
-  void _getNetworkInformation(Map<String, dynamic> map)
+  void _getNetworkInformation(NetworkState state)
   {
-    int networkTypeInt = map["networkType"];
-    _hasInternetAccess = map["internetAccess"];
-    _networkType = NetworkType.values[networkTypeInt];
+    _hasInternetAccess = state.internetAccess;
+    _networkType = NetworkType.values[state.networkType];
+    _downstreamBandwidthKbps = state.downstreamBandwidthKbps;
+    _metered = state.metered;
 
     if (_networkType == NetworkType.Cellular || _networkType == NetworkType.Wifi) {
-      _wirelessNetworkSignalLevel = map["wirelessSignalLevel"];
+      _wirelessNetworkSignalLevel = state.wirelessSignalLevel;
     }
   }
 
@@ -111,16 +121,16 @@ class NetworkService extends ChangeNotifier
   {
     switch (event["name"]) {
       case "NETWORK_AVAILABLE":
-        Map<dynamic, dynamic> map = event["arguments"];
-        _getNetworkInformation(map.cast<String, dynamic>());
+        _getNetworkInformation(event["arguments"]);
         break;
       case "NETWORK_UNAVAILABLE":
         _hasInternetAccess = false;
         _networkType = NetworkType.Unknown;
+        _downstreamBandwidthKbps = 0;
+        _metered = false;
         break;
       case "CAPABILITIES_CHANGED":
-        Map<dynamic, dynamic> map = event["arguments"];
-        _getNetworkInformation(map.cast<String, dynamic>());
+        _getNetworkInformation(event["arguments"]);
         break;
       case "CELLULAR_STATE_CHANGED":
         _cellularNetworkType = _getCellularNetworkType(event["arguments"]);
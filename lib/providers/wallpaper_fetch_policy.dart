@@ -0,0 +1,85 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'dart:math';
+
+import 'package:flauncher/providers/network_service.dart';
+
+/// Outcome of [WallpaperFetchPolicy.decide]: either download the wallpaper [width] pixels wide,
+/// or defer the download until the network conditions improve.
+class WallpaperFetch {
+  final bool deferred;
+  final int width;
+
+  const WallpaperFetch.now(this.width) : deferred = false;
+
+  const WallpaperFetch.defer()
+      : deferred = true,
+        width = 0;
+}
+
+/// Picks the resolution of downloaded wallpapers from the active network, so a multi-megabyte
+/// image is not pulled over a weak or metered link.
+class WallpaperFetchPolicy {
+  // Below this estimate, or on the weakest measured Wi-Fi signal level, the download is deferred
+  static const int poorBandwidthKbps = 1500;
+  static const int _fullResolutionBandwidthKbps = 25000;
+  static const int _highResolutionBandwidthKbps = 5000;
+
+  static const int fullWidth = 3840;
+  static const int highWidth = 1920;
+  static const int lowWidth = 1280;
+
+  const WallpaperFetchPolicy();
+
+  /// [downstreamBandwidthKbps] is 0 when the platform has no estimate, in which case the
+  /// wallpaper is fetched at [highWidth]. [wirelessSignalLevel] is
+  /// [NetworkService.unknownSignalLevel] when the signal wasn't measured, which is not a poor link.
+  /// Never wider than [screenWidth].
+  WallpaperFetch decide({
+    required bool hasInternetAccess,
+    required NetworkType networkType,
+    required int wirelessSignalLevel,
+    required int downstreamBandwidthKbps,
+    required bool metered,
+    required int screenWidth,
+  }) {
+    if (!hasInternetAccess || metered) {
+      return WallpaperFetch.defer();
+    }
+
+    if (networkType == NetworkType.Wifi && wirelessSignalLevel == 0) {
+      return WallpaperFetch.defer();
+    }
+
+    int width;
+    if (downstreamBandwidthKbps == 0) {
+      width = highWidth;
+    } else if (downstreamBandwidthKbps < poorBandwidthKbps) {
+      return WallpaperFetch.defer();
+    } else if (downstreamBandwidthKbps >= _fullResolutionBandwidthKbps) {
+      width = fullWidth;
+    } else if (downstreamBandwidthKbps >= _highResolutionBandwidthKbps) {
+      width = highWidth;
+    } else {
+      width = lowWidth;
+    }
+
+    return WallpaperFetch.now(screenWidth > 0 ? min(width, screenWidth) : width);
+  }
+}
@@ -17,10 +17,13 @@
  */
 
 import 'dart:io';
+import 'dart:ui' show PlatformDispatcher;
 
 import 'package:flauncher/flauncher_channel.dart';
 import 'package:flauncher/gradients.dart';
+import 'package:flauncher/providers/network_service.dart';
 import 'package:flauncher/providers/settings_service.dart';
+import 'package:flauncher/providers/wallpaper_fetch_policy.dart';
 import 'package:flutter/cupertino.dart';
 import 'package:flutter/foundation.dart';
 import 'package:image_picker/image_picker.dart';
@@ -34,6 +37,8 @@ enum WallpaperOption { gradient, image, unsplash }
 class WallpaperService extends ChangeNotifier {
   final FLauncherChannel _fLauncherChannel;
   final SettingsService _settingsService;
+  final NetworkService? _networkService;
+  final WallpaperFetchPolicy _fetchPolicy;
 
   late File _wallpaperFile;
   late File _unsplashFile;
@@ -46,8 +51,14 @@ class WallpaperService extends ChangeNotifier {
   ImageProvider? _wallpaper;
   ImageProvider? _unsplash;
 
+  // Unsplash query deferred by the fetch policy, resumed when the network improves
+  bool _fetchPending = false;
+  String? _pendingQuery;
+  bool _fetching = false;
+
   WallpaperOption get selectedOption => _selectedOption;
   double get brightness => _brightness;
+  bool get fetchPending => _fetchPending;
 
   ImageProvider? get wallpaper {
     switch (_selectedOption) {
@@ -77,11 +88,22 @@ class WallpaperService extends ChangeNotifier {
         orElse: () => FLauncherGradients.greatWhale,
       );
 
-  WallpaperService(this._fLauncherChannel, this._settingsService)
-      : _wallpaper = null {
+  WallpaperService(this._fLauncherChannel, this._settingsService,
+      {NetworkService? networkService,
+      WallpaperFetchPolicy fetchPolicy = const WallpaperFetchPolicy()})
+      : _networkService = networkService,
+        _fetchPolicy = fetchPolicy,
+        _wallpaper = null {
+    _networkService?.addListener(_onNetworkChanged);
     _init();
   }
 
+  @override
+  void dispose() {
+    _networkService?.removeListener(_onNetworkChanged);
+    super.dispose();
+  }
+
   Future<void> _init() async {
     final directory = await getApplicationDocumentsDirectory();
     _wallpaperFile = File("${directory.path}/wallpaper");
@@ -137,7 +159,59 @@ class WallpaperService extends ChangeNotifier {
     notifyListeners();
   }
 
-  Future<void> fetchUnsplashWallpaper({String? query}) async {
+  /// Downloads a random Unsplash wallpaper at the resolution [WallpaperFetchPolicy] picks for the
+  /// active network. Returns false if the download is deferred, in which case it resumes on its
+  /// own once the network improves.
+  Future<bool> fetchUnsplashWallpaper({String? query}) async {
+    final fetch = _decideFetch();
+    if (fetch.deferred) {
+      _fetchPending = true;
+      _pendingQuery = query;
+      notifyListeners();
+      return false;
+    }
+
+    _fetchPending = false;
+    await _downloadUnsplashWallpaper(query, fetch.width);
+    return true;
+  }
+
+  WallpaperFetch _decideFetch() {
+    final views = PlatformDispatcher.instance.views;
+    final screenWidth =
+        views.isEmpty ? 0 : views.first.physicalSize.width.round();
+    final networkService = _networkService;
+
+    // Without network information the download is never deferred
+    return _fetchPolicy.decide(
+      hasInternetAccess: networkService?.hasInternetAccess ?? true,
+      networkType: networkService?.networkType ?? NetworkType.Unknown,
+      wirelessSignalLevel: networkService?.wirelessNetworkSignalLevel ?? NetworkService.unknownSignalLevel,
+      downstreamBandwidthKbps: networkService?.downstreamBandwidthKbps ?? 0,
+      metered: networkService?.metered ?? false,
+      screenWidth: screenWidth,
+    );
+  }
+
+  Future<void> _onNetworkChanged() async {
+    if (!_fetchPending || _fetching) {
+      return;
+    }
+
+    final fetch = _decideFetch();
+    if (fetch.deferred) {
+      return;
+    }
+
+    _fetchPending = false;
+    try {
+      await _downloadUnsplashWallpaper(_pendingQuery, fetch.width);
+    } catch (e) {
+      debugPrint("Deferred Unsplash wallpaper download failed: $e");
+    }
+  }
+
+  Future<void> _downloadUnsplashWallpaper(String? query, int width) async {
     final accessKey = dotenv.env['UNSPLASH_ACCESS_KEY'];
     if (accessKey == null)
       throw Exception("Unsplash API key not found in .env");
@@ -145,26 +219,49 @@ class WallpaperService extends ChangeNotifier {
     final url = Uri.parse(
         "https://api.unsplash.com/photos/random?${query != null ? 'query=$query&' : ''}client_id=$accessKey");
 
-    final response = await http.get(url);
-    if (response.statusCode == 200) {
-      final data = json.decode(response.body);
-      final imageUrl = data['urls']?['regular'];
-      if (imageUrl == null)
-        throw Exception("No image URL found in Unsplash response.");
-
-      final imageResponse = await http.get(Uri.parse(imageUrl));
-      if (imageResponse.statusCode == 200) {
-        Uint8List bytes = imageResponse.bodyBytes;
-        await _unsplashFile.writeAsBytes(bytes);
-        _unsplash = MemoryImage(bytes);
-        notifyListeners();
+    _fetching = true;
+    try {
+      final response = await http.get(url);
+      if (response.statusCode == 200) {
+        final data = json.decode(response.body);
+        final imageUrl = _sizedImageUrl(data['urls'], width);
+        if (imageUrl == null)
+          throw Exception("No image URL found in Unsplash response.");
+
+        final imageResponse = await http.get(imageUrl);
+        if (imageResponse.statusCode == 200) {
+          Uint8List bytes = imageResponse.bodyBytes;
+          await _unsplashFile.writeAsBytes(bytes);
+          _unsplash = MemoryImage(bytes);
+          notifyListeners();
+        } else {
+          throw Exception("Failed to download Unsplash image.");
+        }
       } else {
-        throw Exception("Failed to download Unsplash image.");
+        throw Exception("Failed to fetch Unsplash image: ${response.body}");
       }
-    } else {
-      throw Exception("Failed to fetch Unsplash image: ${response.body}");
+    } finally {
+      _fetching = false;
     }
   }
+
+  // The raw url accepts imgix sizing parameters, "regular" is a fixed 1080px wide rendition
+  Uri? _sizedImageUrl(Map<String, dynamic>? urls, int width) {
+    final raw = urls?['raw'];
+    if (raw == null) {
+      final regular = urls?['regular'];
+      return regular == null ? null : Uri.parse(regular);
+    }
+
+    final uri = Uri.parse(raw);
+    return uri.replace(queryParameters: {
+      ...uri.queryParameters,
+      'w': '$width',
+      'fit': 'max',
+      'fm': 'jpg',
+      'q': '80',
+    });
+  }
 }
 
 class NoFileExplorerException implements Exception {}
@@ -19,6 +19,7 @@
 import 'dart:async';
 
 import 'package:flauncher/app_image_type.dart';
+import 'package:flauncher/flauncher_channel.dart';
 import 'package:flauncher/providers/apps_service.dart';
 import 'package:flauncher/providers/settings_service.dart';
 import 'package:flauncher/widgets/animation_helpers.dart';
@@ -70,6 +71,10 @@ class _AppCardState extends State<AppCard> with TickerProviderStateMixin {
   FocusNode? _lastFocusedNode;
 
   late Future<Tuple2<AppImageType, ImageProvider>> _appImageLoadFuture;
+  late final AppsService _appsService;
+  late final int _imageRequestId;
+  late ImageRequestPriority _imagePriority;
+  bool _imageLoaded = false;
   late final AnimationController _animation = AnimationController(
     vsync: this,
     lowerBound: 0,
@@ -98,8 +103,15 @@ class _AppCardState extends State<AppCard> with TickerProviderStateMixin {
 
     _interactionController = MicroInteractionController(this);
     FocusManager.instance.addHighlightModeListener(_focusHighlightModeChanged);
-    _appImageLoadFuture =
-        _loadAppBannerOrIcon(Provider.of<AppsService>(context, listen: false));
+    _appsService = Provider.of<AppsService>(context, listen: false);
+    _imageRequestId = _appsService.newImageRequestId();
+    // Cards built while scrolling fast may be scrolled past before their image is needed
+    _imagePriority = widget.autofocus
+        ? ImageRequestPriority.focused
+        : Scrollable.recommendDeferredLoadingForContext(context)
+            ? ImageRequestPriority.speculative
+            : ImageRequestPriority.visible;
+    _appImageLoadFuture = _loadAppBannerOrIcon(_appsService);
   }
 
   @override
@@ -117,6 +129,11 @@ class _AppCardState extends State<AppCard> with TickerProviderStateMixin {
     _interactionController.dispose();
     _pressController.dispose();
 
+    // Cards scrolled away before their image arrived do not need it anymore
+    if (!_imageLoaded) {
+      _appsService.cancelImageRequest(_imageRequestId);
+    }
+
     super.dispose();
   }
 
@@ -167,8 +184,13 @@ class _AppCardState extends State<AppCard> with TickerProviderStateMixin {
                               onLongPress: () =>
                                   _onLongPress(context, LogicalKeyboardKey.enter),
                               onFocusChange: (focused) {
+                                _setImagePriority(focused
+                                    ? ImageRequestPriority.focused
+                                    : ImageRequestPriority.visible);
+
                                 if (focused) {
                                   _interactionController.animateFocus();
+                                  context.read<AppsService>().prepareLaunch(widget.application);
                                   
                                   final currentNode = Focus.of(context);
                                   bool shouldScroll = false;
@@ -303,17 +325,27 @@ class _AppCardState extends State<AppCard> with TickerProviderStateMixin {
       AppsService service) async {
     Uint8List bytes = Uint8List(0);
 
-    bytes = await service.getAppBanner(widget.application.packageName);
+    bytes = await service.getAppBanner(widget.application.packageName,
+        requestId: _imageRequestId, priority: _imagePriority);
     AppImageType type = AppImageType.Banner;
 
-    if (bytes.isEmpty) {
+    if (bytes.isEmpty && mounted) {
       type = AppImageType.Icon;
-      bytes = await service.getAppIcon(widget.application.packageName);
+      bytes = await service.getAppIcon(widget.application.packageName,
+          requestId: _imageRequestId, priority: _imagePriority);
     }
 
+    _imageLoaded = true;
     return Tuple2(type, MemoryImage(bytes));
   }
 
+  void _setImagePriority(ImageRequestPriority priority) {
+    if (!_imageLoaded && priority != _imagePriority) {
+      _imagePriority = priority;
+      _appsService.setImageRequestPriority(_imageRequestId, priority);
+    }
+  }
+
   Widget _appImage() {
     App app = widget.application;
 
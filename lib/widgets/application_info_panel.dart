@@ -24,6 +24,7 @@ import 'package:flutter/material.dart';
 import 'package:provider/provider.dart';
 import '/l10n/app_localizations.dart';
 import '../models/app.dart';
+import '../models/app_storage_stats.dart';
 import '../models/category.dart';
 
 class ApplicationInfoPanel extends StatelessWidget {
@@ -84,6 +85,7 @@ class ApplicationInfoPanel extends StatelessWidget {
         style: Theme.of(context).textTheme.bodySmall,
         overflow: TextOverflow.ellipsis,
       ),
+      _StorageUsage(application),
       const Divider(),
       Expanded(
           child: SingleChildScrollView(
@@ -190,4 +192,48 @@ class ApplicationInfoPanel extends StatelessWidget {
   }
 }
 
+class _StorageUsage extends StatefulWidget {
+  final App application;
+
+  const _StorageUsage(this.application);
+
+  @override
+  State<_StorageUsage> createState() => _StorageUsageState();
+}
+
+class _StorageUsageState extends State<_StorageUsage> {
+  late Future<Map<String, AppStorageStats>> _statsFuture;
+
+  @override
+  void initState() {
+    super.initState();
+    _statsFuture =
+        context.read<AppsService>().getStorageStats([widget.application]);
+  }
+
+  @override
+  Widget build(BuildContext context) =>
+      FutureBuilder<Map<String, AppStorageStats>>(
+        future: _statsFuture,
+        builder: (context, snapshot) {
+          AppStorageStats? stats =
+              snapshot.data?[widget.application.packageName];
+
+          if (stats == null) {
+            return const SizedBox.shrink();
+          }
+
+          return Text(
+            AppLocalizations.of(context)!.storageUsage(
+                formatStorageSize(stats.appBytes),
+                formatStorageSize(stats.dataBytes),
+                formatStorageSize(stats.cacheBytes)),
+            style: Theme.of(context).textTheme.bodySmall,
+            maxLines: 2,
+            overflow: TextOverflow.ellipsis,
+          );
+        },
+      );
+}
+
 enum ApplicationInfoPanelResult { none, reorderApp }
@@ -54,7 +54,9 @@ class _NetworkWidgetState extends State<NetworkWidget> {
           break;
         case NetworkType.Wifi:
           int signalLevel = networkService.wirelessNetworkSignalLevel;
-          if (signalLevel == 0) {
+          if (signalLevel == NetworkService.unknownSignalLevel) {
+            iconData = Icons.wifi;
+          } else if (signalLevel == 0) {
             iconData = Icons.signal_wifi_0_bar;
           } else if (signalLevel == 1) {
             iconData = Icons.network_wifi_1_bar;
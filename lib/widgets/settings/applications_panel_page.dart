@@ -26,6 +26,7 @@ import 'package:flutter/material.dart';
 import 'package:provider/provider.dart';
 import '/l10n/app_localizations.dart';
 import '../../models/app.dart';
+import '../../models/app_storage_stats.dart';
 import '../../models/category.dart';
 
 class ApplicationsPanelPage extends StatefulWidget {
@@ -142,13 +143,15 @@ class _AppListItem extends StatefulWidget {
 
 class _AppListItemState extends State<_AppListItem> {
   late Future<ImageProvider> _iconLoadFuture;
+  late Future<Map<String, AppStorageStats>> _storageStatsFuture;
 
   @override
   void initState() {
     super.initState();
 
-    _iconLoadFuture =
-        _loadAppIcon(Provider.of<AppsService>(context, listen: false));
+    AppsService appsService = Provider.of<AppsService>(context, listen: false);
+    _iconLoadFuture = _loadAppIcon(appsService);
+    _storageStatsFuture = appsService.getStorageStats([widget.application]);
   }
 
   @override
@@ -182,6 +185,18 @@ class _AppListItemState extends State<_AppListItem> {
                 maxLines: 2,
                 overflow: TextOverflow.ellipsis,
               ),
+              subtitle: FutureBuilder<Map<String, AppStorageStats>>(
+                future: _storageStatsFuture,
+                builder: (context, statsSnapshot) {
+                  AppStorageStats? stats =
+                      statsSnapshot.data?[widget.application.packageName];
+
+                  return stats != null
+                      ? Text(formatStorageSize(stats.totalBytes),
+                          style: Theme.of(context).textTheme.bodySmall)
+                      : const SizedBox.shrink();
+                },
+              ),
               leading: appIcon,
               trailing: Row(
                 mainAxisSize: MainAxisSize.min,
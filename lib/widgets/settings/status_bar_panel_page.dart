@@ -16,6 +16,8 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+import 'dart:async';
+
 import 'package:flauncher/flauncher_channel.dart';
 import 'package:flauncher/widgets/rounded_switch_list_tile.dart';
 import 'package:flutter/material.dart';
@@ -34,39 +36,28 @@ class _StatusBarPanelPageState extends State<StatusBarPanelPage> {
   final FLauncherChannel _fLauncherChannel = FLauncherChannel();
   bool? _hasPermission;
   bool _isCheckingPermission = true;
+  late final StreamSubscription _permissionStateSubscription;
 
   @override
   void initState() {
     super.initState();
-    _checkPermission();
+    // The state is pushed when listening starts, then when the user grants or revokes it
+    _permissionStateSubscription = _fLauncherChannel.addPermissionStateListener(
+        (state) => setState(() {
+              _hasPermission = state["notificationListener"];
+              _isCheckingPermission = false;
+            }));
   }
 
-  Future<void> _checkPermission() async {
-    setState(() {
-      _isCheckingPermission = true;
-    });
-
-    try {
-      final hasPermission =
-          await _fLauncherChannel.hasNotificationListenerPermission();
-      setState(() {
-        _hasPermission = hasPermission;
-        _isCheckingPermission = false;
-      });
-    } catch (e) {
-      setState(() {
-        _hasPermission = false;
-        _isCheckingPermission = false;
-      });
-    }
+  @override
+  void dispose() {
+    _permissionStateSubscription.cancel();
+    super.dispose();
   }
 
   Future<void> _openPermissionSettings() async {
     try {
       await _fLauncherChannel.openNotificationListenerSettings();
-      // Wait a moment for user to potentially grant permission, then refresh
-      await Future.delayed(const Duration(seconds: 2));
-      _checkPermission();
     } catch (e) {
       // Handle error silently
     }
@@ -112,11 +112,19 @@ class _UnsplashPanelPageState extends State<UnsplashPanelPage> {
                                       listen: false)
                                   .setUnsplashQuery(query);
                               try {
-                                await context
+                                final fetched = await context
                                     .read<WallpaperService>()
                                     .fetchUnsplashWallpaper(
                                       query: query.isEmpty ? null : query,
                                     );
+                                if (!fetched) {
+                                  ScaffoldMessenger.of(context).showSnackBar(
+                                    SnackBar(
+                                      content: Text(localizations
+                                          .unsplashDeferredMessage),
+                                    ),
+                                  );
+                                }
                                 Navigator.of(context).pop();
                               } catch (e) {
                                 ScaffoldMessenger.of(context).showSnackBar(
@@ -0,0 +1,188 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'dart:convert';
+import 'dart:io';
+import 'dart:typed_data';
+
+import 'package:flauncher/app_catalog.dart';
+import 'package:flauncher/flauncher_channel.dart';
+import 'package:flauncher/flauncher_messages.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+void main() {
+  late Directory directory;
+
+  setUpAll(() {
+    TestWidgetsFlutterBinding.ensureInitialized();
+  });
+
+  setUp(() async {
+    directory = await Directory.systemTemp.createTemp("app_catalog_test");
+  });
+
+  tearDown(() async {
+    await directory.delete(recursive: true);
+  });
+
+  Future<String> writeCatalog(List<Uint8List> blocks, {int version = 1}) async {
+    final data = BytesBuilder();
+    for (Uint8List block in blocks) {
+      data.add(block);
+    }
+    final header = ByteData(32)
+      ..setUint32(0, 0x43414C46, Endian.little)
+      ..setUint16(4, version, Endian.little)
+      ..setUint16(6, 40, Endian.little)
+      ..setUint32(8, blocks.length, Endian.little)
+      ..setUint32(12, data.length, Endian.little)
+      ..setUint64(16, 1, Endian.little);
+    final file = File("${directory.path}/app_catalog.bin");
+    await file.writeAsBytes(
+        [...header.buffer.asUint8List(), ...data.takeBytes()]);
+    return file.path;
+  }
+
+  test("reads applications", () async {
+    final path = await writeCatalog([
+      _block([
+        _Record("com.geert.flauncher", "FLauncher", "1.0.0"),
+        _Record("com.android.settings", "Settings", null,
+            sideloaded: true, action: "android.settings.SETTINGS"),
+        _Record("com.example.slow", "com.example.slow", null,
+            placeholder: true),
+      ])
+    ]);
+
+    final applications = await AppCatalog.read(path);
+
+    expect(applications.map((app) => app.packageName),
+        ["com.geert.flauncher", "com.android.settings", "com.example.slow"]);
+    expect(applications[0].name, "FLauncher");
+    expect(applications[0].version, "1.0.0");
+    expect(applications[0].sideloaded, isFalse);
+    expect(applications[0].action, isNull);
+    expect(applications[1].version, isNull);
+    expect(applications[1].sideloaded, isTrue);
+    expect(applications[1].action, "android.settings.SETTINGS");
+    expect(applications[1].placeholder, isFalse);
+    expect(applications[2].placeholder, isTrue);
+  });
+
+  test("appended blocks replace and remove applications", () async {
+    final path = await writeCatalog([
+      _block([
+        _Record("com.geert.flauncher", "FLauncher", "1.0.0"),
+        _Record("uninstalled.app", "Uninstalled", "1.0.0"),
+      ]),
+      _block([_Record("com.geert.flauncher", "FLauncher", "2.0.0")]),
+      _block([_Record("uninstalled.app", null, null, removed: true)]),
+    ]);
+
+    final applications = await AppCatalog.read(path);
+
+    expect(applications, hasLength(1));
+    expect(applications[0].packageName, "com.geert.flauncher");
+    expect(applications[0].version, "2.0.0");
+  });
+
+  test("rejects unknown versions", () async {
+    final path = await writeCatalog([
+      _block([_Record("com.geert.flauncher", "FLauncher", "1.0.0")])
+    ], version: 2);
+
+    expect(AppCatalog.read(path), throwsA(isA<AppCatalogException>()));
+  });
+
+  test("FLauncherChannel reads applications from the catalog", () async {
+    final path = await writeCatalog([
+      _block([_Record("com.geert.flauncher", "FLauncher", "1.0.0")])
+    ]);
+    final channel = MethodChannel(
+        'com.geert.flauncher/method', FLauncherChannel.methodCodec);
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getApplicationCatalog") {
+        return path;
+      }
+      fail("Unhandled method name");
+    });
+
+    List<SystemApplication> applications =
+        await FLauncherChannel().getApplications();
+
+    expect(applications.single.packageName, "com.geert.flauncher");
+  });
+}
+
+class _Record {
+  final String packageName;
+  final String? name;
+  final String? version;
+  final bool sideloaded;
+  final bool removed;
+  final String? action;
+  final bool placeholder;
+
+  _Record(this.packageName, this.name, this.version,
+      {this.sideloaded = false,
+      this.removed = false,
+      this.action,
+      this.placeholder = false});
+}
+
+Uint8List _block(List<_Record> records) {
+  final strings = BytesBuilder();
+  final recordsData = ByteData(records.length * 40);
+
+  void putString(int offset, String? value) {
+    if (value == null) {
+      recordsData.setUint32(offset, 0xFFFFFFFF, Endian.little);
+      recordsData.setUint32(offset + 4, 0, Endian.little);
+    } else {
+      final bytes = utf8.encode(value);
+      recordsData.setUint32(offset, strings.length, Endian.little);
+      recordsData.setUint32(offset + 4, bytes.length, Endian.little);
+      strings.add(bytes);
+    }
+  }
+
+  for (int i = 0; i < records.length; ++i) {
+    final record = records[i];
+    final offset = i * 40;
+    recordsData.setUint32(
+        offset,
+        (record.sideloaded ? 1 : 0) |
+            (record.removed ? 2 : 0) |
+            (record.placeholder ? 4 : 0),
+        Endian.little);
+    putString(offset + 4, record.packageName);
+    putString(offset + 12, record.name);
+    putString(offset + 20, record.version);
+    putString(offset + 28, record.action);
+  }
+
+  final header = ByteData(8)
+    ..setUint32(0, records.length, Endian.little)
+    ..setUint32(4, strings.length, Endian.little);
+  return Uint8List.fromList([
+    ...header.buffer.asUint8List(),
+    ...recordsData.buffer.asUint8List(),
+    ...strings.takeBytes(),
+  ]);
+}
@@ -17,6 +17,7 @@
  */
 
 import 'package:flauncher/flauncher_channel.dart';
+import 'package:flauncher/flauncher_messages.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 
@@ -25,12 +26,19 @@ void main() {
     TestWidgetsFlutterBinding.ensureInitialized();
   });
 
-  test("getApplications", () async {
-    final channel = MethodChannel('com.geert.flauncher/method');
+  test("getApplications falls back to the channel without a catalog", () async {
+    final channel = MethodChannel(
+        'com.geert.flauncher/method', FLauncherChannel.methodCodec);
     channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getApplicationCatalog") {
+        return null;
+      }
       if (call.method == "getApplications") {
         return [
-          {'packageName': 'com.geert.flauncher'}
+          SystemApplication(
+              name: 'FLauncher',
+              packageName: 'com.geert.flauncher',
+              version: '1.0.0')
         ];
       }
       fail("Unhandled method name");
@@ -39,9 +47,239 @@ void main() {
 
     final apps = await fLauncherChannel.getApplications();
 
-    expect(apps, [
-      {'packageName': 'com.geert.flauncher'}
+    expect(apps, hasLength(1));
+    expect(apps[0].packageName, 'com.geert.flauncher');
+    expect(apps[0].name, 'FLauncher');
+    expect(apps[0].version, '1.0.0');
+    expect(apps[0].sideloaded, isFalse);
+    expect(apps[0].action, isNull);
+  });
+
+  test("getUsageRanking", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Object? limit;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getUsageRanking") {
+        limit = call.arguments;
+        return [
+          {"packageName": "com.netflix.ninja", "score": 2.5, "launchCount": 4, "lastUsedMillis": 1000},
+        ];
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final ranking = await fLauncherChannel.getUsageRanking(limit: 3);
+
+    expect(limit, 3);
+    expect(ranking.single["packageName"], "com.netflix.ninja");
+    expect(ranking.single["launchCount"], 4);
+  });
+
+  test("searchApplications", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Map? arguments;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "searchApplications") {
+        arguments = call.arguments;
+        return ["com.google.android.youtube.tv", "com.google.android.youtube.tvkids"];
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final packageNames = await fLauncherChannel.searchApplications("you", limit: 5);
+
+    expect(arguments, {"query": "you", "limit": 5});
+    expect(packageNames, ["com.google.android.youtube.tv", "com.google.android.youtube.tvkids"]);
+  });
+
+  test("getApplications sends the hidden package names", () async {
+    final channel = MethodChannel(
+        'com.geert.flauncher/method', FLauncherChannel.methodCodec);
+    final arguments = [];
+    channel.setMockMethodCallHandler((call) async {
+      arguments.add(call.arguments);
+      if (call.method == "getApplicationCatalog") {
+        return null;
+      }
+      if (call.method == "getApplications") {
+        return [
+          SystemApplication(name: 'com.example.hidden', packageName: 'com.example.hidden')
+        ];
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final apps = await fLauncherChannel.getApplications(
+        hiddenPackageNames: ["com.example.hidden"]);
+
+    expect(arguments, [
+      ["com.example.hidden"],
+      ["com.example.hidden"]
     ]);
+    expect(apps.single.version, isNull);
+  });
+
+  test("getApplicationIconLayers", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    final arguments = [];
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getApplicationIconLayers") {
+        arguments.add(call.arguments);
+        if (call.arguments["packageName"] == "com.example.legacy") {
+          return null;
+        }
+        return {
+          "foreground": Uint8List.fromList([1]),
+          "background": Uint8List.fromList([2]),
+          "layerSize": 144,
+          "mask": Uint8List.fromList([3]),
+          "maskPath": "M50 0A50 50 0 1 1 50 100A50 50 0 1 1 50 0Z",
+        };
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final layers =
+        await fLauncherChannel.getApplicationIconLayers("com.netflix.ninja", 96);
+    final legacyLayers =
+        await fLauncherChannel.getApplicationIconLayers("com.example.legacy", 96);
+
+    expect(arguments.first, {"packageName": "com.netflix.ninja", "size": 96});
+    expect(layers!.foreground, [1]);
+    expect(layers.background, [2]);
+    expect(layers.layerSize, 144);
+    expect(layers.maskPath, startsWith("M50 0"));
+    expect(legacyLayers, isNull);
+  });
+
+  test("cancellable image requests", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    final calls = <MethodCall>[];
+    channel.setMockMethodCallHandler((call) async {
+      calls.add(call);
+      switch (call.method) {
+        case "getApplicationBanner":
+          return call.arguments["requestId"] == 2 ? null : Uint8List.fromList([1]);
+        case "cancelImageRequests":
+        case "setImageRequestPriority":
+          return null;
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+    final firstId = fLauncherChannel.newImageRequestId();
+    final secondId = fLauncherChannel.newImageRequestId();
+
+    final banner = await fLauncherChannel.getApplicationBanner("com.netflix.ninja",
+        requestId: firstId);
+    await fLauncherChannel.cancelImageRequests([secondId]);
+
+    expect(firstId, 1);
+    expect(secondId, 2);
+    expect(banner, [1]);
+    expect(calls.first.arguments,
+        {"packageName": "com.netflix.ninja", "requestId": 1, "priority": 1});
+    expect(calls.last.arguments, [2]);
+    expect(
+        () => fLauncherChannel.getApplicationBanner("com.netflix.ninja", requestId: secondId),
+        throwsA(isA<ImageRequestCancelledException>()));
+  });
+
+  test("image request priorities", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    final calls = <MethodCall>[];
+    channel.setMockMethodCallHandler((call) async {
+      calls.add(call);
+      switch (call.method) {
+        case "getApplicationIcon":
+          return Uint8List.fromList([1]);
+        case "setImageRequestPriority":
+          return null;
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    await fLauncherChannel.getApplicationIcon("com.netflix.ninja",
+        requestId: 3, priority: ImageRequestPriority.speculative);
+    await fLauncherChannel.setImageRequestPriority(3, ImageRequestPriority.focused);
+
+    expect(calls.first.arguments["priority"], 2);
+    expect(calls.last.arguments, {"requestId": 3, "priority": 0});
+  });
+
+  test("icon packs", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    final calls = <MethodCall>[];
+    channel.setMockMethodCallHandler((call) async {
+      calls.add(call);
+      switch (call.method) {
+        case "getIconPacks":
+          return [
+            {"packageName": "com.example.iconpack", "name": "Example icons"}
+          ];
+        case "getIconPack":
+          return "com.example.iconpack";
+        case "setIconPack":
+          return null;
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final iconPacks = await fLauncherChannel.getIconPacks();
+    final iconPack = await fLauncherChannel.getIconPack();
+    await fLauncherChannel.setIconPack(null);
+
+    expect(iconPacks.single["name"], "Example icons");
+    expect(iconPack, "com.example.iconpack");
+    expect(calls.last.method, "setIconPack");
+    expect(calls.last.arguments, isNull);
+  });
+
+  test("getApplicationStats", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Object? packageNames;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getApplicationStats") {
+        packageNames = call.arguments;
+        return [
+          {"packageName": "com.netflix.ninja", "appBytes": 150000000, "dataBytes": 40000000, "cacheBytes": 25000000},
+        ];
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final stats = await fLauncherChannel
+        .getApplicationStats(["com.netflix.ninja", "com.example.uninstalled"]);
+
+    expect(packageNames, ["com.netflix.ninja", "com.example.uninstalled"]);
+    expect(stats.single.packageName, "com.netflix.ninja");
+    expect(stats.single.cacheBytes, 25000000);
+    expect(stats.single.totalBytes, 190000000);
+  });
+
+  test("getWatchNextPoster", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Object? id;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getWatchNextPoster") {
+        id = call.arguments;
+        return Uint8List.fromList([1, 2, 3]);
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final poster = await fLauncherChannel.getWatchNextPoster(42);
+
+    expect(id, 42);
+    expect(poster, [1, 2, 3]);
   });
 
   test("launchApp", () async {
@@ -61,6 +299,23 @@ void main() {
     expect(packageName, "com.geert.flauncher");
   });
 
+  test("prepareLaunch", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    String? packageName;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "prepareLaunch") {
+        packageName = call.arguments as String;
+        return;
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    await fLauncherChannel.prepareLaunch("com.geert.flauncher");
+
+    expect(packageName, "com.geert.flauncher");
+  });
+
   test("openSettings", () async {
     final channel = MethodChannel('com.geert.flauncher/method');
     bool called = false;
@@ -127,6 +382,27 @@ void main() {
     expect(isDefaultLauncher, isTrue);
   });
 
+  test("addPermissionStateListener", () async {
+    const channel = EventChannel('com.geert.flauncher/event_permissions',
+        FLauncherChannel.methodCodec);
+    TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .setMockStreamHandler(
+            channel,
+            MockStreamHandler.inline(onListen: (arguments, events) {
+              events.success({"defaultLauncher": true, "notificationListener": false});
+              events.success({"defaultLauncher": true, "notificationListener": true});
+            }));
+    final fLauncherChannel = FLauncherChannel();
+    final states = <Map<String, dynamic>>[];
+
+    final subscription = fLauncherChannel.addPermissionStateListener(states.add);
+    await pumpEventQueue();
+    await subscription.cancel();
+
+    expect(states.map((state) => state["notificationListener"]), [false, true]);
+    expect(states.first["defaultLauncher"], isTrue);
+  });
+
   test("checkForGetContentAvailability", () async {
     final channel = MethodChannel('com.geert.flauncher/method');
     channel.setMockMethodCallHandler((call) async {
@@ -159,4 +435,97 @@ void main() {
 
     expect(called, isTrue);
   });
+
+  test("getPlatformMetrics", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Object? reset;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getPlatformMetrics") {
+        reset = call.arguments;
+        return {
+          "methods": {
+            "launchApp": {"count": 2, "errors": 0, "p50Micros": 850, "p95Micros": 1200}
+          },
+          "events": {},
+        };
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final metrics = await fLauncherChannel.getPlatformMetrics(reset: true);
+
+    expect(reset, isTrue);
+    expect(metrics["methods"]["launchApp"]["count"], 2);
+    expect(metrics["events"], isEmpty);
+  });
+
+  test("getStrictModeViolations", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    Object? reset;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getStrictModeViolations") {
+        reset = call.arguments;
+        return {
+          "enabled": true,
+          "violations": [
+            {
+              "attribution": "getApplicationBanner",
+              "signature": "DiskReadViolation at MainActivity.loadBanner:270",
+              "count": 3,
+              "stack": ["BlockGuardOs.open:0", "MainActivity.loadBanner:270"],
+            }
+          ],
+        };
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final violations = await fLauncherChannel.getStrictModeViolations();
+
+    expect(reset, isFalse);
+    expect(violations["enabled"], isTrue);
+    expect(violations["violations"][0]["attribution"], "getApplicationBanner");
+    expect(violations["violations"][0]["count"], 3);
+  });
+
+  test("getStartupTimeline", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "getStartupTimeline") {
+        return {
+          "processStartElapsedRealtimeMillis": 1000,
+          "phases": [
+            {"phase": "onCreate", "startMicros": 120000, "durationMicros": 80000},
+            {"phase": "dart.main", "startMicros": 450000, "durationMicros": 0},
+          ],
+        };
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    final timeline = await fLauncherChannel.getStartupTimeline();
+
+    expect((timeline["phases"] as List).map((phase) => phase["phase"]),
+        ["onCreate", "dart.main"]);
+  });
+
+  test("reportStartupMilestone", () async {
+    final channel = MethodChannel('com.geert.flauncher/method');
+    String? milestone;
+    channel.setMockMethodCallHandler((call) async {
+      if (call.method == "reportStartupMilestone") {
+        milestone = call.arguments;
+        return;
+      }
+      fail("Unhandled method name");
+    });
+    final fLauncherChannel = FLauncherChannel();
+
+    await fLauncherChannel.reportStartupMilestone("firstFrame");
+
+    expect(milestone, "firstFrame");
+  });
 }
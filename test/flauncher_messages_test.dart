@@ -0,0 +1,179 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'package:flauncher/flauncher_messages.dart';
+import 'package:flauncher/models/media_session_info.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+void main() {
+  const codec = FLauncherMessageCodec();
+
+  T roundTrip<T>(T value) => codec.decodeMessage(codec.encodeMessage(value)) as T;
+
+  test("SystemApplication round trip", () {
+    final application = roundTrip(SystemApplication(
+        name: "FLauncher",
+        packageName: "com.geert.flauncher",
+        version: null,
+        sideloaded: true,
+        action: "android.settings.SETTINGS"));
+
+    expect(application.name, "FLauncher");
+    expect(application.packageName, "com.geert.flauncher");
+    expect(application.version, isNull);
+    expect(application.sideloaded, isTrue);
+    expect(application.action, "android.settings.SETTINGS");
+  });
+
+  test("MediaSessionInfo round trip", () {
+    final session = roundTrip(MediaSessionInfo(
+        hasActiveSession: true,
+        packageName: "com.example.player",
+        appName: "Player",
+        title: "Title",
+        duration: 1 << 40,
+        isPlaying: true,
+        position: 1000,
+        availableActions: ["pause", "skipToNext", "seekTo"]));
+
+    expect(session.hasActiveSession, isTrue);
+    expect(session.packageName, "com.example.player");
+    expect(session.appName, "Player");
+    expect(session.title, "Title");
+    expect(session.artist, isNull);
+    expect(session.album, isNull);
+    expect(session.duration, 1 << 40);
+    expect(session.isPlaying, isTrue);
+    expect(session.position, 1000);
+    expect(session.availableActions, ["pause", "skipToNext", "seekTo"]);
+  });
+
+  test("NetworkState round trip", () {
+    final state = roundTrip(NetworkState(
+        networkAccess: true,
+        internetAccess: false,
+        networkType: 1,
+        wirelessSignalLevel: 3,
+        downstreamBandwidthKbps: 24000,
+        metered: true));
+
+    expect(state.networkAccess, isTrue);
+    expect(state.internetAccess, isFalse);
+    expect(state.networkType, 1);
+    expect(state.wirelessSignalLevel, 3);
+    expect(state.downstreamBandwidthKbps, 24000);
+    expect(state.metered, isTrue);
+  });
+
+  test("WatchNextProgram round trip", () {
+    final program = roundTrip(WatchNextProgram(
+        id: 1 << 33,
+        packageName: "com.example.player",
+        title: "Title",
+        watchNextType: 0,
+        lastEngagementTimeMillis: 1700000000000,
+        durationMillis: 3600000,
+        lastPlaybackPositionMillis: 1000,
+        intentUri: "intent:#Intent;end"));
+
+    expect(program.id, 1 << 33);
+    expect(program.packageName, "com.example.player");
+    expect(program.title, "Title");
+    expect(program.episodeTitle, isNull);
+    expect(program.watchNextType, 0);
+    expect(program.lastEngagementTimeMillis, 1700000000000);
+    expect(program.durationMillis, 3600000);
+    expect(program.lastPlaybackPositionMillis, 1000);
+    expect(program.intentUri, "intent:#Intent;end");
+    expect(program.posterArtUri, isNull);
+  });
+
+  test("typed messages nest in standard values", () {
+    final event = roundTrip({
+      "action": "PACKAGES_AVAILABLE",
+      "activitiesInfo": [
+        SystemApplication(name: "A", packageName: "a"),
+        SystemApplication(name: "B", packageName: "b"),
+      ]
+    }) as Map;
+
+    expect(event["action"], "PACKAGES_AVAILABLE");
+    expect((event["activitiesInfo"] as List).cast<SystemApplication>().map((app) => app.packageName),
+        ["a", "b"]);
+  });
+
+  group("benchmark", () {
+    const iterations = 200;
+    const applicationCount = 300;
+
+    final typedApplications = List.generate(
+        applicationCount,
+        (i) => SystemApplication(
+            name: "Application $i",
+            packageName: "com.example.application$i",
+            version: "1.$i.0",
+            sideloaded: i.isOdd));
+    final mapApplications = typedApplications
+        .map((app) => {
+              "name": app.name,
+              "packageName": app.packageName,
+              "version": app.version,
+              "sideloaded": app.sideloaded,
+            })
+        .toList();
+
+    int measure(MessageCodec<Object?> messageCodec, Object payload, void Function(Object?) consume) {
+      final stopwatch = Stopwatch()..start();
+      for (int i = 0; i < iterations; ++i) {
+        consume(messageCodec.decodeMessage(messageCodec.encodeMessage(payload)));
+      }
+      return stopwatch.elapsedMicroseconds;
+    }
+
+    test("application list, typed smaller than maps", () {
+      int typedSize = codec.encodeMessage(typedApplications)!.lengthInBytes;
+      int mapSize = const StandardMessageCodec().encodeMessage(mapApplications)!.lengthInBytes;
+
+      expect(typedSize, lessThan(mapSize));
+    });
+
+    // Wall time depends on the machine running the tests, it is only checked with
+    // --dart-define=flauncher.benchmark=true, as the platform benchmarks with -Pflauncher.benchmark
+    test("application list, typed faster than maps", () {
+      // Warm up both paths before timing them
+      measure(codec, typedApplications, (_) {});
+      measure(const StandardMessageCodec(), mapApplications, (_) {});
+
+      int typedMicroseconds = measure(codec, typedApplications, (decoded) {
+        for (SystemApplication app in (decoded as List).cast<SystemApplication>()) {
+          app.packageName;
+        }
+      });
+      int mapMicroseconds = measure(const StandardMessageCodec(), mapApplications, (decoded) {
+        for (Map app in (decoded as List).cast<Map>()) {
+          app.cast<String, dynamic>()["packageName"];
+        }
+      });
+
+      expect(typedMicroseconds, lessThan(mapMicroseconds),
+          reason: "$applicationCount applications x $iterations round trips: "
+              "typed ${typedMicroseconds}us, maps ${mapMicroseconds}us");
+    }, skip: !const bool.fromEnvironment("flauncher.benchmark"));
+  });
+}
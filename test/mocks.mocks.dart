@@ -9,6 +9,8 @@ import 'package:flauncher/database.dart';
 import 'package:flutter/cupertino.dart';
 import 'package:image_picker/image_picker.dart';
 
+import 'package:flauncher/models/app.dart';
+import 'package:flauncher/models/app_storage_stats.dart';
 import 'package:flauncher/models/category.dart';
 import 'package:flauncher/gradients.dart';
 
@@ -98,6 +100,34 @@ class MockAppsService extends Mock implements AppsService {
     returnValue: Future.value(),
     returnValueForMissingStub: Future.value(),
   );
+  
+  @override
+  Future<void> prepareLaunch(App app) => super.noSuchMethod(
+    Invocation.method(#prepareLaunch, [app]),
+    returnValue: Future.value(),
+    returnValueForMissingStub: Future.value(),
+  );
+
+  @override
+  int newImageRequestId() => super.noSuchMethod(
+    Invocation.method(#newImageRequestId, []),
+    returnValue: 1,
+    returnValueForMissingStub: 1,
+  );
+
+  @override
+  Future<void> setImageRequestPriority(int requestId, ImageRequestPriority priority) => super.noSuchMethod(
+    Invocation.method(#setImageRequestPriority, [requestId, priority]),
+    returnValue: Future.value(),
+    returnValueForMissingStub: Future.value(),
+  );
+
+  @override
+  Future<Map<String, AppStorageStats>> getStorageStats(Iterable<App> applications) => super.noSuchMethod(
+    Invocation.method(#getStorageStats, [applications]),
+    returnValue: Future.value(<String, AppStorageStats>{}),
+    returnValueForMissingStub: Future.value(<String, AppStorageStats>{}),
+  );
 }
 
 class MockSettingsService extends Mock implements SettingsService {
@@ -18,7 +18,9 @@
 
 import 'package:drift/drift.dart';
 import 'package:flauncher/database.dart';
+import 'package:flauncher/flauncher_messages.dart';
 import 'package:flauncher/models/app.dart';
+import 'package:flauncher/models/app_storage_stats.dart';
 import 'package:flauncher/models/category.dart';
 import 'package:flauncher/providers/apps_service.dart';
 import 'package:flutter_test/flutter_test.dart';
@@ -32,19 +34,15 @@ void main() {
     test("with empty database", () async {
       final channel = MockFLauncherChannel();
       final database = MockFLauncherDatabase();
-      when(channel.getApplications()).thenAnswer((_) => Future.value([
-            {
-              'packageName': 'com.geert.flauncher',
-              'name': 'FLauncher',
-              'version': null,
-              'sideloaded': false
-            },
-            {
-              'packageName': 'com.geert.flauncher.2',
-              'name': 'FLauncher 2',
-              'version': '2.0.0',
-              'sideloaded': true
-            }
+      when(channel.getApplications(hiddenPackageNames: anyNamed('hiddenPackageNames'))).thenAnswer((_) => Future.value([
+            SystemApplication(
+                packageName: 'com.geert.flauncher',
+                name: 'FLauncher'),
+            SystemApplication(
+                packageName: 'com.geert.flauncher.2',
+                name: 'FLauncher 2',
+                version: '2.0.0',
+                sideloaded: true)
           ]));
       when(database.getApplications()).thenAnswer((_) => Future.value([
             fakeApp(
@@ -92,19 +90,15 @@ void main() {
     test("with newly installed, uninstalled and existing apps", () async {
       final channel = MockFLauncherChannel();
       final database = MockFLauncherDatabase();
-      when(channel.getApplications()).thenAnswer((_) => Future.value([
-            {
-              'packageName': 'com.geert.flauncher',
-              'name': 'FLauncher',
-              'version': '2.0.0',
-              'sideloaded': false,
-            },
-            {
-              'packageName': 'com.geert.flauncher.2',
-              'name': 'FLauncher 2',
-              'version': '1.0.0',
-              'sideloaded': false,
-            }
+      when(channel.getApplications(hiddenPackageNames: anyNamed('hiddenPackageNames'))).thenAnswer((_) => Future.value([
+            SystemApplication(
+                packageName: 'com.geert.flauncher',
+                name: 'FLauncher',
+                version: '2.0.0'),
+            SystemApplication(
+                packageName: 'com.geert.flauncher.2',
+                name: 'FLauncher 2',
+                version: '1.0.0')
           ]));
       when(channel.applicationExists("uninstalled.app"))
           .thenAnswer((_) => Future.value(false));
@@ -156,6 +150,52 @@ when(database.getAppsCategories())
       verify(database.deleteApps(["uninstalled.app"]));
       // These verify calls removed as the API no longer makes these calls during initialization
     });
+
+    test("with unchanged apps and placeholders writes nothing", () async {
+      final channel = MockFLauncherChannel();
+      final database = MockFLauncherDatabase();
+      when(channel.getApplications(hiddenPackageNames: anyNamed('hiddenPackageNames'))).thenAnswer((_) => Future.value([
+            SystemApplication(
+                packageName: 'com.geert.flauncher',
+                name: 'FLauncher',
+                version: '1.0.0'),
+            SystemApplication(
+                packageName: 'com.geert.flauncher.2',
+                name: 'FLauncher 2'),
+            SystemApplication(
+                packageName: 'com.example.slow',
+                name: 'com.example.slow',
+                placeholder: true)
+          ]));
+      when(database.getApplications()).thenAnswer((_) => Future.value([
+            fakeApp(
+                packageName: "com.geert.flauncher",
+                name: "FLauncher",
+                version: "1.0.0"),
+            fakeApp(
+                packageName: "com.geert.flauncher.2",
+                name: "FLauncher 2",
+                version: ""),
+            fakeApp(
+                packageName: "com.example.slow",
+                name: "Slow",
+                version: "3.0")
+          ]));
+      when(database.getCategories())
+          .thenAnswer((_) => Future.value([]));
+      when(database.getAppsCategories())
+          .thenAnswer((_) => Future.value([]));
+      when(database.getLauncherSpacers())
+          .thenAnswer((_) => Future.value([]));
+      when(database.wasCreated).thenReturn(false);
+      AppsService(channel, database);
+      await untilCalled(channel.addAppsChangedListener(any));
+
+      verify(database.getApplications()).called(1);
+      verifyNever(database.transaction(any));
+      verifyNever(database.persistApps(any));
+      verifyNever(database.deleteApps(any));
+    });
   });
 
   test("launchApp calls channel", () async {
@@ -168,6 +208,18 @@ when(database.getAppsCategories())
     await appsService.launchApp(app);
   });
 
+  test("prepareLaunch goes through the channel once per application", () async {
+    final channel = MockFLauncherChannel();
+    final appsService = await _buildInitialisedAppsService(
+        channel, MockFLauncherDatabase(), []);
+    final application = fakeApp(packageName: "com.example.installed");
+
+    await appsService.prepareLaunch(application);
+    await appsService.prepareLaunch(application);
+
+    verify(channel.prepareLaunch("com.example.installed")).called(1);
+  });
+
   test("openAppInfo calls channel", () async {
     final channel = MockFLauncherChannel();
     final database = MockFLauncherDatabase();
@@ -475,6 +527,41 @@ when(database.getAppsCategories())
     verify(database.updateCategory(
         category.id, CategoriesCompanion(rowHeight: Value(120))));
   });
+
+  test("searchApplications leaves hidden applications out", () async {
+    final channel = MockFLauncherChannel();
+    final visible = fakeApp(packageName: "com.example.visible");
+    final hidden = fakeApp(packageName: "com.example.hidden", hidden: true);
+    final appsService = await _buildInitialisedAppsService(channel,
+        MockFLauncherDatabase(), [CategoryWithApps(fakeCategory(), [visible, hidden])]);
+    when(channel.searchApplications("example", limit: 20)).thenAnswer(
+        (_) => Future.value(["com.example.hidden", "com.example.visible"]));
+
+    final results = await appsService.searchApplications("example");
+
+    expect(results.map((application) => application.packageName),
+        ["com.example.visible"]);
+  });
+
+  test("getStorageStats requested together are queried in one call", () async {
+    final channel = MockFLauncherChannel();
+    final appsService = await _buildInitialisedAppsService(
+        channel, MockFLauncherDatabase(), []);
+    final stats = AppStorageStats(
+        packageName: "com.example.a", appBytes: 1, dataBytes: 2, cacheBytes: 1);
+    when(channel.getApplicationStats(["com.example.a", "com.example.b"]))
+        .thenAnswer((_) => Future.value([stats]));
+
+    final results = await Future.wait([
+      appsService.getStorageStats([fakeApp(packageName: "com.example.a")]),
+      appsService.getStorageStats([fakeApp(packageName: "com.example.b")]),
+    ]);
+
+    verify(channel.getApplicationStats(["com.example.a", "com.example.b"]))
+        .called(1);
+    expect(results[0], {"com.example.a": stats});
+    expect(results[1], isEmpty);
+  });
 }
 
 Future<AppsService> _buildInitialisedAppsService(
@@ -482,7 +569,7 @@ Future<AppsService> _buildInitialisedAppsService(
   MockFLauncherDatabase database,
   List<CategoryWithApps> categoriesWithApps,
 ) async {
-  when(channel.getApplications()).thenAnswer((_) => Future.value([]));
+  when(channel.getApplications(hiddenPackageNames: anyNamed('hiddenPackageNames'))).thenAnswer((_) => Future.value([]));
   
   // Build list of all apps from categories
   List<App> allApps = [];
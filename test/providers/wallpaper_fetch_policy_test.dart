@@ -0,0 +1,86 @@
+/*
+ * FLauncher
+ * Copyright (C) 2021  Étienne Fesser
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import 'package:flauncher/providers/network_service.dart';
+import 'package:flauncher/providers/wallpaper_fetch_policy.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+void main() {
+  const policy = WallpaperFetchPolicy();
+
+  WallpaperFetch decide({
+    bool hasInternetAccess = true,
+    NetworkType networkType = NetworkType.Wired,
+    int wirelessSignalLevel = 0,
+    int downstreamBandwidthKbps = 0,
+    bool metered = false,
+    int screenWidth = 3840,
+  }) =>
+      policy.decide(
+        hasInternetAccess: hasInternetAccess,
+        networkType: networkType,
+        wirelessSignalLevel: wirelessSignalLevel,
+        downstreamBandwidthKbps: downstreamBandwidthKbps,
+        metered: metered,
+        screenWidth: screenWidth,
+      );
+
+  test("picks the width from the downstream bandwidth", () {
+    expect(decide(downstreamBandwidthKbps: 100000).width, WallpaperFetchPolicy.fullWidth);
+    expect(decide(downstreamBandwidthKbps: 10000).width, WallpaperFetchPolicy.highWidth);
+    expect(decide(downstreamBandwidthKbps: 3000).width, WallpaperFetchPolicy.lowWidth);
+  });
+
+  test("uses the high width when the bandwidth is unknown", () {
+    final fetch = decide(downstreamBandwidthKbps: 0);
+
+    expect(fetch.deferred, isFalse);
+    expect(fetch.width, WallpaperFetchPolicy.highWidth);
+  });
+
+  test("never exceeds the screen width", () {
+    expect(decide(downstreamBandwidthKbps: 100000, screenWidth: 1920).width, 1920);
+    expect(decide(downstreamBandwidthKbps: 100000, screenWidth: 0).width, WallpaperFetchPolicy.fullWidth);
+  });
+
+  test("defers on metered networks", () {
+    expect(decide(downstreamBandwidthKbps: 100000, metered: true).deferred, isTrue);
+  });
+
+  test("defers on poor links", () {
+    expect(decide(downstreamBandwidthKbps: WallpaperFetchPolicy.poorBandwidthKbps - 1).deferred, isTrue);
+    expect(decide(networkType: NetworkType.Wifi, wirelessSignalLevel: 0, downstreamBandwidthKbps: 50000).deferred,
+        isTrue);
+    expect(decide(networkType: NetworkType.Wifi, wirelessSignalLevel: 2, downstreamBandwidthKbps: 50000).deferred,
+        isFalse);
+  });
+
+  test("does not defer on Wi-Fi with an unknown signal level", () {
+    final fetch = decide(
+        networkType: NetworkType.Wifi,
+        wirelessSignalLevel: NetworkService.unknownSignalLevel,
+        downstreamBandwidthKbps: 50000);
+
+    expect(fetch.deferred, isFalse);
+    expect(fetch.width, WallpaperFetchPolicy.fullWidth);
+  });
+
+  test("defers without internet access", () {
+    expect(decide(hasInternetAccess: false).deferred, isTrue);
+  });
+}
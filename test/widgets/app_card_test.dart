@@ -50,8 +50,12 @@ void main() {
         0xAE, 0x42, 0x60, 0x82, // CRC
       ]);
       
-      when(mockAppsService.getAppBanner(any)).thenAnswer((_) async => pngBytes);
-      when(mockAppsService.getAppIcon(any)).thenAnswer((_) async => pngBytes);
+      when(mockAppsService.getAppBanner(any,
+              requestId: anyNamed('requestId'), priority: anyNamed('priority')))
+          .thenAnswer((_) async => pngBytes);
+      when(mockAppsService.getAppIcon(any,
+              requestId: anyNamed('requestId'), priority: anyNamed('priority')))
+          .thenAnswer((_) async => pngBytes);
       
       // Mock settings service
       when(mockSettingsService.appHighlightAnimationEnabled).thenReturn(false);